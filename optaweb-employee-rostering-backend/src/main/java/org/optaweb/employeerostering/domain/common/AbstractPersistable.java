@@ -20,6 +20,7 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 
@@ -28,8 +29,23 @@ import org.optaplanner.core.api.domain.lookup.PlanningId;
 @MappedSuperclass
 public abstract class AbstractPersistable {
 
+    /**
+     * How many entities, or collections of entities, Hibernate loads in one select when it resolves
+     * the associations of a list of entities that it did not fetch with them.
+     */
+    public static final int FETCH_BATCH_SIZE = 100;
+
+    /**
+     * How many ids Hibernate takes from the sequence at once, so persisting many entities does not select
+     * the next value of the sequence for each of them. The increment of the sequence in the database must match it,
+     * see {@code IdSequenceMigration}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "persistableSequence")
+    @SequenceGenerator(name = "persistableSequence", sequenceName = "hibernate_sequence",
+            allocationSize = ID_ALLOCATION_SIZE)
     @PlanningId
     private Long id;
 
@@ -20,6 +20,7 @@ import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.temporal.IsoFields;
 
 public class DateTimeUtils {
@@ -32,6 +33,21 @@ public class DateTimeUtils {
                 zoneId.getRules().getOffset(dateTime.toInstant()));
     }
 
+    /**
+     * @param dateTime never null
+     * @param zoneId never null
+     * @return never null, the same instant with the offset of the zone at that instant,
+     *         the same instance if it already has that offset
+     */
+    public static OffsetDateTime toOffsetDateTimeInZone(OffsetDateTime dateTime, ZoneId zoneId) {
+        ZoneOffset offset = zoneId.getRules().getOffset(dateTime.toInstant());
+        return offset.equals(dateTime.getOffset()) ? dateTime : dateTime.withOffsetSameInstant(offset);
+    }
+
+    public static long toEpochMinute(OffsetDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(), 60);
+    }
+
     public static boolean sameWeek(DayOfWeek weekStarting, OffsetDateTime dateTime1, OffsetDateTime dateTime2) {
         // ISO-8601 weeks begin on Monday, so we shift dates that begin on weekStarting to Monday
         // To get a week numbering system that use weekStarting instead of Monday
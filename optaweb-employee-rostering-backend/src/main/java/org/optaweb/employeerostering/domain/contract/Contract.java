@@ -16,6 +16,7 @@
 
 package org.optaweb.employeerostering.domain.contract;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -26,13 +27,16 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Cacheable
 @Table(uniqueConstraints = { @UniqueConstraint(columnNames = { "tenantId", "name" }),
         @UniqueConstraint(columnNames = { "id" }) })
+@BatchSize(size = AbstractPersistable.FETCH_BATCH_SIZE)
 // TODO: Single Responsibility Principle - acts as both domain entity and JSON-serializable entity
 public class Contract extends AbstractPersistable {
 
@@ -21,6 +21,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
@@ -28,18 +29,26 @@ import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 import org.optaweb.employeerostering.domain.common.HighContrastColor;
 import org.optaweb.employeerostering.domain.contract.Contract;
 import org.optaweb.employeerostering.domain.skill.Skill;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
+@Cacheable
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "tenantId", "name" }))
+@BatchSize(size = AbstractPersistable.FETCH_BATCH_SIZE)
 public class Employee extends AbstractPersistable {
 
     @NotNull
@@ -66,8 +75,18 @@ public class Employee extends AbstractPersistable {
     @JoinTable(name = "EmployeeSkillProficiencySet",
             joinColumns = @JoinColumn(name = "employeeId", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "skillId", referencedColumnName = "id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<Skill> skillProficiencySet;
 
+    // Encoded by SkillIndex, so hasRequiredSkills() does not compare hash sets; null if not indexed
+    @Transient
+    private long[] skillProficiencyMask;
+
+    // Set when the roster is built, if the employee has worked minutes in archived shifts; null otherwise
+    @Transient
+    private HistoricWorkedMinutes historicWorkedMinutes;
+
     @SuppressWarnings("unused")
     public Employee() {
     }
@@ -125,6 +144,25 @@ public class Employee extends AbstractPersistable {
 
     public void setSkillProficiencySet(Set<Skill> skillProficiencySet) {
         this.skillProficiencySet = skillProficiencySet;
+        this.skillProficiencyMask = null;
+    }
+
+    @JsonIgnore
+    public long[] getSkillProficiencyMask() {
+        return skillProficiencyMask;
+    }
+
+    public void setSkillProficiencyMask(long[] skillProficiencyMask) {
+        this.skillProficiencyMask = skillProficiencyMask;
+    }
+
+    @JsonIgnore
+    public HistoricWorkedMinutes getHistoricWorkedMinutes() {
+        return historicWorkedMinutes;
+    }
+
+    public void setHistoricWorkedMinutes(HistoricWorkedMinutes historicWorkedMinutes) {
+        this.historicWorkedMinutes = historicWorkedMinutes;
     }
 
     public Contract getContract() {
@@ -22,19 +22,30 @@ import java.time.ZoneId;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotNull;
 
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.optaweb.employeerostering.domain.common.DateTimeUtils;
 import org.optaweb.employeerostering.domain.employee.view.EmployeeAvailabilityView;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = { "tenantId", "employee_id", "startDateTime", "endDateTime" }))
+@Table(uniqueConstraints = @UniqueConstraint(
+        columnNames = { "tenantId", "employee_id", "startDateTime", "endDateTime" }),
+        // Like the indexes of Shift, for the availabilities of a date range
+        indexes = {
+                @Index(name = "EmployeeAvailability_tenantId_endDateTime",
+                        columnList = "tenantId, endDateTime, startDateTime"),
+                @Index(name = "EmployeeAvailability_employee_endDateTime",
+                        columnList = "employee_id, endDateTime, startDateTime") })
 // TODO: Single Responsibility Principle - acts as both domain entity and JSON-serializable entity
 public class EmployeeAvailability extends AbstractPersistable {
 
@@ -50,6 +61,12 @@ public class EmployeeAvailability extends AbstractPersistable {
     @NotNull
     private EmployeeAvailabilityState state;
 
+    // Derived from startDateTime and endDateTime, so the score calculation joins and computes on primitives
+    @Transient
+    private long startEpochMinute;
+    @Transient
+    private long endEpochMinute;
+
     @SuppressWarnings("unused")
     public EmployeeAvailability() {
     }
@@ -60,6 +77,7 @@ public class EmployeeAvailability extends AbstractPersistable {
         this.employee = employee;
         this.startDateTime = startDateTime;
         this.endDateTime = endDateTime;
+        updateEpochMinutes();
     }
 
     public EmployeeAvailability(ZoneId zoneId, EmployeeAvailabilityView employeeAvailabilityView, Employee employee) {
@@ -70,6 +88,24 @@ public class EmployeeAvailability extends AbstractPersistable {
         this.endDateTime = OffsetDateTime.of(employeeAvailabilityView.getEndDateTime(),
                 zoneId.getRules().getOffset(employeeAvailabilityView.getEndDateTime()));
         this.state = employeeAvailabilityView.getState();
+        updateEpochMinutes();
+    }
+
+    private EmployeeAvailability(EmployeeAvailability other, ZoneId zoneId) {
+        super(other);
+        this.employee = other.employee;
+        this.startDateTime = DateTimeUtils.toOffsetDateTimeInZone(other.startDateTime, zoneId);
+        this.endDateTime = DateTimeUtils.toOffsetDateTimeInZone(other.endDateTime, zoneId);
+        this.state = other.state;
+        // The same instants
+        this.startEpochMinute = other.startEpochMinute;
+        this.endEpochMinute = other.endEpochMinute;
+    }
+
+    @PostLoad
+    private void updateEpochMinutes() {
+        startEpochMinute = (startDateTime == null) ? 0L : DateTimeUtils.toEpochMinute(startDateTime);
+        endEpochMinute = (endDateTime == null) ? 0L : DateTimeUtils.toEpochMinute(endDateTime);
     }
 
     @AssertTrue
@@ -83,6 +119,21 @@ public class EmployeeAvailability extends AbstractPersistable {
         return Duration.between(startDateTime, endDateTime);
     }
 
+    @JsonIgnore
+    public long getDurationInMinutes() {
+        return endEpochMinute - startEpochMinute;
+    }
+
+    @JsonIgnore
+    public long getStartEpochMinute() {
+        return startEpochMinute;
+    }
+
+    @JsonIgnore
+    public long getEndEpochMinute() {
+        return endEpochMinute;
+    }
+
     @Override
     public String toString() {
         return employee + ":" + startDateTime + "-" + endDateTime;
@@ -106,6 +157,7 @@ public class EmployeeAvailability extends AbstractPersistable {
 
     public void setStartDateTime(OffsetDateTime startDateTime) {
         this.startDateTime = startDateTime;
+        updateEpochMinutes();
     }
 
     public OffsetDateTime getEndDateTime() {
@@ -114,6 +166,7 @@ public class EmployeeAvailability extends AbstractPersistable {
 
     public void setEndDateTime(OffsetDateTime endDateTime) {
         this.endDateTime = endDateTime;
+        updateEpochMinutes();
     }
 
     public EmployeeAvailabilityState getState() {
@@ -124,7 +177,11 @@ public class EmployeeAvailability extends AbstractPersistable {
         this.state = state;
     }
 
+    /**
+     * @param zoneId never null
+     * @return never null, a copy with the same instants in the offsets of the zone
+     */
     public EmployeeAvailability inTimeZone(ZoneId zoneId) {
-        return new EmployeeAvailability(zoneId, new EmployeeAvailabilityView(zoneId, this), getEmployee());
+        return new EmployeeAvailability(this, zoneId);
     }
 }
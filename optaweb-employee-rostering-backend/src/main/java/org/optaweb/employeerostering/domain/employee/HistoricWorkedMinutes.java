@@ -0,0 +1,89 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.domain.employee;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The minutes an employee worked in archived shifts, which a roster does not load,
+ * per day, week, month and year those shifts start in.
+ * The contract minutes constraints count them towards the periods that the shifts of the roster also fall in,
+ * so archiving a shift does not change whether a later shift exceeds a contract maximum.
+ * <p>
+ * Periods are keyed like the contract minutes constraints key them:
+ * by epoch day, epoch day of the first day of the week, year * 12 + month - 1 and year.
+ */
+public class HistoricWorkedMinutes {
+
+    private final Employee employee;
+    private final Map<Integer, Long> dailyMinutesMap = new HashMap<>();
+    private final Map<Integer, Long> weeklyMinutesMap = new HashMap<>();
+    private final Map<Integer, Long> monthlyMinutesMap = new HashMap<>();
+    private final Map<Integer, Long> yearlyMinutesMap = new HashMap<>();
+
+    public HistoricWorkedMinutes(Employee employee) {
+        this.employee = employee;
+    }
+
+    /**
+     * @param startDate never null, the start date of the shift in the time zone of the roster
+     * @param weekStartDay never null
+     * @param lengthInMinutes at least 0
+     */
+    public void addShift(LocalDate startDate, DayOfWeek weekStartDay, long lengthInMinutes) {
+        int day = (int) startDate.toEpochDay();
+        dailyMinutesMap.merge(day, lengthInMinutes, Long::sum);
+        weeklyMinutesMap.merge(day - (startDate.getDayOfWeek().getValue() - weekStartDay.getValue() + 7) % 7,
+                lengthInMinutes, Long::sum);
+        monthlyMinutesMap.merge(startDate.getYear() * 12 + startDate.getMonthValue() - 1, lengthInMinutes, Long::sum);
+        yearlyMinutesMap.merge(startDate.getYear(), lengthInMinutes, Long::sum);
+    }
+
+    @Override
+    public String toString() {
+        return "HistoricWorkedMinutes(" + employee + ")";
+    }
+
+    // ************************************************************************
+    // Simple getters
+    // ************************************************************************
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public Map<Integer, Long> getDailyMinutesMap() {
+        return Collections.unmodifiableMap(dailyMinutesMap);
+    }
+
+    public Map<Integer, Long> getWeeklyMinutesMap() {
+        return Collections.unmodifiableMap(weeklyMinutesMap);
+    }
+
+    public Map<Integer, Long> getMonthlyMinutesMap() {
+        return Collections.unmodifiableMap(monthlyMinutesMap);
+    }
+
+    public Map<Integer, Long> getYearlyMinutesMap() {
+        return Collections.unmodifiableMap(yearlyMinutesMap);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+/**
+ * How many best solutions are waiting to be written, and how the writes performed since the application started.
+ */
+public class BestSolutionWriterStatistics {
+
+    // At most one per tenant, because a best solution replaces the one waiting before it
+    private int pendingRosterCount;
+    private long submittedCount;
+    // Best solutions replaced by a later one before they were written
+    private long coalescedCount;
+    private long flushCount;
+    private long failedFlushCount;
+    private long totalFlushMillis;
+    private long maximumFlushMillis;
+
+    @SuppressWarnings("unused")
+    public BestSolutionWriterStatistics() {
+    }
+
+    public BestSolutionWriterStatistics(int pendingRosterCount, long submittedCount, long coalescedCount,
+            long flushCount, long failedFlushCount, long totalFlushMillis, long maximumFlushMillis) {
+        this.pendingRosterCount = pendingRosterCount;
+        this.submittedCount = submittedCount;
+        this.coalescedCount = coalescedCount;
+        this.flushCount = flushCount;
+        this.failedFlushCount = failedFlushCount;
+        this.totalFlushMillis = totalFlushMillis;
+        this.maximumFlushMillis = maximumFlushMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "BestSolutionWriterStatistics(" + pendingRosterCount + " pending, " + submittedCount + " submitted, "
+                + coalescedCount + " coalesced, " + flushCount + " flushes, " + failedFlushCount + " failed, "
+                + totalFlushMillis + " ms total, " + maximumFlushMillis + " ms maximum)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public int getPendingRosterCount() {
+        return pendingRosterCount;
+    }
+
+    public void setPendingRosterCount(int pendingRosterCount) {
+        this.pendingRosterCount = pendingRosterCount;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    public void setSubmittedCount(long submittedCount) {
+        this.submittedCount = submittedCount;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public void setCoalescedCount(long coalescedCount) {
+        this.coalescedCount = coalescedCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public void setFlushCount(long flushCount) {
+        this.flushCount = flushCount;
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount;
+    }
+
+    public void setFailedFlushCount(long failedFlushCount) {
+        this.failedFlushCount = failedFlushCount;
+    }
+
+    public long getTotalFlushMillis() {
+        return totalFlushMillis;
+    }
+
+    public void setTotalFlushMillis(long totalFlushMillis) {
+        this.totalFlushMillis = totalFlushMillis;
+    }
+
+    public long getMaximumFlushMillis() {
+        return maximumFlushMillis;
+    }
+
+    public void setMaximumFlushMillis(long maximumFlushMillis) {
+        this.maximumFlushMillis = maximumFlushMillis;
+    }
+}
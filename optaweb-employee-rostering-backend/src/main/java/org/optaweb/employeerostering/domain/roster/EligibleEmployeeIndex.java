@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+
+/**
+ * Determines per shift which employees are eligible to take it:
+ * employees that have the required skills of the shift and its spot, and are not unavailable during the shift.
+ * Assigning any other employee always breaks a hard constraint, so the solver need not try it.
+ * A tenant can lower those constraints to a medium or soft weight though:
+ * then the employees they would exclude stay eligible, so the solver can still weigh them.
+ * <p>
+ * Shifts with the same spot and the same required skills share one list of qualified employees.
+ * Only a shift that overlaps an unavailability of one of those employees gets a list of its own.
+ */
+public final class EligibleEmployeeIndex {
+
+    private final List<Employee> employeeList;
+    private final boolean restrictToQualifiedEmployees;
+    // UNAVAILABLE availabilities, sorted by start
+    private final EmployeeAvailability[] unavailabilities;
+    private final long maximumUnavailabilityDurationInMinutes;
+    private final Map<Spot, Map<Set<Skill>, List<Employee>>> qualifiedEmployeeListMap = new HashMap<>();
+
+    /**
+     * @param employeeList never null
+     * @param employeeAvailabilityList never null
+     * @param restrictToQualifiedEmployees false to ignore the required skills
+     * @param restrictToAvailableEmployees false to ignore the unavailabilities
+     */
+    public EligibleEmployeeIndex(List<Employee> employeeList, List<EmployeeAvailability> employeeAvailabilityList,
+            boolean restrictToQualifiedEmployees, boolean restrictToAvailableEmployees) {
+        this.employeeList = Collections.unmodifiableList(employeeList);
+        this.restrictToQualifiedEmployees = restrictToQualifiedEmployees;
+        unavailabilities = !restrictToAvailableEmployees ? new EmployeeAvailability[0]
+                : employeeAvailabilityList.stream()
+                        .filter(employeeAvailability -> employeeAvailability.getState()
+                                == EmployeeAvailabilityState.UNAVAILABLE)
+                        .sorted(Comparator.comparingLong(EmployeeAvailability::getStartEpochMinute))
+                        .toArray(EmployeeAvailability[]::new);
+        long maximumDuration = 0L;
+        for (EmployeeAvailability unavailability : unavailabilities) {
+            maximumDuration = Math.max(maximumDuration, unavailability.getDurationInMinutes());
+        }
+        maximumUnavailabilityDurationInMinutes = maximumDuration;
+    }
+
+    /**
+     * Sets the eligible employees of every shift of the roster, which is the value range of its employee.
+     * Only the required skill and unavailable time slot constraints with a hard weight narrow that range.
+     * The skill masks must be indexed first, see {@link org.optaweb.employeerostering.domain.skill.SkillIndex}.
+     * @param roster never null
+     * @param restrictToEligibleEmployees false to let every shift draw from all employees of the roster
+     */
+    public static void indexRoster(Roster roster, boolean restrictToEligibleEmployees) {
+        RosterConstraintConfiguration rosterConstraintConfiguration = roster.getRosterConstraintConfiguration();
+        boolean restrictToQualifiedEmployees = restrictToEligibleEmployees
+                && rosterConstraintConfiguration.getRequiredSkill().getHardScore() != 0L;
+        boolean restrictToAvailableEmployees = restrictToEligibleEmployees
+                && rosterConstraintConfiguration.getUnavailableTimeSlot().getHardScore() != 0L;
+        if (!restrictToQualifiedEmployees && !restrictToAvailableEmployees) {
+            List<Employee> employeeList = Collections.unmodifiableList(roster.getEmployeeList());
+            for (Shift shift : roster.getShiftList()) {
+                shift.setEligibleEmployeeList(employeeList);
+            }
+            return;
+        }
+        EligibleEmployeeIndex eligibleEmployeeIndex = new EligibleEmployeeIndex(roster.getEmployeeList(),
+                roster.getEmployeeAvailabilityList(), restrictToQualifiedEmployees, restrictToAvailableEmployees);
+        for (Shift shift : roster.getShiftList()) {
+            shift.setEligibleEmployeeList(eligibleEmployeeIndex.getEligibleEmployeeList(shift));
+        }
+    }
+
+    /**
+     * @param shift never null
+     * @return never null, unmodifiable
+     */
+    public List<Employee> getEligibleEmployeeList(Shift shift) {
+        List<Employee> qualifiedEmployeeList = getQualifiedEmployeeList(shift);
+        Set<Employee> unavailableEmployeeSet = getUnavailableEmployeeSet(shift);
+        if (unavailableEmployeeSet.isEmpty()) {
+            return qualifiedEmployeeList;
+        }
+        List<Employee> eligibleEmployeeList = new ArrayList<>(qualifiedEmployeeList.size());
+        for (Employee employee : qualifiedEmployeeList) {
+            if (!unavailableEmployeeSet.contains(employee)) {
+                eligibleEmployeeList.add(employee);
+            }
+        }
+        return Collections.unmodifiableList(eligibleEmployeeList);
+    }
+
+    private List<Employee> getQualifiedEmployeeList(Shift shift) {
+        if (!restrictToQualifiedEmployees) {
+            return employeeList;
+        }
+        return qualifiedEmployeeListMap.computeIfAbsent(shift.getSpot(), spot -> new HashMap<>())
+                .computeIfAbsent(shift.getRequiredSkillSet(), requiredSkillSet -> {
+                    List<Employee> qualifiedEmployeeList = new ArrayList<>();
+                    for (Employee employee : employeeList) {
+                        if (shift.hasRequiredSkills(employee)) {
+                            qualifiedEmployeeList.add(employee);
+                        }
+                    }
+                    return Collections.unmodifiableList(qualifiedEmployeeList);
+                });
+    }
+
+    private Set<Employee> getUnavailableEmployeeSet(Shift shift) {
+        long start = shift.getStartEpochMinute();
+        long end = shift.getEndEpochMinute();
+        // Only unavailabilities that start before the shift ends and at most the longest duration before it starts
+        int i = getFirstIndexStartingAtOrAfter(end) - 1;
+        Set<Employee> unavailableEmployeeSet = Collections.emptySet();
+        for (; i >= 0 && unavailabilities[i].getStartEpochMinute() > start - maximumUnavailabilityDurationInMinutes;
+                i--) {
+            EmployeeAvailability unavailability = unavailabilities[i];
+            if (unavailability.getEndEpochMinute() > start) {
+                if (unavailableEmployeeSet.isEmpty()) {
+                    unavailableEmployeeSet = new HashSet<>();
+                }
+                unavailableEmployeeSet.add(unavailability.getEmployee());
+            }
+        }
+        return unavailableEmployeeSet;
+    }
+
+    private int getFirstIndexStartingAtOrAfter(long epochMinute) {
+        int low = 0;
+        int high = unavailabilities.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (unavailabilities[middle].getStartEpochMinute() < epochMinute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The number of move threads or partition threads a solver runs with, and what it was derived from.
+ */
+public class MoveThreadSizing {
+
+    // Null if the solver runs without move threads
+    private Integer moveThreadCount;
+    // Null if the solver runs without move threads
+    private Integer moveThreadBufferSize;
+    // Null if the solver runs without partitioned search
+    private Integer runnablePartThreadLimit;
+    // The number of shifts times the number of employees
+    private long problemScale;
+    // Including this solver
+    private int concurrentSolverCount;
+    private int availableProcessorCount;
+
+    @SuppressWarnings("unused")
+    public MoveThreadSizing() {
+    }
+
+    public MoveThreadSizing(Integer moveThreadCount, Integer moveThreadBufferSize, long problemScale,
+            int concurrentSolverCount, int availableProcessorCount) {
+        this(moveThreadCount, moveThreadBufferSize, null, problemScale, concurrentSolverCount,
+                availableProcessorCount);
+    }
+
+    public MoveThreadSizing(Integer moveThreadCount, Integer moveThreadBufferSize, Integer runnablePartThreadLimit,
+            long problemScale, int concurrentSolverCount, int availableProcessorCount) {
+        this.moveThreadCount = moveThreadCount;
+        this.moveThreadBufferSize = moveThreadBufferSize;
+        this.runnablePartThreadLimit = runnablePartThreadLimit;
+        this.problemScale = problemScale;
+        this.concurrentSolverCount = concurrentSolverCount;
+        this.availableProcessorCount = availableProcessorCount;
+    }
+
+    @JsonIgnore
+    public boolean isMultithreaded() {
+        return moveThreadCount != null;
+    }
+
+    @JsonIgnore
+    public boolean isPartitioned() {
+        return runnablePartThreadLimit != null;
+    }
+
+    @Override
+    public String toString() {
+        return "MoveThreadSizing(" + (isMultithreaded() ? moveThreadCount + " move threads" : "single threaded")
+                + (isPartitioned() ? ", " + runnablePartThreadLimit + " partition threads" : "")
+                + ", problemScale " + problemScale + ", " + concurrentSolverCount + " solvers on "
+                + availableProcessorCount + " processors)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public Integer getMoveThreadCount() {
+        return moveThreadCount;
+    }
+
+    public void setMoveThreadCount(Integer moveThreadCount) {
+        this.moveThreadCount = moveThreadCount;
+    }
+
+    public Integer getMoveThreadBufferSize() {
+        return moveThreadBufferSize;
+    }
+
+    public void setMoveThreadBufferSize(Integer moveThreadBufferSize) {
+        this.moveThreadBufferSize = moveThreadBufferSize;
+    }
+
+    public Integer getRunnablePartThreadLimit() {
+        return runnablePartThreadLimit;
+    }
+
+    public void setRunnablePartThreadLimit(Integer runnablePartThreadLimit) {
+        this.runnablePartThreadLimit = runnablePartThreadLimit;
+    }
+
+    public long getProblemScale() {
+        return problemScale;
+    }
+
+    public void setProblemScale(long problemScale) {
+        this.problemScale = problemScale;
+    }
+
+    public int getConcurrentSolverCount() {
+        return concurrentSolverCount;
+    }
+
+    public void setConcurrentSolverCount(int concurrentSolverCount) {
+        this.concurrentSolverCount = concurrentSolverCount;
+    }
+
+    public int getAvailableProcessorCount() {
+        return availableProcessorCount;
+    }
+
+    public void setAvailableProcessorCount(int availableProcessorCount) {
+        this.availableProcessorCount = availableProcessorCount;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+import java.time.LocalDateTime;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * An employee whose availability changed between two date times in the time zone of the roster,
+ * for example because the employee called in sick.
+ */
+public class ReplanChange {
+
+    @NotNull
+    private Long employeeId;
+    @NotNull
+    private LocalDateTime startDateTime; // Inclusive
+    @NotNull
+    private LocalDateTime endDateTime; // Exclusive
+
+    @SuppressWarnings("unused")
+    public ReplanChange() {
+    }
+
+    public ReplanChange(Long employeeId, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        this.employeeId = employeeId;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(Long employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public LocalDateTime getStartDateTime() {
+        return startDateTime;
+    }
+
+    public void setStartDateTime(LocalDateTime startDateTime) {
+        this.startDateTime = startDateTime;
+    }
+
+    public LocalDateTime getEndDateTime() {
+        return endDateTime;
+    }
+
+    public void setEndDateTime(LocalDateTime endDateTime) {
+        this.endDateTime = endDateTime;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.optaweb.employeerostering.domain.common.DateTimeUtils;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.shift.PinningShiftFilter;
+import org.optaweb.employeerostering.domain.shift.Shift;
+
+/**
+ * Restricts a replan to the shifts around a few changes, so the solver only searches a small part of the roster.
+ * <p>
+ * The neighbourhood of a change is every shift within a number of days of the change
+ * that is assigned to its employee, or that its employee is eligible for.
+ * Those shifts draw from the same employees, so the solver can cover the shifts of the changed employee
+ * by moving the other employees around among them. Every other shift is pinned by {@link PinningShiftFilter}.
+ * <p>
+ * A change makes its employee unavailable between its date times, even if no availability is stored for it yet.
+ */
+public final class ReplanNeighbourhood {
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private ReplanNeighbourhood() {
+    }
+
+    /**
+     * Limits the movable shifts of the roster to the neighbourhood of the changes,
+     * and unassigns the shifts in it of a changed employee that is now unavailable or no longer eligible.
+     * A changed employee is no longer eligible for the movable shifts that overlap its change either.
+     * The roster must be indexed first, see {@link EligibleEmployeeIndex}.
+     * @param roster never null
+     * @param changeList never null
+     * @param neighbourhoodDays at least 0, how many days before and after a change its neighbourhood reaches
+     * @return the number of shifts in the neighbourhood, including pinned ones
+     */
+    public static int reopenNeighbourhood(Roster roster, List<ReplanChange> changeList, int neighbourhoodDays) {
+        if (neighbourhoodDays < 0) {
+            throw new IllegalArgumentException("The neighbourhoodDays (" + neighbourhoodDays
+                    + ") must not be negative.");
+        }
+        ZoneId zoneId = roster.getRosterState().getTimeZone();
+        Map<Long, Employee> employeeMap = new HashMap<>(roster.getEmployeeList().size());
+        for (Employee employee : roster.getEmployeeList()) {
+            employeeMap.put(employee.getId(), employee);
+        }
+        Set<Long> replanShiftIdSet = new HashSet<>();
+        // The changes of every changed employee, as start and end epoch minutes
+        Map<Employee, List<long[]>> changeTimeSlotListMap = new HashMap<>(changeList.size());
+        for (ReplanChange change : changeList) {
+            Employee employee = employeeMap.get(change.getEmployeeId());
+            if (employee == null) {
+                throw new IllegalArgumentException("The change's employeeId (" + change.getEmployeeId()
+                        + ") is not an employee of the roster of tenantId (" + roster.getTenantId() + ").");
+            }
+            long changeStart = toEpochMinute(change.getStartDateTime(), zoneId);
+            long changeEnd = toEpochMinute(change.getEndDateTime(), zoneId);
+            changeTimeSlotListMap.computeIfAbsent(employee, e -> new ArrayList<>())
+                    .add(new long[] { changeStart, changeEnd });
+            long neighbourhoodStart = changeStart - neighbourhoodDays * MINUTES_PER_DAY;
+            long neighbourhoodEnd = changeEnd + neighbourhoodDays * MINUTES_PER_DAY;
+            for (Shift shift : roster.getShiftList()) {
+                if (shift.getStartEpochMinute() < neighbourhoodEnd && shift.getEndEpochMinute() > neighbourhoodStart
+                        && (employee.equals(shift.getEmployee()) || isEligible(employee, shift))) {
+                    replanShiftIdSet.add(shift.getId());
+                }
+            }
+        }
+        roster.setReplanShiftIdSet(replanShiftIdSet);
+
+        // Those and the stored unavailabilities of every changed employee, so no shift scans every availability
+        Map<Employee, List<long[]>> unavailableTimeSlotListMap = new HashMap<>(changeTimeSlotListMap.size());
+        changeTimeSlotListMap.forEach((employee, changeTimeSlotList) -> unavailableTimeSlotListMap.put(employee,
+                new ArrayList<>(changeTimeSlotList)));
+        for (EmployeeAvailability employeeAvailability : roster.getEmployeeAvailabilityList()) {
+            List<long[]> unavailableTimeSlotList = unavailableTimeSlotListMap.get(employeeAvailability.getEmployee());
+            if (unavailableTimeSlotList != null
+                    && employeeAvailability.getState() == EmployeeAvailabilityState.UNAVAILABLE) {
+                unavailableTimeSlotList.add(new long[] { employeeAvailability.getStartEpochMinute(),
+                        employeeAvailability.getEndEpochMinute() });
+            }
+        }
+
+        PinningShiftFilter pinningShiftFilter = new PinningShiftFilter();
+        for (Shift shift : roster.getShiftList()) {
+            if (!replanShiftIdSet.contains(shift.getId()) || pinningShiftFilter.accept(roster, shift)) {
+                continue;
+            }
+            Employee employee = shift.getEmployee();
+            if (employee != null && unavailableTimeSlotListMap.containsKey(employee)
+                    && (!isEligible(employee, shift) || overlaps(unavailableTimeSlotListMap.get(employee), shift))) {
+                shift.setEmployee(null);
+            }
+            // Else the solver could assign the changed employee again, as no constraint knows of the change
+            List<Employee> eligibleEmployeeList = shift.getEligibleEmployeeList();
+            for (Map.Entry<Employee, List<long[]>> changeTimeSlotListEntry : changeTimeSlotListMap.entrySet()) {
+                Employee changedEmployee = changeTimeSlotListEntry.getKey();
+                if (overlaps(changeTimeSlotListEntry.getValue(), shift) && eligibleEmployeeList != null
+                        && eligibleEmployeeList.contains(changedEmployee)) {
+                    List<Employee> narrowedEmployeeList = new ArrayList<>(eligibleEmployeeList);
+                    narrowedEmployeeList.remove(changedEmployee);
+                    eligibleEmployeeList = Collections.unmodifiableList(narrowedEmployeeList);
+                    shift.setEligibleEmployeeList(eligibleEmployeeList);
+                }
+            }
+        }
+        return replanShiftIdSet.size();
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime, ZoneId zoneId) {
+        return DateTimeUtils.toEpochMinute(OffsetDateTime.of(dateTime, zoneId.getRules().getOffset(dateTime)));
+    }
+
+    private static boolean isEligible(Employee employee, Shift shift) {
+        List<Employee> eligibleEmployeeList = shift.getEligibleEmployeeList();
+        return (eligibleEmployeeList != null) ? eligibleEmployeeList.contains(employee)
+                : shift.hasRequiredSkills(employee);
+    }
+
+    private static boolean overlaps(List<long[]> timeSlotList, Shift shift) {
+        for (long[] timeSlot : timeSlotList) {
+            if (timeSlot[0] < shift.getEndEpochMinute() && timeSlot[1] > shift.getStartEpochMinute()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
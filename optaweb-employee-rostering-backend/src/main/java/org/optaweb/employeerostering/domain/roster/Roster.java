@@ -17,7 +17,9 @@
 package org.optaweb.employeerostering.domain.roster;
 
 import java.time.OffsetDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.optaplanner.core.api.domain.constraintweight.ConstraintConfigurationProvider;
 import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
@@ -25,11 +27,11 @@ import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.solution.ProblemFactCollectionProperty;
 import org.optaplanner.core.api.domain.solution.ProblemFactProperty;
-import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.skill.Skill;
 import org.optaweb.employeerostering.domain.spot.Spot;
@@ -46,10 +48,12 @@ public class Roster extends AbstractPersistable {
     @ProblemFactCollectionProperty
     private List<Spot> spotList;
     @ProblemFactCollectionProperty
-    @ValueRangeProvider(id = "employeeRange")
     private List<Employee> employeeList;
     @ProblemFactCollectionProperty
     private List<EmployeeAvailability> employeeAvailabilityList;
+    // Of the shifts that are archived, so not in the shift list, also linked from their employees
+    @ProblemFactCollectionProperty
+    private List<HistoricWorkedMinutes> historicWorkedMinutesList = Collections.emptyList();
 
     @ProblemFactProperty
     private RosterState rosterState;
@@ -62,6 +66,8 @@ public class Roster extends AbstractPersistable {
 
     private boolean isNondisruptivePlanning;
     private OffsetDateTime nondisruptiveReplanFrom;
+    // Null unless the replan is restricted to a neighbourhood, see ReplanNeighbourhood
+    private Set<Long> replanShiftIdSet = null;
 
     @SuppressWarnings("unused")
     public Roster() {
@@ -136,6 +142,14 @@ public class Roster extends AbstractPersistable {
         this.employeeAvailabilityList = employeeAvailabilityList;
     }
 
+    public List<HistoricWorkedMinutes> getHistoricWorkedMinutesList() {
+        return historicWorkedMinutesList;
+    }
+
+    public void setHistoricWorkedMinutesList(List<HistoricWorkedMinutes> historicWorkedMinutesList) {
+        this.historicWorkedMinutesList = historicWorkedMinutesList;
+    }
+
     public RosterState getRosterState() {
         return rosterState;
     }
@@ -175,4 +189,12 @@ public class Roster extends AbstractPersistable {
     public void setNondisruptiveReplanFrom(OffsetDateTime undistruptiveReplanFrom) {
         this.nondisruptiveReplanFrom = undistruptiveReplanFrom;
     }
+
+    public Set<Long> getReplanShiftIdSet() {
+        return replanShiftIdSet;
+    }
+
+    public void setReplanShiftIdSet(Set<Long> replanShiftIdSet) {
+        this.replanShiftIdSet = replanShiftIdSet;
+    }
 }
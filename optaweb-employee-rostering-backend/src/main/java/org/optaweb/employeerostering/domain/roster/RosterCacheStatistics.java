@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+/**
+ * How well the cache of built rosters performs since the application started, and how full it is.
+ */
+public class RosterCacheStatistics {
+
+    private long hitCount;
+    private long missCount;
+    // Rosters dropped because the cache was full
+    private long evictionCount;
+    // Rosters dropped because the data of their tenant changed
+    private long invalidationCount;
+    private int tenantCount;
+    // The shifts, availabilities, employees, spots and skills of the cached rosters
+    private long entityCount;
+    private long maximumEntityCount;
+    private int scoreSessionCount;
+    // Score sessions built because their tenant had none or it was out of sync with a shift update
+    private long rebuiltScoreSessionCount;
+
+    @SuppressWarnings("unused")
+    public RosterCacheStatistics() {
+    }
+
+    public RosterCacheStatistics(long hitCount, long missCount, long evictionCount, long invalidationCount,
+            int tenantCount, long entityCount, long maximumEntityCount, int scoreSessionCount,
+            long rebuiltScoreSessionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.invalidationCount = invalidationCount;
+        this.tenantCount = tenantCount;
+        this.entityCount = entityCount;
+        this.maximumEntityCount = maximumEntityCount;
+        this.scoreSessionCount = scoreSessionCount;
+        this.rebuiltScoreSessionCount = rebuiltScoreSessionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RosterCacheStatistics(" + hitCount + " hits, " + missCount + " misses, " + evictionCount
+                + " evictions, " + invalidationCount + " invalidations, " + tenantCount + " tenants, "
+                + entityCount + "/" + maximumEntityCount + " entities, " + scoreSessionCount + " score sessions, "
+                + rebuiltScoreSessionCount + " score session rebuilds)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public void setInvalidationCount(long invalidationCount) {
+        this.invalidationCount = invalidationCount;
+    }
+
+    public int getTenantCount() {
+        return tenantCount;
+    }
+
+    public void setTenantCount(int tenantCount) {
+        this.tenantCount = tenantCount;
+    }
+
+    public long getEntityCount() {
+        return entityCount;
+    }
+
+    public void setEntityCount(long entityCount) {
+        this.entityCount = entityCount;
+    }
+
+    public long getMaximumEntityCount() {
+        return maximumEntityCount;
+    }
+
+    public void setMaximumEntityCount(long maximumEntityCount) {
+        this.maximumEntityCount = maximumEntityCount;
+    }
+
+    public int getScoreSessionCount() {
+        return scoreSessionCount;
+    }
+
+    public void setScoreSessionCount(int scoreSessionCount) {
+        this.scoreSessionCount = scoreSessionCount;
+    }
+
+    public long getRebuiltScoreSessionCount() {
+        return rebuiltScoreSessionCount;
+    }
+
+    public void setRebuiltScoreSessionCount(long rebuiltScoreSessionCount) {
+        this.rebuiltScoreSessionCount = rebuiltScoreSessionCount;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.domain.roster;
+
+/**
+ * How well one region of the second-level cache performs since the application started, and how full it is.
+ */
+public class SecondLevelCacheRegionStatistics {
+
+    // An entity class, or an entity class and collection field separated by #
+    private String regionName;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    // Negative if the cache does not count its elements
+    private long elementCount;
+
+    @SuppressWarnings("unused")
+    public SecondLevelCacheRegionStatistics() {
+    }
+
+    public SecondLevelCacheRegionStatistics(String regionName, long hitCount, long missCount, long putCount,
+            long elementCount) {
+        this.regionName = regionName;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.elementCount = elementCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SecondLevelCacheRegionStatistics(" + regionName + ": " + hitCount + " hits, " + missCount
+                + " misses, " + putCount + " puts, " + elementCount + " elements)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public void setRegionName(String regionName) {
+        this.regionName = regionName;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+
+    public void setPutCount(long putCount) {
+        this.putCount = putCount;
+    }
+
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.domain.roster;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * How well the second-level cache of the problem facts and its query cache perform since the application started.
+ */
+@JsonIgnoreProperties(value = { "hitRatio", "queryHitRatio" }, allowGetters = true)
+public class SecondLevelCacheStatistics {
+
+    // False if Hibernate statistics are disabled, in which case every count is 0
+    private boolean enabled;
+    private long hitCount;
+    private long missCount;
+    private long queryHitCount;
+    private long queryMissCount;
+    private List<SecondLevelCacheRegionStatistics> regionList;
+
+    @SuppressWarnings("unused")
+    public SecondLevelCacheStatistics() {
+    }
+
+    public SecondLevelCacheStatistics(boolean enabled, long hitCount, long missCount, long queryHitCount,
+            long queryMissCount, List<SecondLevelCacheRegionStatistics> regionList) {
+        this.enabled = enabled;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.queryHitCount = queryHitCount;
+        this.queryMissCount = queryMissCount;
+        this.regionList = regionList;
+    }
+
+    /**
+     * @return between 0.0 and 1.0, the hits of the entity and collection regions divided by their lookups,
+     *         0.0 without lookups
+     */
+    public double getHitRatio() {
+        return getRatio(hitCount, missCount);
+    }
+
+    /**
+     * @return between 0.0 and 1.0, like {@link #getHitRatio()}, but of the cached queries
+     */
+    public double getQueryHitRatio() {
+        return getRatio(queryHitCount, queryMissCount);
+    }
+
+    private static double getRatio(long hitCount, long missCount) {
+        long lookupCount = hitCount + missCount;
+        return lookupCount == 0L ? 0.0 : (double) hitCount / lookupCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SecondLevelCacheStatistics(" + hitCount + " hits, " + missCount + " misses, " + queryHitCount
+                + " query hits, " + queryMissCount + " query misses, " + regionList.size() + " regions)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public long getQueryHitCount() {
+        return queryHitCount;
+    }
+
+    public void setQueryHitCount(long queryHitCount) {
+        this.queryHitCount = queryHitCount;
+    }
+
+    public long getQueryMissCount() {
+        return queryMissCount;
+    }
+
+    public void setQueryMissCount(long queryMissCount) {
+        this.queryMissCount = queryMissCount;
+    }
+
+    public List<SecondLevelCacheRegionStatistics> getRegionList() {
+        return regionList;
+    }
+
+    public void setRegionList(List<SecondLevelCacheRegionStatistics> regionList) {
+        this.regionList = regionList;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.roster;
+
+/**
+ * How many shifts the writes of best solutions wrote since the application started, and how long they took.
+ */
+public class ShiftAssignmentWriteStatistics {
+
+    // One per best solution written
+    private long flushCount;
+    private long writtenShiftCount;
+    // Shifts of best solutions that were not written, because their employee did not change
+    private long unchangedShiftCount;
+    // Shifts of best solutions that were not written, because others changed them while solving
+    private long conflictingShiftCount;
+    private long totalFlushMillis;
+    private long maximumFlushMillis;
+
+    @SuppressWarnings("unused")
+    public ShiftAssignmentWriteStatistics() {
+    }
+
+    public ShiftAssignmentWriteStatistics(long flushCount, long writtenShiftCount, long unchangedShiftCount,
+            long conflictingShiftCount, long totalFlushMillis, long maximumFlushMillis) {
+        this.flushCount = flushCount;
+        this.writtenShiftCount = writtenShiftCount;
+        this.unchangedShiftCount = unchangedShiftCount;
+        this.conflictingShiftCount = conflictingShiftCount;
+        this.totalFlushMillis = totalFlushMillis;
+        this.maximumFlushMillis = maximumFlushMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ShiftAssignmentWriteStatistics(" + flushCount + " flushes, " + writtenShiftCount + " written shifts, "
+                + unchangedShiftCount + " unchanged shifts, " + conflictingShiftCount + " conflicting shifts, "
+                + totalFlushMillis + " ms total, "
+                + maximumFlushMillis + " ms maximum)";
+    }
+
+    // ************************************************************************
+    // Simple getters and setters
+    // ************************************************************************
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public void setFlushCount(long flushCount) {
+        this.flushCount = flushCount;
+    }
+
+    public long getWrittenShiftCount() {
+        return writtenShiftCount;
+    }
+
+    public void setWrittenShiftCount(long writtenShiftCount) {
+        this.writtenShiftCount = writtenShiftCount;
+    }
+
+    public long getUnchangedShiftCount() {
+        return unchangedShiftCount;
+    }
+
+    public void setUnchangedShiftCount(long unchangedShiftCount) {
+        this.unchangedShiftCount = unchangedShiftCount;
+    }
+
+    public long getConflictingShiftCount() {
+        return conflictingShiftCount;
+    }
+
+    public void setConflictingShiftCount(long conflictingShiftCount) {
+        this.conflictingShiftCount = conflictingShiftCount;
+    }
+
+    public long getTotalFlushMillis() {
+        return totalFlushMillis;
+    }
+
+    public void setTotalFlushMillis(long totalFlushMillis) {
+        this.totalFlushMillis = totalFlushMillis;
+    }
+
+    public long getMaximumFlushMillis() {
+        return maximumFlushMillis;
+    }
+
+    public void setMaximumFlushMillis(long maximumFlushMillis) {
+        this.maximumFlushMillis = maximumFlushMillis;
+    }
+}
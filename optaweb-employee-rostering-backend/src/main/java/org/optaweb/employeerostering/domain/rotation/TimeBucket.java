@@ -39,6 +39,7 @@ import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.BatchSize;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.skill.Skill;
@@ -57,6 +58,7 @@ public class TimeBucket extends AbstractPersistable {
     @JoinTable(name = "TimeBucketAdditionalSkillSet",
             joinColumns = @JoinColumn(name = "timebucketId", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "skillId", referencedColumnName = "id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private Set<Skill> additionalSkillSet;
 
     @ElementCollection
@@ -68,6 +70,7 @@ public class TimeBucket extends AbstractPersistable {
                                     foreignKeyDefinition = "FOREIGN KEY (day_id) references public.time_bucket (id)" +
                                             " ON UPDATE NO ACTION ON DELETE CASCADE"))
             })
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private Set<DayOfWeek> repeatOnDaySet;
 
     @ElementCollection
@@ -79,6 +82,7 @@ public class TimeBucket extends AbstractPersistable {
                                     foreignKeyDefinition = "FOREIGN KEY (seat_id) references public.time_bucket (id)" +
                                             " ON UPDATE NO ACTION ON DELETE CASCADE"))
             })
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private List<Seat> seatList;
 
     public TimeBucket() {
@@ -26,6 +26,9 @@ public class PinningShiftFilter implements PinningFilter<Roster, Shift> {
     public boolean accept(Roster roster, Shift shift) {
         RosterState rosterState = roster.getRosterState();
 
+        if (roster.getReplanShiftIdSet() != null && !roster.getReplanShiftIdSet().contains(shift.getId())) {
+            return true;
+        }
         if (roster.isNondisruptivePlanning()) {
             return shift.getStartDateTime().isBefore(roster.getNondisruptiveReplanFrom());
         } else {
@@ -19,37 +19,46 @@ package org.optaweb.employeerostering.domain.shift;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.BatchSize;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
 import org.optaplanner.core.api.domain.entity.PlanningPin;
+import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.optaweb.employeerostering.domain.common.DateTimeUtils;
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.shift.view.ShiftView;
 import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
 import org.optaweb.employeerostering.domain.spot.Spot;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+// Every date range query bounds the end date time from below, so these indexes find the shifts of a range
+// without going through the shifts before it, however many there are
+@Table(indexes = { @Index(name = "Shift_tenantId_endDateTime", columnList = "tenantId, endDateTime, startDateTime"),
+        @Index(name = "Shift_spot_endDateTime", columnList = "spot_id, endDateTime, startDateTime"),
+        @Index(name = "Shift_employee_endDateTime", columnList = "employee_id, endDateTime, startDateTime") })
 @PlanningEntity(pinningFilter = PinningShiftFilter.class)
 public class Shift extends AbstractPersistable {
-    @Transient
-    private final AtomicLong lengthInMinutes = new AtomicLong(-1);
     @ManyToOne
     private Employee rotationEmployee;
     @NotNull
@@ -60,7 +69,11 @@ public class Shift extends AbstractPersistable {
     @JoinTable(name = "ShiftRequiredSkillSet",
             joinColumns = @JoinColumn(name = "shiftId", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "skillId", referencedColumnName = "id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
     private Set<Skill> requiredSkillSet;
+    // Encoded by SkillIndex, so hasRequiredSkills() does not compare hash sets; null if not indexed
+    @Transient
+    private long[] requiredSkillMask;
     @NotNull
     private OffsetDateTime startDateTime;
     @NotNull
@@ -68,8 +81,19 @@ public class Shift extends AbstractPersistable {
     @PlanningPin
     private boolean pinnedByUser = false;
 
+    // Derived from startDateTime and endDateTime, so the score calculation joins and computes on primitives
+    @Transient
+    private long startEpochMinute;
+    @Transient
+    private long endEpochMinute;
+
+    // Set by EligibleEmployeeIndex before solving, so moves only consider employees that can take this shift
+    @Transient
+    @ValueRangeProvider(id = "eligibleEmployeeRange")
+    private List<Employee> eligibleEmployeeList;
+
     @ManyToOne
-    @PlanningVariable(valueRangeProviderRefs = "employeeRange", nullable = true)
+    @PlanningVariable(valueRangeProviderRefs = "eligibleEmployeeRange", nullable = true)
     private Employee employee = null;
 
     @ManyToOne
@@ -97,6 +121,7 @@ public class Shift extends AbstractPersistable {
         this.rotationEmployee = rotationEmployee;
         this.requiredSkillSet = requiredSkillSet;
         this.originalEmployee = originalEmployee;
+        updateEpochMinutes();
     }
 
     public Shift(ZoneId zoneId, ShiftView shiftView, Spot spot) {
@@ -119,6 +144,34 @@ public class Shift extends AbstractPersistable {
         this.rotationEmployee = rotationEmployee;
         this.requiredSkillSet = requiredSkillSet;
         this.originalEmployee = originalEmployee;
+        updateEpochMinutes();
+    }
+
+    /**
+     * Copies the shift with its employee and everything the score calculation derived from it,
+     * for example for a part of a partitioned search.
+     * @param other never null
+     */
+    public Shift(Shift other) {
+        super(other);
+        this.rotationEmployee = other.rotationEmployee;
+        this.spot = other.spot;
+        this.requiredSkillSet = other.requiredSkillSet;
+        this.requiredSkillMask = other.requiredSkillMask;
+        this.startDateTime = other.startDateTime;
+        this.endDateTime = other.endDateTime;
+        this.pinnedByUser = other.pinnedByUser;
+        this.startEpochMinute = other.startEpochMinute;
+        this.endEpochMinute = other.endEpochMinute;
+        this.eligibleEmployeeList = other.eligibleEmployeeList;
+        this.employee = other.employee;
+        this.originalEmployee = other.originalEmployee;
+    }
+
+    @PostLoad
+    private void updateEpochMinutes() {
+        startEpochMinute = (startDateTime == null) ? 0L : DateTimeUtils.toEpochMinute(startDateTime);
+        endEpochMinute = (endDateTime == null) ? 0L : DateTimeUtils.toEpochMinute(endDateTime);
     }
 
     @AssertTrue(message = "Shift's end date time is not at least 30 minutes" +
@@ -138,14 +191,18 @@ public class Shift extends AbstractPersistable {
         return !endDateTime.isAfter(other.startDateTime);
     }
 
-    public long getLengthInMinutes() { // Thread-safe cache.
-        long currentLengthInMinutes = lengthInMinutes.get();
-        if (currentLengthInMinutes >= 0) {
-            return currentLengthInMinutes;
-        }
-        long newLengthInMinutes = startDateTime.until(endDateTime, ChronoUnit.MINUTES);
-        lengthInMinutes.set(newLengthInMinutes);
-        return newLengthInMinutes;
+    public long getLengthInMinutes() {
+        return endEpochMinute - startEpochMinute;
+    }
+
+    @JsonIgnore
+    public long getStartEpochMinute() {
+        return startEpochMinute;
+    }
+
+    @JsonIgnore
+    public long getEndEpochMinute() {
+        return endEpochMinute;
     }
 
     @JsonIgnore
@@ -154,6 +211,20 @@ public class Shift extends AbstractPersistable {
     }
 
     public boolean hasRequiredSkills() {
+        return hasRequiredSkills(employee);
+    }
+
+    /**
+     * @param employee never null
+     * @return true if the employee has the skills required by this shift and its spot
+     */
+    public boolean hasRequiredSkills(Employee employee) {
+        long[] skillProficiencyMask = employee.getSkillProficiencyMask();
+        long[] spotRequiredSkillMask = spot.getRequiredSkillMask();
+        if (skillProficiencyMask != null && spotRequiredSkillMask != null && requiredSkillMask != null) {
+            return SkillIndex.containsAll(skillProficiencyMask, spotRequiredSkillMask) &&
+                    SkillIndex.containsAll(skillProficiencyMask, requiredSkillMask);
+        }
         return employee.getSkillProficiencySet().containsAll(spot.getRequiredSkillSet()) &&
                 employee.getSkillProficiencySet().containsAll(requiredSkillSet);
     }
@@ -176,7 +247,7 @@ public class Shift extends AbstractPersistable {
 
     public void setStartDateTime(OffsetDateTime startDateTime) {
         this.startDateTime = startDateTime;
-        this.lengthInMinutes.set(-1);
+        updateEpochMinutes();
     }
 
     public OffsetDateTime getEndDateTime() {
@@ -185,7 +256,7 @@ public class Shift extends AbstractPersistable {
 
     public void setEndDateTime(OffsetDateTime endDateTime) {
         this.endDateTime = endDateTime;
-        this.lengthInMinutes.set(-1);
+        updateEpochMinutes();
     }
 
     public boolean isPinnedByUser() {
@@ -226,12 +297,35 @@ public class Shift extends AbstractPersistable {
 
     public void setRequiredSkillSet(Set<Skill> requiredSkillSet) {
         this.requiredSkillSet = requiredSkillSet;
+        this.requiredSkillMask = null;
+    }
+
+    @JsonIgnore
+    public long[] getRequiredSkillMask() {
+        return requiredSkillMask;
+    }
+
+    public void setRequiredSkillMask(long[] requiredSkillMask) {
+        this.requiredSkillMask = requiredSkillMask;
+    }
+
+    @JsonIgnore
+    public List<Employee> getEligibleEmployeeList() {
+        return eligibleEmployeeList;
+    }
+
+    public void setEligibleEmployeeList(List<Employee> eligibleEmployeeList) {
+        this.eligibleEmployeeList = eligibleEmployeeList;
     }
 
+    /**
+     * @param zoneId never null
+     * @return never null, a copy with the same instants in the offsets of the zone, so the epoch minutes do not change
+     */
     public Shift inTimeZone(ZoneId zoneId) {
-        Shift out = new Shift(zoneId, new ShiftView(zoneId, this), getSpot(), getRotationEmployee(),
-                getRequiredSkillSet(), getOriginalEmployee());
-        out.setEmployee(getEmployee());
+        Shift out = new Shift(this);
+        out.startDateTime = DateTimeUtils.toOffsetDateTimeInZone(startDateTime, zoneId);
+        out.endDateTime = DateTimeUtils.toOffsetDateTimeInZone(endDateTime, zoneId);
         return out;
     }
 }
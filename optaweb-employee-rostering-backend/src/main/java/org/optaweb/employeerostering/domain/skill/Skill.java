@@ -16,6 +16,7 @@
 
 package org.optaweb.employeerostering.domain.skill;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
@@ -26,6 +27,7 @@ import javax.validation.constraints.Size;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 
 @Entity
+@Cacheable
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "tenantId", "name" }))
 public class Skill extends AbstractPersistable {
 
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.domain.skill;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.spot.Spot;
+
+/**
+ * Gives every skill of a tenant a dense bit index, so a skill set can be encoded as a {@code long[]} mask
+ * and {@link Set#containsAll(Collection)} becomes a few AND operations.
+ * <p>
+ * A mask is only comparable with masks of the same index. An entity without a mask (because it was never indexed,
+ * its skill set was replaced or it contains a skill unknown to the index) falls back to the skill set itself.
+ */
+public final class SkillIndex {
+
+    private final Map<Skill, Integer> skillToIndexMap;
+
+    public SkillIndex(Collection<Skill> skillList) {
+        skillToIndexMap = new HashMap<>(skillList.size());
+        for (Skill skill : skillList) {
+            skillToIndexMap.putIfAbsent(skill, skillToIndexMap.size());
+        }
+    }
+
+    /**
+     * Sets the skill masks of every employee, spot and shift of the roster.
+     * @param roster never null
+     */
+    public static void indexRoster(Roster roster) {
+        SkillIndex skillIndex = new SkillIndex(roster.getSkillList());
+        for (Employee employee : roster.getEmployeeList()) {
+            employee.setSkillProficiencyMask(skillIndex.toMask(employee.getSkillProficiencySet()));
+        }
+        for (Spot spot : roster.getSpotList()) {
+            spot.setRequiredSkillMask(skillIndex.toMask(spot.getRequiredSkillSet()));
+        }
+        for (Shift shift : roster.getShiftList()) {
+            shift.setRequiredSkillMask(skillIndex.toMask(shift.getRequiredSkillSet()));
+        }
+    }
+
+    /**
+     * @param skillSet sometimes null
+     * @return null if the skillSet is null or contains a skill that is not in this index
+     */
+    public long[] toMask(Set<Skill> skillSet) {
+        if (skillSet == null) {
+            return null;
+        }
+        long[] mask = new long[0];
+        for (Skill skill : skillSet) {
+            Integer index = skillToIndexMap.get(skill);
+            if (index == null) {
+                return null;
+            }
+            int wordIndex = index >>> 6;
+            if (wordIndex >= mask.length) {
+                long[] newMask = new long[wordIndex + 1];
+                System.arraycopy(mask, 0, newMask, 0, mask.length);
+                mask = newMask;
+            }
+            mask[wordIndex] |= 1L << index;
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask never null
+     * @param otherMask never null
+     * @return true if every bit of otherMask is also set in mask
+     */
+    public static boolean containsAll(long[] mask, long[] otherMask) {
+        for (int i = 0; i < otherMask.length; i++) {
+            long word = (i < mask.length) ? mask[i] : 0L;
+            if ((otherMask[i] & ~word) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
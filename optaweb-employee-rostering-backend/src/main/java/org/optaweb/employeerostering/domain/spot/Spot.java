@@ -18,23 +18,32 @@ package org.optaweb.employeerostering.domain.spot;
 
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 import org.optaweb.employeerostering.domain.skill.Skill;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Entity
+@Cacheable
 @Table(uniqueConstraints = { @UniqueConstraint(columnNames = { "tenantId", "name" }),
         @UniqueConstraint(columnNames = { "id" }) })
+@BatchSize(size = AbstractPersistable.FETCH_BATCH_SIZE)
 public class Spot extends AbstractPersistable {
 
     @NotNull
@@ -47,8 +56,14 @@ public class Spot extends AbstractPersistable {
     @JoinTable(name = "SpotRequiredSkillSet",
             joinColumns = @JoinColumn(name = "spotId", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(name = "skillId", referencedColumnName = "id"))
+    @BatchSize(size = FETCH_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<Skill> requiredSkillSet;
 
+    // Encoded by SkillIndex, so hasRequiredSkills() does not compare hash sets; null if not indexed
+    @Transient
+    private long[] requiredSkillMask;
+
     @SuppressWarnings("unused")
     public Spot() {
     }
@@ -82,5 +97,15 @@ public class Spot extends AbstractPersistable {
 
     public void setRequiredSkillSet(Set<Skill> requiredSkillSet) {
         this.requiredSkillSet = requiredSkillSet;
+        this.requiredSkillMask = null;
+    }
+
+    @JsonIgnore
+    public long[] getRequiredSkillMask() {
+        return requiredSkillMask;
+    }
+
+    public void setRequiredSkillMask(long[] requiredSkillMask) {
+        this.requiredSkillMask = requiredSkillMask;
     }
 }
@@ -18,6 +18,7 @@ package org.optaweb.employeerostering.domain.tenant;
 
 import java.time.DayOfWeek;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.validation.constraints.NotNull;
 
@@ -27,6 +28,7 @@ import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftL
 import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 
 @Entity
+@Cacheable
 @ConstraintConfiguration(constraintPackage = "org.optaweb.employeerostering.service.solver")
 public class RosterConstraintConfiguration extends AbstractPersistable {
 
@@ -50,9 +52,12 @@ public class RosterConstraintConfiguration extends AbstractPersistable {
     public static final String CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE = "Undesired time slot for an employee";
     public static final String CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE = "Desired time slot for an employee";
     public static final String CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE = "Employee is not rotation employee";
+    public static final String CONSTRAINT_BALANCE_EMPLOYEE_HOURS = "Balance employee hours";
 
     @NotNull
     private DayOfWeek weekStartDay = DayOfWeek.MONDAY;
+    // Opt-in for tenants with very large rosters, see RosterPartitioner
+    private boolean partitionedSearch = false;
 
     @ConstraintWeight(CONSTRAINT_REQUIRED_SKILL_FOR_A_SHIFT)
     private HardMediumSoftLongScore requiredSkill = HardMediumSoftLongScore.ofHard(100);
@@ -84,6 +89,9 @@ public class RosterConstraintConfiguration extends AbstractPersistable {
     private HardMediumSoftLongScore desiredTimeSlot = HardMediumSoftLongScore.ofSoft(10);
     @ConstraintWeight(CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE)
     private HardMediumSoftLongScore notRotationEmployee = HardMediumSoftLongScore.ofSoft(50);
+    // Disabled by default, a tenant opts in to fairness by giving it a soft weight.
+    @ConstraintWeight(CONSTRAINT_BALANCE_EMPLOYEE_HOURS)
+    private HardMediumSoftLongScore balanceEmployeeHours = HardMediumSoftLongScore.ZERO;
 
     @SuppressWarnings("unused")
     public RosterConstraintConfiguration() {
@@ -107,6 +115,14 @@ public class RosterConstraintConfiguration extends AbstractPersistable {
         this.weekStartDay = weekStartDay;
     }
 
+    public boolean isPartitionedSearch() {
+        return partitionedSearch;
+    }
+
+    public void setPartitionedSearch(boolean partitionedSearch) {
+        this.partitionedSearch = partitionedSearch;
+    }
+
     public HardMediumSoftLongScore getRequiredSkill() {
         return requiredSkill;
     }
@@ -219,4 +235,12 @@ public class RosterConstraintConfiguration extends AbstractPersistable {
     public void setNotRotationEmployee(HardMediumSoftLongScore notRotationEmployee) {
         this.notRotationEmployee = notRotationEmployee;
     }
+
+    public HardMediumSoftLongScore getBalanceEmployeeHours() {
+        return balanceEmployeeHours;
+    }
+
+    public void setBalanceEmployeeHours(HardMediumSoftLongScore balanceEmployeeHours) {
+        this.balanceEmployeeHours = balanceEmployeeHours;
+    }
 }
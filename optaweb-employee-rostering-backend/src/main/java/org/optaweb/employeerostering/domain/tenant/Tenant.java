@@ -16,10 +16,12 @@
 
 package org.optaweb.employeerostering.domain.tenant;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.persistence.Version;
@@ -27,13 +29,18 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaweb.employeerostering.domain.common.AbstractPersistable;
 
 @Entity
+@Cacheable
 @Table(uniqueConstraints = @UniqueConstraint(columnNames = { "name" }))
 public class Tenant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // The same sequence as the other entities, which needs the same allocation size
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tenantSequence")
+    @SequenceGenerator(name = "tenantSequence", sequenceName = "hibernate_sequence",
+            allocationSize = AbstractPersistable.ID_ALLOCATION_SIZE)
     @PlanningId
     private Integer id;
 
@@ -27,6 +27,7 @@ public class RosterConstraintConfigurationView extends AbstractPersistable {
 
     @NotNull
     private DayOfWeek weekStartDay = DayOfWeek.MONDAY;
+    private boolean partitionedSearch = false;
 
     private HardMediumSoftLongScore requiredSkill = HardMediumSoftLongScore.ofHard(100);
     private HardMediumSoftLongScore unavailableTimeSlot = HardMediumSoftLongScore.ofHard(50);
@@ -42,6 +43,7 @@ public class RosterConstraintConfigurationView extends AbstractPersistable {
     private HardMediumSoftLongScore undesiredTimeSlot = HardMediumSoftLongScore.ofSoft(1);
     private HardMediumSoftLongScore desiredTimeSlot = HardMediumSoftLongScore.ofSoft(1);
     private HardMediumSoftLongScore notRotationEmployee = HardMediumSoftLongScore.ofSoft(1);
+    private HardMediumSoftLongScore balanceEmployeeHours = HardMediumSoftLongScore.ZERO;
 
     @SuppressWarnings("unused")
     public RosterConstraintConfigurationView() {
@@ -65,6 +67,14 @@ public class RosterConstraintConfigurationView extends AbstractPersistable {
         this.weekStartDay = weekStartDay;
     }
 
+    public boolean isPartitionedSearch() {
+        return partitionedSearch;
+    }
+
+    public void setPartitionedSearch(boolean partitionedSearch) {
+        this.partitionedSearch = partitionedSearch;
+    }
+
     public HardMediumSoftLongScore getRequiredSkill() {
         return requiredSkill;
     }
@@ -178,4 +188,12 @@ public class RosterConstraintConfigurationView extends AbstractPersistable {
     public void setNotRotationEmployee(HardMediumSoftLongScore notRotationEmployee) {
         this.notRotationEmployee = notRotationEmployee;
     }
+
+    public HardMediumSoftLongScore getBalanceEmployeeHours() {
+        return balanceEmployeeHours;
+    }
+
+    public void setBalanceEmployeeHours(HardMediumSoftLongScore balanceEmployeeHours) {
+        this.balanceEmployeeHours = balanceEmployeeHours;
+    }
 }
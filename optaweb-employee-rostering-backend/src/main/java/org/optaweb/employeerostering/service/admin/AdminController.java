@@ -18,11 +18,18 @@ package org.optaweb.employeerostering.service.admin;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.optaweb.employeerostering.domain.roster.BestSolutionWriterStatistics;
+import org.optaweb.employeerostering.domain.roster.RosterCacheStatistics;
+import org.optaweb.employeerostering.domain.roster.SecondLevelCacheStatistics;
+import org.optaweb.employeerostering.domain.roster.ShiftAssignmentWriteStatistics;
 
 @Path("/rest/admin")
 @ApplicationScoped
@@ -42,4 +49,41 @@ public class AdminController {
     public void resetApplication() {
         adminService.resetApplication();
     }
+
+    @Operation(summary = "Get roster cache statistics",
+            description = "Gets the hits, misses and evictions of the cached rosters of all tenants")
+    @GET
+    @Path("/rosterCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RosterCacheStatistics getRosterCacheStatistics() {
+        return adminService.getRosterCacheStatistics();
+    }
+
+    @Operation(summary = "Get shift assignment write statistics",
+            description = "Gets the shifts written and the time spent writing the best solutions of all tenants")
+    @GET
+    @Path("/shiftAssignmentWrites")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ShiftAssignmentWriteStatistics getShiftAssignmentWriteStatistics() {
+        return adminService.getShiftAssignmentWriteStatistics();
+    }
+
+    @Operation(summary = "Get best solution writer statistics",
+            description = "Gets the best solutions waiting to be written and the latency of their writes")
+    @GET
+    @Path("/bestSolutionWriter")
+    @Produces(MediaType.APPLICATION_JSON)
+    public BestSolutionWriterStatistics getBestSolutionWriterStatistics() {
+        return adminService.getBestSolutionWriterStatistics();
+    }
+
+    @Operation(summary = "Get second-level cache statistics",
+            description = "Gets the hits and misses of the cached skills, spots, contracts, employees, roster states,"
+                    + " roster constraint configurations and tenants of all tenants, and of their cached queries")
+    @GET
+    @Path("/secondLevelCache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SecondLevelCacheStatistics getSecondLevelCacheStatistics() {
+        return adminService.getSecondLevelCacheStatistics();
+    }
 }
@@ -16,15 +16,30 @@
 
 package org.optaweb.employeerostering.service.admin;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
 import javax.transaction.Transactional;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.optaweb.employeerostering.domain.roster.BestSolutionWriterStatistics;
+import org.optaweb.employeerostering.domain.roster.RosterCacheStatistics;
+import org.optaweb.employeerostering.domain.roster.SecondLevelCacheRegionStatistics;
+import org.optaweb.employeerostering.domain.roster.SecondLevelCacheStatistics;
+import org.optaweb.employeerostering.domain.roster.ShiftAssignmentWriteStatistics;
 import org.optaweb.employeerostering.service.contract.ContractRepository;
 import org.optaweb.employeerostering.service.employee.EmployeeAvailabilityRepository;
 import org.optaweb.employeerostering.service.employee.EmployeeRepository;
+import org.optaweb.employeerostering.service.roster.BestSolutionWriter;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 import org.optaweb.employeerostering.service.roster.RosterGenerator;
 import org.optaweb.employeerostering.service.roster.RosterStateRepository;
+import org.optaweb.employeerostering.service.roster.ShiftAssignmentWriter;
 import org.optaweb.employeerostering.service.rotation.TimeBucketRepository;
 import org.optaweb.employeerostering.service.shift.ShiftRepository;
 import org.optaweb.employeerostering.service.skill.SkillRepository;
@@ -47,6 +62,10 @@ public class AdminService {
     private TenantRepository tenantRepository;
 
     private RosterGenerator rosterGenerator;
+    private RosterCache rosterCache;
+    private ShiftAssignmentWriter shiftAssignmentWriter;
+    private BestSolutionWriter bestSolutionWriter;
+    private EntityManagerFactory entityManagerFactory;
 
     @Inject
     public AdminService(ShiftRepository shiftRepository,
@@ -59,7 +78,11 @@ public class AdminService {
             RosterConstraintConfigurationRepository rosterConstraintConfigurationRepository,
             RosterStateRepository rosterStateRepository,
             TenantRepository tenantRepository,
-            RosterGenerator rosterGenerator) {
+            RosterGenerator rosterGenerator,
+            RosterCache rosterCache,
+            ShiftAssignmentWriter shiftAssignmentWriter,
+            BestSolutionWriter bestSolutionWriter,
+            EntityManagerFactory entityManagerFactory) {
         this.shiftRepository = shiftRepository;
         this.employeeAvailabilityRepository = employeeAvailabilityRepository;
         this.timeBucketRepository = timeBucketRepository;
@@ -71,14 +94,52 @@ public class AdminService {
         this.rosterStateRepository = rosterStateRepository;
         this.tenantRepository = tenantRepository;
         this.rosterGenerator = rosterGenerator;
+        this.rosterCache = rosterCache;
+        this.shiftAssignmentWriter = shiftAssignmentWriter;
+        this.bestSolutionWriter = bestSolutionWriter;
+        this.entityManagerFactory = entityManagerFactory;
     }
 
     @Transactional
     public void resetApplication() {
         deleteAllEntities();
+        rosterCache.invalidateAll();
+        shiftAssignmentWriter.forgetAll();
         rosterGenerator.setUpGeneratedData();
     }
 
+    public RosterCacheStatistics getRosterCacheStatistics() {
+        return rosterCache.getStatistics();
+    }
+
+    public ShiftAssignmentWriteStatistics getShiftAssignmentWriteStatistics() {
+        return shiftAssignmentWriter.getStatistics();
+    }
+
+    public BestSolutionWriterStatistics getBestSolutionWriterStatistics() {
+        return bestSolutionWriter.getStatistics();
+    }
+
+    public SecondLevelCacheStatistics getSecondLevelCacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<SecondLevelCacheRegionStatistics> regionList = new ArrayList<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics;
+            try {
+                regionStatistics = statistics.getDomainDataRegionStatistics(regionName);
+            } catch (IllegalArgumentException e) {
+                // The query results and update timestamps regions hold no entities or collections
+                continue;
+            }
+            regionList.add(new SecondLevelCacheRegionStatistics(regionName, regionStatistics.getHitCount(),
+                    regionStatistics.getMissCount(), regionStatistics.getPutCount(),
+                    regionStatistics.getElementCountInMemory()));
+        }
+        return new SecondLevelCacheStatistics(statistics.isStatisticsEnabled(),
+                statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(), regionList);
+    }
+
     private void deleteAllEntities() {
         // IMPORTANT: Delete entries that has Many-to-One relations first, otherwise we break referential integrity
         shiftRepository.deleteAll();
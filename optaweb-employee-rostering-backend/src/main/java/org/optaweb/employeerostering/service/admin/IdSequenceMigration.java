@@ -0,0 +1,96 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.admin;
+
+import java.util.List;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Raises the increment of the id sequence of a PostgreSQL database that was created before the ids were allocated
+ * in pools of {@link AbstractPersistable#ID_ALLOCATION_SIZE}, because the schema update of Hibernate does not alter
+ * existing sequences. With the old increment of 1, the pools of ids would overlap and inserts would fail.
+ * <p>
+ * It runs on startup before anything else persists entities. After the migration, the next pool starts right after
+ * the last id the old increment handed out, so no id is used twice.
+ */
+@ApplicationScoped
+public class IdSequenceMigration {
+
+    public static final String DB_KIND_PROPERTY = "quarkus.datasource.db-kind";
+    public static final String ID_SEQUENCE_NAME = "hibernate_sequence";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    private final EntityManager entityManager;
+    private final String dbKind;
+
+    @Inject
+    public IdSequenceMigration(EntityManager entityManager,
+            @ConfigProperty(name = DB_KIND_PROPERTY) String dbKind) {
+        this.entityManager = entityManager;
+        this.dbKind = dbKind;
+    }
+
+    @Transactional
+    public void run(@Observes @Priority(Interceptor.Priority.PLATFORM_BEFORE) StartupEvent event) {
+        migrateIdSequenceIncrement();
+    }
+
+    /**
+     * @return true if it altered the increment of the id sequence
+     */
+    @Transactional
+    public boolean migrateIdSequenceIncrement() {
+        // Other databases are only used with a schema that Hibernate drops and creates
+        if (!"postgresql".equals(dbKind)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> incrementList = entityManager.createNativeQuery("select increment"
+                + " from information_schema.sequences"
+                + " where sequence_schema = current_schema() and sequence_name = '" + ID_SEQUENCE_NAME + "'")
+                .getResultList();
+        // Without the sequence, Hibernate creates it with the allocation size
+        if (incrementList.isEmpty()) {
+            return false;
+        }
+        long increment = Long.parseLong(incrementList.get(0).toString());
+        if (increment == AbstractPersistable.ID_ALLOCATION_SIZE) {
+            return false;
+        }
+        LOGGER.info("Altering the increment of the id sequence ({}) from {} to the id allocation size ({}).",
+                ID_SEQUENCE_NAME, increment, AbstractPersistable.ID_ALLOCATION_SIZE);
+        entityManager.createNativeQuery("alter sequence " + ID_SEQUENCE_NAME
+                + " increment by " + AbstractPersistable.ID_ALLOCATION_SIZE)
+                .executeUpdate();
+        return true;
+    }
+}
@@ -29,6 +29,13 @@ public class SystemPropertiesRetriever {
 
     public static final String ZONE_ID_SYSTEM_PROPERTY = "optaweb.generator.timeZoneId";
     public static final String INITIAL_DATA_PROPERTY = "optaweb.generator.initial.data";
+    public static final String ELIGIBLE_EMPLOYEE_RANGE_PROPERTY = "optaweb.solver.eligibleEmployeeRange";
+    public static final String REPLAN_NEIGHBOURHOOD_DAYS_PROPERTY = "optaweb.solver.replanNeighbourhoodDays";
+    public static final String ROSTER_CACHE_MAXIMUM_ENTITY_COUNT_PROPERTY = "optaweb.rosterCache.maximumEntityCount";
+    public static final String ROSTER_VIEW_SCOPED_EXPLANATION_PROPERTY = "optaweb.rosterView.scopedExplanation";
+    public static final String BEST_SOLUTION_WRITER_THREAD_COUNT_PROPERTY = "optaweb.bestSolutionWriter.threadCount";
+    public static final String BEST_SOLUTION_WRITER_MINIMUM_FLUSH_INTERVAL_MILLIS_PROPERTY =
+            "optaweb.bestSolutionWriter.minimumFlushIntervalMillis";
 
     @ConfigProperty(name = ZONE_ID_SYSTEM_PROPERTY)
     Optional<String> zoneId;
@@ -36,6 +43,24 @@ public class SystemPropertiesRetriever {
     @ConfigProperty(name = INITIAL_DATA_PROPERTY, defaultValue = "DEMO_DATA")
     String demoData;
 
+    @ConfigProperty(name = ELIGIBLE_EMPLOYEE_RANGE_PROPERTY, defaultValue = "true")
+    boolean eligibleEmployeeRange = true;
+
+    @ConfigProperty(name = REPLAN_NEIGHBOURHOOD_DAYS_PROPERTY, defaultValue = "1")
+    int replanNeighbourhoodDays = 1;
+
+    @ConfigProperty(name = ROSTER_CACHE_MAXIMUM_ENTITY_COUNT_PROPERTY, defaultValue = "200000")
+    long rosterCacheMaximumEntityCount = 200_000L;
+
+    @ConfigProperty(name = ROSTER_VIEW_SCOPED_EXPLANATION_PROPERTY, defaultValue = "false")
+    boolean rosterViewScopedExplanation = false;
+
+    @ConfigProperty(name = BEST_SOLUTION_WRITER_THREAD_COUNT_PROPERTY, defaultValue = "2")
+    int bestSolutionWriterThreadCount = 2;
+
+    @ConfigProperty(name = BEST_SOLUTION_WRITER_MINIMUM_FLUSH_INTERVAL_MILLIS_PROPERTY, defaultValue = "2000")
+    long bestSolutionWriterMinimumFlushIntervalMillis = 2_000L;
+
     public SystemPropertiesRetriever() {
         this(Optional.of("UTC"), "DEMO_DATA");
     }
@@ -62,6 +87,50 @@ public class SystemPropertiesRetriever {
         return ZoneId.systemDefault();
     }
 
+    /**
+     * @return true if a shift may only be assigned to employees with the required skills that are not unavailable
+     */
+    public boolean isEligibleEmployeeRangeEnabled() {
+        return eligibleEmployeeRange;
+    }
+
+    /**
+     * @return at least 0, how many days before and after a change a neighbourhood replan reaches by default
+     */
+    public int getReplanNeighbourhoodDays() {
+        return replanNeighbourhoodDays;
+    }
+
+    /**
+     * @return at least 0, how many shifts, availabilities, employees, spots and skills the cached rosters
+     *         of all tenants hold together, 0 to not cache rosters
+     */
+    public long getRosterCacheMaximumEntityCount() {
+        return rosterCacheMaximumEntityCount;
+    }
+
+    /**
+     * @return true if a roster view that finds no cached explanation of the whole roster only explains its own
+     *         shifts and their neighbourhood, and shows the last known score of the roster
+     */
+    public boolean isRosterViewScopedExplanationEnabled() {
+        return rosterViewScopedExplanation;
+    }
+
+    /**
+     * @return at least 1, how many threads write the best solutions of all tenants
+     */
+    public int getBestSolutionWriterThreadCount() {
+        return bestSolutionWriterThreadCount;
+    }
+
+    /**
+     * @return at least 0, how long after writing a best solution of a tenant its next one is written at the earliest
+     */
+    public long getBestSolutionWriterMinimumFlushIntervalMillis() {
+        return bestSolutionWriterMinimumFlushIntervalMillis;
+    }
+
     public InitialData determineInitialData() {
         try {
             return InitialData.valueOf(demoData);
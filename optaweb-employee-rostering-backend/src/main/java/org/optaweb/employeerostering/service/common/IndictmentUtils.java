@@ -34,16 +34,21 @@ import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfig
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
 
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import org.optaplanner.core.api.score.ScoreExplanation;
 import org.optaplanner.core.api.score.ScoreManager;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.ConstraintMatch;
 import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
 import org.optaplanner.core.api.score.constraint.Indictment;
 import org.optaweb.employeerostering.domain.employee.Employee;
@@ -67,6 +72,41 @@ import org.optaweb.employeerostering.domain.violation.UndesiredTimeslotForEmploy
 public class IndictmentUtils {
 
     public static final String CONSTRAINT_MATCH_PACKAGE = "org.optaweb.employeerostering.service.solver";
+    // Below this many shifts, mapping them on one thread is faster than splitting them over the common pool
+    public static final int PARALLEL_SHIFT_VIEW_THRESHOLD = 10_000;
+
+    // The violation of each constraint in CONSTRAINT_MATCH_PACKAGE that a shift view shows, by constraint name
+    private static final Map<String, ViolationType> CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP = new HashMap<>();
+
+    static {
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_REQUIRED_SKILL_FOR_A_SHIFT, ViolationType.REQUIRED_SKILL);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_UNAVAILABLE_TIME_SLOT_FOR_AN_EMPLOYEE,
+                ViolationType.UNAVAILABLE_EMPLOYEE);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS,
+                ViolationType.SHIFT_EMPLOYEE_CONFLICT);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_NO_OVERLAPPING_SHIFTS,
+                ViolationType.SHIFT_EMPLOYEE_CONFLICT);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
+                ViolationType.DESIRED_TIMESLOT);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
+                ViolationType.UNDESIRED_TIMESLOT);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE,
+                ViolationType.ROTATION);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_ASSIGN_EVERY_SHIFT, ViolationType.UNASSIGNED_SHIFT);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                ViolationType.CONTRACT_MINUTES);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                ViolationType.CONTRACT_MINUTES);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                ViolationType.CONTRACT_MINUTES);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                ViolationType.CONTRACT_MINUTES);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_NO_MORE_THAN_2_CONSECUTIVE_SHIFTS,
+                ViolationType.NO_BREAK);
+        CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.put(CONSTRAINT_EMPLOYEE_IS_NOT_ORIGINAL_EMPLOYEE,
+                ViolationType.PUBLISHED_SHIFT_REASSIGNED);
+    }
+
     private ScoreManager<Roster, HardMediumSoftLongScore> scoreManager;
 
     @Inject
@@ -79,7 +119,15 @@ public class IndictmentUtils {
     }
 
     public IndictmentSummary getIndictmentSummaryForRoster(Roster roster) {
-        Map<String, ConstraintMatchTotal<HardMediumSoftLongScore>> constraintMatchTotalMap = scoreManager.explainScore(roster)
+        return getIndictmentSummary(scoreManager.explainScore(roster));
+    }
+
+    /**
+     * @param scoreExplanation never null, also the source of the indictment map, so the roster is explained once
+     * @return never null
+     */
+    public IndictmentSummary getIndictmentSummary(ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation) {
+        Map<String, ConstraintMatchTotal<HardMediumSoftLongScore>> constraintMatchTotalMap = scoreExplanation
                 .getConstraintMatchTotalMap();
         IndictmentSummary out = new IndictmentSummary();
         out.setConstraintToCountMap(constraintMatchTotalMap.values().stream()
@@ -91,19 +139,96 @@ public class IndictmentUtils {
         return out;
     }
 
+    /**
+     * @param zoneId never null
+     * @param shiftList never null
+     * @param indictmentMap never null
+     * @return never null, the views of the shifts in the same order, mapped in parallel for large rosters
+     */
+    public List<ShiftView> getShiftViewListWithIndictments(ZoneId zoneId, List<Shift> shiftList,
+            Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap) {
+        Stream<Shift> shiftStream = (shiftList.size() >= PARALLEL_SHIFT_VIEW_THRESHOLD) ? shiftList.parallelStream()
+                : shiftList.stream();
+        return shiftStream
+                .map(shift -> getShiftViewWithIndictment(zoneId, shift, indictmentMap.get(shift)))
+                .collect(toList());
+    }
+
     public ShiftView getShiftViewWithIndictment(ZoneId zoneId, Shift shift, Indictment<HardMediumSoftLongScore> indictment) {
+        if (indictment == null) {
+            return new ShiftView(zoneId, shift, Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                    HardMediumSoftLongScore.ZERO);
+        }
+        List<RequiredSkillViolation> requiredSkillViolationList = new ArrayList<>(0);
+        List<UnavailableEmployeeViolation> unavailableEmployeeViolationList = new ArrayList<>(0);
+        List<ShiftEmployeeConflict> shiftEmployeeConflictList = new ArrayList<>(0);
+        List<DesiredTimeslotForEmployeeReward> desiredTimeslotForEmployeeRewardList = new ArrayList<>(0);
+        List<UndesiredTimeslotForEmployeePenalty> undesiredTimeslotForEmployeePenaltyList = new ArrayList<>(0);
+        List<RotationViolationPenalty> rotationViolationPenaltyList = new ArrayList<>(0);
+        List<UnassignedShiftPenalty> unassignedShiftPenaltyList = new ArrayList<>(0);
+        List<ContractMinutesViolation> contractMinutesViolationList = new ArrayList<>(0);
+        List<NoBreakViolation> noBreakViolationList = new ArrayList<>(0);
+        List<PublishedShiftReassignedPenalty> publishedShiftReassignedPenaltyList = new ArrayList<>(0);
+        // One pass over the constraint matches, instead of one per kind of violation
+        for (ConstraintMatch<HardMediumSoftLongScore> constraintMatch : indictment.getConstraintMatchSet()) {
+            if (!constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE)) {
+                continue;
+            }
+            ViolationType violationType = CONSTRAINT_NAME_TO_VIOLATION_TYPE_MAP.get(
+                    constraintMatch.getConstraintName());
+            if (violationType == null) {
+                continue;
+            }
+            switch (violationType) {
+                case REQUIRED_SKILL:
+                    requiredSkillViolationList.add(toRequiredSkillViolation(constraintMatch));
+                    break;
+                case UNAVAILABLE_EMPLOYEE:
+                    unavailableEmployeeViolationList.add(toUnavailableEmployeeViolation(constraintMatch));
+                    break;
+                case SHIFT_EMPLOYEE_CONFLICT:
+                    shiftEmployeeConflictList.add(toShiftEmployeeConflict(constraintMatch));
+                    break;
+                case DESIRED_TIMESLOT:
+                    desiredTimeslotForEmployeeRewardList.add(toDesiredTimeslotForEmployeeReward(constraintMatch));
+                    break;
+                case UNDESIRED_TIMESLOT:
+                    undesiredTimeslotForEmployeePenaltyList.add(
+                            toUndesiredTimeslotForEmployeePenalty(constraintMatch));
+                    break;
+                case ROTATION:
+                    rotationViolationPenaltyList.add(toRotationViolationPenalty(constraintMatch));
+                    break;
+                case UNASSIGNED_SHIFT:
+                    unassignedShiftPenaltyList.add(toUnassignedShiftPenalty(constraintMatch));
+                    break;
+                case CONTRACT_MINUTES:
+                    contractMinutesViolationList.add(toContractMinutesViolation(constraintMatch));
+                    break;
+                case NO_BREAK:
+                    noBreakViolationList.add(toNoBreakViolation(constraintMatch));
+                    break;
+                case PUBLISHED_SHIFT_REASSIGNED:
+                    publishedShiftReassignedPenaltyList.add(toPublishedShiftReassignedPenalty(constraintMatch));
+                    break;
+                default:
+                    throw new IllegalStateException("The violationType (" + violationType + ") is not implemented.");
+            }
+        }
         return new ShiftView(zoneId, shift,
-                getRequiredSkillViolationList(indictment),
-                getUnavailableEmployeeViolationList(indictment),
-                getShiftEmployeeConflictList(indictment),
-                getDesiredTimeslotForEmployeeRewardList(indictment),
-                getUndesiredTimeslotForEmployeePenaltyList(indictment),
-                getRotationViolationPenaltyList(indictment),
-                getUnassignedShiftPenaltyList(indictment),
-                getContractMinutesViolationList(indictment),
-                getNoBreakViolationList(indictment),
-                getPublishedShiftReassignedPenaltyList(indictment),
-                (indictment != null) ? indictment.getScore() : HardMediumSoftLongScore.ZERO);
+                requiredSkillViolationList,
+                unavailableEmployeeViolationList,
+                shiftEmployeeConflictList,
+                desiredTimeslotForEmployeeRewardList,
+                undesiredTimeslotForEmployeePenaltyList,
+                rotationViolationPenaltyList,
+                unassignedShiftPenaltyList,
+                contractMinutesViolationList,
+                noBreakViolationList,
+                publishedShiftReassignedPenaltyList,
+                indictment.getScore());
     }
 
     public List<RequiredSkillViolation> getRequiredSkillViolationList(Indictment<HardMediumSoftLongScore> indictment) {
@@ -113,8 +238,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_REQUIRED_SKILL_FOR_A_SHIFT))
-                .map(constraintMatch -> new RequiredSkillViolation((Shift) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toRequiredSkillViolation)
                 .collect(toList());
     }
 
@@ -126,9 +250,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_UNAVAILABLE_TIME_SLOT_FOR_AN_EMPLOYEE))
-                .map(constraintMatch -> new UnavailableEmployeeViolation((Shift) constraintMatch.getJustificationList().get(1),
-                        (EmployeeAvailability) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toUnavailableEmployeeViolation)
                 .collect(toList());
     }
 
@@ -140,10 +262,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE))
-                .map(constraintMatch -> new DesiredTimeslotForEmployeeReward(
-                        (Shift) constraintMatch.getJustificationList().get(1),
-                        (EmployeeAvailability) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toDesiredTimeslotForEmployeeReward)
                 .collect(toList());
     }
 
@@ -155,11 +274,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE))
-                .map(constraintMatch -> new UndesiredTimeslotForEmployeePenalty(
-                        (Shift) constraintMatch.getJustificationList().get(1),
-                        (EmployeeAvailability) constraintMatch.getJustificationList()
-                                .get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toUndesiredTimeslotForEmployeePenalty)
                 .collect(toList());
     }
 
@@ -172,8 +287,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         employeeShiftConstraintNameList.contains(constraintMatch.getConstraintName()))
-                .map(constraintMatch -> new ShiftEmployeeConflict((Shift) constraintMatch.getJustificationList().get(0),
-                        (Shift) constraintMatch.getJustificationList().get(1), constraintMatch.getScore()))
+                .map(IndictmentUtils::toShiftEmployeeConflict)
                 .collect(toList());
     }
 
@@ -184,10 +298,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_NO_MORE_THAN_2_CONSECUTIVE_SHIFTS))
-                .map(constraintMatch -> new NoBreakViolation((Shift) constraintMatch.getJustificationList().get(0),
-                        (Shift) constraintMatch.getJustificationList().get(1),
-                        (Shift) constraintMatch.getJustificationList().get(2),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toNoBreakViolation)
                 .collect(toList());
     }
 
@@ -198,8 +309,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE))
-                .map(constraintMatch -> new RotationViolationPenalty((Shift) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toRotationViolationPenalty)
                 .collect(toList());
     }
 
@@ -210,8 +320,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_ASSIGN_EVERY_SHIFT))
-                .map(constraintMatch -> new UnassignedShiftPenalty((Shift) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toUnassignedShiftPenalty)
                 .collect(toList());
     }
 
@@ -219,7 +328,6 @@ public class IndictmentUtils {
         if (indictment == null) {
             return Collections.emptyList();
         }
-        // getJustificationList() was not consistent; sometimes employee was first, other times minutes worked was first
         List<String> contractMinutesConstraintNameList = Arrays.asList(
                 CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
                 CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
@@ -228,16 +336,7 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         contractMinutesConstraintNameList.contains(constraintMatch.getConstraintName()))
-                .map(constraintMatch -> new ContractMinutesViolation((Employee) constraintMatch.getJustificationList()
-                        .stream()
-                        .filter(o -> o instanceof Employee)
-                        .findFirst().get(),
-                        ContractMinutesViolation.Type.getTypeForViolation(constraintMatch.getConstraintName()),
-                        (Long) constraintMatch.getJustificationList()
-                                .stream()
-                                .filter(o -> o instanceof Long)
-                                .findFirst().get(),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toContractMinutesViolation)
                 .collect(toList());
     }
 
@@ -249,9 +348,97 @@ public class IndictmentUtils {
         return indictment.getConstraintMatchSet().stream()
                 .filter(constraintMatch -> constraintMatch.getConstraintPackage().equals(CONSTRAINT_MATCH_PACKAGE) &&
                         constraintMatch.getConstraintName().equals(CONSTRAINT_EMPLOYEE_IS_NOT_ORIGINAL_EMPLOYEE))
-                .map(constraintMatch -> new PublishedShiftReassignedPenalty(
-                        (Shift) constraintMatch.getJustificationList().get(0),
-                        constraintMatch.getScore()))
+                .map(IndictmentUtils::toPublishedShiftReassignedPenalty)
                 .collect(toList());
     }
+
+    private static RequiredSkillViolation toRequiredSkillViolation(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new RequiredSkillViolation((Shift) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static UnavailableEmployeeViolation toUnavailableEmployeeViolation(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new UnavailableEmployeeViolation((Shift) constraintMatch.getJustificationList().get(1),
+                (EmployeeAvailability) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static DesiredTimeslotForEmployeeReward toDesiredTimeslotForEmployeeReward(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new DesiredTimeslotForEmployeeReward(
+                (Shift) constraintMatch.getJustificationList().get(1),
+                (EmployeeAvailability) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static UndesiredTimeslotForEmployeePenalty toUndesiredTimeslotForEmployeePenalty(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new UndesiredTimeslotForEmployeePenalty(
+                (Shift) constraintMatch.getJustificationList().get(1),
+                (EmployeeAvailability) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static ShiftEmployeeConflict toShiftEmployeeConflict(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new ShiftEmployeeConflict((Shift) constraintMatch.getJustificationList().get(0),
+                (Shift) constraintMatch.getJustificationList().get(1), constraintMatch.getScore());
+    }
+
+    private static NoBreakViolation toNoBreakViolation(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new NoBreakViolation((Shift) constraintMatch.getJustificationList().get(0),
+                (Shift) constraintMatch.getJustificationList().get(1),
+                (Shift) constraintMatch.getJustificationList().get(2),
+                constraintMatch.getScore());
+    }
+
+    private static RotationViolationPenalty toRotationViolationPenalty(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new RotationViolationPenalty((Shift) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static UnassignedShiftPenalty toUnassignedShiftPenalty(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new UnassignedShiftPenalty((Shift) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private static ContractMinutesViolation toContractMinutesViolation(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        // getJustificationList() was not consistent; sometimes employee was first, other times minutes worked was first
+        return new ContractMinutesViolation((Employee) constraintMatch.getJustificationList()
+                .stream()
+                .filter(o -> o instanceof Employee)
+                .findFirst().get(),
+                ContractMinutesViolation.Type.getTypeForViolation(constraintMatch.getConstraintName()),
+                (Long) constraintMatch.getJustificationList()
+                        .stream()
+                        .filter(o -> o instanceof Long)
+                        .findFirst().get(),
+                constraintMatch.getScore());
+    }
+
+    private static PublishedShiftReassignedPenalty toPublishedShiftReassignedPenalty(
+            ConstraintMatch<HardMediumSoftLongScore> constraintMatch) {
+        return new PublishedShiftReassignedPenalty(
+                (Shift) constraintMatch.getJustificationList().get(0),
+                constraintMatch.getScore());
+    }
+
+    private enum ViolationType {
+        REQUIRED_SKILL,
+        UNAVAILABLE_EMPLOYEE,
+        SHIFT_EMPLOYEE_CONFLICT,
+        DESIRED_TIMESLOT,
+        UNDESIRED_TIMESLOT,
+        ROTATION,
+        UNASSIGNED_SHIFT,
+        CONTRACT_MINUTES,
+        NO_BREAK,
+        PUBLISHED_SHIFT_REASSIGNED
+    }
 }
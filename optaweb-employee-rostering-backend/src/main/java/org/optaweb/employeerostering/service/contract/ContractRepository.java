@@ -20,6 +20,7 @@ import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.contract.Contract;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -28,6 +29,6 @@ import io.quarkus.panache.common.Sort;
 @ApplicationScoped
 public class ContractRepository implements PanacheRepository<Contract> {
     public List<Contract> findAllByTenantId(Integer tenantId) {
-        return find("tenantId", Sort.ascending("name"), tenantId).list();
+        return find("tenantId", Sort.ascending("name"), tenantId).withHint(QueryHints.HINT_CACHEABLE, true).list();
     }
 }
@@ -28,17 +28,21 @@ import javax.validation.Validator;
 import org.optaweb.employeerostering.domain.contract.Contract;
 import org.optaweb.employeerostering.domain.contract.view.ContractView;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 
 @ApplicationScoped
 public class ContractService extends AbstractRestService {
 
     final private ContractRepository contractRepository;
 
+    final private RosterCache rosterCache;
+
     @Inject
     public ContractService(Validator validator,
-            ContractRepository contractRepository) {
+            ContractRepository contractRepository, RosterCache rosterCache) {
         super(validator);
         this.contractRepository = contractRepository;
+        this.rosterCache = rosterCache;
     }
 
     public Contract convertFromView(Integer tenantId, ContractView contractView) {
@@ -77,6 +81,7 @@ public class ContractService extends AbstractRestService {
 
         validateBean(tenantId, contractOptional.get());
         contractRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 
@@ -107,6 +112,7 @@ public class ContractService extends AbstractRestService {
         oldContract.setMaximumMinutesPerMonth(newContract.getMaximumMinutesPerMonth());
         oldContract.setMaximumMinutesPerYear(newContract.getMaximumMinutesPerYear());
         contractRepository.persist(oldContract);
+        rosterCache.invalidate(tenantId);
         return oldContract;
     }
 
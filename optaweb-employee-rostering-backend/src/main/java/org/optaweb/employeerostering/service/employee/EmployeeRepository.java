@@ -18,9 +18,11 @@ package org.optaweb.employeerostering.service.employee;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.employee.Employee;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -30,7 +32,20 @@ import io.quarkus.panache.common.Sort;
 public class EmployeeRepository implements PanacheRepository<Employee> {
 
     public List<Employee> findAllByTenantId(Integer tenantId) {
-        return find("tenantId", Sort.ascending("name"), tenantId).list();
+        return find("tenantId", Sort.ascending("name"), tenantId).withHint(QueryHints.HINT_CACHEABLE, true).list();
+    }
+
+    /**
+     * Like {@link #findAllByTenantId(Integer)}, but fetches the contracts and skills in the same select,
+     * for loading every employee of a roster at once.
+     * @param tenantId never null
+     * @return never null
+     */
+    public List<Employee> findAllByTenantIdFetchingContractAndSkills(Integer tenantId) {
+        // Every skill of an employee is a row, so the same employee comes back once per skill
+        return find("select e from Employee e left join fetch e.contract left join fetch e.skillProficiencySet"
+                + " where e.tenantId = ?1 order by e.name", tenantId)
+                .list().stream().distinct().collect(Collectors.toList());
     }
 
     public Optional<Employee> findEmployeeByName(Integer tenantId, String name) {
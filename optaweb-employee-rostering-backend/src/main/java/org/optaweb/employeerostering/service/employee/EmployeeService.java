@@ -38,6 +38,7 @@ import org.optaweb.employeerostering.domain.employee.view.EmployeeView;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 import org.optaweb.employeerostering.domain.skill.Skill;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 import org.optaweb.employeerostering.service.roster.RosterStateRepository;
 import org.optaweb.employeerostering.util.EmployeeListXlsxFileIO;
 
@@ -52,17 +53,21 @@ public class EmployeeService extends AbstractRestService {
 
     EmployeeListXlsxFileIO employeeListXlsxFileIO;
 
+    RosterCache rosterCache;
+
     @Inject
     public EmployeeService(Validator validator,
             EmployeeRepository employeeRepository,
             EmployeeAvailabilityRepository employeeAvailabilityRepository,
             RosterStateRepository rosterStateRepository,
-            EmployeeListXlsxFileIO employeeListXlsxFileIO) {
+            EmployeeListXlsxFileIO employeeListXlsxFileIO,
+            RosterCache rosterCache) {
         super(validator);
         this.employeeRepository = employeeRepository;
         this.employeeAvailabilityRepository = employeeAvailabilityRepository;
         this.rosterStateRepository = rosterStateRepository;
         this.employeeListXlsxFileIO = employeeListXlsxFileIO;
+        this.rosterCache = rosterCache;
     }
 
     // ************************************************************************
@@ -104,6 +109,7 @@ public class EmployeeService extends AbstractRestService {
 
         validateEmployee(tenantId, employeeOptional.get());
         employeeRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 
@@ -113,6 +119,7 @@ public class EmployeeService extends AbstractRestService {
         validateEmployee(tenantId, employee);
 
         employeeRepository.persist(employee);
+        rosterCache.invalidate(tenantId);
         return employee;
     }
 
@@ -138,6 +145,7 @@ public class EmployeeService extends AbstractRestService {
         oldEmployee.setShortId(newEmployee.getShortId());
         oldEmployee.setColor(newEmployee.getColor());
         employeeRepository.persist(oldEmployee);
+        rosterCache.invalidate(tenantId);
         return oldEmployee;
     }
 
@@ -231,6 +239,7 @@ public class EmployeeService extends AbstractRestService {
         EmployeeAvailability employeeAvailability = convertFromEmployeeAvailabilityView(tenantId,
                 employeeAvailabilityView);
         employeeAvailabilityRepository.persist(employeeAvailability);
+        rosterCache.invalidate(tenantId);
 
         RosterState rosterState = rosterStateRepository
                 .findByTenantId(tenantId)
@@ -265,6 +274,7 @@ public class EmployeeService extends AbstractRestService {
 
         // Flush to increase version number before we duplicate it to EmployeeAvailableView
         employeeAvailabilityRepository.persistAndFlush(oldEmployeeAvailability);
+        rosterCache.invalidate(tenantId);
 
         RosterState rosterState = rosterStateRepository
                 .findByTenantId(tenantId)
@@ -288,6 +298,7 @@ public class EmployeeService extends AbstractRestService {
 
         validateBean(tenantId, employeeAvailabilityOptional.get().inTimeZone(rosterState.getTimeZone()));
         employeeAvailabilityRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.roster;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.optaweb.employeerostering.domain.roster.BestSolutionWriterStatistics;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.service.admin.SystemPropertiesRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the best solutions of the solvers of all tenants with a fixed number of threads.
+ * <p>
+ * Every tenant has a mailbox that holds only its latest best solution, so a best solution that arrives
+ * before the previous one is written replaces it. A tenant gets at most one write per
+ * {@link SystemPropertiesRetriever#getBestSolutionWriterMinimumFlushIntervalMillis() minimum flush interval},
+ * and never two at the same time. On shutdown, the pending best solutions are written without waiting
+ * for the interval.
+ */
+@ApplicationScoped
+public class BestSolutionWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BestSolutionWriter.class);
+
+    static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    private final long minimumFlushIntervalNanos;
+    private final ScheduledThreadPoolExecutor executorService;
+    private final Map<Integer, Mailbox> tenantIdToMailboxMap = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown = false;
+
+    private long submittedCount = 0L;
+    private long coalescedCount = 0L;
+    private long flushCount = 0L;
+    private long failedFlushCount = 0L;
+    private long totalFlushNanos = 0L;
+    private long maximumFlushNanos = 0L;
+
+    @Inject
+    public BestSolutionWriter(SystemPropertiesRetriever systemPropertiesRetriever) {
+        this(systemPropertiesRetriever.getBestSolutionWriterThreadCount(),
+                systemPropertiesRetriever.getBestSolutionWriterMinimumFlushIntervalMillis());
+    }
+
+    public BestSolutionWriter(int threadCount, long minimumFlushIntervalMillis) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The threadCount (" + threadCount + ") must be at least 1.");
+        }
+        if (minimumFlushIntervalMillis < 0L) {
+            throw new IllegalArgumentException("The minimumFlushIntervalMillis (" + minimumFlushIntervalMillis
+                    + ") must not be negative.");
+        }
+        this.minimumFlushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minimumFlushIntervalMillis);
+        this.executorService = new ScheduledThreadPoolExecutor(threadCount);
+        // shutdown() writes what the delayed flushes would have written, without waiting for them
+        executorService.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * @param roster never null, a best solution
+     * @param flusher never null, writes the best solution in a transaction of its own
+     */
+    public void submit(Roster roster, Consumer<Roster> flusher) {
+        tenantIdToMailboxMap.computeIfAbsent(roster.getTenantId(), Mailbox::new).offer(roster, flusher);
+    }
+
+    public BestSolutionWriterStatistics getStatistics() {
+        int pendingRosterCount = 0;
+        for (Mailbox mailbox : tenantIdToMailboxMap.values()) {
+            if (mailbox.hasPendingRoster()) {
+                pendingRosterCount++;
+            }
+        }
+        synchronized (this) {
+            return new BestSolutionWriterStatistics(pendingRosterCount, submittedCount, coalescedCount, flushCount,
+                    failedFlushCount, totalFlushNanos / 1_000_000L, maximumFlushNanos / 1_000_000L);
+        }
+    }
+
+    /**
+     * Writes the pending best solutions of all tenants and stops the threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        // Lets the running flushes finish, but cancels the delayed ones and rejects new ones
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("The best solution writer did not finish its flushes in {} seconds.",
+                        SHUTDOWN_TIMEOUT_SECONDS);
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executorService.shutdownNow();
+        }
+        // The best solutions of the cancelled flushes and those that arrived while the last flushes ran
+        tenantIdToMailboxMap.values().forEach(Mailbox::flushIfPending);
+    }
+
+    private synchronized void recordSubmitted(boolean coalesced) {
+        submittedCount++;
+        if (coalesced) {
+            coalescedCount++;
+        }
+    }
+
+    private synchronized void recordFlush(long flushNanos, boolean failed) {
+        flushCount++;
+        if (failed) {
+            failedFlushCount++;
+        }
+        totalFlushNanos += flushNanos;
+        maximumFlushNanos = Math.max(maximumFlushNanos, flushNanos);
+    }
+
+    private final class Mailbox {
+
+        private final Integer tenantId;
+        private Roster pendingRoster = null;
+        private Consumer<Roster> pendingFlusher = null;
+        // True from scheduling a flush until it finishes, so a tenant never has two flushes at the same time
+        private boolean flushScheduled = false;
+        // Null until the first flush
+        private Long lastFlushStartNanos = null;
+
+        private Mailbox(Integer tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        private synchronized void offer(Roster roster, Consumer<Roster> flusher) {
+            recordSubmitted(pendingRoster != null);
+            pendingRoster = roster;
+            pendingFlusher = flusher;
+            if (!flushScheduled) {
+                scheduleFlush();
+            }
+        }
+
+        private synchronized boolean hasPendingRoster() {
+            return pendingRoster != null;
+        }
+
+        // Called with the lock held
+        private void scheduleFlush() {
+            long delayNanos = (shuttingDown || lastFlushStartNanos == null) ? 0L
+                    : Math.max(0L, lastFlushStartNanos + minimumFlushIntervalNanos - System.nanoTime());
+            try {
+                executorService.schedule(this::flush, delayNanos, TimeUnit.NANOSECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // Shutting down, so shutdown() writes it
+                flushScheduled = false;
+            }
+        }
+
+        private void flush() {
+            Roster roster;
+            Consumer<Roster> flusher;
+            synchronized (this) {
+                roster = pendingRoster;
+                flusher = pendingFlusher;
+                pendingRoster = null;
+                pendingFlusher = null;
+                lastFlushStartNanos = System.nanoTime();
+            }
+            if (roster != null) {
+                write(roster, flusher);
+            }
+            synchronized (this) {
+                if (pendingRoster != null) {
+                    scheduleFlush();
+                } else {
+                    flushScheduled = false;
+                }
+            }
+        }
+
+        private void flushIfPending() {
+            Roster roster;
+            Consumer<Roster> flusher;
+            synchronized (this) {
+                roster = pendingRoster;
+                flusher = pendingFlusher;
+                pendingRoster = null;
+                pendingFlusher = null;
+            }
+            if (roster != null) {
+                write(roster, flusher);
+            }
+        }
+
+        private void write(Roster roster, Consumer<Roster> flusher) {
+            long startNanos = System.nanoTime();
+            boolean failed = false;
+            try {
+                flusher.accept(roster);
+            } catch (RuntimeException e) {
+                failed = true;
+                LOGGER.error("Writing the best solution of tenantId ({}) failed.", tenantId, e);
+            }
+            recordFlush(System.nanoTime() - startNanos, failed);
+        }
+    }
+}
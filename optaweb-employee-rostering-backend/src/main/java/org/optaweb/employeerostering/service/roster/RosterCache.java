@@ -0,0 +1,428 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.roster;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.optaplanner.core.api.score.ScoreExplanation;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterCacheStatistics;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.service.admin.SystemPropertiesRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the built roster of the most recently used tenants, and the explanation of its score once it is asked for,
+ * so the roster views and the shift indictments do not query and score the whole roster of a tenant on every request.
+ * A cached roster is never modified, so it is a version of the data of its tenant and its explanation stays valid
+ * until the roster is dropped.
+ * <p>
+ * Every service that changes the data of a roster must call {@link #invalidate(Integer)}.
+ * Within a transaction, that drops the roster once more after the transaction completes,
+ * so the cache never keeps a roster built from data that is not committed or from data it is about to replace.
+ * <p>
+ * The cache holds at most {@link SystemPropertiesRetriever#getRosterCacheMaximumEntityCount() a maximum number}
+ * of shifts, availabilities, employees, spots and skills over all tenants,
+ * and evicts the least recently used rosters to stay below it.
+ * <p>
+ * It also keeps a {@link RosterScoreSession} per tenant that updates its shifts one by one,
+ * which {@link #updateShift(Integer, Shift, Long, Function)} keeps in sync instead of dropping it,
+ * within the same maximum number of entities.
+ * <p>
+ * Lastly, it keeps the last known score of the roster of every tenant, which survives invalidations,
+ * for views that do not score the whole roster, see {@link #getLastScore(Integer)}.
+ */
+@ApplicationScoped
+public class RosterCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RosterCache.class);
+
+    private final long maximumEntityCount;
+    // Null outside of a container, in which case invalidate() does not wait for transactions
+    private final TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    // Access ordered, so the least recently used roster comes first
+    private final LinkedHashMap<Integer, CachedRoster> tenantIdToCachedRosterMap =
+            new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped by every invalidation, so a roster built from data read before an invalidation is not cached
+    private final Map<Integer, Long> tenantIdToGenerationMap = new HashMap<>();
+    private long allTenantsGeneration = 0L;
+    private long entityCount = 0L;
+    // Access ordered, like the rosters, but with a budget of its own
+    private final LinkedHashMap<Integer, RosterScoreSession> tenantIdToScoreSessionMap =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long scoreSessionEntityCount = 0L;
+    private final Map<Integer, HardMediumSoftLongScore> tenantIdToLastScoreMap = new HashMap<>();
+
+    private long hitCount = 0L;
+    private long missCount = 0L;
+    private long evictionCount = 0L;
+    private long invalidationCount = 0L;
+    private long rebuiltScoreSessionCount = 0L;
+
+    @Inject
+    public RosterCache(SystemPropertiesRetriever systemPropertiesRetriever,
+            TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+        this(systemPropertiesRetriever.getRosterCacheMaximumEntityCount(), transactionSynchronizationRegistry);
+    }
+
+    public RosterCache(long maximumEntityCount,
+            TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+        if (maximumEntityCount < 0L) {
+            throw new IllegalArgumentException("The maximumEntityCount (" + maximumEntityCount
+                    + ") must not be negative.");
+        }
+        this.maximumEntityCount = maximumEntityCount;
+        this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+    }
+
+    /**
+     * @param tenantId never null
+     * @param rosterBuilder never null, builds the roster of the tenant if it is not cached
+     * @return never null, shared with other callers, so it must not be modified
+     */
+    public Roster getRoster(Integer tenantId, Function<Integer, Roster> rosterBuilder) {
+        return getCachedRoster(tenantId, rosterBuilder).roster;
+    }
+
+    /**
+     * @param tenantId never null
+     * @param rosterBuilder never null, builds the roster of the tenant if it is not cached
+     * @param scoreExplainer never null, explains the score of the roster if that is not cached
+     * @return never null, the explanation of the score of the roster {@link #getRoster(Integer, Function)} returns,
+     *         shared with other callers
+     */
+    public ScoreExplanation<Roster, HardMediumSoftLongScore> getScoreExplanation(Integer tenantId,
+            Function<Integer, Roster> rosterBuilder,
+            Function<Roster, ScoreExplanation<Roster, HardMediumSoftLongScore>> scoreExplainer) {
+        return getCachedRoster(tenantId, rosterBuilder).getScoreExplanation(scoreExplainer);
+    }
+
+    /**
+     * Neither builds nor explains the roster, so it is cheap, unlike {@link #getScoreExplanation}.
+     * @param tenantId never null
+     * @return null if the roster of the tenant is not cached or its score is not explained yet
+     */
+    public ScoreExplanation<Roster, HardMediumSoftLongScore> peekScoreExplanation(Integer tenantId) {
+        CachedRoster cachedRoster;
+        synchronized (this) {
+            cachedRoster = tenantIdToCachedRosterMap.get(tenantId);
+        }
+        return (cachedRoster == null) ? null : cachedRoster.peekScoreExplanation();
+    }
+
+    /**
+     * @param tenantId never null
+     * @return null if no roster of the tenant was scored since the application started, or since
+     *         {@link #invalidateAll()}, else the score of the last roster built, solved or updated by a shift,
+     *         which misses the changes since and may include a shift update that rolled back
+     */
+    public synchronized HardMediumSoftLongScore getLastScore(Integer tenantId) {
+        return tenantIdToLastScoreMap.get(tenantId);
+    }
+
+    /**
+     * @param tenantId never null
+     * @param score null is ignored
+     */
+    public synchronized void putLastScore(Integer tenantId, HardMediumSoftLongScore score) {
+        if (score != null) {
+            tenantIdToLastScoreMap.put(tenantId, score);
+        }
+    }
+
+    // Not in the cache if it was built in a transaction that changed the roster, or does not fit the cache
+    private CachedRoster getCachedRoster(Integer tenantId, Function<Integer, Roster> rosterBuilder) {
+        long generation;
+        synchronized (this) {
+            CachedRoster cachedRoster = tenantIdToCachedRosterMap.get(tenantId);
+            if (cachedRoster != null) {
+                hitCount++;
+                return cachedRoster;
+            }
+            missCount++;
+            generation = getGeneration(tenantId);
+        }
+        // Build outside of the lock, so a slow tenant does not block the others
+        Roster roster = rosterBuilder.apply(tenantId);
+        CachedRoster cachedRoster = new CachedRoster(roster, countEntities(roster));
+        if (!isInvalidatedInTransaction(tenantId)) {
+            put(tenantId, cachedRoster, generation);
+            putLastScore(tenantId, roster.getScore());
+        }
+        return cachedRoster;
+    }
+
+    /**
+     * Drops the roster of the tenant now and, within a transaction, again after it completes.
+     * @param tenantId never null
+     */
+    public void invalidate(Integer tenantId) {
+        invalidateNow(tenantId, false);
+        registerAfterCompletion(tenantId, false);
+    }
+
+    /**
+     * Drops the roster of the tenant like {@link #invalidate(Integer)}, when the only change to it is the update
+     * of one shift, but applies that update to the score session of the tenant instead of dropping it.
+     * If the tenant has no score session, or it is out of sync, a new one is built from the data
+     * the current transaction sees, which must include the update.
+     * Within a transaction, the score session is dropped if the transaction does not commit.
+     * @param tenantId never null
+     * @param shift never null, the shift as it was updated
+     * @param previousVersion the version of the shift before the update
+     * @param scoreSessionBuilder never null, builds a score session of the tenant
+     * @return null if the shift has no indictment
+     */
+    public Indictment<HardMediumSoftLongScore> updateShift(Integer tenantId, Shift shift, Long previousVersion,
+            Function<Integer, RosterScoreSession> scoreSessionBuilder) {
+        RosterScoreSession scoreSession;
+        synchronized (this) {
+            invalidateNow(tenantId, true);
+            scoreSession = tenantIdToScoreSessionMap.get(tenantId);
+        }
+        registerAfterCompletion(tenantId, true);
+        if (scoreSession != null) {
+            try {
+                Indictment<HardMediumSoftLongScore> indictment = scoreSession.updateShift(shift, previousVersion);
+                putLastScore(tenantId, scoreSession.getScore());
+                return indictment;
+            } catch (IllegalStateException e) {
+                LOGGER.debug("Rebuilding the score session of tenantId ({}), because it is out of sync.", tenantId, e);
+                removeScoreSession(tenantId, scoreSession);
+            }
+        }
+        long generation;
+        synchronized (this) {
+            rebuiltScoreSessionCount++;
+            generation = getGeneration(tenantId);
+        }
+        RosterScoreSession newScoreSession = scoreSessionBuilder.apply(tenantId);
+        Indictment<HardMediumSoftLongScore> indictment = newScoreSession.getIndictment(shift);
+        putLastScore(tenantId, newScoreSession.getScore());
+        if (!putScoreSession(tenantId, newScoreSession, generation)) {
+            newScoreSession.close();
+        }
+        return indictment;
+    }
+
+    /**
+     * Drops the rosters of all tenants now and, within a transaction, again after it completes.
+     */
+    public void invalidateAll() {
+        invalidateAllNow();
+        registerAfterCompletion(Collections.singletonList(RosterCache.class), this::invalidateAllNow);
+    }
+
+    public synchronized RosterCacheStatistics getStatistics() {
+        return new RosterCacheStatistics(hitCount, missCount, evictionCount, invalidationCount,
+                tenantIdToCachedRosterMap.size(), entityCount, maximumEntityCount,
+                tenantIdToScoreSessionMap.size(), rebuiltScoreSessionCount);
+    }
+
+    private synchronized void put(Integer tenantId, CachedRoster cachedRoster, long generation) {
+        if (generation != getGeneration(tenantId) || cachedRoster.entityCount > maximumEntityCount) {
+            return;
+        }
+        CachedRoster oldCachedRoster = tenantIdToCachedRosterMap.put(tenantId, cachedRoster);
+        if (oldCachedRoster != null) {
+            entityCount -= oldCachedRoster.entityCount;
+        }
+        entityCount += cachedRoster.entityCount;
+        Iterator<CachedRoster> iterator = tenantIdToCachedRosterMap.values().iterator();
+        while (entityCount > maximumEntityCount) {
+            entityCount -= iterator.next().entityCount;
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private synchronized void invalidateNow(Integer tenantId, boolean keepScoreSession) {
+        tenantIdToGenerationMap.merge(tenantId, 1L, Long::sum);
+        CachedRoster cachedRoster = tenantIdToCachedRosterMap.remove(tenantId);
+        if (cachedRoster != null) {
+            entityCount -= cachedRoster.entityCount;
+            invalidationCount++;
+        }
+        if (!keepScoreSession) {
+            RosterScoreSession scoreSession = tenantIdToScoreSessionMap.remove(tenantId);
+            if (scoreSession != null) {
+                scoreSessionEntityCount -= scoreSession.getEntityCount();
+                scoreSession.close();
+            }
+        }
+    }
+
+    private synchronized void invalidateAllNow() {
+        allTenantsGeneration++;
+        invalidationCount += tenantIdToCachedRosterMap.size();
+        tenantIdToCachedRosterMap.clear();
+        entityCount = 0L;
+        tenantIdToScoreSessionMap.values().forEach(RosterScoreSession::close);
+        tenantIdToScoreSessionMap.clear();
+        scoreSessionEntityCount = 0L;
+        tenantIdToLastScoreMap.clear();
+    }
+
+    private synchronized boolean putScoreSession(Integer tenantId, RosterScoreSession scoreSession,
+            long generation) {
+        if (generation != getGeneration(tenantId) || scoreSession.getEntityCount() > maximumEntityCount) {
+            return false;
+        }
+        RosterScoreSession oldScoreSession = tenantIdToScoreSessionMap.put(tenantId, scoreSession);
+        if (oldScoreSession != null) {
+            scoreSessionEntityCount -= oldScoreSession.getEntityCount();
+            oldScoreSession.close();
+        }
+        scoreSessionEntityCount += scoreSession.getEntityCount();
+        Iterator<RosterScoreSession> iterator = tenantIdToScoreSessionMap.values().iterator();
+        while (scoreSessionEntityCount > maximumEntityCount) {
+            RosterScoreSession evictedScoreSession = iterator.next();
+            scoreSessionEntityCount -= evictedScoreSession.getEntityCount();
+            evictedScoreSession.close();
+            iterator.remove();
+        }
+        return true;
+    }
+
+    private synchronized void removeScoreSession(Integer tenantId, RosterScoreSession scoreSession) {
+        if (tenantIdToScoreSessionMap.remove(tenantId, scoreSession)) {
+            scoreSessionEntityCount -= scoreSession.getEntityCount();
+        }
+        scoreSession.close();
+    }
+
+    // Both counters only grow, so their sum changes with either of them
+    private long getGeneration(Integer tenantId) {
+        return allTenantsGeneration + tenantIdToGenerationMap.getOrDefault(tenantId, 0L);
+    }
+
+    private boolean isInTransaction() {
+        return transactionSynchronizationRegistry != null
+                && transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+
+    // A transaction that changed the roster sees its own changes, which other transactions must not see yet
+    private boolean isInvalidatedInTransaction(Integer tenantId) {
+        return isInTransaction()
+                && (transactionSynchronizationRegistry.getResource(Arrays.asList(RosterCache.class, tenantId)) != null
+                        || transactionSynchronizationRegistry.getResource(
+                                Collections.singletonList(RosterCache.class)) != null);
+    }
+
+    private void registerAfterCompletion(Integer tenantId, boolean keepScoreSession) {
+        if (!isInTransaction()) {
+            return;
+        }
+        List<Object> resourceKey = Arrays.asList(RosterCache.class, tenantId);
+        TenantInvalidation tenantInvalidation =
+                (TenantInvalidation) transactionSynchronizationRegistry.getResource(resourceKey);
+        if (tenantInvalidation != null) {
+            // Any other change to the roster in the same transaction drops the score session after all
+            tenantInvalidation.keepScoreSession &= keepScoreSession;
+            return;
+        }
+        tenantInvalidation = new TenantInvalidation(tenantId, keepScoreSession);
+        transactionSynchronizationRegistry.putResource(resourceKey, tenantInvalidation);
+        transactionSynchronizationRegistry.registerInterposedSynchronization(tenantInvalidation);
+    }
+
+    private void registerAfterCompletion(List<Object> resourceKey, Runnable invalidation) {
+        if (!isInTransaction() || transactionSynchronizationRegistry.getResource(resourceKey) != null) {
+            return;
+        }
+        transactionSynchronizationRegistry.putResource(resourceKey, Boolean.TRUE);
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                invalidation.run();
+            }
+        });
+    }
+
+    static long countEntities(Roster roster) {
+        return (long) roster.getShiftList().size() + roster.getEmployeeAvailabilityList().size()
+                + roster.getEmployeeList().size() + roster.getSpotList().size() + roster.getSkillList().size();
+    }
+
+    private final class TenantInvalidation implements Synchronization {
+
+        private final Integer tenantId;
+        private boolean keepScoreSession;
+
+        private TenantInvalidation(Integer tenantId, boolean keepScoreSession) {
+            this.tenantId = tenantId;
+            this.keepScoreSession = keepScoreSession;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // After a rollback, the score session has updates the data does not have
+            invalidateNow(tenantId, keepScoreSession && status == Status.STATUS_COMMITTED);
+        }
+    }
+
+    private static final class CachedRoster {
+
+        private final Roster roster;
+        private final long entityCount;
+        // Explained once by the first caller that needs it, while the other callers wait for it,
+        // volatile so peeking does not wait for it
+        private volatile ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation = null;
+
+        private CachedRoster(Roster roster, long entityCount) {
+            this.roster = roster;
+            this.entityCount = entityCount;
+        }
+
+        private synchronized ScoreExplanation<Roster, HardMediumSoftLongScore> getScoreExplanation(
+                Function<Roster, ScoreExplanation<Roster, HardMediumSoftLongScore>> scoreExplainer) {
+            if (scoreExplanation == null) {
+                scoreExplanation = scoreExplainer.apply(roster);
+            }
+            return scoreExplanation;
+        }
+
+        private ScoreExplanation<Roster, HardMediumSoftLongScore> peekScoreExplanation() {
+            return scoreExplanation;
+        }
+    }
+}
@@ -39,7 +39,9 @@ import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.optaplanner.core.api.solver.SolverStatus;
 import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.MoveThreadSizing;
 import org.optaweb.employeerostering.domain.roster.PublishResult;
+import org.optaweb.employeerostering.domain.roster.ReplanChange;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 import org.optaweb.employeerostering.domain.roster.view.AvailabilityRosterView;
 import org.optaweb.employeerostering.domain.roster.view.ShiftRosterView;
@@ -239,6 +241,17 @@ public class RosterController {
         rosterService.replanRoster(tenantId);
     }
 
+    @POST
+    @Path("/replan/neighbourhood")
+    @Operation(summary = "Replan Roster Neighbourhood",
+            description = "Replan only the shifts around the given changes of employee availability, "
+                    + "keeping all other shifts as they are")
+    public void replanRosterNeighbourhood(@PathParam("tenantId") @Min(0) Integer tenantId,
+            @QueryParam("neighbourhoodDays") @Min(0) Integer neighbourhoodDays,
+            @Valid List<ReplanChange> changeList) {
+        rosterService.replanRosterNeighbourhood(tenantId, changeList, neighbourhoodDays);
+    }
+
     @POST
     @Path("/terminate")
     @Operation(summary = "Terminate Solver",
@@ -255,6 +268,14 @@ public class RosterController {
         return rosterService.getSolverStatus(tenantId);
     }
 
+    @GET
+    @Path("/status/moveThreads")
+    @Operation(summary = "Solver Move Threads",
+            description = "Get the number of move threads the last solve of the roster was sized to")
+    public MoveThreadSizing getMoveThreadSizing(@PathParam("tenantId") @Min(0) Integer tenantId) {
+        return rosterService.getMoveThreadSizing(tenantId);
+    }
+
     // ************************************************************************
     // Publish
     // ************************************************************************
@@ -53,12 +53,14 @@ import org.optaweb.employeerostering.domain.contract.Contract;
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
 import org.optaweb.employeerostering.domain.roster.Roster;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 import org.optaweb.employeerostering.domain.rotation.Seat;
 import org.optaweb.employeerostering.domain.rotation.TimeBucket;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
 import org.optaweb.employeerostering.domain.spot.Spot;
 import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
 import org.optaweb.employeerostering.domain.tenant.Tenant;
@@ -431,7 +433,7 @@ public class RosterGenerator {
         ZoneId zoneId = systemPropertiesRetriever.determineZoneId();
         SystemPropertiesRetriever.InitialData initialData = systemPropertiesRetriever.determineInitialData();
 
-        random = new Random(37);
+        resetRandom();
 
         switch (initialData) {
             case EMPTY:
@@ -486,8 +488,26 @@ public class RosterGenerator {
         List<EmployeeAvailability> employeeAvailabilityList = createEmployeeAvailabilityList(
                 generatorType, tenantId, rosterConstraintConfiguration, rosterState, employeeList, shiftList);
 
-        return new Roster((long) tenantId, tenantId, rosterConstraintConfiguration, skillList, spotList, employeeList,
-                employeeAvailabilityList, rosterState, shiftList);
+        Roster roster = new Roster((long) tenantId, tenantId, rosterConstraintConfiguration, skillList, spotList,
+                employeeList, employeeAvailabilityList, rosterState, shiftList);
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, systemPropertiesRetriever.isEligibleEmployeeRangeEnabled());
+        return roster;
+    }
+
+    /**
+     * Makes the next generated roster identical to the first one generated by a new generator, except its tenant.
+     */
+    public void resetRandom() {
+        random = new Random(37);
+    }
+
+    public GeneratorType getHospitalGeneratorType() {
+        return hospitalGeneratorType;
+    }
+
+    public GeneratorType getGuardSecurityGeneratorType() {
+        return guardSecurityGeneratorType;
     }
 
     @Transactional
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.roster;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
+
+/**
+ * A score director that stays open on a roster of its own, so a change to one shift is scored incrementally,
+ * instead of building and explaining the whole roster again.
+ * <p>
+ * The session is only correct as long as every change to the data of its tenant is applied to it,
+ * which {@link RosterCache} takes care of by dropping it on every other change.
+ * A session that finds it is out of sync throws an {@link IllegalStateException}, so the caller builds a new one.
+ */
+public class RosterScoreSession {
+
+    private final InnerScoreDirector<Roster, HardMediumSoftLongScore> scoreDirector;
+    private final ZoneId zoneId;
+    private final Map<Long, Shift> shiftIdMap;
+    private final Map<Long, Employee> employeeIdMap;
+    private final Map<Long, Spot> spotIdMap;
+    private final Map<Long, Skill> skillIdMap;
+    private final long entityCount;
+    private boolean closed = false;
+
+    /**
+     * @param scoreDirectorFactory never null
+     * @param roster never null, owned by the session from now on, so no one else may read or modify it
+     */
+    public RosterScoreSession(InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> scoreDirectorFactory,
+            Roster roster) {
+        scoreDirector = scoreDirectorFactory.buildScoreDirector(false, true);
+        scoreDirector.setWorkingSolution(roster);
+        scoreDirector.calculateScore();
+        zoneId = roster.getRosterState().getTimeZone();
+        shiftIdMap = indexById(roster.getShiftList());
+        employeeIdMap = indexById(roster.getEmployeeList());
+        spotIdMap = indexById(roster.getSpotList());
+        skillIdMap = indexById(roster.getSkillList());
+        entityCount = RosterCache.countEntities(roster);
+    }
+
+    private static <T extends AbstractPersistable> Map<Long, T> indexById(List<T> list) {
+        Map<Long, T> idMap = new HashMap<>(list.size());
+        for (T item : list) {
+            idMap.put(item.getId(), item);
+        }
+        return idMap;
+    }
+
+    /**
+     * Applies the update of a shift to its copy in the session, as a change of the problem properties of the shift
+     * and of its employee, and scores it incrementally.
+     * @param shift never null, the shift as it was updated
+     * @param previousVersion the version of the shift before the update, which the copy in the session must have
+     * @return null if the shift has no indictment
+     * @throws IllegalStateException if the session is closed or out of sync with the shift
+     */
+    public synchronized Indictment<HardMediumSoftLongScore> updateShift(Shift shift, Long previousVersion) {
+        if (closed) {
+            throw new IllegalStateException("The score session is closed.");
+        }
+        Shift workingShift = shiftIdMap.get(shift.getId());
+        if (workingShift == null || !Objects.equals(workingShift.getVersion(), previousVersion)) {
+            throw new IllegalStateException("The shift (" + shift + ") with previousVersion (" + previousVersion
+                    + ") is not in the score session with that version.");
+        }
+        Spot spot = lookUp(spotIdMap, shift.getSpot());
+        Employee rotationEmployee = lookUp(employeeIdMap, shift.getRotationEmployee());
+        Employee originalEmployee = lookUp(employeeIdMap, shift.getOriginalEmployee());
+        Employee employee = lookUp(employeeIdMap, shift.getEmployee());
+        Set<Skill> requiredSkillSet = new HashSet<>(shift.getRequiredSkillSet().size());
+        for (Skill skill : shift.getRequiredSkillSet()) {
+            requiredSkillSet.add(lookUp(skillIdMap, skill));
+        }
+
+        scoreDirector.beforeProblemPropertyChanged(workingShift);
+        workingShift.setSpot(spot);
+        // In the time zone of the roster, like RosterService.buildRoster() does
+        workingShift.setStartDateTime(toTimeZone(shift.getStartDateTime()));
+        workingShift.setEndDateTime(toTimeZone(shift.getEndDateTime()));
+        workingShift.setPinnedByUser(shift.isPinnedByUser());
+        workingShift.setRotationEmployee(rotationEmployee);
+        workingShift.setOriginalEmployee(originalEmployee);
+        workingShift.setRequiredSkillSet(requiredSkillSet);
+        scoreDirector.afterProblemPropertyChanged(workingShift);
+        scoreDirector.beforeVariableChanged(workingShift, "employee");
+        workingShift.setEmployee(employee);
+        scoreDirector.afterVariableChanged(workingShift, "employee");
+        scoreDirector.triggerVariableListeners();
+        workingShift.setVersion(shift.getVersion());
+
+        scoreDirector.calculateScore();
+        return scoreDirector.getIndictmentMap().get(workingShift);
+    }
+
+    /**
+     * @param shift never null
+     * @return null if the shift has no indictment
+     * @throws IllegalStateException if the session is closed
+     */
+    public synchronized Indictment<HardMediumSoftLongScore> getIndictment(Shift shift) {
+        if (closed) {
+            throw new IllegalStateException("The score session is closed.");
+        }
+        // Shifts are equal by id, so the indictment of the copy in the session is found
+        return scoreDirector.getIndictmentMap().get(shift);
+    }
+
+    private <T extends AbstractPersistable> T lookUp(Map<Long, T> idMap, T entity) {
+        if (entity == null) {
+            return null;
+        }
+        T workingEntity = idMap.get(entity.getId());
+        if (workingEntity == null) {
+            throw new IllegalStateException("The entity (" + entity + ") is not in the score session.");
+        }
+        return workingEntity;
+    }
+
+    private OffsetDateTime toTimeZone(OffsetDateTime dateTime) {
+        return dateTime.atZoneSameInstant(zoneId).toOffsetDateTime();
+    }
+
+    /**
+     * @return never null, the score of the roster after the last update
+     */
+    public synchronized HardMediumSoftLongScore getScore() {
+        return scoreDirector.getWorkingSolution().getScore();
+    }
+
+    public long getEntityCount() {
+        return entityCount;
+    }
+
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            scoreDirector.close();
+        }
+    }
+}
@@ -16,22 +16,32 @@
 
 package org.optaweb.employeerostering.service.roster;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityNotFoundException;
@@ -44,17 +54,25 @@ import javax.transaction.Transactional;
 import javax.transaction.UserTransaction;
 import javax.validation.Validator;
 
+import org.optaplanner.core.api.score.ScoreExplanation;
 import org.optaplanner.core.api.score.ScoreManager;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
 import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaplanner.core.api.solver.SolverJob;
 import org.optaplanner.core.api.solver.SolverManager;
 import org.optaplanner.core.api.solver.SolverStatus;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
 import org.optaweb.employeerostering.domain.employee.view.EmployeeAvailabilityView;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
+import org.optaweb.employeerostering.domain.roster.MoveThreadSizing;
 import org.optaweb.employeerostering.domain.roster.Pagination;
 import org.optaweb.employeerostering.domain.roster.PublishResult;
+import org.optaweb.employeerostering.domain.roster.ReplanChange;
+import org.optaweb.employeerostering.domain.roster.ReplanNeighbourhood;
 import org.optaweb.employeerostering.domain.roster.Roster;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 import org.optaweb.employeerostering.domain.roster.view.AvailabilityRosterView;
@@ -63,8 +81,10 @@ import org.optaweb.employeerostering.domain.rotation.TimeBucket;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.shift.view.ShiftView;
 import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
 import org.optaweb.employeerostering.domain.spot.Spot;
 import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.admin.SystemPropertiesRetriever;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
 import org.optaweb.employeerostering.service.common.IndictmentUtils;
 import org.optaweb.employeerostering.service.employee.EmployeeAvailabilityRepository;
@@ -72,12 +92,30 @@ import org.optaweb.employeerostering.service.employee.EmployeeRepository;
 import org.optaweb.employeerostering.service.rotation.TimeBucketRepository;
 import org.optaweb.employeerostering.service.shift.ShiftRepository;
 import org.optaweb.employeerostering.service.skill.SkillRepository;
+import org.optaweb.employeerostering.service.solver.RosterSolverConfigFactory;
 import org.optaweb.employeerostering.service.spot.SpotRepository;
 import org.optaweb.employeerostering.service.tenant.RosterConstraintConfigurationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @ApplicationScoped
 public class RosterService extends AbstractRestService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RosterService.class);
+
+    // The longest break between two shifts of an employee that a constraint penalizes
+    private static final long MINIMUM_BREAK_IN_HOURS = 10L;
+    // The longest shift that archiving supports: the first of 3 consecutive shifts ends when the second one starts,
+    // so it ends at most the length of the second shift before the third one, which can move
+    private static final long MAXIMUM_CONSECUTIVE_SHIFT_LENGTH_IN_HOURS = 48L;
+    // Archived shifts end at least this many whole days before the first published date, so neither the break window
+    // (MINIMUM_BREAK_IN_HOURS) nor the consecutive shifts window (MAXIMUM_CONSECUTIVE_SHIFT_LENGTH_IN_HOURS)
+    // reaches an archived shift from a shift that can move
+    private static final long ARCHIVE_LOOKBACK_IN_DAYS =
+            (Math.max(MINIMUM_BREAK_IN_HOURS, MAXIMUM_CONSECUTIVE_SHIFT_LENGTH_IN_HOURS) + 23L) / 24L;
+    // How long a new solve waits for the previous solve of the same tenant to start and then to stop
+    private static final long SOLVE_TERMINATION_TIMEOUT_IN_SECONDS = 60L;
+
     private RosterStateRepository rosterStateRepository;
     private SkillRepository skillRepository;
     private SpotRepository spotRepository;
@@ -88,13 +126,26 @@ public class RosterService extends AbstractRestService {
     private TimeBucketRepository timeBucketRepository;
 
     private SolverManager<Roster, Integer> solverManager;
+    private RosterSolverConfigFactory solverConfigFactory;
     private ScoreManager<Roster, HardMediumSoftLongScore> scoreManager;
+    private RosterCache rosterCache;
+    private ShiftAssignmentWriter shiftAssignmentWriter;
+    private BestSolutionWriter bestSolutionWriter;
     private IndictmentUtils indictmentUtils;
     private UserTransaction transaction;
-
-    private ExecutorService rosterUpdateExecutorService = Executors.newCachedThreadPool();
-    private Map<Integer, Future<?>> tenantIdToRosterUpdateFutureMap = new ConcurrentHashMap<>();
-    private Map<Integer, Roster> tenantIdToNextRosterMap = new ConcurrentHashMap<>();
+    private SystemPropertiesRetriever systemPropertiesRetriever;
+    // Built on the first shift update, because that compiles the constraints once more
+    private InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> scoreDirectorFactory = null;
+
+    // Solver managers by move thread count, buffer size, part thread limit and whether it replans a neighbourhood,
+    // the injected one runs without move threads and partitioned search.
+    // Each has its own thread pool, so it is closed as soon as no solve uses it; guarded by this.
+    private final Map<List<Object>, SolverManager<Roster, Integer>> moveThreadsToSolverManagerMap = new HashMap<>();
+    private final Map<SolverManager<Roster, Integer>, Integer> solverManagerToSolveCountMap = new IdentityHashMap<>();
+    private Map<Integer, SolverManager<Roster, Integer>> tenantIdToSolverManagerMap = new ConcurrentHashMap<>();
+    private Map<Integer, MoveThreadSizing> tenantIdToMoveThreadSizingMap = new ConcurrentHashMap<>();
+    // Only the tenants that are solving
+    private Map<Integer, TenantSolve> tenantIdToSolveMap = new ConcurrentHashMap<>();
 
     @Inject
     public RosterService(Validator validator,
@@ -105,9 +156,14 @@ public class RosterService extends AbstractRestService {
             RosterConstraintConfigurationRepository rosterConstraintConfigurationRepository,
             TimeBucketRepository timeBucketRepository,
             SolverManager<Roster, Integer> solverManager,
+            RosterSolverConfigFactory solverConfigFactory,
             ScoreManager<Roster, HardMediumSoftLongScore> scoreManager,
+            RosterCache rosterCache,
+            ShiftAssignmentWriter shiftAssignmentWriter,
+            BestSolutionWriter bestSolutionWriter,
             UserTransaction transaction,
-            IndictmentUtils indictmentUtils) {
+            IndictmentUtils indictmentUtils,
+            SystemPropertiesRetriever systemPropertiesRetriever) {
         super(validator);
         this.rosterStateRepository = rosterStateRepository;
         this.skillRepository = skillRepository;
@@ -118,9 +174,14 @@ public class RosterService extends AbstractRestService {
         this.rosterConstraintConfigurationRepository = rosterConstraintConfigurationRepository;
         this.timeBucketRepository = timeBucketRepository;
         this.solverManager = solverManager;
+        this.solverConfigFactory = solverConfigFactory;
         this.scoreManager = scoreManager;
+        this.rosterCache = rosterCache;
+        this.shiftAssignmentWriter = shiftAssignmentWriter;
+        this.bestSolutionWriter = bestSolutionWriter;
         this.indictmentUtils = indictmentUtils;
         this.transaction = transaction;
+        this.systemPropertiesRetriever = systemPropertiesRetriever;
     }
 
     // ************************************************************************
@@ -186,11 +247,15 @@ public class RosterService extends AbstractRestService {
             List<Spot> spotList) {
         ShiftRosterView shiftRosterView = new ShiftRosterView(tenantId, startDate, endDate);
         shiftRosterView.setSpotList(spotList);
-        List<Employee> employeeList = employeeRepository.findAllByTenantId(tenantId);
+        List<Employee> employeeList = employeeRepository.findAllByTenantIdFetchingContractAndSkills(tenantId);
         shiftRosterView.setEmployeeList(employeeList);
 
         Set<Spot> spotSet = new HashSet<>(spotList);
-        ZoneId timeZone = getRosterState(tenantId).getTimeZone();
+        // One explanation of the roster feeds the indictments, the summary and the score
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation = getRosterViewScoreExplanation(tenantId);
+        RosterState rosterState = (scoreExplanation != null) ? scoreExplanation.getSolution().getRosterState()
+                : getRosterState(tenantId);
+        ZoneId timeZone = rosterState.getTimeZone();
 
         List<Shift> shiftList = shiftRepository.filterWithSpots(tenantId, spotSet,
                 startDate.atStartOfDay(timeZone).toOffsetDateTime(),
@@ -199,19 +264,23 @@ public class RosterService extends AbstractRestService {
         Map<Long, List<ShiftView>> spotIdToShiftViewListMap = new LinkedHashMap<>(spotList.size());
         // TODO FIXME race condition solverManager's bestSolution might differ from the one we just fetched, so the
         //  score might be inaccurate
-        Roster roster = buildRoster(tenantId);
-        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = indictmentUtils.getIndictmentMapForRoster(roster);
+        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = getRosterViewIndictmentMap(tenantId,
+                rosterState, scoreExplanation, shiftList);
 
-        for (Shift shift : shiftList) {
-            Indictment<HardMediumSoftLongScore> indictment = indictmentMap.get(shift);
-            spotIdToShiftViewListMap.computeIfAbsent(shift.getSpot().getId(), k -> new ArrayList<>())
-                    .add(indictmentUtils.getShiftViewWithIndictment(timeZone, shift, indictment));
+        for (ShiftView shiftView : indictmentUtils.getShiftViewListWithIndictments(timeZone, shiftList,
+                indictmentMap)) {
+            spotIdToShiftViewListMap.computeIfAbsent(shiftView.getSpotId(), k -> new ArrayList<>())
+                    .add(shiftView);
         }
         shiftRosterView.setSpotIdToShiftViewListMap(spotIdToShiftViewListMap);
 
-        shiftRosterView.setScore(roster == null ? null : roster.getScore());
-        shiftRosterView.setRosterState(getRosterState(tenantId));
-        shiftRosterView.setIndictmentSummary(indictmentUtils.getIndictmentSummaryForRoster(roster));
+        shiftRosterView.setRosterState(rosterState);
+        if (scoreExplanation != null) {
+            shiftRosterView.setScore(scoreExplanation.getScore());
+            shiftRosterView.setIndictmentSummary(indictmentUtils.getIndictmentSummary(scoreExplanation));
+        } else {
+            shiftRosterView.setScore(rosterCache.getLastScore(tenantId));
+        }
 
         return shiftRosterView;
     }
@@ -270,7 +339,7 @@ public class RosterService extends AbstractRestService {
             LocalDate endDate,
             List<Employee> employeeList) {
         AvailabilityRosterView availabilityRosterView = new AvailabilityRosterView(tenantId, startDate, endDate);
-        List<Spot> spotList = spotRepository.findAllByTenantId(tenantId);
+        List<Spot> spotList = spotRepository.findAllByTenantIdFetchingSkills(tenantId);
         availabilityRosterView.setSpotList(spotList);
 
         availabilityRosterView.setEmployeeList(employeeList);
@@ -278,23 +347,27 @@ public class RosterService extends AbstractRestService {
         Map<Long, List<ShiftView>> employeeIdToShiftViewListMap = new LinkedHashMap<>(employeeList.size());
         List<ShiftView> unassignedShiftViewList = new ArrayList<>();
         Set<Employee> employeeSet = new HashSet<>(employeeList);
-        ZoneId timeZone = getRosterState(tenantId).getTimeZone();
+        // One explanation of the roster feeds the indictments, the summary and the score
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation = getRosterViewScoreExplanation(tenantId);
+        RosterState rosterState = (scoreExplanation != null) ? scoreExplanation.getSolution().getRosterState()
+                : getRosterState(tenantId);
+        ZoneId timeZone = rosterState.getTimeZone();
 
         List<Shift> shiftList = shiftRepository.filterWithEmployees(tenantId, employeeSet,
                 startDate.atStartOfDay(timeZone).toOffsetDateTime(),
                 endDate.atStartOfDay(timeZone).toOffsetDateTime());
 
-        Roster roster = buildRoster(tenantId);
-        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = indictmentUtils.getIndictmentMapForRoster(roster);
+        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = getRosterViewIndictmentMap(tenantId,
+                rosterState, scoreExplanation, shiftList);
 
-        for (Shift shift : shiftList) {
-            Indictment<HardMediumSoftLongScore> indictment = indictmentMap.get(shift);
-            if (shift.getEmployee() != null) {
-                employeeIdToShiftViewListMap.computeIfAbsent(shift.getEmployee().getId(),
+        for (ShiftView shiftView : indictmentUtils.getShiftViewListWithIndictments(timeZone, shiftList,
+                indictmentMap)) {
+            if (shiftView.getEmployeeId() != null) {
+                employeeIdToShiftViewListMap.computeIfAbsent(shiftView.getEmployeeId(),
                         k -> new ArrayList<>())
-                        .add(indictmentUtils.getShiftViewWithIndictment(timeZone, shift, indictment));
+                        .add(shiftView);
             } else {
-                unassignedShiftViewList.add(indictmentUtils.getShiftViewWithIndictment(timeZone, shift, indictment));
+                unassignedShiftViewList.add(shiftView);
             }
         }
         availabilityRosterView.setEmployeeIdToShiftViewListMap(employeeIdToShiftViewListMap);
@@ -315,95 +388,286 @@ public class RosterService extends AbstractRestService {
 
         // TODO FIXME race condition solverManager's bestSolution might differ from the one we just fetched so the
         //  score might be inaccurate.
-        availabilityRosterView.setScore(roster.getScore());
-        availabilityRosterView.setRosterState(getRosterState(tenantId));
-        availabilityRosterView.setIndictmentSummary(indictmentUtils.getIndictmentSummaryForRoster(roster));
+        availabilityRosterView.setRosterState(rosterState);
+        if (scoreExplanation != null) {
+            availabilityRosterView.setScore(scoreExplanation.getScore());
+            availabilityRosterView.setIndictmentSummary(indictmentUtils.getIndictmentSummary(scoreExplanation));
+        } else {
+            availabilityRosterView.setScore(rosterCache.getLastScore(tenantId));
+        }
 
         return availabilityRosterView;
     }
 
+    // Null if a view must explain only its own shifts, see explainScopedRoster()
+    private ScoreExplanation<Roster, HardMediumSoftLongScore> getRosterViewScoreExplanation(Integer tenantId) {
+        if (!systemPropertiesRetriever.isRosterViewScopedExplanationEnabled()) {
+            return getCachedScoreExplanation(tenantId);
+        }
+        return rosterCache.peekScoreExplanation(tenantId);
+    }
+
+    /**
+     * Archived shifts are not part of the cached roster, see {@link #buildRoster}, so a view explains those
+     * of its shifts like a scoped view, see {@link #explainScopedRoster}.
+     * @param tenantId never null
+     * @param rosterState never null
+     * @param scoreExplanation null if the view only explains its own shifts
+     * @param shiftList never null, the shifts of the view
+     * @return never null, the indictments of the shifts of the view, by shift
+     */
+    private Map<Object, Indictment<HardMediumSoftLongScore>> getRosterViewIndictmentMap(Integer tenantId,
+            RosterState rosterState, ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation,
+            List<Shift> shiftList) {
+        if (scoreExplanation == null) {
+            return explainScopedRoster(tenantId, rosterState, shiftList);
+        }
+        OffsetDateTime archiveEndDateTime = getArchiveEndDateTime(rosterState);
+        List<Shift> archivedShiftList = shiftList.stream()
+                .filter(shift -> shift.getEndDateTime().isBefore(archiveEndDateTime))
+                .collect(Collectors.toList());
+        if (archivedShiftList.isEmpty()) {
+            return scoreExplanation.getIndictmentMap();
+        }
+        Map<Object, Indictment<HardMediumSoftLongScore>> archivedIndictmentMap =
+                explainScopedRoster(tenantId, rosterState, archivedShiftList);
+        // Only the shifts of the view are looked up, the ones that are not archived in the whole roster
+        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = new HashMap<>(shiftList.size());
+        for (Shift shift : shiftList) {
+            Indictment<HardMediumSoftLongScore> indictment = shift.getEndDateTime().isBefore(archiveEndDateTime)
+                    ? archivedIndictmentMap.get(shift) : scoreExplanation.getIndictmentMap().get(shift);
+            if (indictment != null) {
+                indictmentMap.put(shift, indictment);
+            }
+        }
+        return indictmentMap;
+    }
+
+    /**
+     * Explains a roster of only the shifts of a view and what their indictments depend on, so the cost of a view
+     * grows with its shifts and not with the roster: the other shifts of their employees they can overlap,
+     * follow too closely or be consecutive with, and the availabilities of those employees.
+     * Contract minutes and load balancing are not justified by shifts, so they are not part of their indictments.
+     * The indictments of the other shifts of that roster are not those of the whole roster, and neither is its score.
+     * @param tenantId never null
+     * @param rosterState never null
+     * @param shiftList never null, the shifts of the view
+     * @return never null, the indictments of the shifts of the view, by shift
+     */
+    private Map<Object, Indictment<HardMediumSoftLongScore>> explainScopedRoster(Integer tenantId,
+            RosterState rosterState, List<Shift> shiftList) {
+        if (shiftList.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        ZoneId zoneId = rosterState.getTimeZone();
+        OffsetDateTime startDateTime = shiftList.get(0).getStartDateTime();
+        OffsetDateTime endDateTime = shiftList.get(0).getEndDateTime();
+        Set<Employee> employeeSet = new HashSet<>();
+        for (Shift shift : shiftList) {
+            startDateTime = shift.getStartDateTime().isBefore(startDateTime) ? shift.getStartDateTime()
+                    : startDateTime;
+            endDateTime = shift.getEndDateTime().isAfter(endDateTime) ? shift.getEndDateTime() : endDateTime;
+            if (shift.getEmployee() != null) {
+                employeeSet.add(shift.getEmployee());
+            }
+        }
+        Map<Long, Shift> shiftMap = new LinkedHashMap<>();
+        // The shifts within a break of the view, and within a break of those, which covers 3 consecutive shifts
+        OffsetDateTime[] bounds = shiftRepository.findBoundsWithEmployees(tenantId, employeeSet,
+                startDateTime.minusHours(MINIMUM_BREAK_IN_HOURS), endDateTime.plusHours(MINIMUM_BREAK_IN_HOURS));
+        if (bounds[0] != null) {
+            for (Shift shift : shiftRepository.filterWithEmployees(tenantId, employeeSet,
+                    bounds[0].minusHours(MINIMUM_BREAK_IN_HOURS), bounds[1].plusHours(MINIMUM_BREAK_IN_HOURS))) {
+                shiftMap.put(shift.getId(), shift.inTimeZone(zoneId));
+            }
+        }
+        // The unassigned shifts of the view
+        for (Shift shift : shiftList) {
+            shiftMap.computeIfAbsent(shift.getId(), id -> shift.inTimeZone(zoneId));
+        }
+        List<EmployeeAvailability> employeeAvailabilityList = employeeAvailabilityRepository
+                .filterWithEmployee(tenantId, employeeSet, startDateTime, endDateTime)
+                .stream()
+                .map(ea -> ea.inTimeZone(zoneId))
+                .collect(Collectors.toList());
+        List<Shift> scopedShiftList = new ArrayList<>(shiftMap.values());
+
+        // No constraint matches skills or spots on their own, so only those of the shifts are needed
+        Roster roster = new Roster((long) tenantId, tenantId, rosterConstraintConfigurationRepository
+                .findByTenantId(tenantId)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "No RosterConstraintConfiguration entity found with tenantId(" + tenantId + ").")),
+                Collections.emptyList(),
+                scopedShiftList.stream().map(Shift::getSpot).distinct().collect(Collectors.toList()),
+                new ArrayList<>(employeeSet), employeeAvailabilityList, rosterState, scopedShiftList);
+        return scoreManager.explainScore(roster).getIndictmentMap();
+    }
+
     // ************************************************************************
     // Roster
     // ************************************************************************
 
+    /**
+     * @param tenantId never null
+     * @return never null, shared with other callers, so it must not be modified, see {@link RosterCache}
+     */
+    @Transactional
+    public Roster getCachedRoster(Integer tenantId) {
+        return rosterCache.getRoster(tenantId, this::buildRoster);
+    }
+
+    /**
+     * @param tenantId never null
+     * @return never null, the explanation of the score of {@link #getCachedRoster(Integer)},
+     *         shared with other callers until the data of the tenant changes
+     */
+    @Transactional
+    public ScoreExplanation<Roster, HardMediumSoftLongScore> getCachedScoreExplanation(Integer tenantId) {
+        return rosterCache.getScoreExplanation(tenantId, this::buildRoster, scoreManager::explainScore);
+    }
+
+    /**
+     * Scores the update of one shift incrementally on the score session of its tenant,
+     * see {@link RosterCache#updateShift(Integer, Shift, Long, Function)}.
+     * @param tenantId never null
+     * @param shift never null, the shift as it was updated and flushed
+     * @param previousVersion the version of the shift before the update
+     * @return null if the shift has no indictment
+     */
+    @Transactional
+    public Indictment<HardMediumSoftLongScore> updateShiftInScoreSession(Integer tenantId, Shift shift,
+            Long previousVersion) {
+        return rosterCache.updateShift(tenantId, shift, previousVersion,
+                id -> new RosterScoreSession(getScoreDirectorFactory(), buildRoster(id)));
+    }
+
+    private synchronized InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> getScoreDirectorFactory() {
+        if (scoreDirectorFactory == null) {
+            scoreDirectorFactory = solverConfigFactory.buildScoreDirectorFactory();
+        }
+        return scoreDirectorFactory;
+    }
+
+    /**
+     * @param tenantId never null
+     * @return never null, a new roster the caller can modify, for example to solve it
+     */
     @Transactional
     public Roster buildRoster(Integer tenantId) {
-        ZoneId zoneId = getRosterState(tenantId).getTimeZone();
+        RosterState rosterState = getRosterState(tenantId);
+        ZoneId zoneId = rosterState.getTimeZone();
+        // A select per entity type: the skills of the spots, employees and shifts are fetched with them,
+        // and the spots and employees are loaded before the availabilities and shifts that refer to them
         List<Skill> skillList = skillRepository.findAllByTenantId(tenantId);
-        List<Spot> spotList = spotRepository.findAllByTenantId(tenantId);
-        List<Employee> employeeList = employeeRepository.findAllByTenantId(tenantId);
+        List<Spot> spotList = spotRepository.findAllByTenantIdFetchingSkills(tenantId);
+        List<Employee> employeeList = employeeRepository.findAllByTenantIdFetchingContractAndSkills(tenantId);
         List<EmployeeAvailability> employeeAvailabilityList = employeeAvailabilityRepository.findAllByTenantId(tenantId)
                 .stream()
                 .map(ea -> ea.inTimeZone(zoneId))
                 .collect(Collectors.toList());
 
-        List<Shift> shiftList = shiftRepository.findAllByTenantId(tenantId)
+        // Historic shifts that end well before the first published date are archived: no constraint relates them
+        // to a shift that can still move, except the contract minutes, so only their worked minutes are loaded
+        OffsetDateTime archiveEndDateTime = getArchiveEndDateTime(rosterState);
+        List<Shift> shiftList = shiftRepository.findAllByTenantIdEndingFromFetchingSkills(tenantId, archiveEndDateTime)
                 .stream()
                 .map(s -> s.inTimeZone(zoneId))
                 .collect(Collectors.toList());
 
-        Roster roster = new Roster((long) tenantId, tenantId, rosterConstraintConfigurationRepository
+        RosterConstraintConfiguration rosterConstraintConfiguration = rosterConstraintConfigurationRepository
                 .findByTenantId(tenantId)
                 .orElseThrow(() -> new EntityNotFoundException(
-                        "No RosterConstraintConfiguration entity found with tenantId(" + tenantId + ").")),
+                        "No RosterConstraintConfiguration entity found with tenantId(" + tenantId + ")."));
+        Roster roster = new Roster((long) tenantId, tenantId, rosterConstraintConfiguration,
                 skillList, spotList, employeeList, employeeAvailabilityList,
-                getRosterState(tenantId), shiftList);
+                rosterState, shiftList);
+        roster.setHistoricWorkedMinutesList(loadHistoricWorkedMinutes(tenantId, employeeList, shiftList,
+                archiveEndDateTime, zoneId, rosterConstraintConfiguration.getWeekStartDay()));
 
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, systemPropertiesRetriever.isEligibleEmployeeRangeEnabled());
         scoreManager.updateScore(roster);
         return roster;
     }
 
-    @Transactional
-    public void updateShiftsOfRoster(Roster newRoster) {
-        Integer tenantId = newRoster.getTenantId();
-        // TODO HACK avoids optimistic locking exception while solve(), but it circumvents optimistic locking completely
-        Map<Long, Employee> employeeIdMap = employeeRepository.findAllByTenantId(tenantId)
-                .stream()
-                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+    // Shifts that end before it are archived
+    private static OffsetDateTime getArchiveEndDateTime(RosterState rosterState) {
+        return rosterState.getFirstPublishedDate().minusDays(ARCHIVE_LOOKBACK_IN_DAYS)
+                .atStartOfDay(rosterState.getTimeZone()).toOffsetDateTime();
+    }
 
-        Map<Long, Shift> shiftIdMap = shiftRepository.findAllByTenantId(tenantId)
-                .stream()
-                .collect(Collectors.toMap(Shift::getId, Function.identity()));
+    /**
+     * Aggregates the worked minutes of the archived shifts that start in a contract period
+     * that a shift of the roster also starts in, and links them from their employees.
+     * A year is the longest period, but a week can start in the year before.
+     */
+    private List<HistoricWorkedMinutes> loadHistoricWorkedMinutes(Integer tenantId, List<Employee> employeeList,
+            List<Shift> shiftList, OffsetDateTime archiveEndDateTime, ZoneId zoneId, DayOfWeek weekStartDay) {
+        LocalDate firstStartDate = shiftList.stream()
+                .map(shift -> shift.getStartDateTime().toLocalDate())
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        // The employees may be in the persistence context of an earlier roster
+        for (Employee employee : employeeList) {
+            employee.setHistoricWorkedMinutes(null);
+        }
+        if (firstStartDate == null) {
+            return Collections.emptyList();
+        }
+        LocalDate firstYearDate = firstStartDate.withDayOfYear(1);
+        LocalDate firstWeekDate = firstStartDate.with(TemporalAdjusters.previousOrSame(weekStartDay));
+        LocalDate fromDate = firstWeekDate.isBefore(firstYearDate) ? firstWeekDate : firstYearDate;
 
-        for (Shift shift : newRoster.getShiftList()) {
-            Shift attachedShift = shiftIdMap.get(shift.getId());
-            if (attachedShift == null) {
-                continue;
-            }
-            attachedShift.setEmployee((shift.getEmployee() == null) ? null : employeeIdMap.get(shift.getEmployee().getId()));
+        Map<Long, Employee> employeeIdMap = employeeList.stream()
+                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+        Map<Employee, HistoricWorkedMinutes> employeeToHistoricWorkedMinutesMap = new LinkedHashMap<>();
+        for (Object[] work : shiftRepository.findAssignedWorkBetweenDates(tenantId,
+                fromDate.atStartOfDay(zoneId).toOffsetDateTime(), archiveEndDateTime)) {
+            Employee employee = employeeIdMap.get((Long) work[0]);
+            OffsetDateTime startDateTime = (OffsetDateTime) work[1];
+            OffsetDateTime endDateTime = (OffsetDateTime) work[2];
+            employeeToHistoricWorkedMinutesMap.computeIfAbsent(employee, HistoricWorkedMinutes::new)
+                    .addShift(startDateTime.atZoneSameInstant(zoneId).toLocalDate(), weekStartDay,
+                            Duration.between(startDateTime, endDateTime).toMinutes());
         }
+        for (HistoricWorkedMinutes historicWorkedMinutes : employeeToHistoricWorkedMinutesMap.values()) {
+            historicWorkedMinutes.getEmployee().setHistoricWorkedMinutes(historicWorkedMinutes);
+        }
+        return new ArrayList<>(employeeToHistoricWorkedMinutesMap.values());
     }
 
     @Transactional
+    public void updateShiftsOfRoster(Roster newRoster) {
+        Integer tenantId = newRoster.getTenantId();
+        rosterCache.invalidate(tenantId);
+        rosterCache.putLastScore(tenantId, newRoster.getScore());
+        // Checks the version of every shift it writes, without loading them, see ShiftAssignmentWriter
+        shiftAssignmentWriter.writeShiftEmployees(newRoster);
+    }
+
+    /**
+     * Writes the best solution later, unless a better one replaces it first, see {@link BestSolutionWriter}.
+     * @param newRoster never null
+     */
     public void scheduleUpdateOfRoster(Roster newRoster) {
-        tenantIdToRosterUpdateFutureMap.compute(newRoster.getTenantId(),
-                (tenantId, task) -> {
-                    if (task != null && !task.isDone()) {
-                        tenantIdToNextRosterMap.put(tenantId, newRoster);
-                        return task;
-                    } else {
-                        // Remove any stale old best solution that were put in
-                        // JUST AFTER the tenantIdToNextRosterMap.containsKey(tenantId)
-                        // return false BUT BEFORE the task finished,
-                        // since it'll be a worse solution than this one
-                        tenantIdToNextRosterMap.remove(tenantId);
-                        return rosterUpdateExecutorService.submit(() -> {
-                            try {
-                                transaction.begin();
-                                updateShiftsOfRoster(newRoster);
-                                transaction.commit();
-
-                                tenantIdToRosterUpdateFutureMap.remove(tenantId);
-                                if (tenantIdToNextRosterMap.containsKey(tenantId)) {
-                                    scheduleUpdateOfRoster(tenantIdToNextRosterMap.remove(tenantId));
-                                }
-                            } catch (NotSupportedException | SystemException | RollbackException | HeuristicMixedException
-                                    | HeuristicRollbackException e) {
-                                throw new IllegalStateException(e);
-                            }
-                        });
-                    }
-                });
+        bestSolutionWriter.submit(newRoster, this::updateShiftsOfRosterInTransaction);
+    }
+
+    private void updateShiftsOfRosterInTransaction(Roster newRoster) {
+        try {
+            transaction.begin();
+            try {
+                updateShiftsOfRoster(newRoster);
+            } catch (RuntimeException e) {
+                // The writer threads are reused, so they must not keep a transaction
+                transaction.rollback();
+                throw e;
+            }
+            transaction.commit();
+        } catch (NotSupportedException | SystemException | RollbackException | HeuristicMixedException
+                | HeuristicRollbackException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     // ************************************************************************
@@ -412,12 +676,17 @@ public class RosterService extends AbstractRestService {
 
     @Transactional
     public void solveRoster(Integer tenantId) {
-        solverManager.solveAndListen(tenantId, this::buildRoster, this::scheduleUpdateOfRoster);
+        boolean partitionedSearch = rosterConstraintConfigurationRepository.findByTenantId(tenantId)
+                .map(RosterConstraintConfiguration::isPartitionedSearch)
+                .orElse(false);
+        solveAndListen(tenantId, shiftRepository.count("tenantId", tenantId),
+                employeeRepository.count("tenantId", tenantId), partitionedSearch, false, this::buildRoster, null);
     }
 
     @Transactional
     public void replanRoster(Integer tenantId) {
         Roster roster = buildRoster(tenantId);
+        List<Shift> persistedShiftList = copyShifts(roster);
         roster.setNondisruptivePlanning(true);
         roster.setNondisruptiveReplanFrom(OffsetDateTime.now());
 
@@ -426,24 +695,178 @@ public class RosterService extends AbstractRestService {
                 .getConstraintMatchTotalMap();
         final String CONSTRAINT_ID = ConstraintMatchTotal.composeConstraintId(IndictmentUtils.CONSTRAINT_MATCH_PACKAGE,
                 RosterConstraintConfiguration.CONSTRAINT_UNAVAILABLE_TIME_SLOT_FOR_AN_EMPLOYEE);
-        constraintMatchTotalMap.get(CONSTRAINT_ID)
-                .getConstraintMatchSet()
-                .forEach(constraintMatch -> constraintMatch.getJustificationList().stream().filter(o -> o instanceof Shift)
-                        .forEach(justification -> {
-                            Shift shift = (Shift) justification;
-                            if (!shift.isPinnedByUser()) {
-                                shift.setEmployee(null);
-                            }
-                        }));
-        solverManager.solveAndListen(tenantId, id -> roster, this::scheduleUpdateOfRoster);
+        // Without a weight the constraint has no total, and no shift needs unassigning
+        ConstraintMatchTotal<HardMediumSoftLongScore> constraintMatchTotal = constraintMatchTotalMap.get(CONSTRAINT_ID);
+        if (constraintMatchTotal != null) {
+            constraintMatchTotal.getConstraintMatchSet()
+                    .forEach(constraintMatch -> constraintMatch.getJustificationList().stream()
+                            .filter(o -> o instanceof Shift)
+                            .forEach(justification -> {
+                                Shift shift = (Shift) justification;
+                                if (!shift.isPinnedByUser()) {
+                                    shift.setEmployee(null);
+                                }
+                            }));
+        }
+        solveAndListen(tenantId, roster.getShiftList().size(), roster.getEmployeeList().size(),
+                roster.getRosterConstraintConfiguration().isPartitionedSearch(), false, id -> roster,
+                persistedShiftList);
+    }
+
+    /**
+     * Replans only the shifts around the changes, see {@link ReplanNeighbourhood},
+     * and stops by itself once it no longer improves.
+     * @param tenantId never null
+     * @param changeList never null
+     * @param neighbourhoodDays null for the configured default
+     */
+    @Transactional
+    public void replanRosterNeighbourhood(Integer tenantId, List<ReplanChange> changeList,
+            Integer neighbourhoodDays) {
+        Roster roster = buildRoster(tenantId);
+        List<Shift> persistedShiftList = copyShifts(roster);
+        roster.setNondisruptivePlanning(true);
+        roster.setNondisruptiveReplanFrom(OffsetDateTime.now());
+        int neighbourhoodShiftCount = ReplanNeighbourhood.reopenNeighbourhood(roster, changeList,
+                (neighbourhoodDays == null) ? systemPropertiesRetriever.getReplanNeighbourhoodDays()
+                        : neighbourhoodDays);
+        solveAndListen(tenantId, neighbourhoodShiftCount, roster.getEmployeeList().size(), false, true,
+                id -> roster, persistedShiftList);
+    }
+
+    // The shifts as loaded, before a replan unassigns some of them
+    private static List<Shift> copyShifts(Roster roster) {
+        return roster.getShiftList().stream().map(Shift::new).collect(Collectors.toList());
+    }
+
+    /**
+     * @param persistedShiftList null if the problem finder returns the shifts as loaded
+     */
+    private void solveAndListen(Integer tenantId, long shiftCount, long employeeCount, boolean partitionedSearch,
+            boolean neighbourhoodReplan, Function<Integer, Roster> problemFinder, List<Shift> persistedShiftList) {
+        // Like solving with a single solver manager used to, a new solve restarts a tenant that is still solving
+        TenantSolve tenantSolve = new TenantSolve();
+        TenantSolve previousTenantSolve;
+        while ((previousTenantSolve = tenantIdToSolveMap.putIfAbsent(tenantId, tenantSolve)) != null) {
+            terminateAndAwaitSolve(tenantId, previousTenantSolve);
+        }
+        // The best solutions only overwrite the shifts that users did not change since the solve loaded them
+        Function<Integer, Roster> expectingProblemFinder;
+        if (persistedShiftList == null) {
+            expectingProblemFinder = id -> {
+                Roster roster = problemFinder.apply(id);
+                shiftAssignmentWriter.expectPersisted(tenantId, roster.getShiftList());
+                return roster;
+            };
+        } else {
+            shiftAssignmentWriter.expectPersisted(tenantId, persistedShiftList);
+            expectingProblemFinder = problemFinder;
+        }
+        SolverManager<Roster, Integer> sizedSolverManager = null;
+        try {
+            MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(shiftCount, employeeCount,
+                    tenantIdToSolveMap.size(), partitionedSearch);
+            sizedSolverManager = acquireSolverManager(moveThreadSizing, neighbourhoodReplan);
+            SolverManager<Roster, Integer> usedSolverManager = sizedSolverManager;
+            tenantIdToMoveThreadSizingMap.put(tenantId, moveThreadSizing);
+            tenantIdToSolverManagerMap.put(tenantId, sizedSolverManager);
+            SolverJob<Roster, Integer> solverJob = sizedSolverManager.solveAndListen(tenantId, expectingProblemFinder,
+                    this::scheduleUpdateOfRoster,
+                    finalBestSolution -> finishSolving(tenantId, tenantSolve, usedSolverManager),
+                    (id, throwable) -> {
+                        finishSolving(tenantId, tenantSolve, usedSolverManager);
+                        LOGGER.error("Solving the roster of tenantId ({}) failed.", id, throwable);
+                    });
+            tenantSolve.solverJobFuture.complete(solverJob);
+        } catch (RuntimeException e) {
+            if (sizedSolverManager != null) {
+                tenantIdToSolverManagerMap.remove(tenantId, sizedSolverManager);
+                releaseSolverManager(sizedSolverManager);
+            }
+            tenantIdToSolveMap.remove(tenantId, tenantSolve);
+            tenantSolve.solverJobFuture.complete(null);
+            tenantSolve.endFuture.complete(null);
+            throw e;
+        }
+    }
+
+    private void terminateAndAwaitSolve(Integer tenantId, TenantSolve tenantSolve) {
+        try {
+            // Another request might still be starting that solve, which is not terminable until it has its job
+            SolverJob<Roster, Integer> solverJob = tenantSolve.solverJobFuture
+                    .get(SOLVE_TERMINATION_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+            if (solverJob != null) {
+                solverJob.terminateEarly();
+            }
+            tenantSolve.endFuture.get(SOLVE_TERMINATION_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the roster of tenantId (" + tenantId
+                    + ") to stop solving.", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("The roster of tenantId (" + tenantId + ") did not stop solving within "
+                    + SOLVE_TERMINATION_TIMEOUT_IN_SECONDS + " seconds.", e);
+        } catch (ExecutionException e) {
+            // Never, the futures of a solve only complete normally
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void finishSolving(Integer tenantId, TenantSolve tenantSolve,
+            SolverManager<Roster, Integer> usedSolverManager) {
+        tenantIdToSolverManagerMap.remove(tenantId, usedSolverManager);
+        releaseSolverManager(usedSolverManager);
+        tenantIdToSolveMap.remove(tenantId, tenantSolve);
+        tenantSolve.endFuture.complete(null);
+    }
+
+    private synchronized SolverManager<Roster, Integer> acquireSolverManager(MoveThreadSizing moveThreadSizing,
+            boolean neighbourhoodReplan) {
+        if (!moveThreadSizing.isMultithreaded() && !moveThreadSizing.isPartitioned() && !neighbourhoodReplan) {
+            return solverManager;
+        }
+        SolverManager<Roster, Integer> sizedSolverManager = moveThreadsToSolverManagerMap.computeIfAbsent(
+                Arrays.asList(moveThreadSizing.getMoveThreadCount(), moveThreadSizing.getMoveThreadBufferSize(),
+                        moveThreadSizing.getRunnablePartThreadLimit(), neighbourhoodReplan),
+                key -> SolverManager.create(neighbourhoodReplan
+                        ? solverConfigFactory.buildNeighbourhoodReplanSolverConfig(moveThreadSizing)
+                        : solverConfigFactory.buildSolverConfig(moveThreadSizing)));
+        solverManagerToSolveCountMap.merge(sizedSolverManager, 1, Integer::sum);
+        return sizedSolverManager;
+    }
+
+    private synchronized void releaseSolverManager(SolverManager<Roster, Integer> usedSolverManager) {
+        if (usedSolverManager == solverManager) {
+            return;
+        }
+        if (solverManagerToSolveCountMap.merge(usedSolverManager, -1, Integer::sum) > 0) {
+            return;
+        }
+        solverManagerToSolveCountMap.remove(usedSolverManager);
+        moveThreadsToSolverManagerMap.values().remove(usedSolverManager);
+        // Off the solver thread that finished, because closing interrupts the threads of its pool
+        CompletableFuture.runAsync(usedSolverManager::close);
     }
 
     public SolverStatus getSolverStatus(Integer tenantId) {
-        return solverManager.getSolverStatus(tenantId);
+        return tenantIdToSolverManagerMap.getOrDefault(tenantId, solverManager).getSolverStatus(tenantId);
+    }
+
+    /**
+     * @param tenantId never null
+     * @return null if the roster of the tenant was not solved since the application started
+     */
+    public MoveThreadSizing getMoveThreadSizing(Integer tenantId) {
+        return tenantIdToMoveThreadSizingMap.get(tenantId);
     }
 
     public void terminateRosterEarly(Integer tenantId) {
-        solverManager.terminateEarly(tenantId);
+        tenantIdToSolverManagerMap.getOrDefault(tenantId, solverManager).terminateEarly(tenantId);
+    }
+
+    @PreDestroy
+    public synchronized void closeSolverManagers() {
+        moveThreadsToSolverManagerMap.values().forEach(SolverManager::close);
     }
 
     // ************************************************************************
@@ -453,6 +876,7 @@ public class RosterService extends AbstractRestService {
     public void provision(Integer tenantId, Integer startRotationOffset, LocalDate fromDate,
             LocalDate toDate, List<Long> timeBucketIdList) {
         RosterState rosterState = getRosterState(tenantId);
+        rosterCache.invalidate(tenantId);
         List<TimeBucket> timeBucketList = timeBucketRepository.find("id in ?1",
                 timeBucketIdList).list();
         if (timeBucketList.stream().anyMatch(tb -> !tb.getTenantId().equals(tenantId))) {
@@ -472,34 +896,36 @@ public class RosterService extends AbstractRestService {
                     + fromDate.toString() + ")");
         }
 
+        // All shifts are created before any is persisted, because persisting in batches detaches the time buckets
+        List<Shift> shiftList = new ArrayList<>();
         int dayOffset = startRotationOffset;
         LocalDate shiftDate = fromDate;
         while (!shiftDate.isAfter(toDate)) {
             for (TimeBucket timeBucket : timeBucketList) {
                 timeBucket.createShiftForOffset(shiftDate, dayOffset,
                         rosterState.getTimeZone(), false)
-                        .ifPresent(shiftRepository::persist);
+                        .ifPresent(shiftList::add);
             }
             shiftDate = shiftDate.plusDays(1);
             dayOffset = (dayOffset + 1) % rosterState.getRotationLength();
         }
+        shiftRepository.persistInBatches(shiftList);
     }
 
     @Transactional
     public PublishResult publishAndProvision(Integer tenantId) {
-        RosterState rosterState = getRosterState(tenantId);
+        // Locked, so the shifts are published and the first draft date moves in one step for this tenant
+        RosterState rosterState = getRosterStateForUpdate(tenantId);
+        rosterCache.invalidate(tenantId);
         LocalDate publishFrom = rosterState.getFirstDraftDate();
         LocalDate publishTo = publishFrom.plusDays(rosterState.getPublishLength());
         LocalDate firstUnplannedDate = rosterState.getFirstUnplannedDate();
 
         // Publish
         ZoneId timeZone = rosterState.getTimeZone();
-        List<Shift> publishedShifts = shiftRepository
-                .findAllByTenantIdBetweenDates(tenantId,
-                        publishFrom.atStartOfDay(timeZone).toOffsetDateTime(),
-                        publishTo.atStartOfDay(timeZone).toOffsetDateTime());
-        publishedShifts.forEach(s -> s.setOriginalEmployee(s.getEmployee()));
-        shiftRepository.persist(publishedShifts);
+        shiftRepository.publishBetweenDates(tenantId,
+                publishFrom.atStartOfDay(timeZone).toOffsetDateTime(),
+                publishTo.atStartOfDay(timeZone).toOffsetDateTime());
         rosterState.setFirstDraftDate(publishTo);
 
         // Provision
@@ -513,17 +939,33 @@ public class RosterService extends AbstractRestService {
 
     @Transactional
     public void commitChanges(Integer tenantId) {
-        RosterState rosterState = getRosterState(tenantId);
+        // Locked, so the first draft date does not move while the shifts before it are published
+        RosterState rosterState = getRosterStateForUpdate(tenantId);
+        rosterCache.invalidate(tenantId);
         LocalDate publishFrom = LocalDate.now();
         LocalDate publishTo = rosterState.getFirstDraftDate();
 
         // Publish
         ZoneId timeZone = rosterState.getTimeZone();
-        List<Shift> publishedShifts = shiftRepository
-                .findAllByTenantIdBetweenDates(tenantId,
-                        publishFrom.atStartOfDay(timeZone).toOffsetDateTime(),
-                        publishTo.atStartOfDay(timeZone).toOffsetDateTime());
-        publishedShifts.forEach(s -> s.setOriginalEmployee(s.getEmployee()));
-        shiftRepository.persist(publishedShifts);
+        shiftRepository.publishBetweenDates(tenantId,
+                publishFrom.atStartOfDay(timeZone).toOffsetDateTime(),
+                publishTo.atStartOfDay(timeZone).toOffsetDateTime());
+    }
+
+    private RosterState getRosterStateForUpdate(Integer tenantId) {
+        RosterState rosterState = rosterStateRepository
+                .findByTenantIdForUpdate(tenantId)
+                .orElseThrow(() -> new EntityNotFoundException("No RosterState entity found with tenantId (" +
+                        tenantId + ")."));
+        validateBean(tenantId, rosterState);
+        return rosterState;
+    }
+
+    // A solve of one tenant, from the request that starts it until it stops
+    private static final class TenantSolve {
+
+        // Completed with null if the solve failed to start
+        private final CompletableFuture<SolverJob<Roster, Integer>> solverJobFuture = new CompletableFuture<>();
+        private final CompletableFuture<Void> endFuture = new CompletableFuture<>();
     }
 }
@@ -19,7 +19,9 @@ package org.optaweb.employeerostering.service.roster;
 import java.util.Optional;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.LockModeType;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -28,7 +30,17 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 public class RosterStateRepository implements PanacheRepository<RosterState> {
 
     public Optional<RosterState> findByTenantId(Integer tenantId) {
-        return find("tenantId", tenantId).singleResultOptional();
+        return find("tenantId", tenantId).withHint(QueryHints.HINT_CACHEABLE, true).singleResultOptional();
+    }
+
+    /**
+     * Like {@link #findByTenantId(Integer)}, but locks the roster state until the transaction ends,
+     * so changes that depend on its dates, such as publishing, do not run at the same time for the same tenant.
+     * @param tenantId never null
+     * @return never null
+     */
+    public Optional<RosterState> findByTenantIdForUpdate(Integer tenantId) {
+        return find("tenantId", tenantId).withLock(LockModeType.PESSIMISTIC_WRITE).singleResultOptional();
     }
 
     public void deleteForTenant(Integer tenantId) {
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.roster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.ShiftAssignmentWriteStatistics;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the employees of the shifts of the best solutions of a solver to the database.
+ * <p>
+ * It remembers the employee and version of every shift as the solve loaded it, see {@link #expectPersisted},
+ * and then as it last wrote it, per tenant, and only writes the shifts whose employee changed since, with a bulk
+ * update per new employee and remembered version, instead of loading and dirty checking all shifts of the tenant
+ * on every best solution. The shifts a solve loads mostly share a few versions, so that is a few updates.
+ * Like {@code ShiftRepository.publishBetweenDates}, the bulk updates go through Hibernate, so they invalidate what
+ * the second-level cache and its query cache hold of the shifts.
+ * <p>
+ * An update only applies if the version of the shift is still the one it remembers, so it never overwrites
+ * what users changed while the solver ran. Such a shift conflicts: the change of the user wins and the shift
+ * is not written again until the next solve, which starts from it. The solvers cannot take problem fact changes
+ * from outside, so the running solve keeps its own employee for the shift.
+ */
+@ApplicationScoped
+public class ShiftAssignmentWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShiftAssignmentWriter.class);
+
+    public static final String ASSIGN_SHIFT_EMPLOYEE_JPQL = "update Shift s set s.employee = :employee,"
+            + " s.version = s.version + 1 where s.tenantId = :tenantId and s.version = :version and s.id in (:ids)";
+    public static final String UNASSIGN_SHIFT_EMPLOYEE_JPQL = "update Shift s set s.employee = null,"
+            + " s.version = s.version + 1 where s.tenantId = :tenantId and s.version = :version and s.id in (:ids)";
+    public static final String READ_SHIFT_EMPLOYEES_JPQL = "select s.id, e.id, s.version from Shift s"
+            + " left join s.employee e where s.tenantId = :tenantId and s.id in (:ids)";
+    // Some databases limit the number of elements of an in list
+    public static final int MAXIMUM_SHIFTS_PER_UPDATE = 1000;
+
+    private final EntityManager entityManager;
+    // Null outside of a container, in which case it remembers what it wrote before the transaction commits
+    private final TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    // The employee and version of every shift by shift id, as the solve loaded it or as last written
+    private final Map<Integer, Map<Long, PersistedShift>> tenantIdToPersistedShiftMap = new ConcurrentHashMap<>();
+
+    private long flushCount = 0L;
+    private long writtenShiftCount = 0L;
+    private long unchangedShiftCount = 0L;
+    private long conflictingShiftCount = 0L;
+    private long totalFlushNanos = 0L;
+    private long maximumFlushNanos = 0L;
+
+    @Inject
+    public ShiftAssignmentWriter(EntityManager entityManager,
+            TransactionSynchronizationRegistry transactionSynchronizationRegistry) {
+        this.entityManager = entityManager;
+        this.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+    }
+
+    /**
+     * Remembers the employee and version of the shifts as a solve loads them, before it changes any of them,
+     * so the writes of its best solutions only apply to the shifts that nobody changed since.
+     * @param tenantId never null
+     * @param shiftList never null, as loaded from the database
+     */
+    public void expectPersisted(Integer tenantId, List<Shift> shiftList) {
+        Map<Long, PersistedShift> persistedShiftMap = new HashMap<>(shiftList.size());
+        for (Shift shift : shiftList) {
+            if (shift.getId() != null && shift.getVersion() != null) {
+                persistedShiftMap.put(shift.getId(), new PersistedShift(
+                        (shift.getEmployee() == null) ? null : shift.getEmployee().getId(), shift.getVersion()));
+            }
+        }
+        tenantIdToPersistedShiftMap.put(tenantId, persistedShiftMap);
+    }
+
+    /**
+     * Writes the employee of every shift of the roster that changed since the last write, within the current
+     * transaction, unless others changed the shift since.
+     * @param roster never null, a best solution
+     * @return at least 0, the number of shifts written
+     */
+    public int writeShiftEmployees(Roster roster) {
+        long startNanos = System.nanoTime();
+        Integer tenantId = roster.getTenantId();
+        Map<Long, PersistedShift> persistedShiftMap = tenantIdToPersistedShiftMap.get(tenantId);
+        if (persistedShiftMap == null) {
+            // Not loaded by a solve, so it expects the shifts as they are now
+            persistedShiftMap = readPersistedShifts(tenantId);
+            tenantIdToPersistedShiftMap.put(tenantId, persistedShiftMap);
+        }
+        Map<Long, Long> changedEmployeeIdMap = new LinkedHashMap<>();
+        for (Shift shift : roster.getShiftList()) {
+            PersistedShift persistedShift = persistedShiftMap.get(shift.getId());
+            // A shift that is not persisted anymore is not written, like before
+            if (persistedShift == null || persistedShift.isConflicting()) {
+                continue;
+            }
+            Long employeeId = (shift.getEmployee() == null) ? null : shift.getEmployee().getId();
+            if (!Objects.equals(persistedShift.getEmployeeId(), employeeId)) {
+                changedEmployeeIdMap.put(shift.getId(), employeeId);
+            }
+        }
+        Map<Long, PersistedShift> writtenShiftMap = new HashMap<>(changedEmployeeIdMap.size());
+        int conflictingShiftCount = 0;
+        if (!changedEmployeeIdMap.isEmpty()) {
+            Set<Long> conflictingShiftIdSet = updateShiftEmployeeIds(tenantId, changedEmployeeIdMap,
+                    persistedShiftMap);
+            for (Map.Entry<Long, Long> entry : changedEmployeeIdMap.entrySet()) {
+                Long shiftId = entry.getKey();
+                writtenShiftMap.put(shiftId, conflictingShiftIdSet.contains(shiftId) ? PersistedShift.CONFLICTING
+                        : new PersistedShift(entry.getValue(), persistedShiftMap.get(shiftId).getVersion() + 1L));
+            }
+            conflictingShiftCount = conflictingShiftIdSet.size();
+            if (conflictingShiftCount > 0) {
+                LOGGER.info("Skipped {} shifts of tenantId ({}) that were changed while solving: {}.",
+                        conflictingShiftCount, tenantId, conflictingShiftIdSet);
+            }
+        }
+        rememberAfterCommit(persistedShiftMap, writtenShiftMap);
+
+        int writtenShiftCount = changedEmployeeIdMap.size() - conflictingShiftCount;
+        long flushNanos = System.nanoTime() - startNanos;
+        recordFlush(writtenShiftCount, roster.getShiftList().size() - changedEmployeeIdMap.size(),
+                conflictingShiftCount, flushNanos);
+        LOGGER.debug("Wrote {} of the {} shifts of tenantId ({}) in {} ms.", writtenShiftCount,
+                roster.getShiftList().size(), tenantId, flushNanos / 1_000_000L);
+        return writtenShiftCount;
+    }
+
+    /**
+     * Makes the next write of the tenant read the employees and versions of its shifts from the database.
+     * @param tenantId never null
+     */
+    public void forget(Integer tenantId) {
+        tenantIdToPersistedShiftMap.remove(tenantId);
+    }
+
+    public void forgetAll() {
+        tenantIdToPersistedShiftMap.clear();
+    }
+
+    public synchronized ShiftAssignmentWriteStatistics getStatistics() {
+        return new ShiftAssignmentWriteStatistics(flushCount, writtenShiftCount, unchangedShiftCount,
+                conflictingShiftCount, totalFlushNanos / 1_000_000L, maximumFlushNanos / 1_000_000L);
+    }
+
+    private Map<Long, PersistedShift> readPersistedShifts(Integer tenantId) {
+        List<Object[]> rowList = entityManager.createQuery("select s.id, e.id, s.version from Shift s"
+                + " left join s.employee e where s.tenantId = :tenantId", Object[].class)
+                .setParameter("tenantId", tenantId)
+                .getResultList();
+        Map<Long, PersistedShift> persistedShiftMap = new HashMap<>(rowList.size());
+        for (Object[] row : rowList) {
+            persistedShiftMap.put((Long) row[0], new PersistedShift((Long) row[1], (Long) row[2]));
+        }
+        return persistedShiftMap;
+    }
+
+    // Returns the ids of the shifts that it did not update, because their version changed or they were deleted
+    private Set<Long> updateShiftEmployeeIds(Integer tenantId, Map<Long, Long> changedEmployeeIdMap,
+            Map<Long, PersistedShift> persistedShiftMap) {
+        // Shift ids by new employee id and remembered version, which one update sets and checks for all of them
+        Map<List<Long>, List<Long>> employeeIdAndVersionToShiftIdListMap = new LinkedHashMap<>();
+        for (Map.Entry<Long, Long> entry : changedEmployeeIdMap.entrySet()) {
+            employeeIdAndVersionToShiftIdListMap.computeIfAbsent(
+                    Arrays.asList(entry.getValue(), persistedShiftMap.get(entry.getKey()).getVersion()),
+                    employeeIdAndVersion -> new ArrayList<>())
+                    .add(entry.getKey());
+        }
+        Set<Long> conflictingShiftIdSet = new LinkedHashSet<>();
+        Query assignQuery = null;
+        Query unassignQuery = null;
+        for (Map.Entry<List<Long>, List<Long>> entry : employeeIdAndVersionToShiftIdListMap.entrySet()) {
+            Long employeeId = entry.getKey().get(0);
+            Long version = entry.getKey().get(1);
+            Query query;
+            if (employeeId == null) {
+                if (unassignQuery == null) {
+                    unassignQuery = entityManager.createQuery(UNASSIGN_SHIFT_EMPLOYEE_JPQL);
+                }
+                query = unassignQuery;
+            } else {
+                if (assignQuery == null) {
+                    assignQuery = entityManager.createQuery(ASSIGN_SHIFT_EMPLOYEE_JPQL);
+                }
+                query = assignQuery.setParameter("employee", entityManager.getReference(Employee.class, employeeId));
+            }
+            List<Long> shiftIdList = entry.getValue();
+            for (int fromIndex = 0; fromIndex < shiftIdList.size(); fromIndex += MAXIMUM_SHIFTS_PER_UPDATE) {
+                List<Long> updateShiftIdList = shiftIdList.subList(fromIndex,
+                        Math.min(fromIndex + MAXIMUM_SHIFTS_PER_UPDATE, shiftIdList.size()));
+                int updateCount = query.setParameter("tenantId", tenantId)
+                        .setParameter("version", version)
+                        .setParameter("ids", updateShiftIdList)
+                        .executeUpdate();
+                // Unlike a JDBC batch, which may report Statement.SUCCESS_NO_INFO, a bulk update returns its exact
+                // update count, so only an update that missed some shifts reads which ones
+                if (updateCount < updateShiftIdList.size()) {
+                    conflictingShiftIdSet.addAll(findUnwrittenShiftIds(tenantId, updateShiftIdList, employeeId,
+                            version));
+                }
+            }
+        }
+        return conflictingShiftIdSet;
+    }
+
+    // A shift is written if it now has the employee and the next version. A shift that the update missed only has
+    // those if a user made the same change, so that it is remembered as written is still right
+    private List<Long> findUnwrittenShiftIds(Integer tenantId, List<Long> shiftIdList, Long employeeId,
+            Long version) {
+        List<Object[]> rowList = entityManager.createQuery(READ_SHIFT_EMPLOYEES_JPQL, Object[].class)
+                .setParameter("tenantId", tenantId)
+                .setParameter("ids", shiftIdList)
+                .getResultList();
+        Set<Long> writtenShiftIdSet = new HashSet<>(rowList.size());
+        for (Object[] row : rowList) {
+            if (Objects.equals(row[1], employeeId) && Objects.equals(row[2], version + 1L)) {
+                writtenShiftIdSet.add((Long) row[0]);
+            }
+        }
+        List<Long> unwrittenShiftIdList = new ArrayList<>(shiftIdList.size() - writtenShiftIdSet.size());
+        for (Long shiftId : shiftIdList) {
+            if (!writtenShiftIdSet.contains(shiftId)) {
+                unwrittenShiftIdList.add(shiftId);
+            }
+        }
+        return unwrittenShiftIdList;
+    }
+
+    private void rememberAfterCommit(Map<Long, PersistedShift> persistedShiftMap,
+            Map<Long, PersistedShift> writtenShiftMap) {
+        if (writtenShiftMap.isEmpty()) {
+            return;
+        }
+        if (transactionSynchronizationRegistry == null
+                || transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            persistedShiftMap.putAll(writtenShiftMap);
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // After a rollback, the database still has the employees and versions it remembers
+                if (status == Status.STATUS_COMMITTED) {
+                    persistedShiftMap.putAll(writtenShiftMap);
+                }
+            }
+        });
+    }
+
+    private synchronized void recordFlush(int writtenShiftCount, int unchangedShiftCount, int conflictingShiftCount,
+            long flushNanos) {
+        flushCount++;
+        this.writtenShiftCount += writtenShiftCount;
+        this.unchangedShiftCount += unchangedShiftCount;
+        this.conflictingShiftCount += conflictingShiftCount;
+        totalFlushNanos += flushNanos;
+        maximumFlushNanos = Math.max(maximumFlushNanos, flushNanos);
+    }
+
+    private static final class PersistedShift {
+
+        // Others changed the shift since, so it is not written anymore
+        private static final PersistedShift CONFLICTING = new PersistedShift(null, null);
+
+        // Null if it is unassigned
+        private final Long employeeId;
+        private final Long version;
+
+        private PersistedShift(Long employeeId, Long version) {
+            this.employeeId = employeeId;
+            this.version = version;
+        }
+
+        private boolean isConflicting() {
+            return this == CONFLICTING;
+        }
+
+        private Long getEmployeeId() {
+            return employeeId;
+        }
+
+        private Long getVersion() {
+            return version;
+        }
+    }
+}
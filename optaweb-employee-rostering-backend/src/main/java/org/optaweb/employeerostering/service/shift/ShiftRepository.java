@@ -20,8 +20,10 @@ import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
 
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.shift.Shift;
@@ -33,6 +35,9 @@ import io.quarkus.panache.common.Sort;
 @ApplicationScoped
 public class ShiftRepository implements PanacheRepository<Shift> {
 
+    // The same as quarkus.hibernate-orm.jdbc.statement-batch-size, so every flush sends full batches
+    public static final int PERSIST_BATCH_SIZE = 50;
+
     // FIXME: When https://github.com/quarkusio/quarkus/issues/15088 is fixed,
     //        add employee.name as a last parameter to sort
     public List<Shift> findAllByTenantId(Integer tenantId) {
@@ -40,6 +45,56 @@ public class ShiftRepository implements PanacheRepository<Shift> {
                 tenantId).list();
     }
 
+    /**
+     * Like {@link #findAllByTenantId(Integer)}, but fetches the required skills in the same select,
+     * for loading every shift of a roster at once.
+     * The spots and employees of the shifts are not fetched, so they should be loaded first in the same transaction,
+     * else they are loaded in batches.
+     * @param tenantId never null
+     * @return never null
+     */
+    public List<Shift> findAllByTenantIdFetchingSkills(Integer tenantId) {
+        // Every skill of a shift is a row, so the same shift comes back once per skill
+        return find("select s from Shift s join s.spot sp left join fetch s.requiredSkillSet"
+                + " where s.tenantId = ?1 order by s.startDateTime, sp.name", tenantId)
+                .list().stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Like {@link #findAllByTenantIdFetchingSkills(Integer)}, but leaves out the shifts that end before a date time,
+     * for loading a roster without its archived shifts.
+     * @param tenantId never null
+     * @param fromDateTime never null
+     * @return never null
+     */
+    public List<Shift> findAllByTenantIdEndingFromFetchingSkills(Integer tenantId, OffsetDateTime fromDateTime) {
+        return find("select s from Shift s join s.spot sp left join fetch s.requiredSkillSet"
+                + " where s.tenantId = ?1 and s.endDateTime >= ?2 order by s.startDateTime, sp.name",
+                tenantId, fromDateTime)
+                .list().stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the assigned shifts that start at or after one date time and end before another, without loading them,
+     * for aggregating the worked minutes of archived shifts.
+     * @param tenantId never null
+     * @param startDateTime never null
+     * @param endDateTime never null
+     * @return never null, the employee id, start date time and end date time of each shift
+     */
+    public List<Object[]> findAssignedWorkBetweenDates(Integer tenantId,
+            OffsetDateTime startDateTime,
+            OffsetDateTime endDateTime) {
+        // A shift that starts at or after the start also ends after it, which bounds the end date time index
+        return getEntityManager().createQuery("select s.employee.id, s.startDateTime, s.endDateTime"
+                + " from Shift s where s.tenantId = ?1 and s.employee is not null"
+                + " and s.endDateTime >= ?2 and s.startDateTime >= ?2 and s.endDateTime < ?3", Object[].class)
+                .setParameter(1, tenantId)
+                .setParameter(2, startDateTime)
+                .setParameter(3, endDateTime)
+                .getResultList();
+    }
+
     // FIXME: When https://github.com/quarkusio/quarkus/issues/15088 is fixed,
     //        add employee.name as a last parameter to sort
     public List<Shift> findAllByTenantIdBetweenDates(Integer tenantId,
@@ -50,6 +105,51 @@ public class ShiftRepository implements PanacheRepository<Shift> {
                 tenantId, startDateTime, endDateTime).list();
     }
 
+    /**
+     * Persists new shifts with their required skills in JDBC batches, by flushing and detaching the shifts every
+     * {@link #PERSIST_BATCH_SIZE} shifts, so the persistence context does not grow with them.
+     * Everything else in the persistence context is flushed with the first batch and detached as well.
+     * @param shiftList never null, shifts that are not persisted yet
+     */
+    public void persistInBatches(List<Shift> shiftList) {
+        EntityManager entityManager = getEntityManager();
+        for (int i = 0; i < shiftList.size(); i++) {
+            entityManager.persist(shiftList.get(i));
+            if ((i + 1) % PERSIST_BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Publishes the shifts that {@link #findAllByTenantIdBetweenDates(Integer, OffsetDateTime, OffsetDateTime)} finds
+     * in one update, without loading them: the employee of each shift becomes its original employee.
+     * Only the shifts whose original employee changes get a new version, as if they were loaded, changed and flushed,
+     * so a concurrent edit of one of them fails on its version, but a concurrent edit of the others does not.
+     * Shifts that are already in the persistence context are not updated, so it should not hold any.
+     * @param tenantId never null
+     * @param startDateTime never null
+     * @param endDateTime never null
+     * @return at least 0, the number of shifts whose original employee changed
+     */
+    public int publishBetweenDates(Integer tenantId,
+            OffsetDateTime startDateTime,
+            OffsetDateTime endDateTime) {
+        return getEntityManager().createQuery("update Shift s"
+                + " set s.originalEmployee = s.employee, s.version = s.version + 1"
+                + " where s.tenantId = ?1 and s.endDateTime >= ?2 and s.startDateTime < ?3"
+                + " and (s.originalEmployee <> s.employee"
+                + " or (s.originalEmployee is null and s.employee is not null)"
+                + " or (s.originalEmployee is not null and s.employee is null))")
+                .setParameter(1, tenantId)
+                .setParameter(2, startDateTime)
+                .setParameter(3, endDateTime)
+                .executeUpdate();
+    }
+
     public void deleteForTenant(Integer tenantId) {
         delete("tenantId", tenantId);
     }
@@ -82,4 +182,32 @@ public class ShiftRepository implements PanacheRepository<Shift> {
                 Sort.ascending("startDateTime", "spot.name"),
                 tenantId, employeeSet, startDateTime, endDateTime).list();
     }
+
+    /**
+     * @param tenantId never null
+     * @param employeeSet never null
+     * @param startDateTime never null
+     * @param endDateTime never null
+     * @return never null, the earliest start date time and the latest end date time of the shifts
+     *         {@link #filterWithEmployees(Integer, Set, OffsetDateTime, OffsetDateTime)} finds,
+     *         both null if it finds none
+     */
+    public OffsetDateTime[] findBoundsWithEmployees(Integer tenantId,
+            Set<Employee> employeeSet,
+            OffsetDateTime startDateTime,
+            OffsetDateTime endDateTime) {
+        // Panache doesn't like empty parameters
+        if (employeeSet.isEmpty()) {
+            return new OffsetDateTime[2];
+        }
+        Object[] bounds = getEntityManager().createQuery("select min(s.startDateTime), max(s.endDateTime)"
+                + " from Shift s where s.tenantId = ?1 and s.employee in ?2"
+                + " and s.endDateTime >= ?3 and s.startDateTime < ?4", Object[].class)
+                .setParameter(1, tenantId)
+                .setParameter(2, employeeSet)
+                .setParameter(3, startDateTime)
+                .setParameter(4, endDateTime)
+                .getSingleResult();
+        return new OffsetDateTime[] { (OffsetDateTime) bounds[0], (OffsetDateTime) bounds[1] };
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.optaweb.employeerostering.service.shift;
 
+import java.time.ZoneId;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,9 +30,11 @@ import javax.persistence.EntityNotFoundException;
 import javax.transaction.Transactional;
 import javax.validation.Validator;
 
+import org.optaplanner.core.api.score.ScoreExplanation;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.constraint.Indictment;
 import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.shift.view.ShiftView;
 import org.optaweb.employeerostering.domain.skill.Skill;
@@ -39,6 +42,7 @@ import org.optaweb.employeerostering.domain.spot.Spot;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
 import org.optaweb.employeerostering.service.common.IndictmentUtils;
 import org.optaweb.employeerostering.service.employee.EmployeeRepository;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 import org.optaweb.employeerostering.service.roster.RosterService;
 import org.optaweb.employeerostering.service.skill.SkillService;
 import org.optaweb.employeerostering.service.spot.SpotRepository;
@@ -56,29 +60,31 @@ public class ShiftService extends AbstractRestService {
 
     RosterService rosterService;
 
+    RosterCache rosterCache;
+
     IndictmentUtils indictmentUtils;
 
     @Inject
     public ShiftService(Validator validator,
             ShiftRepository shiftRepository, SpotRepository spotRepository,
             SkillService skillService, EmployeeRepository employeeRepository,
-            RosterService rosterService, IndictmentUtils indictmentUtils) {
+            RosterService rosterService, RosterCache rosterCache, IndictmentUtils indictmentUtils) {
         super(validator);
         this.shiftRepository = shiftRepository;
         this.spotRepository = spotRepository;
         this.skillService = skillService;
         this.employeeRepository = employeeRepository;
         this.rosterService = rosterService;
+        this.rosterCache = rosterCache;
         this.indictmentUtils = indictmentUtils;
     }
 
     public List<ShiftView> getShiftList(Integer tenantId) {
-        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = indictmentUtils.getIndictmentMapForRoster(
-                rosterService.buildRoster(tenantId));
-        return getAllShifts(tenantId).stream()
-                .map(s -> indictmentUtils.getShiftViewWithIndictment(
-                        rosterService.getRosterState(tenantId).getTimeZone(), s, indictmentMap.get(s)))
-                .collect(Collectors.toList());
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation =
+                rosterService.getCachedScoreExplanation(tenantId);
+        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap = scoreExplanation.getIndictmentMap();
+        ZoneId timeZone = scoreExplanation.getSolution().getRosterState().getTimeZone();
+        return indictmentUtils.getShiftViewListWithIndictments(timeZone, getAllShifts(tenantId), indictmentMap);
     }
 
     private List<Shift> getAllShifts(Integer tenantId) {
@@ -92,10 +98,11 @@ public class ShiftService extends AbstractRestService {
                 .orElseThrow(() -> new EntityNotFoundException("No Shift entity found with ID (" + id + ")."));
 
         validateBean(tenantId, shift);
-        Indictment<HardMediumSoftLongScore> indictment = indictmentUtils.getIndictmentMapForRoster(
-                rosterService.buildRoster(tenantId)).get(shift);
-        return indictmentUtils.getShiftViewWithIndictment(rosterService.getRosterState(tenantId).getTimeZone(), shift,
-                indictment);
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation =
+                rosterService.getCachedScoreExplanation(tenantId);
+        return indictmentUtils.getShiftViewWithIndictment(
+                scoreExplanation.getSolution().getRosterState().getTimeZone(), shift,
+                scoreExplanation.getIndictmentMap().get(shift));
     }
 
     private Shift convertFromView(Integer tenantId, ShiftView shiftView) {
@@ -159,11 +166,13 @@ public class ShiftService extends AbstractRestService {
     public ShiftView createShift(Integer tenantId, ShiftView shiftView) {
         Shift shift = convertFromView(tenantId, shiftView);
         shiftRepository.persist(shift);
+        rosterCache.invalidate(tenantId);
 
-        Indictment<HardMediumSoftLongScore> indictment = indictmentUtils.getIndictmentMapForRoster(
-                rosterService.buildRoster(tenantId)).get(shift);
-        return indictmentUtils.getShiftViewWithIndictment(rosterService.getRosterState(tenantId).getTimeZone(),
-                shift, indictment);
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation =
+                rosterService.getCachedScoreExplanation(tenantId);
+        return indictmentUtils.getShiftViewWithIndictment(
+                scoreExplanation.getSolution().getRosterState().getTimeZone(), shift,
+                scoreExplanation.getIndictmentMap().get(shift));
     }
 
     @Transactional
@@ -179,6 +188,7 @@ public class ShiftService extends AbstractRestService {
                     + ") cannot change tenants.");
         }
 
+        Long previousVersion = oldShift.getVersion();
         oldShift.setRotationEmployee(newShift.getRotationEmployee());
         oldShift.setOriginalEmployee(newShift.getOriginalEmployee());
         oldShift.setSpot(newShift.getSpot());
@@ -191,8 +201,9 @@ public class ShiftService extends AbstractRestService {
         // Flush to increase version number before we duplicate it to ShiftView
         shiftRepository.persistAndFlush(oldShift);
 
-        Indictment<HardMediumSoftLongScore> indictment = indictmentUtils.getIndictmentMapForRoster(
-                rosterService.buildRoster(tenantId)).get(oldShift);
+        // Scores only this update, instead of building and explaining the whole roster again
+        Indictment<HardMediumSoftLongScore> indictment =
+                rosterService.updateShiftInScoreSession(tenantId, oldShift, previousVersion);
         return indictmentUtils.getShiftViewWithIndictment(rosterService.getRosterState(tenantId).getTimeZone(),
                 oldShift, indictment);
     }
@@ -205,6 +216,7 @@ public class ShiftService extends AbstractRestService {
         }
         validateBean(tenantId, shiftOptional.get());
         shiftRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 }
@@ -20,6 +20,7 @@ import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.skill.Skill;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -29,7 +30,7 @@ import io.quarkus.panache.common.Sort;
 public class SkillRepository implements PanacheRepository<Skill> {
 
     public List<Skill> findAllByTenantId(Integer tenantId) {
-        return find("tenantId", Sort.ascending("name"), tenantId).list();
+        return find("tenantId", Sort.ascending("name"), tenantId).withHint(QueryHints.HINT_CACHEABLE, true).list();
     }
 
     public void deleteForTenant(Integer tenantId) {
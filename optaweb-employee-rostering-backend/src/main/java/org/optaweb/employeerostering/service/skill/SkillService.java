@@ -28,16 +28,20 @@ import javax.validation.Validator;
 import org.optaweb.employeerostering.domain.skill.Skill;
 import org.optaweb.employeerostering.domain.skill.view.SkillView;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 
 @ApplicationScoped
 public class SkillService extends AbstractRestService {
 
     SkillRepository skillRepository;
 
+    RosterCache rosterCache;
+
     @Inject
-    public SkillService(Validator validator, SkillRepository skillRepository) {
+    public SkillService(Validator validator, SkillRepository skillRepository, RosterCache rosterCache) {
         super(validator);
         this.skillRepository = skillRepository;
+        this.rosterCache = rosterCache;
     }
 
     public Skill convertFromView(Integer tenantId, SkillView skillView) {
@@ -74,6 +78,7 @@ public class SkillService extends AbstractRestService {
 
         validateBean(tenantId, skillOptional.get());
         skillRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 
@@ -81,6 +86,7 @@ public class SkillService extends AbstractRestService {
     public Skill createSkill(Integer tenantId, SkillView skillView) {
         Skill skill = convertFromView(tenantId, skillView);
         skillRepository.persist(skill);
+        rosterCache.invalidate(tenantId);
         return skill;
     }
 
@@ -99,6 +105,7 @@ public class SkillService extends AbstractRestService {
 
         oldSkill.setName(newSkill.getName());
         skillRepository.persist(oldSkill);
+        rosterCache.invalidate(tenantId);
         return oldSkill;
     }
 }
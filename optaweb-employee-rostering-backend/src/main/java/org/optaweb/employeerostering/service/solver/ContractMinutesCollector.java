@@ -0,0 +1,442 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.solver;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.optaplanner.core.api.function.TriFunction;
+import org.optaplanner.core.api.score.stream.bi.BiConstraintCollector;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+
+/**
+ * Accumulates the worked minutes of one employee's shifts into day, week, month and year buckets in a single pass,
+ * so the four contract minutes constraints do not each need their own join and grouping.
+ * Buckets are primitive longs keyed by an int period index, so accumulating a shift creates no garbage
+ * besides its undo operation, and a period object is only created for a period that exceeds its maximum.
+ * <p>
+ * Like the per period constraints it replaces, a shift counts fully towards the period of its start date time.
+ * <p>
+ * The {@link HistoricWorkedMinutes} of the employee count towards the same periods, but a period only counts
+ * the minutes above the contract maximum that the shifts of the roster add to them,
+ * see {@link #getExcessMinutes(Employee, Period, Object, long)}:
+ * what archived shifts alone exceed can no longer change, and an employee without shifts has no group.
+ */
+public final class ContractMinutesCollector implements BiConstraintCollector<RosterConstraintConfiguration, Shift,
+        ContractMinutesCollector.Accumulator, ContractMinutesCollector.ContractMinutes> {
+
+    /**
+     * A period is a {@link LocalDate} for a day or the first day of a week, a {@link YearMonth} for a month
+     * and an {@link Integer} for a year, as IndictmentUtils shows it.
+     * Its index is the epoch day, the epoch day of the first day of the week, year * 12 + month - 1 and the year,
+     * which also keys the maps of {@link HistoricWorkedMinutes}.
+     */
+    public enum Period {
+        DAILY {
+            @Override
+            Integer getMaximumMinutes(Contract contract) {
+                return contract.getMaximumMinutesPerDay();
+            }
+
+            @Override
+            Map<Integer, Long> getHistoricMinutesMap(HistoricWorkedMinutes historicWorkedMinutes) {
+                return historicWorkedMinutes.getDailyMinutesMap();
+            }
+
+            @Override
+            Object getPeriod(int periodIndex) {
+                return LocalDate.ofEpochDay(periodIndex);
+            }
+
+            @Override
+            int getPeriodIndex(Object period) {
+                return (int) ((LocalDate) period).toEpochDay();
+            }
+        },
+        WEEKLY {
+            @Override
+            Integer getMaximumMinutes(Contract contract) {
+                return contract.getMaximumMinutesPerWeek();
+            }
+
+            @Override
+            Map<Integer, Long> getHistoricMinutesMap(HistoricWorkedMinutes historicWorkedMinutes) {
+                return historicWorkedMinutes.getWeeklyMinutesMap();
+            }
+
+            @Override
+            Object getPeriod(int periodIndex) {
+                return LocalDate.ofEpochDay(periodIndex);
+            }
+
+            @Override
+            int getPeriodIndex(Object period) {
+                return (int) ((LocalDate) period).toEpochDay();
+            }
+        },
+        MONTHLY {
+            @Override
+            Integer getMaximumMinutes(Contract contract) {
+                return contract.getMaximumMinutesPerMonth();
+            }
+
+            @Override
+            Map<Integer, Long> getHistoricMinutesMap(HistoricWorkedMinutes historicWorkedMinutes) {
+                return historicWorkedMinutes.getMonthlyMinutesMap();
+            }
+
+            @Override
+            Object getPeriod(int periodIndex) {
+                return YearMonth.of(Math.floorDiv(periodIndex, 12), Math.floorMod(periodIndex, 12) + 1);
+            }
+
+            @Override
+            int getPeriodIndex(Object period) {
+                YearMonth yearMonth = (YearMonth) period;
+                return yearMonth.getYear() * 12 + yearMonth.getMonthValue() - 1;
+            }
+        },
+        YEARLY {
+            @Override
+            Integer getMaximumMinutes(Contract contract) {
+                return contract.getMaximumMinutesPerYear();
+            }
+
+            @Override
+            Map<Integer, Long> getHistoricMinutesMap(HistoricWorkedMinutes historicWorkedMinutes) {
+                return historicWorkedMinutes.getYearlyMinutesMap();
+            }
+
+            @Override
+            Object getPeriod(int periodIndex) {
+                return periodIndex;
+            }
+
+            @Override
+            int getPeriodIndex(Object period) {
+                return (Integer) period;
+            }
+        };
+
+        /**
+         * @param contract never null
+         * @return null if the contract has no maximum for this period
+         */
+        abstract Integer getMaximumMinutes(Contract contract);
+
+        abstract Map<Integer, Long> getHistoricMinutesMap(HistoricWorkedMinutes historicWorkedMinutes);
+
+        abstract Object getPeriod(int periodIndex);
+
+        abstract int getPeriodIndex(Object period);
+    }
+
+    private static final ContractMinutesCollector INSTANCE = new ContractMinutesCollector();
+
+    public static ContractMinutesCollector contractMinutes() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param employee never null
+     * @param period never null
+     * @param periodKey never null, see {@link ExcessPeriod#getPeriod()}
+     * @param workedMinutes the minutes of the period, historic minutes included
+     * @return at least 0, the minutes above the contract maximum that the shifts of the roster add to the period
+     */
+    static long getExcessMinutes(Employee employee, Period period, Object periodKey, long workedMinutes) {
+        long maximumMinutes = period.getMaximumMinutes(employee.getContract());
+        long historicMinutes = 0L;
+        HistoricWorkedMinutes historicWorkedMinutes = employee.getHistoricWorkedMinutes();
+        if (historicWorkedMinutes != null) {
+            historicMinutes = period.getHistoricMinutesMap(historicWorkedMinutes)
+                    .getOrDefault(period.getPeriodIndex(periodKey), 0L);
+        }
+        return Math.max(workedMinutes - maximumMinutes, 0L) - Math.max(historicMinutes - maximumMinutes, 0L);
+    }
+
+    private ContractMinutesCollector() {
+    }
+
+    @Override
+    public Supplier<Accumulator> supplier() {
+        return Accumulator::new;
+    }
+
+    @Override
+    public TriFunction<Accumulator, RosterConstraintConfiguration, Shift, Runnable> accumulator() {
+        return (accumulator, configuration, shift) -> {
+            Employee employee = shift.getEmployee();
+            Contract contract = employee.getContract();
+            accumulator.seed(employee, contract);
+            LocalDate startDate = shift.getStartDateTime().toLocalDate();
+            int day = (int) startDate.toEpochDay();
+            int week = day - getDaysSinceWeekStart(configuration.getWeekStartDay(), startDate.getDayOfWeek());
+            int month = startDate.getYear() * 12 + startDate.getMonthValue() - 1;
+            int year = startDate.getYear();
+            long lengthInMinutes = shift.getLengthInMinutes();
+            accumulator.add(contract, day, week, month, year, lengthInMinutes);
+            return () -> accumulator.add(contract, day, week, month, year, -lengthInMinutes);
+        };
+    }
+
+    @Override
+    public Function<Accumulator, ContractMinutes> finisher() {
+        return Accumulator::toContractMinutes;
+    }
+
+    private static int getDaysSinceWeekStart(DayOfWeek weekStartDay, DayOfWeek dayOfWeek) {
+        return (dayOfWeek.getValue() - weekStartDay.getValue() + 7) % 7;
+    }
+
+    public static final class Accumulator {
+
+        private final PeriodBuckets[] periodBuckets = new PeriodBuckets[Period.values().length];
+        private boolean seeded = false;
+
+        /**
+         * Adds the historic worked minutes of the employee of the group, the first time only.
+         * They are never removed, as every shift of the group has the same employee.
+         */
+        private void seed(Employee employee, Contract contract) {
+            if (seeded) {
+                return;
+            }
+            seeded = true;
+            HistoricWorkedMinutes historicWorkedMinutes = employee.getHistoricWorkedMinutes();
+            if (historicWorkedMinutes == null) {
+                return;
+            }
+            for (Period period : Period.values()) {
+                Integer maximumMinutes = period.getMaximumMinutes(contract);
+                if (maximumMinutes != null) {
+                    PeriodBuckets buckets = getBuckets(period, maximumMinutes);
+                    period.getHistoricMinutesMap(historicWorkedMinutes).forEach(buckets::seed);
+                }
+            }
+        }
+
+        private void add(Contract contract, int day, int week, int month, int year, long deltaMinutes) {
+            add(Period.DAILY, contract.getMaximumMinutesPerDay(), day, deltaMinutes);
+            add(Period.WEEKLY, contract.getMaximumMinutesPerWeek(), week, deltaMinutes);
+            add(Period.MONTHLY, contract.getMaximumMinutesPerMonth(), month, deltaMinutes);
+            add(Period.YEARLY, contract.getMaximumMinutesPerYear(), year, deltaMinutes);
+        }
+
+        private void add(Period period, Integer maximumMinutes, int periodIndex, long deltaMinutes) {
+            if (maximumMinutes == null) {
+                return;
+            }
+            getBuckets(period, maximumMinutes).add(periodIndex, deltaMinutes);
+        }
+
+        private PeriodBuckets getBuckets(Period period, int maximumMinutes) {
+            PeriodBuckets buckets = periodBuckets[period.ordinal()];
+            if (buckets == null) {
+                buckets = new PeriodBuckets(maximumMinutes);
+                periodBuckets[period.ordinal()] = buckets;
+            }
+            return buckets;
+        }
+
+        private ContractMinutes toContractMinutes() {
+            List<List<ExcessPeriod>> excessPeriodLists = new ArrayList<>(periodBuckets.length);
+            boolean exceeded = false;
+            for (Period period : Period.values()) {
+                PeriodBuckets buckets = periodBuckets[period.ordinal()];
+                List<ExcessPeriod> excessPeriodList = (buckets == null) ? Collections.emptyList()
+                        : buckets.getExcessPeriodList(period);
+                exceeded |= !excessPeriodList.isEmpty();
+                excessPeriodLists.add(excessPeriodList);
+            }
+            return exceeded ? new ContractMinutes(excessPeriodLists) : ContractMinutes.NONE;
+        }
+    }
+
+    /**
+     * Worked minutes per period of one period type, stored densely from the first period index seen.
+     */
+    private static final class PeriodBuckets {
+
+        private final long maximumMinutes;
+        private int firstPeriodIndex;
+        private long[] workedMinutes = new long[0];
+        // The minutes above the maximum of the historic minutes alone, which do not count; null if none exceed it
+        private long[] historicExcessMinutes = null;
+        // Kept up to date on every add, so the finisher only scans the buckets when a period exceeds its maximum
+        private int excessPeriodCount = 0;
+
+        private PeriodBuckets(long maximumMinutes) {
+            this.maximumMinutes = maximumMinutes;
+        }
+
+        private void add(int periodIndex, long deltaMinutes) {
+            int i = ensureCapacity(periodIndex);
+            long oldTotal = workedMinutes[i];
+            long newTotal = oldTotal + deltaMinutes;
+            workedMinutes[i] = newTotal;
+            if (getExcessMinutes(i, oldTotal) > 0L) {
+                excessPeriodCount--;
+            }
+            if (getExcessMinutes(i, newTotal) > 0L) {
+                excessPeriodCount++;
+            }
+        }
+
+        /**
+         * Must be called before any {@link #add(int, long)}, at most once per period index.
+         */
+        private void seed(int periodIndex, long historicMinutes) {
+            int i = ensureCapacity(periodIndex);
+            workedMinutes[i] = historicMinutes;
+            if (historicMinutes > maximumMinutes) {
+                if (historicExcessMinutes == null) {
+                    historicExcessMinutes = new long[workedMinutes.length];
+                }
+                historicExcessMinutes[i] = historicMinutes - maximumMinutes;
+            }
+        }
+
+        private List<ExcessPeriod> getExcessPeriodList(Period period) {
+            if (excessPeriodCount == 0) {
+                return Collections.emptyList();
+            }
+            List<ExcessPeriod> excessPeriodList = new ArrayList<>(excessPeriodCount);
+            for (int i = 0; i < workedMinutes.length; i++) {
+                long excessMinutes = getExcessMinutes(i, workedMinutes[i]);
+                if (excessMinutes > 0L) {
+                    excessPeriodList.add(new ExcessPeriod(period.getPeriod(firstPeriodIndex + i), workedMinutes[i],
+                            excessMinutes));
+                }
+            }
+            return excessPeriodList;
+        }
+
+        private long getExcessMinutes(int i, long totalMinutes) {
+            if (totalMinutes <= maximumMinutes) {
+                return 0L;
+            }
+            return (historicExcessMinutes == null) ? totalMinutes - maximumMinutes
+                    : totalMinutes - maximumMinutes - historicExcessMinutes[i];
+        }
+
+        private int ensureCapacity(int periodIndex) {
+            if (workedMinutes.length == 0) {
+                firstPeriodIndex = periodIndex;
+                workedMinutes = new long[1];
+                return 0;
+            }
+            if (periodIndex < firstPeriodIndex) {
+                int shift = firstPeriodIndex - periodIndex;
+                workedMinutes = grow(workedMinutes, workedMinutes.length + shift, shift);
+                historicExcessMinutes = grow(historicExcessMinutes, workedMinutes.length, shift);
+                firstPeriodIndex = periodIndex;
+            } else if (periodIndex - firstPeriodIndex >= workedMinutes.length) {
+                workedMinutes = grow(workedMinutes, periodIndex - firstPeriodIndex + 1, 0);
+                historicExcessMinutes = grow(historicExcessMinutes, workedMinutes.length, 0);
+            }
+            return periodIndex - firstPeriodIndex;
+        }
+
+        private static long[] grow(long[] array, int newLength, int offset) {
+            if (array == null) {
+                return null;
+            }
+            long[] newArray = new long[newLength];
+            System.arraycopy(array, 0, newArray, offset, array.length);
+            return newArray;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the periods of every period type in which one employee exceeds the contract maximum.
+     */
+    public static final class ContractMinutes {
+
+        private static final ContractMinutes NONE = new ContractMinutes(Collections.nCopies(Period.values().length,
+                Collections.emptyList()));
+
+        private final List<List<ExcessPeriod>> excessPeriodLists;
+
+        private ContractMinutes(List<List<ExcessPeriod>> excessPeriodLists) {
+            this.excessPeriodLists = excessPeriodLists;
+        }
+
+        /**
+         * @param period never null
+         * @return never null, the periods of that type that exceed the contract maximum
+         */
+        public List<ExcessPeriod> getExcessPeriodList(Period period) {
+            return excessPeriodLists.get(period.ordinal());
+        }
+
+        @Override
+        public String toString() {
+            return "ContractMinutes(" + excessPeriodLists + ")";
+        }
+    }
+
+    public static final class ExcessPeriod {
+
+        private final Object period;
+        private final long workedMinutes;
+        private final long excessMinutes;
+
+        private ExcessPeriod(Object period, long workedMinutes, long excessMinutes) {
+            this.period = period;
+            this.workedMinutes = workedMinutes;
+            this.excessMinutes = excessMinutes;
+        }
+
+        /**
+         * @return never null, see {@link Period}
+         */
+        public Object getPeriod() {
+            return period;
+        }
+
+        /**
+         * @return the minutes worked in the period, historic minutes included
+         */
+        public long getWorkedMinutes() {
+            return workedMinutes;
+        }
+
+        /**
+         * @return more than 0, the minutes above the contract maximum that the shifts of the roster add to the period
+         */
+        public long getExcessMinutes() {
+            return excessMinutes;
+        }
+
+        @Override
+        public String toString() {
+            return period + " (" + workedMinutes + " minutes, " + excessMinutes + " excess)";
+        }
+    }
+}
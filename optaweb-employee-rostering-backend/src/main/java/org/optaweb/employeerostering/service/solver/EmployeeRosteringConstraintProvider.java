@@ -15,8 +15,7 @@
  */
 package org.optaweb.employeerostering.service.solver;
 
-import static java.time.Duration.between;
-import static org.optaplanner.core.api.score.stream.ConstraintCollectors.sumDuration;
+import static org.optaplanner.core.api.score.stream.ConstraintCollectors.sumLong;
 import static org.optaplanner.core.api.score.stream.Joiners.equal;
 import static org.optaplanner.core.api.score.stream.Joiners.greaterThan;
 import static org.optaplanner.core.api.score.stream.Joiners.lessThan;
@@ -24,6 +23,7 @@ import static org.optaweb.employeerostering.domain.employee.EmployeeAvailability
 import static org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState.UNAVAILABLE;
 import static org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState.UNDESIRED;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_ASSIGN_EVERY_SHIFT;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_BALANCE_EMPLOYEE_HOURS;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE;
@@ -37,15 +37,10 @@ import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfig
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
 import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.service.solver.ContractMinutesCollector.contractMinutes;
+import static org.optaweb.employeerostering.service.solver.ContractMinutesCollector.getExcessMinutes;
 
-import java.time.DayOfWeek;
-import java.time.LocalDate;
-import java.time.OffsetDateTime;
-import java.time.YearMonth;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
 import java.util.Objects;
-import java.util.function.Function;
 
 import org.optaplanner.core.api.score.stream.Constraint;
 import org.optaplanner.core.api.score.stream.ConstraintFactory;
@@ -57,6 +52,8 @@ import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.ContractMinutes;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.Period;
 
 /**
  * Designed to match the DRL exactly.
@@ -70,8 +67,31 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
                 .filter(employeeAvailability -> employeeAvailability.getState() == employeeAvailabilityState)
                 .join(Shift.class,
                         equal(EmployeeAvailability::getEmployee, Shift::getEmployee),
-                        lessThan(EmployeeAvailability::getStartDateTime, Shift::getEndDateTime),
-                        greaterThan(EmployeeAvailability::getEndDateTime, Shift::getStartDateTime));
+                        lessThan(EmployeeAvailability::getStartEpochMinute, Shift::getEndEpochMinute),
+                        greaterThan(EmployeeAvailability::getEndEpochMinute, Shift::getStartEpochMinute));
+    }
+
+    /**
+     * @param workedMinutes at least 0, the total worked minutes of one employee
+     * @return at least 0, the square of the worked hours of the employee, a started hour counting as a full hour
+     */
+    public static long getSquaredWorkedHours(long workedMinutes) {
+        if (workedMinutes < 0L) {
+            throw new IllegalArgumentException("The workedMinutes (" + workedMinutes + ") must not be negative.");
+        }
+        long workedHours = (workedMinutes + 59L) / 60L;
+        return workedHours * workedHours;
+    }
+
+    /**
+     * Measures how unevenly the worked hours are spread over the employees, as the square root of the sum of
+     * the squared worked hours of every employee: for a fixed total of hours, that is lowest when every employee
+     * works the same number of hours.
+     * @param squaredWorkedHoursSum at least 0, the sum of {@link #getSquaredWorkedHours(long)} of every employee
+     * @return at least 0, in thousandths
+     */
+    public static long getLoadBalance(long squaredWorkedHoursSum) {
+        return Math.round(Math.sqrt(squaredWorkedHoursSum) * 1000);
     }
 
     private static UniConstraintStream<Shift> getAssignedShiftConstraintStream(ConstraintFactory constraintFactory) {
@@ -79,27 +99,49 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
                 .filter(shift -> shift.getEmployee() != null);
     }
 
-    private static LocalDate extractFirstDayOfWeek(DayOfWeek weekStarting, OffsetDateTime date) {
-        return date.with(TemporalAdjusters.previousOrSame(weekStarting)).toLocalDate();
+    // Shared by the four contract minutes constraints, so one collector buckets every shift of an employee
+    // into its day, week, month and year at once
+    private static BiConstraintStream<Employee, ContractMinutes> getContractMinutesConstraintStream(
+            ConstraintFactory constraintFactory) {
+        return constraintFactory.from(RosterConstraintConfiguration.class)
+                .join(getAssignedShiftConstraintStream(constraintFactory))
+                .groupBy((configuration, shift) -> shift.getEmployee(), contractMinutes());
+    }
+
+    // One match per employee and period, justified by the employee, the period and the minutes worked in it,
+    // as IndictmentUtils expects
+    private static Constraint getContractMinutesConstraint(
+            BiConstraintStream<Employee, ContractMinutes> contractMinutesStream, Period period, String constraintName) {
+        return contractMinutesStream
+                .flattenLast(contractMinutes -> contractMinutes.getExcessPeriodList(period))
+                .groupBy((employee, excessPeriod) -> employee,
+                        (employee, excessPeriod) -> excessPeriod.getPeriod(),
+                        (employee, excessPeriod) -> excessPeriod.getWorkedMinutes())
+                .penalizeConfigurableLong(constraintName,
+                        (employee, periodKey, workedMinutes) -> getExcessMinutes(employee, period, periodKey,
+                                workedMinutes));
     }
 
     @Override
     public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+        BiConstraintStream<Employee, ContractMinutes> contractMinutesStream =
+                getContractMinutesConstraintStream(constraintFactory);
         return new Constraint[] {
                 requiredSkillForShift(constraintFactory),
                 unavailableEmployeeTimeSlot(constraintFactory),
                 noOverlappingShifts(constraintFactory),
                 noMoreThanTwoConsecutiveShifts(constraintFactory),
                 breakBetweenNonConsecutiveShiftsIsAtLeastTenHours(constraintFactory),
-                dailyMinutesMustNotExceedContractMaximum(constraintFactory),
-                weeklyMinutesMustNotExceedContractMaximum(constraintFactory),
-                monthlyMinutesMustNotExceedContractMaximum(constraintFactory),
-                yearlyMinutesMustNotExceedContractMaximum(constraintFactory),
+                dailyMinutesMustNotExceedContractMaximum(contractMinutesStream),
+                weeklyMinutesMustNotExceedContractMaximum(contractMinutesStream),
+                monthlyMinutesMustNotExceedContractMaximum(contractMinutesStream),
+                yearlyMinutesMustNotExceedContractMaximum(contractMinutesStream),
                 assignEveryShift(constraintFactory),
                 employeeIsNotOriginalEmployee(constraintFactory),
                 undesiredEmployeeTimeSlot(constraintFactory),
                 desiredEmployeeTimeSlot(constraintFactory),
-                employeeNotRotationEmployee(constraintFactory)
+                employeeNotRotationEmployee(constraintFactory),
+                balanceEmployeeHours(constraintFactory)
         };
     }
 
@@ -119,8 +161,8 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
         return getAssignedShiftConstraintStream(constraintFactory)
                 .join(Shift.class,
                         equal(Shift::getEmployee),
-                        lessThan(Shift::getStartDateTime, Shift::getEndDateTime),
-                        greaterThan(Shift::getEndDateTime, Shift::getStartDateTime))
+                        lessThan(Shift::getStartEpochMinute, Shift::getEndEpochMinute),
+                        greaterThan(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
                 .filter((shift, otherShift) -> !Objects.equals(shift, otherShift))
                 .penalizeConfigurableLong(CONSTRAINT_NO_OVERLAPPING_SHIFTS,
                         (shift, otherShift) -> otherShift.getLengthInMinutes());
@@ -130,11 +172,11 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
         return getAssignedShiftConstraintStream(constraintFactory)
                 .join(Shift.class,
                         equal(Shift::getEmployee),
-                        equal(Shift::getEndDateTime, Shift::getStartDateTime))
+                        equal(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
                 .filter((s1, s2) -> !Objects.equals(s1, s2))
                 .join(Shift.class,
                         equal((s1, s2) -> s2.getEmployee(), Shift::getEmployee),
-                        equal((s1, s2) -> s2.getEndDateTime(), Shift::getStartDateTime))
+                        equal((s1, s2) -> s2.getEndEpochMinute(), Shift::getStartEpochMinute))
                 .penalizeConfigurableLong(CONSTRAINT_NO_MORE_THAN_2_CONSECUTIVE_SHIFTS,
                         (s1, s2, s3) -> s3.getLengthInMinutes());
     }
@@ -143,72 +185,37 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
         return getAssignedShiftConstraintStream(constraintFactory)
                 .join(Shift.class,
                         equal(Shift::getEmployee),
-                        lessThan(Shift::getEndDateTime, Shift::getStartDateTime))
+                        lessThan(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
                 .filter((s1, s2) -> !Objects.equals(s1, s2))
-                .filter((s1, s2) -> s1.getEndDateTime().until(s2.getStartDateTime(), ChronoUnit.HOURS) < 10)
+                .filter((s1, s2) -> s2.getStartEpochMinute() - s1.getEndEpochMinute() < 10 * 60)
                 .penalizeConfigurableLong(CONSTRAINT_BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS, (s1, s2) -> {
-                    long breakLength = s1.getEndDateTime().until(s2.getStartDateTime(), ChronoUnit.MINUTES);
+                    long breakLength = s2.getStartEpochMinute() - s1.getEndEpochMinute();
                     return (10 * 60) - breakLength;
                 });
     }
 
-    Constraint dailyMinutesMustNotExceedContractMaximum(ConstraintFactory constraintFactory) {
-        return constraintFactory.from(Employee.class)
-                .filter(employee -> employee.getContract().getMaximumMinutesPerDay() != null)
-                .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
-                .groupBy((employee, shift) -> employee,
-                        (employee, shift) -> shift.getStartDateTime().toLocalDate(),
-                        sumDuration((employee, shift) -> between(shift.getStartDateTime(), shift.getEndDateTime())))
-                .filter((employee, firstDayOfWeek,
-                        totalWorkingTime) -> totalWorkingTime.toMinutes() > employee.getContract().getMaximumMinutesPerDay())
-                .penalizeConfigurableLong(CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
-                        (employee, firstDayOfWeek, totalWorkingTime) -> totalWorkingTime.toMinutes()
-                                - employee.getContract().getMaximumMinutesPerDay());
+    Constraint dailyMinutesMustNotExceedContractMaximum(
+            BiConstraintStream<Employee, ContractMinutes> contractMinutesStream) {
+        return getContractMinutesConstraint(contractMinutesStream, Period.DAILY,
+                CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM);
     }
 
-    Constraint weeklyMinutesMustNotExceedContractMaximum(ConstraintFactory constraintFactory) {
-        return constraintFactory.from(RosterConstraintConfiguration.class)
-                .join(Employee.class)
-                .filter((configuration, employee) -> employee.getContract().getMaximumMinutesPerWeek() != null)
-                .join(Shift.class, equal((configuration, employee) -> employee, Shift::getEmployee))
-                .groupBy((configuration, employee, shift) -> employee,
-                        (configuration, employee, shift) -> extractFirstDayOfWeek(configuration.getWeekStartDay(),
-                                shift.getStartDateTime()),
-                        sumDuration(
-                                (configuration, employee, shift) -> between(shift.getStartDateTime(), shift.getEndDateTime())))
-                .filter((employee, firstDayOfWeek,
-                        totalWorkingTime) -> totalWorkingTime.toMinutes() > employee.getContract().getMaximumMinutesPerWeek())
-                .penalizeConfigurableLong(CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
-                        (employee, firstDayOfWeek, totalWorkingTime) -> totalWorkingTime.toMinutes()
-                                - employee.getContract().getMaximumMinutesPerWeek());
-    }
-
-    Constraint monthlyMinutesMustNotExceedContractMaximum(ConstraintFactory constraintFactory) {
-        return constraintFactory.from(Employee.class)
-                .filter(employee -> employee.getContract().getMaximumMinutesPerMonth() != null)
-                .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
-                .groupBy((employee, shift) -> employee,
-                        (employee, shift) -> YearMonth.from(shift.getStartDateTime()),
-                        sumDuration((employee, shift) -> between(shift.getStartDateTime(), shift.getEndDateTime())))
-                .filter((employee, firstDayOfWeek,
-                        totalWorkingTime) -> totalWorkingTime.toMinutes() > employee.getContract().getMaximumMinutesPerMonth())
-                .penalizeConfigurableLong(CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
-                        (employee, firstDayOfWeek, totalWorkingTime) -> totalWorkingTime.toMinutes()
-                                - employee.getContract().getMaximumMinutesPerMonth());
-    }
-
-    Constraint yearlyMinutesMustNotExceedContractMaximum(ConstraintFactory constraintFactory) {
-        return constraintFactory.from(Employee.class)
-                .filter(employee -> employee.getContract().getMaximumMinutesPerYear() != null)
-                .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
-                .groupBy((employee, shift) -> employee,
-                        (employee, shift) -> shift.getStartDateTime().getYear(),
-                        sumDuration((employee, shift) -> between(shift.getStartDateTime(), shift.getEndDateTime())))
-                .filter((employee, firstDayOfWeek,
-                        totalWorkingTime) -> totalWorkingTime.toMinutes() > employee.getContract().getMaximumMinutesPerYear())
-                .penalizeConfigurableLong(CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
-                        (employee, firstDayOfWeek, totalWorkingTime) -> totalWorkingTime.toMinutes()
-                                - employee.getContract().getMaximumMinutesPerYear());
+    Constraint weeklyMinutesMustNotExceedContractMaximum(
+            BiConstraintStream<Employee, ContractMinutes> contractMinutesStream) {
+        return getContractMinutesConstraint(contractMinutesStream, Period.WEEKLY,
+                CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM);
+    }
+
+    Constraint monthlyMinutesMustNotExceedContractMaximum(
+            BiConstraintStream<Employee, ContractMinutes> contractMinutesStream) {
+        return getContractMinutesConstraint(contractMinutesStream, Period.MONTHLY,
+                CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM);
+    }
+
+    Constraint yearlyMinutesMustNotExceedContractMaximum(
+            BiConstraintStream<Employee, ContractMinutes> contractMinutesStream) {
+        return getContractMinutesConstraint(contractMinutesStream, Period.YEARLY,
+                CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM);
     }
 
     Constraint assignEveryShift(ConstraintFactory constraintFactory) {
@@ -227,13 +234,13 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
     Constraint undesiredEmployeeTimeSlot(ConstraintFactory constraintFactory) {
         return getConstraintStreamWithAvailabilityIntersections(constraintFactory, UNDESIRED)
                 .penalizeConfigurableLong(CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
-                        (employeeAvailability, shift) -> employeeAvailability.getDuration().toMinutes());
+                        (employeeAvailability, shift) -> employeeAvailability.getDurationInMinutes());
     }
 
     Constraint desiredEmployeeTimeSlot(ConstraintFactory constraintFactory) {
         return getConstraintStreamWithAvailabilityIntersections(constraintFactory, DESIRED)
                 .rewardConfigurableLong(CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
-                        (employeeAvailability, shift) -> employeeAvailability.getDuration().toMinutes());
+                        (employeeAvailability, shift) -> employeeAvailability.getDurationInMinutes());
     }
 
     Constraint employeeNotRotationEmployee(ConstraintFactory constraintFactory) {
@@ -241,4 +248,12 @@ public final class EmployeeRosteringConstraintProvider implements ConstraintProv
                 .filter(shift -> shift.getRotationEmployee() != null && shift.getRotationEmployee() != shift.getEmployee())
                 .penalizeConfigurableLong(CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE, Shift::getLengthInMinutes);
     }
+
+    Constraint balanceEmployeeHours(ConstraintFactory constraintFactory) {
+        return getAssignedShiftConstraintStream(constraintFactory)
+                .groupBy(Shift::getEmployee, sumLong(Shift::getLengthInMinutes))
+                .groupBy(sumLong((employee, workedMinutes) -> getSquaredWorkedHours(workedMinutes)))
+                .penalizeConfigurableLong(CONSTRAINT_BALANCE_EMPLOYEE_HOURS,
+                        EmployeeRosteringConstraintProvider::getLoadBalance);
+    }
 }
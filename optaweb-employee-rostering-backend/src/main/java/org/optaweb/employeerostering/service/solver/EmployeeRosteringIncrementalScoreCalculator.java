@@ -0,0 +1,666 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.solver;
+
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_ASSIGN_EVERY_SHIFT;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_BALANCE_EMPLOYEE_HOURS;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_EMPLOYEE_IS_NOT_ORIGINAL_EMPLOYEE;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_NO_MORE_THAN_2_CONSECUTIVE_SHIFTS;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_NO_OVERLAPPING_SHIFTS;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_REQUIRED_SKILL_FOR_A_SHIFT;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_UNAVAILABLE_TIME_SLOT_FOR_AN_EMPLOYEE;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider.getLoadBalance;
+import static org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider.getSquaredWorkedHours;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.calculator.ConstraintMatchAwareIncrementalScoreCalculator;
+import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
+import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaplanner.core.impl.score.constraint.DefaultConstraintMatchTotal;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+
+/**
+ * Hand-written alternative to {@link EmployeeRosteringConstraintProvider}.
+ * Keeps a sorted shift timeline and the worked minutes per period for every employee,
+ * so a move only re-evaluates the neighbourhood of the shifts it changes.
+ * <p>
+ * Designed to match the constraint provider exactly, including the constraint match justifications.
+ * Any score discrepancy between the two would be considered a bug.
+ */
+public final class EmployeeRosteringIncrementalScoreCalculator
+        implements ConstraintMatchAwareIncrementalScoreCalculator<Roster, HardMediumSoftLongScore> {
+
+    private static final String CONSTRAINT_PACKAGE = EmployeeRosteringIncrementalScoreCalculator.class
+            .getPackage().getName();
+
+    private static final int REQUIRED_SKILL = 0;
+    private static final int UNAVAILABLE_TIME_SLOT = 1;
+    private static final int NO_OVERLAPPING_SHIFTS = 2;
+    private static final int NO_MORE_THAN_2_CONSECUTIVE_SHIFTS = 3;
+    private static final int BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS = 4;
+    private static final int DAILY_MINUTES = 5;
+    private static final int WEEKLY_MINUTES = 6;
+    private static final int MONTHLY_MINUTES = 7;
+    private static final int YEARLY_MINUTES = 8;
+    private static final int ASSIGN_EVERY_SHIFT = 9;
+    private static final int NOT_ORIGINAL_EMPLOYEE = 10;
+    private static final int UNDESIRED_TIME_SLOT = 11;
+    private static final int DESIRED_TIME_SLOT = 12;
+    private static final int NOT_ROTATION_EMPLOYEE = 13;
+    private static final int BALANCE_EMPLOYEE_HOURS = 14;
+
+    private static final String[] CONSTRAINT_NAMES = {
+            CONSTRAINT_REQUIRED_SKILL_FOR_A_SHIFT,
+            CONSTRAINT_UNAVAILABLE_TIME_SLOT_FOR_AN_EMPLOYEE,
+            CONSTRAINT_NO_OVERLAPPING_SHIFTS,
+            CONSTRAINT_NO_MORE_THAN_2_CONSECUTIVE_SHIFTS,
+            CONSTRAINT_BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS,
+            CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_ASSIGN_EVERY_SHIFT,
+            CONSTRAINT_EMPLOYEE_IS_NOT_ORIGINAL_EMPLOYEE,
+            CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
+            CONSTRAINT_DESIRED_TIME_SLOT_FOR_AN_EMPLOYEE,
+            CONSTRAINT_EMPLOYEE_IS_NOT_ROTATION_EMPLOYEE,
+            CONSTRAINT_BALANCE_EMPLOYEE_HOURS
+    };
+
+    private static final long MINIMUM_BREAK_IN_MINUTES = 10 * 60;
+
+    private Roster workingSolution;
+    private HardMediumSoftLongScore[] constraintWeights;
+    private DayOfWeek weekStartDay;
+    // Bounds the range scans of the timelines; only grows, so it stays an upper bound however shifts change
+    private long maximumShiftLengthInMinutes;
+    private Map<Employee, EmployeeTimeline> employeeToTimelineMap;
+    // Sum of the squared worked hours of every employee, fed by the timelines.
+    private long squaredWorkedHoursSum;
+    // Sum of the match weights per constraint, indexed like CONSTRAINT_NAMES.
+    private long[] matchWeightTotals;
+
+    // ************************************************************************
+    // IncrementalScoreCalculator
+    // ************************************************************************
+
+    @Override
+    public void resetWorkingSolution(Roster workingSolution) {
+        this.workingSolution = workingSolution;
+        RosterConstraintConfiguration configuration = workingSolution.getRosterConstraintConfiguration();
+        constraintWeights = new HardMediumSoftLongScore[] {
+                configuration.getRequiredSkill(),
+                configuration.getUnavailableTimeSlot(),
+                configuration.getNoOverlappingShifts(),
+                configuration.getNoMoreThan2ConsecutiveShifts(),
+                configuration.getBreakBetweenNonConsecutiveShiftsAtLeast10Hours(),
+                configuration.getContractMaximumDailyMinutes(),
+                configuration.getContractMaximumWeeklyMinutes(),
+                configuration.getContractMaximumMonthlyMinutes(),
+                configuration.getContractMaximumYearlyMinutes(),
+                configuration.getAssignEveryShift(),
+                configuration.getNotOriginalEmployee(),
+                configuration.getUndesiredTimeSlot(),
+                configuration.getDesiredTimeSlot(),
+                configuration.getNotRotationEmployee(),
+                configuration.getBalanceEmployeeHours()
+        };
+        weekStartDay = configuration.getWeekStartDay();
+        matchWeightTotals = new long[CONSTRAINT_NAMES.length];
+
+        maximumShiftLengthInMinutes = 0L;
+        squaredWorkedHoursSum = 0L;
+        employeeToTimelineMap = new HashMap<>(workingSolution.getEmployeeList().size());
+        for (Employee employee : workingSolution.getEmployeeList()) {
+            employeeToTimelineMap.put(employee, new EmployeeTimeline(employee));
+        }
+        for (EmployeeAvailability employeeAvailability : workingSolution.getEmployeeAvailabilityList()) {
+            getTimeline(employeeAvailability.getEmployee()).employeeAvailabilityList.add(employeeAvailability);
+        }
+        for (Shift shift : workingSolution.getShiftList()) {
+            insert(shift);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Do nothing
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((Shift) entity);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((Shift) entity);
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((Shift) entity);
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        retract((Shift) entity);
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // Do nothing
+    }
+
+    @Override
+    public HardMediumSoftLongScore calculateScore(int initScore) {
+        matchWeightTotals[BALANCE_EMPLOYEE_HOURS] = getLoadBalance(squaredWorkedHoursSum);
+        long hardScore = 0L;
+        long mediumScore = 0L;
+        long softScore = 0L;
+        for (int i = 0; i < matchWeightTotals.length; i++) {
+            long signedMatchWeight = (i == DESIRED_TIME_SLOT) ? matchWeightTotals[i] : -matchWeightTotals[i];
+            hardScore += constraintWeights[i].getHardScore() * signedMatchWeight;
+            mediumScore += constraintWeights[i].getMediumScore() * signedMatchWeight;
+            softScore += constraintWeights[i].getSoftScore() * signedMatchWeight;
+        }
+        return HardMediumSoftLongScore.ofUninitialized(initScore, hardScore, mediumScore, softScore);
+    }
+
+    private EmployeeTimeline getTimeline(Employee employee) {
+        return employeeToTimelineMap.computeIfAbsent(employee, EmployeeTimeline::new);
+    }
+
+    private void insert(Shift shift) {
+        // Before it joins a timeline, so an added or changed shift longer than all others is not missed
+        maximumShiftLengthInMinutes = Math.max(maximumShiftLengthInMinutes, shift.getLengthInMinutes());
+        adjustShiftLocalConstraints(shift, 1);
+        if (shift.getEmployee() != null) {
+            getTimeline(shift.getEmployee()).insert(shift);
+        }
+    }
+
+    private void retract(Shift shift) {
+        if (shift.getEmployee() != null) {
+            getTimeline(shift.getEmployee()).retract(shift);
+        }
+        adjustShiftLocalConstraints(shift, -1);
+    }
+
+    private void adjustShiftLocalConstraints(Shift shift, int sign) {
+        Employee employee = shift.getEmployee();
+        if (employee == null) {
+            matchWeightTotals[ASSIGN_EVERY_SHIFT] += sign;
+            return;
+        }
+        long lengthInMinutes = shift.getLengthInMinutes();
+        if (!shift.hasRequiredSkills()) {
+            matchWeightTotals[REQUIRED_SKILL] += sign * lengthInMinutes;
+        }
+        if (isNotOriginalEmployee(shift)) {
+            matchWeightTotals[NOT_ORIGINAL_EMPLOYEE] += sign * lengthInMinutes;
+        }
+        if (isNotRotationEmployee(shift)) {
+            matchWeightTotals[NOT_ROTATION_EMPLOYEE] += sign * lengthInMinutes;
+        }
+    }
+
+    // ************************************************************************
+    // ConstraintMatchAwareIncrementalScoreCalculator
+    // ************************************************************************
+
+    @Override
+    public void resetWorkingSolution(Roster workingSolution, boolean constraintMatchEnabled) {
+        resetWorkingSolution(workingSolution);
+        // The constraint matches are calculated non-incrementally in getConstraintMatchTotals().
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<ConstraintMatchTotal<HardMediumSoftLongScore>> getConstraintMatchTotals() {
+        // Like the constraint provider, which disables a constraint with a zero weight, so it has no matches
+        // and no total; null for those constraints
+        DefaultConstraintMatchTotal<HardMediumSoftLongScore>[] constraintMatchTotals =
+                new DefaultConstraintMatchTotal[CONSTRAINT_NAMES.length];
+        List<ConstraintMatchTotal<HardMediumSoftLongScore>> constraintMatchTotalList =
+                new ArrayList<>(CONSTRAINT_NAMES.length);
+        for (int i = 0; i < CONSTRAINT_NAMES.length; i++) {
+            if (!constraintWeights[i].equals(HardMediumSoftLongScore.ZERO)) {
+                constraintMatchTotals[i] = new DefaultConstraintMatchTotal<>(CONSTRAINT_PACKAGE, CONSTRAINT_NAMES[i],
+                        constraintWeights[i]);
+                constraintMatchTotalList.add(constraintMatchTotals[i]);
+            }
+        }
+        ConstraintMatchCollector collector = (constraintIndex, matchWeight, justifications) -> {
+            if (constraintMatchTotals[constraintIndex] != null) {
+                constraintMatchTotals[constraintIndex].addConstraintMatch(Arrays.asList(justifications),
+                        getMatchScore(constraintIndex, matchWeight));
+            }
+        };
+
+        boolean anyShiftAssigned = false;
+        for (Shift shift : workingSolution.getShiftList()) {
+            if (shift.getEmployee() == null) {
+                collector.addMatch(ASSIGN_EVERY_SHIFT, 1L, shift);
+                continue;
+            }
+            anyShiftAssigned = true;
+            if (!shift.hasRequiredSkills()) {
+                collector.addMatch(REQUIRED_SKILL, shift.getLengthInMinutes(), shift);
+            }
+            if (isNotOriginalEmployee(shift)) {
+                collector.addMatch(NOT_ORIGINAL_EMPLOYEE, shift.getLengthInMinutes(), shift);
+            }
+            if (isNotRotationEmployee(shift)) {
+                collector.addMatch(NOT_ROTATION_EMPLOYEE, shift.getLengthInMinutes(), shift);
+            }
+        }
+        for (EmployeeTimeline timeline : employeeToTimelineMap.values()) {
+            timeline.collectConstraintMatches(collector);
+        }
+        // Like the constraint provider, which only matches once any shift is assigned
+        if (anyShiftAssigned) {
+            long loadBalance = getLoadBalance(squaredWorkedHoursSum);
+            collector.addMatch(BALANCE_EMPLOYEE_HOURS, loadBalance, loadBalance);
+        }
+        return Collections.unmodifiableList(constraintMatchTotalList);
+    }
+
+    @Override
+    public Map<Object, Indictment<HardMediumSoftLongScore>> getIndictmentMap() {
+        return null; // Calculate it non-incrementally from getConstraintMatchTotals()
+    }
+
+    private HardMediumSoftLongScore getMatchScore(int constraintIndex, long matchWeight) {
+        long signedMatchWeight = (constraintIndex == DESIRED_TIME_SLOT) ? matchWeight : -matchWeight;
+        HardMediumSoftLongScore constraintWeight = constraintWeights[constraintIndex];
+        return HardMediumSoftLongScore.of(constraintWeight.getHardScore() * signedMatchWeight,
+                constraintWeight.getMediumScore() * signedMatchWeight,
+                constraintWeight.getSoftScore() * signedMatchWeight);
+    }
+
+    @FunctionalInterface
+    private interface ConstraintMatchCollector {
+
+        void addMatch(int constraintIndex, long matchWeight, Object... justifications);
+
+    }
+
+    // ************************************************************************
+    // Shared predicates, kept identical to the constraint provider
+    // ************************************************************************
+
+    private static boolean isNotOriginalEmployee(Shift shift) {
+        return shift.getOriginalEmployee() != null && !Objects.equals(shift.getEmployee(), shift.getOriginalEmployee());
+    }
+
+    private static boolean isNotRotationEmployee(Shift shift) {
+        return shift.getRotationEmployee() != null && shift.getRotationEmployee() != shift.getEmployee();
+    }
+
+    private static boolean overlaps(long leftStartMinute, long leftEndMinute,
+            long rightStartMinute, long rightEndMinute) {
+        return leftStartMinute < rightEndMinute && leftEndMinute > rightStartMinute;
+    }
+
+    /**
+     * @return the match weight of "Break between non-consecutive shifts is at least 10 hours" if left is followed by
+     *         right with a too short break, otherwise 0
+     */
+    private static long getBreakPenalty(Shift left, Shift right) {
+        long breakLength = right.getStartEpochMinute() - left.getEndEpochMinute();
+        if (breakLength <= 0L || breakLength >= MINIMUM_BREAK_IN_MINUTES) {
+            return 0L;
+        }
+        return MINIMUM_BREAK_IN_MINUTES - breakLength;
+    }
+
+    private static long getExcessMinutes(long totalMinutes, Integer maximumMinutes) {
+        return (totalMinutes > maximumMinutes) ? totalMinutes - maximumMinutes : 0L;
+    }
+
+    // ************************************************************************
+    // Per employee state
+    // ************************************************************************
+
+    private final class EmployeeTimeline {
+
+        private final Employee employee;
+        private final List<EmployeeAvailability> employeeAvailabilityList = new ArrayList<>();
+        // Assigned shifts by epoch minute of their start, which is also the sorted timeline.
+        private final NavigableMap<Long, List<Shift>> startToShiftListMap = new TreeMap<>();
+        // Assigned shifts by epoch minute of their end.
+        private final Map<Long, List<Shift>> endToShiftListMap = new HashMap<>();
+        // Worked minutes per period, keyed by epoch day, first epoch day of the week, month index and year.
+        private final Map<Long, Long> dayToWorkedMinutesMap = new HashMap<>();
+        private final Map<Long, Long> weekToWorkedMinutesMap = new HashMap<>();
+        private final Map<Long, Long> monthToWorkedMinutesMap = new HashMap<>();
+        private final Map<Long, Long> yearToWorkedMinutesMap = new HashMap<>();
+        private long totalWorkedMinutes = 0L;
+
+        private EmployeeTimeline(Employee employee) {
+            this.employee = employee;
+            HistoricWorkedMinutes historicWorkedMinutes = employee.getHistoricWorkedMinutes();
+            if (historicWorkedMinutes != null) {
+                // Without a match: like the constraint provider, only the minutes that shifts add above them count
+                seedWorkedMinutes(dayToWorkedMinutesMap, historicWorkedMinutes.getDailyMinutesMap());
+                seedWorkedMinutes(weekToWorkedMinutesMap, historicWorkedMinutes.getWeeklyMinutesMap());
+                seedWorkedMinutes(monthToWorkedMinutesMap, historicWorkedMinutes.getMonthlyMinutesMap());
+                seedWorkedMinutes(yearToWorkedMinutesMap, historicWorkedMinutes.getYearlyMinutesMap());
+            }
+        }
+
+        private void seedWorkedMinutes(Map<Long, Long> periodToWorkedMinutesMap,
+                Map<Integer, Long> historicMinutesMap) {
+            for (Map.Entry<Integer, Long> entry : historicMinutesMap.entrySet()) {
+                periodToWorkedMinutesMap.put(entry.getKey().longValue(), entry.getValue());
+            }
+        }
+
+        private void insert(Shift shift) {
+            adjustPairwiseConstraints(shift, 1);
+            adjustWorkedMinutes(shift, 1);
+            adjustTotalWorkedMinutes(shift.getLengthInMinutes());
+            startToShiftListMap.computeIfAbsent(shift.getStartEpochMinute(), k -> new ArrayList<>(1)).add(shift);
+            endToShiftListMap.computeIfAbsent(shift.getEndEpochMinute(), k -> new ArrayList<>(1)).add(shift);
+        }
+
+        private void retract(Shift shift) {
+            removeFrom(startToShiftListMap, shift.getStartEpochMinute(), shift);
+            removeFrom(endToShiftListMap, shift.getEndEpochMinute(), shift);
+            adjustTotalWorkedMinutes(-shift.getLengthInMinutes());
+            adjustWorkedMinutes(shift, -1);
+            adjustPairwiseConstraints(shift, -1);
+        }
+
+        private void adjustTotalWorkedMinutes(long deltaMinutes) {
+            squaredWorkedHoursSum -= getSquaredWorkedHours(totalWorkedMinutes);
+            totalWorkedMinutes += deltaMinutes;
+            squaredWorkedHoursSum += getSquaredWorkedHours(totalWorkedMinutes);
+        }
+
+        private void removeFrom(Map<Long, List<Shift>> map, long key, Shift shift) {
+            List<Shift> shiftList = map.get(key);
+            if (shiftList == null || !shiftList.remove(shift)) {
+                throw new IllegalStateException("The shift (" + shift + ") was not in the timeline of employee ("
+                        + employee + ").");
+            }
+            if (shiftList.isEmpty()) {
+                map.remove(key);
+            }
+        }
+
+        /**
+         * Adds or removes every match that involves the given shift together with shifts already in the timeline
+         * or with the employee's availabilities.
+         * Must be called while the given shift itself is not in the timeline.
+         */
+        private void adjustPairwiseConstraints(Shift shift, int sign) {
+            long lengthInMinutes = shift.getLengthInMinutes();
+            long start = shift.getStartEpochMinute();
+            long end = shift.getEndEpochMinute();
+
+            for (EmployeeAvailability employeeAvailability : employeeAvailabilityList) {
+                if (!overlaps(employeeAvailability.getStartEpochMinute(), employeeAvailability.getEndEpochMinute(),
+                        start, end)) {
+                    continue;
+                }
+                switch (employeeAvailability.getState()) {
+                    case UNAVAILABLE:
+                        matchWeightTotals[UNAVAILABLE_TIME_SLOT] += sign * lengthInMinutes;
+                        break;
+                    case UNDESIRED:
+                        matchWeightTotals[UNDESIRED_TIME_SLOT] += sign * employeeAvailability.getDurationInMinutes();
+                        break;
+                    case DESIRED:
+                        matchWeightTotals[DESIRED_TIME_SLOT] += sign * employeeAvailability.getDurationInMinutes();
+                        break;
+                    default:
+                        throw new IllegalStateException("The employeeAvailabilityState ("
+                                + employeeAvailability.getState() + ") is not implemented.");
+                }
+            }
+
+            // Both (shift, other) and (other, shift) match, each penalized by the length of its second shift.
+            for (List<Shift> otherList : startToShiftListMap
+                    .subMap(start - maximumShiftLengthInMinutes, true, end, true).values()) {
+                for (Shift other : otherList) {
+                    if (overlaps(start, end, other.getStartEpochMinute(), other.getEndEpochMinute())) {
+                        matchWeightTotals[NO_OVERLAPPING_SHIFTS] += sign * (other.getLengthInMinutes() + lengthInMinutes);
+                    }
+                }
+            }
+
+            long breakPenalty = 0L;
+            for (List<Shift> otherList : startToShiftListMap
+                    .subMap(end, true, end + MINIMUM_BREAK_IN_MINUTES, true).values()) {
+                for (Shift other : otherList) {
+                    breakPenalty += getBreakPenalty(shift, other);
+                }
+            }
+            for (List<Shift> otherList : startToShiftListMap
+                    .subMap(start - MINIMUM_BREAK_IN_MINUTES - maximumShiftLengthInMinutes, true, start, true)
+                    .values()) {
+                for (Shift other : otherList) {
+                    breakPenalty += getBreakPenalty(other, shift);
+                }
+            }
+            matchWeightTotals[BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS] += sign * breakPenalty;
+
+            long consecutivePenalty = 0L;
+            // The shift is the first of three consecutive shifts.
+            for (Shift second : getShiftsStartingAt(end)) {
+                for (Shift third : getShiftsStartingAt(second.getEndEpochMinute())) {
+                    consecutivePenalty += third.getLengthInMinutes();
+                }
+            }
+            // The shift is the second of three consecutive shifts.
+            int precedingCount = getShiftsEndingAt(start).size();
+            if (precedingCount > 0) {
+                for (Shift third : getShiftsStartingAt(end)) {
+                    consecutivePenalty += precedingCount * third.getLengthInMinutes();
+                }
+            }
+            // The shift is the last of three consecutive shifts.
+            for (Shift second : getShiftsEndingAt(start)) {
+                consecutivePenalty += getShiftsEndingAt(second.getStartEpochMinute()).size() * lengthInMinutes;
+            }
+            matchWeightTotals[NO_MORE_THAN_2_CONSECUTIVE_SHIFTS] += sign * consecutivePenalty;
+        }
+
+        private List<Shift> getShiftsStartingAt(long epochMinute) {
+            return startToShiftListMap.getOrDefault(epochMinute, Collections.emptyList());
+        }
+
+        private List<Shift> getShiftsEndingAt(long epochMinute) {
+            return endToShiftListMap.getOrDefault(epochMinute, Collections.emptyList());
+        }
+
+        private void adjustWorkedMinutes(Shift shift, int sign) {
+            Contract contract = employee.getContract();
+            long lengthInMinutes = sign * shift.getLengthInMinutes();
+            LocalDate startDate = shift.getStartDateTime().toLocalDate();
+            if (contract.getMaximumMinutesPerDay() != null) {
+                adjustWorkedMinutes(DAILY_MINUTES, dayToWorkedMinutesMap, startDate.toEpochDay(),
+                        lengthInMinutes, contract.getMaximumMinutesPerDay());
+            }
+            if (contract.getMaximumMinutesPerWeek() != null) {
+                adjustWorkedMinutes(WEEKLY_MINUTES, weekToWorkedMinutesMap, getFirstEpochDayOfWeek(startDate),
+                        lengthInMinutes, contract.getMaximumMinutesPerWeek());
+            }
+            if (contract.getMaximumMinutesPerMonth() != null) {
+                adjustWorkedMinutes(MONTHLY_MINUTES, monthToWorkedMinutesMap,
+                        startDate.getYear() * 12L + startDate.getMonthValue() - 1,
+                        lengthInMinutes, contract.getMaximumMinutesPerMonth());
+            }
+            if (contract.getMaximumMinutesPerYear() != null) {
+                adjustWorkedMinutes(YEARLY_MINUTES, yearToWorkedMinutesMap, startDate.getYear(),
+                        lengthInMinutes, contract.getMaximumMinutesPerYear());
+            }
+        }
+
+        private void adjustWorkedMinutes(int constraintIndex, Map<Long, Long> periodToWorkedMinutesMap, long period,
+                long deltaMinutes, Integer maximumMinutes) {
+            long oldTotal = periodToWorkedMinutesMap.getOrDefault(period, 0L);
+            long newTotal = oldTotal + deltaMinutes;
+            if (newTotal == 0L) {
+                periodToWorkedMinutesMap.remove(period);
+            } else {
+                periodToWorkedMinutesMap.put(period, newTotal);
+            }
+            matchWeightTotals[constraintIndex] += getExcessMinutes(newTotal, maximumMinutes)
+                    - getExcessMinutes(oldTotal, maximumMinutes);
+        }
+
+        private long getFirstEpochDayOfWeek(LocalDate date) {
+            int daysSinceWeekStart = (date.getDayOfWeek().getValue() - weekStartDay.getValue() + 7) % 7;
+            return date.toEpochDay() - daysSinceWeekStart;
+        }
+
+        private void collectConstraintMatches(ConstraintMatchCollector collector) {
+            for (List<Shift> shiftList : startToShiftListMap.values()) {
+                for (Shift shift : shiftList) {
+                    collectConstraintMatches(collector, shift);
+                }
+            }
+            Contract contract = employee.getContract();
+            HistoricWorkedMinutes historicWorkedMinutes = employee.getHistoricWorkedMinutes();
+            collectContractMatches(collector, DAILY_MINUTES, dayToWorkedMinutesMap,
+                    historicWorkedMinutes == null ? null : historicWorkedMinutes.getDailyMinutesMap(),
+                    contract.getMaximumMinutesPerDay());
+            collectContractMatches(collector, WEEKLY_MINUTES, weekToWorkedMinutesMap,
+                    historicWorkedMinutes == null ? null : historicWorkedMinutes.getWeeklyMinutesMap(),
+                    contract.getMaximumMinutesPerWeek());
+            collectContractMatches(collector, MONTHLY_MINUTES, monthToWorkedMinutesMap,
+                    historicWorkedMinutes == null ? null : historicWorkedMinutes.getMonthlyMinutesMap(),
+                    contract.getMaximumMinutesPerMonth());
+            collectContractMatches(collector, YEARLY_MINUTES, yearToWorkedMinutesMap,
+                    historicWorkedMinutes == null ? null : historicWorkedMinutes.getYearlyMinutesMap(),
+                    contract.getMaximumMinutesPerYear());
+        }
+
+        private void collectConstraintMatches(ConstraintMatchCollector collector, Shift shift) {
+            long start = shift.getStartEpochMinute();
+            long end = shift.getEndEpochMinute();
+            for (EmployeeAvailability employeeAvailability : employeeAvailabilityList) {
+                if (!overlaps(employeeAvailability.getStartEpochMinute(), employeeAvailability.getEndEpochMinute(),
+                        start, end)) {
+                    continue;
+                }
+                switch (employeeAvailability.getState()) {
+                    case UNAVAILABLE:
+                        collector.addMatch(UNAVAILABLE_TIME_SLOT, shift.getLengthInMinutes(),
+                                employeeAvailability, shift);
+                        break;
+                    case UNDESIRED:
+                        collector.addMatch(UNDESIRED_TIME_SLOT, employeeAvailability.getDurationInMinutes(),
+                                employeeAvailability, shift);
+                        break;
+                    case DESIRED:
+                        collector.addMatch(DESIRED_TIME_SLOT, employeeAvailability.getDurationInMinutes(),
+                                employeeAvailability, shift);
+                        break;
+                    default:
+                        throw new IllegalStateException("The employeeAvailabilityState ("
+                                + employeeAvailability.getState() + ") is not implemented.");
+                }
+            }
+            for (List<Shift> otherList : startToShiftListMap.values()) {
+                for (Shift other : otherList) {
+                    if (other == shift) {
+                        continue;
+                    }
+                    if (overlaps(start, end, other.getStartEpochMinute(), other.getEndEpochMinute())) {
+                        collector.addMatch(NO_OVERLAPPING_SHIFTS, other.getLengthInMinutes(), shift, other);
+                    }
+                    long breakPenalty = getBreakPenalty(shift, other);
+                    if (breakPenalty != 0L) {
+                        collector.addMatch(BREAK_BETWEEN_NON_CONSECUTIVE_SHIFTS, breakPenalty, shift, other);
+                    }
+                }
+            }
+            for (Shift second : getShiftsStartingAt(end)) {
+                for (Shift third : getShiftsStartingAt(second.getEndEpochMinute())) {
+                    collector.addMatch(NO_MORE_THAN_2_CONSECUTIVE_SHIFTS, third.getLengthInMinutes(),
+                            shift, second, third);
+                }
+            }
+        }
+
+        private void collectContractMatches(ConstraintMatchCollector collector, int constraintIndex,
+                Map<Long, Long> periodToWorkedMinutesMap, Map<Integer, Long> historicMinutesMap,
+                Integer maximumMinutes) {
+            if (maximumMinutes == null) {
+                return;
+            }
+            for (Map.Entry<Long, Long> entry : periodToWorkedMinutesMap.entrySet()) {
+                long historicMinutes = (historicMinutesMap == null) ? 0L
+                        : historicMinutesMap.getOrDefault(entry.getKey().intValue(), 0L);
+                long excessMinutes = getExcessMinutes(entry.getValue(), maximumMinutes)
+                        - getExcessMinutes(historicMinutes, maximumMinutes);
+                if (excessMinutes != 0L) {
+                    // Justified by employee, period and total minutes, as IndictmentUtils expects.
+                    collector.addMatch(constraintIndex, excessMinutes, employee,
+                            toPeriodJustification(constraintIndex, entry.getKey()), entry.getValue());
+                }
+            }
+        }
+
+        private Object toPeriodJustification(int constraintIndex, long period) {
+            switch (constraintIndex) {
+                case DAILY_MINUTES:
+                case WEEKLY_MINUTES:
+                    return LocalDate.ofEpochDay(period);
+                case MONTHLY_MINUTES:
+                    return YearMonth.of((int) (period / 12), (int) (period % 12) + 1);
+                case YEARLY_MINUTES:
+                    return (int) period;
+                default:
+                    throw new IllegalArgumentException("The constraintIndex (" + constraintIndex
+                            + ") is not a contract constraint.");
+            }
+        }
+    }
+}
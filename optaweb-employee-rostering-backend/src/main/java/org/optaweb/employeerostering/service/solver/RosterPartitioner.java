@@ -0,0 +1,154 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.solver;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partition.SolutionPartitioner;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.PinningShiftFilter;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+
+/**
+ * Splits the movable shifts of a roster into parts that are solved in parallel.
+ * <p>
+ * Shifts are first grouped by the required skills of their spot, because spots with the same required skills
+ * draw from the same employees, and then by window of {@link #setWindowLengthInDays(int) windowLengthInDays}
+ * since the first draft date. Those cells are then merged into at most {@link #setPartCount(Integer) partCount}
+ * parts of about the same number of shifts, keeping consecutive windows of the same spots together.
+ * <p>
+ * A part does not see the shifts of the other parts, so the phase after the partitioned search must be a
+ * local search on the whole roster, to fix the constraints between parts, such as consecutive shifts and weekly
+ * minutes.
+ */
+public class RosterPartitioner implements SolutionPartitioner<Roster> {
+
+    public static final int DEFAULT_WINDOW_LENGTH_IN_DAYS = 7;
+
+    private final PinningShiftFilter pinningShiftFilter = new PinningShiftFilter();
+
+    // Null to create as many parts as can run at the same time
+    private Integer partCount = null;
+    private int windowLengthInDays = DEFAULT_WINDOW_LENGTH_IN_DAYS;
+
+    @SuppressWarnings("unused")
+    public void setPartCount(Integer partCount) {
+        this.partCount = partCount;
+    }
+
+    public void setWindowLengthInDays(int windowLengthInDays) {
+        this.windowLengthInDays = windowLengthInDays;
+    }
+
+    @Override
+    public List<Roster> splitWorkingSolution(ScoreDirector<Roster> scoreDirector, Integer runnablePartThreadLimit) {
+        int resolvedPartCount;
+        if (partCount != null) {
+            resolvedPartCount = partCount;
+        } else if (runnablePartThreadLimit != null) {
+            // More parts than threads would leave parts waiting until the others terminate
+            resolvedPartCount = runnablePartThreadLimit;
+        } else {
+            resolvedPartCount = Runtime.getRuntime().availableProcessors();
+        }
+        return splitRoster(scoreDirector.getWorkingSolution(), resolvedPartCount);
+    }
+
+    /**
+     * @param roster never null
+     * @param partCount at least 1
+     * @return never null, at least 1 and at most partCount rosters that share the problem facts of the roster,
+     *         each with copies of its own shifts
+     */
+    public List<Roster> splitRoster(Roster roster, int partCount) {
+        if (partCount < 1) {
+            throw new IllegalArgumentException("The partCount (" + partCount + ") must be at least 1.");
+        }
+        if (windowLengthInDays < 1) {
+            throw new IllegalArgumentException("The windowLengthInDays (" + windowLengthInDays
+                    + ") must be at least 1.");
+        }
+        ZoneId zoneId = roster.getRosterState().getTimeZone();
+        LocalDate firstDraftDate = roster.getRosterState().getFirstDraftDate();
+        // Cells by spot group and then by window, both in the order they are first seen
+        Map<Set<Skill>, Map<Long, List<Shift>>> cellMap = new LinkedHashMap<>();
+        int movableShiftCount = 0;
+        for (Shift shift : roster.getShiftList()) {
+            if (!pinningShiftFilter.accept(roster, shift)) {
+                long window = Math.floorDiv(ChronoUnit.DAYS.between(firstDraftDate,
+                        shift.getStartDateTime().atZoneSameInstant(zoneId).toLocalDate()), windowLengthInDays);
+                cellMap.computeIfAbsent(shift.getSpot().getRequiredSkillSet(), spotGroup -> new TreeMap<>())
+                        .computeIfAbsent(window, w -> new ArrayList<>())
+                        .add(shift);
+                movableShiftCount++;
+            }
+        }
+        if (movableShiftCount == 0) {
+            // Partitioned search needs at least 1 part, so the whole roster is 1 part with nothing to solve
+            List<Shift> partShiftList = new ArrayList<>(roster.getShiftList().size());
+            for (Shift shift : roster.getShiftList()) {
+                partShiftList.add(new Shift(shift));
+            }
+            return Collections.singletonList(createPart(roster, partShiftList));
+        }
+
+        List<Roster> partList = new ArrayList<>(partCount);
+        // Fill a part up to its share of the shifts that are not in a part yet, so no part ends up empty or huge
+        List<Shift> partShiftList = new ArrayList<>();
+        int remainingShiftCount = movableShiftCount;
+        for (Map<Long, List<Shift>> windowMap : cellMap.values()) {
+            for (List<Shift> cellShiftList : windowMap.values()) {
+                int remainingPartCount = partCount - partList.size();
+                int partShareCount = remainingShiftCount / remainingPartCount;
+                if (!partShiftList.isEmpty() && remainingPartCount > 1
+                        && partShiftList.size() + cellShiftList.size() / 2 >= partShareCount) {
+                    remainingShiftCount -= partShiftList.size();
+                    partList.add(createPart(roster, partShiftList));
+                    partShiftList = new ArrayList<>();
+                }
+                for (Shift shift : cellShiftList) {
+                    partShiftList.add(new Shift(shift));
+                }
+            }
+        }
+        if (!partShiftList.isEmpty()) {
+            partList.add(createPart(roster, partShiftList));
+        }
+        return partList;
+    }
+
+    private Roster createPart(Roster roster, List<Shift> partShiftList) {
+        Roster part = new Roster(roster.getId(), roster.getTenantId(), roster.getRosterConstraintConfiguration(),
+                roster.getSkillList(), roster.getSpotList(), roster.getEmployeeList(),
+                roster.getEmployeeAvailabilityList(), roster.getRosterState(), partShiftList,
+                roster.isNondisruptivePlanning(), roster.getNondisruptiveReplanFrom());
+        part.setHistoricWorkedMinutesList(roster.getHistoricWorkedMinutesList());
+        part.setReplanShiftIdSet(roster.getReplanShiftIdSet());
+        return part;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.solver;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+import org.optaweb.employeerostering.domain.roster.MoveThreadSizing;
+import org.optaweb.employeerostering.domain.roster.Roster;
+
+/**
+ * Sizes the move threads of a solver to the roster it solves and the solvers already running,
+ * so one big tenant can use the idle processors, without starving the other tenants that solve at the same time.
+ * Tenants that opt in to partitioned search use those processors for parts instead of move threads.
+ */
+@ApplicationScoped
+public class RosterSolverConfigFactory {
+
+    // Below this many shifts times employees per move thread, handing moves to another thread costs more than it gains
+    public static final long MINIMUM_PROBLEM_SCALE_PER_MOVE_THREAD = 20_000L;
+    // A step discards the moves that were evaluated in advance, so a roster with slow moves gets a smaller buffer
+    public static final long LARGE_PROBLEM_SCALE = 500_000L;
+    public static final int DEFAULT_MOVE_THREAD_BUFFER_SIZE = 10;
+    public static final int LARGE_PROBLEM_MOVE_THREAD_BUFFER_SIZE = 4;
+    // A part stops once it no longer improves, so the local search on the whole roster gets the rest of the time
+    public static final long PART_UNIMPROVED_SECONDS_SPENT_LIMIT = 30L;
+    // A neighbourhood replan is small, so it stops by itself once it no longer improves
+    public static final long NEIGHBOURHOOD_REPLAN_UNIMPROVED_SECONDS_SPENT_LIMIT = 5L;
+
+    private final SolverConfig solverConfig;
+    private final int availableProcessorCount;
+
+    @Inject
+    public RosterSolverConfigFactory(SolverConfig solverConfig) {
+        this(solverConfig, Runtime.getRuntime().availableProcessors());
+    }
+
+    public RosterSolverConfigFactory(SolverConfig solverConfig, int availableProcessorCount) {
+        this.solverConfig = solverConfig;
+        this.availableProcessorCount = availableProcessorCount;
+    }
+
+    /**
+     * @param shiftCount at least 0
+     * @param employeeCount at least 0
+     * @param concurrentSolverCount at least 1, the number of solvers that run at the same time, including this one
+     * @return never null
+     */
+    public MoveThreadSizing sizeMoveThreads(long shiftCount, long employeeCount, int concurrentSolverCount) {
+        return sizeMoveThreads(shiftCount, employeeCount, concurrentSolverCount, false);
+    }
+
+    /**
+     * @param shiftCount at least 0
+     * @param employeeCount at least 0
+     * @param concurrentSolverCount at least 1, the number of solvers that run at the same time, including this one
+     * @param partitionedSearch true to solve parts of the roster in parallel instead of using move threads
+     * @return never null
+     */
+    public MoveThreadSizing sizeMoveThreads(long shiftCount, long employeeCount, int concurrentSolverCount,
+            boolean partitionedSearch) {
+        if (concurrentSolverCount < 1) {
+            throw new IllegalArgumentException("The concurrentSolverCount (" + concurrentSolverCount
+                    + ") must be at least 1.");
+        }
+        long problemScale = shiftCount * employeeCount;
+        if (partitionedSearch) {
+            // The solver thread waits while the parts solve, so the parts get all of its share of the processors
+            int runnablePartThreadLimit = Math.max(1, availableProcessorCount / concurrentSolverCount);
+            return new MoveThreadSizing(null, null, runnablePartThreadLimit, problemScale, concurrentSolverCount,
+                    availableProcessorCount);
+        }
+        // The solver thread itself takes a processor too
+        long processorMoveThreadCount = availableProcessorCount / concurrentSolverCount - 1;
+        long scaleMoveThreadCount = problemScale / MINIMUM_PROBLEM_SCALE_PER_MOVE_THREAD;
+        int moveThreadCount = (int) Math.min(processorMoveThreadCount, scaleMoveThreadCount);
+        // A single move thread only adds the hand-off to the solver thread
+        if (moveThreadCount < 2) {
+            return new MoveThreadSizing(null, null, problemScale, concurrentSolverCount, availableProcessorCount);
+        }
+        int moveThreadBufferSize = (problemScale >= LARGE_PROBLEM_SCALE) ? LARGE_PROBLEM_MOVE_THREAD_BUFFER_SIZE
+                : DEFAULT_MOVE_THREAD_BUFFER_SIZE;
+        return new MoveThreadSizing(moveThreadCount, moveThreadBufferSize, problemScale, concurrentSolverCount,
+                availableProcessorCount);
+    }
+
+    /**
+     * @param moveThreadSizing never null
+     * @return never null, a copy of the configured solver config
+     */
+    public SolverConfig buildSolverConfig(MoveThreadSizing moveThreadSizing) {
+        SolverConfig sizedSolverConfig = solverConfig.copyConfig();
+        if (moveThreadSizing.isMultithreaded()) {
+            sizedSolverConfig.setMoveThreadCount(moveThreadSizing.getMoveThreadCount().toString());
+            sizedSolverConfig.setMoveThreadBufferSize(moveThreadSizing.getMoveThreadBufferSize());
+        } else {
+            sizedSolverConfig.setMoveThreadCount(SolverConfig.MOVE_THREAD_COUNT_NONE);
+            sizedSolverConfig.setMoveThreadBufferSize(null);
+        }
+        if (moveThreadSizing.isPartitioned()) {
+            sizedSolverConfig.setPhaseConfigList(Arrays.asList(
+                    buildPartitionedSearchPhaseConfig(moveThreadSizing.getRunnablePartThreadLimit()),
+                    new LocalSearchPhaseConfig()));
+        }
+        return sizedSolverConfig;
+    }
+
+    /**
+     * @param moveThreadSizing never null, not partitioned
+     * @return never null, a copy of the configured solver config that terminates once it no longer improves
+     */
+    public SolverConfig buildNeighbourhoodReplanSolverConfig(MoveThreadSizing moveThreadSizing) {
+        if (moveThreadSizing.isPartitioned()) {
+            throw new IllegalArgumentException("A neighbourhood replan does not support partitioned search ("
+                    + moveThreadSizing + ").");
+        }
+        SolverConfig sizedSolverConfig = buildSolverConfig(moveThreadSizing);
+        sizedSolverConfig.setTerminationConfig(new TerminationConfig()
+                .withUnimprovedSecondsSpentLimit(NEIGHBOURHOOD_REPLAN_UNIMPROVED_SECONDS_SPENT_LIMIT));
+        return sizedSolverConfig;
+    }
+
+    private PartitionedSearchPhaseConfig buildPartitionedSearchPhaseConfig(int runnablePartThreadLimit) {
+        LocalSearchPhaseConfig partLocalSearchPhaseConfig = new LocalSearchPhaseConfig();
+        partLocalSearchPhaseConfig.setTerminationConfig(new TerminationConfig()
+                .withUnimprovedSecondsSpentLimit(PART_UNIMPROVED_SECONDS_SPENT_LIMIT));
+        PartitionedSearchPhaseConfig partitionedSearchPhaseConfig = new PartitionedSearchPhaseConfig();
+        partitionedSearchPhaseConfig.setSolutionPartitionerClass(RosterPartitioner.class);
+        partitionedSearchPhaseConfig.setRunnablePartThreadLimit(Integer.toString(runnablePartThreadLimit));
+        CustomPhaseConfig partWarmStartPhaseConfig = new CustomPhaseConfig();
+        partWarmStartPhaseConfig.setCustomPhaseCommandClassList(
+                Collections.singletonList(RotationWarmStartPhaseCommand.class));
+        partitionedSearchPhaseConfig.setPhaseConfigList(Arrays.asList(partWarmStartPhaseConfig,
+                new ConstructionHeuristicPhaseConfig(), partLocalSearchPhaseConfig));
+        return partitionedSearchPhaseConfig;
+    }
+
+    /**
+     * @return never null, scores like the solvers do, expensive to build, so the caller should keep it
+     */
+    @SuppressWarnings("unchecked")
+    public InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> buildScoreDirectorFactory() {
+        DefaultSolverFactory<Roster> solverFactory = (DefaultSolverFactory<Roster>) SolverFactory
+                .<Roster> create(solverConfig);
+        return (InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore>) solverFactory.getScoreDirectorFactory();
+    }
+}
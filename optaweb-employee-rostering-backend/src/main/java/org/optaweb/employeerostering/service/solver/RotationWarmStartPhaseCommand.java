@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.service.solver;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.PinningShiftFilter;
+import org.optaweb.employeerostering.domain.shift.Shift;
+
+/**
+ * Warm starts the construction of a roster from its rotation: every unassigned draft shift first gets its rotation
+ * employee, else the employee of the same seat one rotation earlier, as long as that employee can take the shift.
+ * The construction heuristic that follows only assigns the shifts this leaves unassigned.
+ * <p>
+ * An employee can take a shift if it has the required skills of the shift, is not unavailable during it,
+ * has no other shift within 10 hours of it and stays within the contract maximum minutes.
+ * That covers all hard constraints, except that it never makes consecutive shifts, so it never makes more
+ * than 2 of them either. It does not rely on the eligible employees of the shift, which need not exclude the others.
+ */
+public class RotationWarmStartPhaseCommand implements CustomPhaseCommand<Roster> {
+
+    private static final long MINIMUM_BREAK_IN_MINUTES = 10 * 60;
+
+    private final PinningShiftFilter pinningShiftFilter = new PinningShiftFilter();
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector<Roster> scoreDirector) {
+        Roster roster = scoreDirector.getWorkingSolution();
+        ZoneId zoneId = roster.getRosterState().getTimeZone();
+        int rotationLength = roster.getRosterState().getRotationLength();
+        DayOfWeek weekStartDay = roster.getRosterConstraintConfiguration().getWeekStartDay();
+
+        // Shifts of the same seat share the spot, the rotation employee and the start time in the rotation
+        Map<List<Object>, Shift> seatShiftMap = new HashMap<>(roster.getShiftList().size());
+        Map<Employee, EmployeeLoad> employeeLoadMap = new HashMap<>(roster.getEmployeeList().size());
+        for (EmployeeAvailability employeeAvailability : roster.getEmployeeAvailabilityList()) {
+            if (employeeAvailability.getState() == EmployeeAvailabilityState.UNAVAILABLE) {
+                employeeLoadMap.computeIfAbsent(employeeAvailability.getEmployee(), EmployeeLoad::new)
+                        .addUnavailability(employeeAvailability);
+            }
+        }
+        List<Shift> unassignedShiftList = new ArrayList<>();
+        for (Shift shift : roster.getShiftList()) {
+            seatShiftMap.putIfAbsent(getSeatKey(shift, shift.getStartDateTime().atZoneSameInstant(zoneId)
+                    .toLocalDateTime()), shift);
+            if (shift.getEmployee() != null) {
+                employeeLoadMap.computeIfAbsent(shift.getEmployee(), EmployeeLoad::new).add(shift, weekStartDay);
+            } else if (!pinningShiftFilter.accept(roster, shift)) {
+                unassignedShiftList.add(shift);
+            }
+        }
+        // Earlier shifts first, so a seat can follow an assignment made earlier in this phase
+        unassignedShiftList.sort(Comparator.comparingLong(Shift::getStartEpochMinute));
+
+        for (Shift shift : unassignedShiftList) {
+            Employee employee = shift.getRotationEmployee();
+            if (employee == null || !canTake(employee, shift, employeeLoadMap, weekStartDay)) {
+                LocalDateTime previousCycleStartDateTime = shift.getStartDateTime().atZoneSameInstant(zoneId)
+                        .toLocalDateTime().minusDays(rotationLength);
+                Shift previousCycleShift = seatShiftMap.get(getSeatKey(shift, previousCycleStartDateTime));
+                employee = (previousCycleShift == null) ? null : previousCycleShift.getEmployee();
+                if (employee == null || !canTake(employee, shift, employeeLoadMap, weekStartDay)) {
+                    continue;
+                }
+            }
+            scoreDirector.beforeVariableChanged(shift, "employee");
+            shift.setEmployee(employee);
+            scoreDirector.afterVariableChanged(shift, "employee");
+            scoreDirector.triggerVariableListeners();
+            employeeLoadMap.computeIfAbsent(employee, EmployeeLoad::new).add(shift, weekStartDay);
+        }
+    }
+
+    private static List<Object> getSeatKey(Shift shift, LocalDateTime startDateTime) {
+        return Arrays.asList(shift.getSpot(), shift.getRotationEmployee(), startDateTime);
+    }
+
+    private static boolean canTake(Employee employee, Shift shift, Map<Employee, EmployeeLoad> employeeLoadMap,
+            DayOfWeek weekStartDay) {
+        if (!shift.hasRequiredSkills(employee)) {
+            return false;
+        }
+        return employeeLoadMap.computeIfAbsent(employee, EmployeeLoad::new).canTake(shift, weekStartDay);
+    }
+
+    /**
+     * The shifts and unavailabilities of one employee and its worked minutes per contract period,
+     * including its archived shifts, with the periods of {@link ContractMinutesCollector}.
+     */
+    private static final class EmployeeLoad {
+
+        private final Contract contract;
+        // The latest end of the shifts by start, both in epoch minutes
+        private final TreeMap<Long, Long> startToEndMap = new TreeMap<>();
+        private long maximumShiftLength = 0L;
+        // The latest end of the unavailabilities by start, both in epoch minutes
+        private final TreeMap<Long, Long> unavailableStartToEndMap = new TreeMap<>();
+        private long maximumUnavailabilityLength = 0L;
+        private final Map<Integer, Long> dailyMinutesMap = new HashMap<>();
+        private final Map<Integer, Long> weeklyMinutesMap = new HashMap<>();
+        private final Map<Integer, Long> monthlyMinutesMap = new HashMap<>();
+        private final Map<Integer, Long> yearlyMinutesMap = new HashMap<>();
+
+        private EmployeeLoad(Employee employee) {
+            contract = employee.getContract();
+            HistoricWorkedMinutes historicWorkedMinutes = employee.getHistoricWorkedMinutes();
+            if (historicWorkedMinutes != null) {
+                dailyMinutesMap.putAll(historicWorkedMinutes.getDailyMinutesMap());
+                weeklyMinutesMap.putAll(historicWorkedMinutes.getWeeklyMinutesMap());
+                monthlyMinutesMap.putAll(historicWorkedMinutes.getMonthlyMinutesMap());
+                yearlyMinutesMap.putAll(historicWorkedMinutes.getYearlyMinutesMap());
+            }
+        }
+
+        private void add(Shift shift, DayOfWeek weekStartDay) {
+            startToEndMap.merge(shift.getStartEpochMinute(), shift.getEndEpochMinute(), Math::max);
+            maximumShiftLength = Math.max(maximumShiftLength, shift.getLengthInMinutes());
+            long lengthInMinutes = shift.getLengthInMinutes();
+            LocalDate startDate = shift.getStartDateTime().toLocalDate();
+            dailyMinutesMap.merge(getDay(startDate), lengthInMinutes, Long::sum);
+            weeklyMinutesMap.merge(getWeek(startDate, weekStartDay), lengthInMinutes, Long::sum);
+            monthlyMinutesMap.merge(getMonth(startDate), lengthInMinutes, Long::sum);
+            yearlyMinutesMap.merge(startDate.getYear(), lengthInMinutes, Long::sum);
+        }
+
+        private void addUnavailability(EmployeeAvailability unavailability) {
+            unavailableStartToEndMap.merge(unavailability.getStartEpochMinute(), unavailability.getEndEpochMinute(),
+                    Math::max);
+            maximumUnavailabilityLength = Math.max(maximumUnavailabilityLength,
+                    unavailability.getDurationInMinutes());
+        }
+
+        private boolean canTake(Shift shift, DayOfWeek weekStartDay) {
+            long start = shift.getStartEpochMinute();
+            long end = shift.getEndEpochMinute();
+            // Only unavailabilities that start before the shift ends and at most the longest one before it starts
+            for (Long unavailableEnd : unavailableStartToEndMap.subMap(start - maximumUnavailabilityLength, false,
+                    end, false).values()) {
+                if (unavailableEnd > start) {
+                    return false;
+                }
+            }
+            // Only shifts that start at most the longest shift and a break before this one can be too close to it
+            for (Long otherEnd : startToEndMap.subMap(start - maximumShiftLength - MINIMUM_BREAK_IN_MINUTES, true,
+                    end + MINIMUM_BREAK_IN_MINUTES, false).values()) {
+                if (otherEnd + MINIMUM_BREAK_IN_MINUTES > start) {
+                    return false;
+                }
+            }
+            long lengthInMinutes = shift.getLengthInMinutes();
+            LocalDate startDate = shift.getStartDateTime().toLocalDate();
+            return fitsWithin(dailyMinutesMap, getDay(startDate), lengthInMinutes, contract.getMaximumMinutesPerDay())
+                    && fitsWithin(weeklyMinutesMap, getWeek(startDate, weekStartDay), lengthInMinutes,
+                            contract.getMaximumMinutesPerWeek())
+                    && fitsWithin(monthlyMinutesMap, getMonth(startDate), lengthInMinutes,
+                            contract.getMaximumMinutesPerMonth())
+                    && fitsWithin(yearlyMinutesMap, startDate.getYear(), lengthInMinutes,
+                            contract.getMaximumMinutesPerYear());
+        }
+
+        private static boolean fitsWithin(Map<Integer, Long> minutesMap, int period, long lengthInMinutes,
+                Integer maximumMinutes) {
+            return maximumMinutes == null || minutesMap.getOrDefault(period, 0L) + lengthInMinutes <= maximumMinutes;
+        }
+
+        private static int getDay(LocalDate date) {
+            return (int) date.toEpochDay();
+        }
+
+        private static int getWeek(LocalDate date, DayOfWeek weekStartDay) {
+            return getDay(date) - (date.getDayOfWeek().getValue() - weekStartDay.getValue() + 7) % 7;
+        }
+
+        private static int getMonth(LocalDate date) {
+            return date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+    }
+}
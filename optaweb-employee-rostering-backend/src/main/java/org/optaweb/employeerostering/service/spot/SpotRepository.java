@@ -17,9 +17,11 @@
 package org.optaweb.employeerostering.service.spot;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.spot.Spot;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -29,7 +31,20 @@ import io.quarkus.panache.common.Sort;
 public class SpotRepository implements PanacheRepository<Spot> {
 
     public List<Spot> findAllByTenantId(Integer tenantId) {
-        return find("tenantId", Sort.ascending("name"), tenantId).list();
+        return find("tenantId", Sort.ascending("name"), tenantId).withHint(QueryHints.HINT_CACHEABLE, true).list();
+    }
+
+    /**
+     * Like {@link #findAllByTenantId(Integer)}, but fetches the required skills in the same select,
+     * for loading every spot of a roster at once.
+     * @param tenantId never null
+     * @return never null
+     */
+    public List<Spot> findAllByTenantIdFetchingSkills(Integer tenantId) {
+        // Every skill of a spot is a row, so the same spot comes back once per skill
+        return find("select s from Spot s left join fetch s.requiredSkillSet where s.tenantId = ?1 order by s.name",
+                tenantId)
+                .list().stream().distinct().collect(Collectors.toList());
     }
 
     public void deleteForTenant(Integer tenantId) {
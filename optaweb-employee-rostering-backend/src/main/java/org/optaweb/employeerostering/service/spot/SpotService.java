@@ -28,16 +28,20 @@ import javax.validation.Validator;
 import org.optaweb.employeerostering.domain.spot.Spot;
 import org.optaweb.employeerostering.domain.spot.view.SpotView;
 import org.optaweb.employeerostering.service.common.AbstractRestService;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 
 @ApplicationScoped
 public class SpotService extends AbstractRestService {
 
     SpotRepository spotRepository;
 
+    RosterCache rosterCache;
+
     @Inject
-    public SpotService(Validator validator, SpotRepository spotRepository) {
+    public SpotService(Validator validator, SpotRepository spotRepository, RosterCache rosterCache) {
         super(validator);
         this.spotRepository = spotRepository;
+        this.rosterCache = rosterCache;
     }
 
     public Spot convertFromView(Integer tenantId, SpotView spotView) {
@@ -74,6 +78,7 @@ public class SpotService extends AbstractRestService {
 
         validateBean(tenantId, spotOptional.get());
         spotRepository.deleteById(id);
+        rosterCache.invalidate(tenantId);
         return true;
     }
 
@@ -81,6 +86,7 @@ public class SpotService extends AbstractRestService {
     public Spot createSpot(Integer tenantId, SpotView spotView) {
         Spot spot = convertFromView(tenantId, spotView);
         spotRepository.persist(spot);
+        rosterCache.invalidate(tenantId);
         return spot;
     }
 
@@ -100,6 +106,7 @@ public class SpotService extends AbstractRestService {
         oldSpot.setName(newSpot.getName());
         oldSpot.setRequiredSkillSet(newSpot.getRequiredSkillSet());
         spotRepository.persist(oldSpot);
+        rosterCache.invalidate(tenantId);
         return oldSpot;
     }
 }
@@ -20,6 +20,7 @@ import java.util.Optional;
 
 import javax.enterprise.context.ApplicationScoped;
 
+import org.hibernate.jpa.QueryHints;
 import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
@@ -28,7 +29,7 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 public class RosterConstraintConfigurationRepository implements PanacheRepository<RosterConstraintConfiguration> {
 
     public Optional<RosterConstraintConfiguration> findByTenantId(Integer tenantId) {
-        return find("tenantId", tenantId).singleResultOptional();
+        return find("tenantId", tenantId).withHint(QueryHints.HINT_CACHEABLE, true).singleResultOptional();
     }
 
     public void deleteForTenant(Integer tenantId) {
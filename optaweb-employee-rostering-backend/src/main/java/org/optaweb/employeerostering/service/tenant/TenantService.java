@@ -34,6 +34,7 @@ import org.optaweb.employeerostering.domain.tenant.view.RosterConstraintConfigur
 import org.optaweb.employeerostering.service.common.AbstractRestService;
 import org.optaweb.employeerostering.service.employee.EmployeeAvailabilityRepository;
 import org.optaweb.employeerostering.service.employee.EmployeeRepository;
+import org.optaweb.employeerostering.service.roster.RosterCache;
 import org.optaweb.employeerostering.service.roster.RosterStateRepository;
 import org.optaweb.employeerostering.service.rotation.TimeBucketRepository;
 import org.optaweb.employeerostering.service.shift.ShiftRepository;
@@ -61,6 +62,8 @@ public class TenantService extends AbstractRestService {
 
     SkillRepository skillRepository;
 
+    RosterCache rosterCache;
+
     @Inject
     public TenantService(Validator validator,
             TenantRepository tenantRepository,
@@ -71,7 +74,8 @@ public class TenantService extends AbstractRestService {
             TimeBucketRepository timeBucketRepository,
             EmployeeRepository employeeRepository,
             SpotRepository spotRepository,
-            SkillRepository skillRepository) {
+            SkillRepository skillRepository,
+            RosterCache rosterCache) {
         super(validator);
         this.tenantRepository = tenantRepository;
         this.rosterConstraintConfigurationRepository = rosterConstraintConfigurationRepository;
@@ -82,6 +86,7 @@ public class TenantService extends AbstractRestService {
         this.employeeRepository = employeeRepository;
         this.spotRepository = spotRepository;
         this.skillRepository = skillRepository;
+        this.rosterCache = rosterCache;
     }
 
     // ************************************************************************
@@ -146,6 +151,7 @@ public class TenantService extends AbstractRestService {
         rosterConstraintConfigurationRepository.deleteForTenant(id);
         rosterStateRepository.deleteForTenant(id);
         tenantRepository.delete("id", id);
+        rosterCache.invalidate(id);
         return true;
     }
 
@@ -176,6 +182,7 @@ public class TenantService extends AbstractRestService {
         }
 
         oldRosterConstraintConfiguration.setWeekStartDay(rosterConstraintConfigurationView.getWeekStartDay());
+        oldRosterConstraintConfiguration.setPartitionedSearch(rosterConstraintConfigurationView.isPartitionedSearch());
         oldRosterConstraintConfiguration.setRequiredSkill(rosterConstraintConfigurationView.getRequiredSkill());
         oldRosterConstraintConfiguration.setUnavailableTimeSlot(
                 rosterConstraintConfigurationView.getUnavailableTimeSlot());
@@ -203,7 +210,10 @@ public class TenantService extends AbstractRestService {
                 .getDesiredTimeSlot());
         oldRosterConstraintConfiguration.setNotRotationEmployee(rosterConstraintConfigurationView
                 .getNotRotationEmployee());
+        oldRosterConstraintConfiguration.setBalanceEmployeeHours(rosterConstraintConfigurationView
+                .getBalanceEmployeeHours());
         rosterConstraintConfigurationRepository.persist(oldRosterConstraintConfiguration);
+        rosterCache.invalidate(oldRosterConstraintConfiguration.getTenantId());
         return oldRosterConstraintConfiguration;
     }
 
@@ -21,6 +21,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import javax.ws.rs.core.Response.Status;
 
 import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.RestAssured;
@@ -40,4 +42,13 @@ public class AdminRestControllerTest {
         Response resetResponse = resetApplication();
         assertThat(resetResponse.getStatusCode()).isEqualTo(Status.NO_CONTENT.getStatusCode());
     }
+
+    @Test
+    public void secondLevelCacheStatisticsTest() {
+        Response statisticsResponse = RestAssured.get(adminPathURI + "secondLevelCache");
+        assertThat(statisticsResponse.getStatusCode()).isEqualTo(Status.OK.getStatusCode());
+        assertThat(statisticsResponse.jsonPath().getBoolean("enabled")).isTrue();
+        assertThat(statisticsResponse.jsonPath().getList("regionList.regionName", String.class))
+                .contains(Skill.class.getName(), Spot.class.getName() + "#requiredSkillSet");
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.admin;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.service.admin.IdSequenceMigration;
+
+public class IdSequenceMigrationTest {
+
+    private static final String ALTER_SEQUENCE_SQL = "alter sequence hibernate_sequence increment by 50";
+
+    private EntityManager entityManager;
+    private Query incrementQuery;
+    private Query alterQuery;
+
+    @BeforeEach
+    public void setup() {
+        entityManager = mock(EntityManager.class);
+        incrementQuery = mock(Query.class);
+        alterQuery = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(incrementQuery);
+        when(entityManager.createNativeQuery(ALTER_SEQUENCE_SQL)).thenReturn(alterQuery);
+    }
+
+    @Test
+    public void testAltersTheIncrementOfAnExistingSequence() {
+        // PostgreSQL reports the increment as text
+        when(incrementQuery.getResultList()).thenReturn(Collections.singletonList("1"));
+        assertThat(new IdSequenceMigration(entityManager, "postgresql").migrateIdSequenceIncrement()).isTrue();
+        verify(alterQuery).executeUpdate();
+    }
+
+    @Test
+    public void testKeepsAMigratedSequence() {
+        when(incrementQuery.getResultList()).thenReturn(Collections.singletonList("50"));
+        assertThat(new IdSequenceMigration(entityManager, "postgresql").migrateIdSequenceIncrement()).isFalse();
+        verify(entityManager, never()).createNativeQuery(ALTER_SEQUENCE_SQL);
+    }
+
+    @Test
+    public void testKeepsAMissingSequence() {
+        when(incrementQuery.getResultList()).thenReturn(Collections.emptyList());
+        assertThat(new IdSequenceMigration(entityManager, "postgresql").migrateIdSequenceIncrement()).isFalse();
+        verify(entityManager, never()).createNativeQuery(ALTER_SEQUENCE_SQL);
+    }
+
+    @Test
+    public void testIgnoresOtherDatabases() {
+        assertThat(new IdSequenceMigration(entityManager, "h2").migrateIdSequenceIncrement()).isFalse();
+        verify(entityManager, never()).createNativeQuery(anyString());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.roster.BestSolutionWriterStatistics;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.roster.BestSolutionWriter;
+
+public class BestSolutionWriterTest {
+
+    private static final long LONG_INTERVAL_MILLIS = 60_000L;
+
+    private Roster createRoster(Integer tenantId) {
+        LocalDate firstDraftDate = LocalDate.of(2021, 1, 4);
+        return new Roster((long) tenantId, tenantId, new RosterConstraintConfiguration(tenantId, DayOfWeek.MONDAY),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                new RosterState(tenantId, 7, firstDraftDate, 7, 28, 0, 7, firstDraftDate.minusDays(8), ZoneOffset.UTC),
+                Collections.emptyList());
+    }
+
+    @Test
+    public void testLatestBestSolutionWinsWithinTheInterval() throws InterruptedException {
+        BestSolutionWriter writer = new BestSolutionWriter(1, LONG_INTERVAL_MILLIS);
+        List<Roster> writtenRosterList = new CopyOnWriteArrayList<>();
+        CountDownLatch firstFlushLatch = new CountDownLatch(1);
+        Consumer<Roster> flusher = roster -> {
+            writtenRosterList.add(roster);
+            firstFlushLatch.countDown();
+        };
+        Roster first = createRoster(0);
+        writer.submit(first, flusher);
+        assertThat(firstFlushLatch.await(10L, TimeUnit.SECONDS)).isTrue();
+
+        // Both arrive within the interval, so only the last one is written
+        writer.submit(createRoster(0), flusher);
+        Roster last = createRoster(0);
+        writer.submit(last, flusher);
+        BestSolutionWriterStatistics statistics = writer.getStatistics();
+        assertThat(statistics.getPendingRosterCount()).isEqualTo(1);
+        assertThat(statistics.getSubmittedCount()).isEqualTo(3L);
+        assertThat(statistics.getCoalescedCount()).isEqualTo(1L);
+
+        // Drains without waiting for the interval
+        writer.shutdown();
+        assertThat(writtenRosterList).containsExactly(first, last);
+        assertThat(writer.getStatistics().getPendingRosterCount()).isZero();
+        assertThat(writer.getStatistics().getFlushCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testTenantsDoNotWaitForEachOther() throws InterruptedException {
+        BestSolutionWriter writer = new BestSolutionWriter(2, LONG_INTERVAL_MILLIS);
+        CountDownLatch flushLatch = new CountDownLatch(2);
+        writer.submit(createRoster(0), roster -> flushLatch.countDown());
+        writer.submit(createRoster(1), roster -> flushLatch.countDown());
+        assertThat(flushLatch.await(10L, TimeUnit.SECONDS)).isTrue();
+        writer.shutdown();
+    }
+
+    @Test
+    public void testFailedFlushDoesNotStopTheTenant() throws InterruptedException {
+        BestSolutionWriter writer = new BestSolutionWriter(1, 0L);
+        CountDownLatch failedFlushLatch = new CountDownLatch(1);
+        writer.submit(createRoster(0), roster -> {
+            failedFlushLatch.countDown();
+            throw new IllegalStateException("Expected failure.");
+        });
+        assertThat(failedFlushLatch.await(10L, TimeUnit.SECONDS)).isTrue();
+        CountDownLatch flushLatch = new CountDownLatch(1);
+        writer.submit(createRoster(0), roster -> flushLatch.countDown());
+        assertThat(flushLatch.await(10L, TimeUnit.SECONDS)).isTrue();
+        writer.shutdown();
+        assertThat(writer.getStatistics().getFailedFlushCount()).isEqualTo(1L);
+        assertThat(writer.getStatistics().getFlushCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new BestSolutionWriter(0, 0L));
+        assertThatIllegalArgumentException().isThrownBy(() -> new BestSolutionWriter(1, -1L));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL10Dialect;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.schema.TargetType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.AbstractEntityRequireTenantRestServiceTest;
+import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.service.roster.RosterGenerator;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Checks that the date range queries of shifts and availabilities find their rows through an index on the end date
+ * time, so they do not go through the history before the range. The query plans are those of H2, which the tests
+ * run on, and the indexes are checked in the schema of both H2 and PostgreSQL.
+ */
+@QuarkusTest
+public class DateRangeIndexTest extends AbstractEntityRequireTenantRestServiceTest {
+
+    private static final List<String> CREATE_INDEX_LIST = Arrays.asList(
+            "create index Shift_tenantId_endDateTime on Shift (tenantId, endDateTime, startDateTime)",
+            "create index Shift_spot_endDateTime on Shift (spot_id, endDateTime, startDateTime)",
+            "create index Shift_employee_endDateTime on Shift (employee_id, endDateTime, startDateTime)",
+            "create index EmployeeAvailability_tenantId_endDateTime"
+                    + " on EmployeeAvailability (tenantId, endDateTime, startDateTime)",
+            "create index EmployeeAvailability_employee_endDateTime"
+                    + " on EmployeeAvailability (employee_id, endDateTime, startDateTime)");
+
+    @Inject
+    RosterGenerator rosterGenerator;
+    @Inject
+    DataSource dataSource;
+
+    private Roster roster;
+    private Timestamp startDateTime;
+    private Timestamp endDateTime;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        setupRestAssured();
+        roster = rosterGenerator.generateRoster(2, 7);
+        LocalDate firstDraftDate = roster.getRosterState().getFirstDraftDate();
+        startDateTime = Timestamp.valueOf(firstDraftDate.atStartOfDay());
+        endDateTime = Timestamp.valueOf(firstDraftDate.plusDays(1).atStartOfDay());
+        // So the plans reflect the selectivity of the generated rows
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterEach
+    public void cleanup() {
+        deleteTestTenant();
+    }
+
+    private String explain(String query, Object... parameters) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("EXPLAIN " + query)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    @Test
+    public void testShiftRangeQueriesUseTheEndDateTimeIndexes() throws SQLException {
+        Integer tenantId = roster.getTenantId();
+        assertThat(explain("SELECT id FROM Shift"
+                + " WHERE tenantId = ? AND endDateTime >= ? AND startDateTime < ?",
+                tenantId, startDateTime, endDateTime))
+                        .containsIgnoringCase("Shift_tenantId_endDateTime")
+                        .doesNotContainIgnoringCase("tableScan");
+        assertThat(explain("SELECT id FROM Shift"
+                + " WHERE tenantId = ? AND spot_id IN (?, ?) AND endDateTime >= ? AND startDateTime < ?",
+                tenantId, roster.getSpotList().get(0).getId(), roster.getSpotList().get(1).getId(),
+                startDateTime, endDateTime))
+                        .containsIgnoringCase("_endDateTime")
+                        .doesNotContainIgnoringCase("tableScan");
+        assertThat(explain("SELECT id FROM Shift"
+                + " WHERE tenantId = ? AND employee_id IN (?, ?) AND endDateTime >= ? AND startDateTime < ?",
+                tenantId, roster.getEmployeeList().get(0).getId(), roster.getEmployeeList().get(1).getId(),
+                startDateTime, endDateTime))
+                        .containsIgnoringCase("_endDateTime")
+                        .doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    public void testAvailabilityRangeQueriesUseTheEndDateTimeIndexes() throws SQLException {
+        assertThat(explain("SELECT id FROM EmployeeAvailability"
+                + " WHERE tenantId = ? AND employee_id IN (?, ?) AND endDateTime >= ? AND startDateTime < ?",
+                roster.getTenantId(), roster.getEmployeeList().get(0).getId(),
+                roster.getEmployeeList().get(1).getId(), startDateTime, endDateTime))
+                        .containsIgnoringCase("EmployeeAvailability_")
+                        .containsIgnoringCase("_endDateTime")
+                        .doesNotContainIgnoringCase("tableScan");
+    }
+
+    @Test
+    public void testIndexesAreInTheSchemaOfEveryDialect() throws IOException {
+        for (Class<? extends Dialect> dialectClass : Arrays.asList(H2Dialect.class, PostgreSQL10Dialect.class)) {
+            String schema = exportSchema(dialectClass);
+            for (String createIndex : CREATE_INDEX_LIST) {
+                assertThat(schema).as(dialectClass.getSimpleName()).contains(createIndex);
+            }
+        }
+    }
+
+    private static String exportSchema(Class<? extends Dialect> dialectClass) throws IOException {
+        StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.DIALECT, dialectClass.getName())
+                // Only the dialect decides the DDL, so there is no need for a database of that dialect
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", false)
+                .build();
+        Path scriptPath = Files.createTempFile("schema", ".sql");
+        try {
+            Metadata metadata = new MetadataSources(serviceRegistry)
+                    .addAnnotatedClass(AbstractPersistable.class)
+                    .addAnnotatedClass(Skill.class)
+                    .addAnnotatedClass(Contract.class)
+                    .addAnnotatedClass(Spot.class)
+                    .addAnnotatedClass(Employee.class)
+                    .addAnnotatedClass(EmployeeAvailability.class)
+                    .addAnnotatedClass(Shift.class)
+                    .buildMetadata();
+            new SchemaExport()
+                    .setFormat(false)
+                    .setOutputFile(scriptPath.toString())
+                    .createOnly(EnumSet.of(TargetType.SCRIPT), metadata);
+            return Files.readString(scriptPath);
+        } finally {
+            Files.delete(scriptPath);
+            StandardServiceRegistryBuilder.destroy(serviceRegistry);
+        }
+    }
+}
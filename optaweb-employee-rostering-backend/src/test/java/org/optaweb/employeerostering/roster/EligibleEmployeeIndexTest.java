@@ -0,0 +1,184 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.DayOfWeek;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+
+public class EligibleEmployeeIndexTest {
+
+    private static final Integer TENANT_ID = 0;
+    private static final OffsetDateTime START = OffsetDateTime.of(2021, 1, 4, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    private Skill nurse;
+    private Skill doctor;
+    private Employee nurseEmployee;
+    private Employee doctorEmployee;
+    private Employee nurseAndDoctorEmployee;
+    private Spot ward;
+
+    @BeforeEach
+    public void setup() {
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        contract.setId(1L);
+        nurse = new Skill(TENANT_ID, "Nurse");
+        nurse.setId(2L);
+        doctor = new Skill(TENANT_ID, "Doctor");
+        doctor.setId(3L);
+        nurseEmployee = new Employee(TENANT_ID, "Nurse", contract, Collections.singleton(nurse));
+        nurseEmployee.setId(4L);
+        doctorEmployee = new Employee(TENANT_ID, "Doctor", contract, Collections.singleton(doctor));
+        doctorEmployee.setId(5L);
+        nurseAndDoctorEmployee = new Employee(TENANT_ID, "Nurse and doctor", contract,
+                new HashSet<>(Arrays.asList(nurse, doctor)));
+        nurseAndDoctorEmployee.setId(6L);
+        ward = new Spot(TENANT_ID, "Ward", Collections.singleton(nurse));
+        ward.setId(7L);
+    }
+
+    private Shift createShift(long id, int startHour, Skill... requiredSkills) {
+        Shift shift = new Shift(TENANT_ID, ward, START.plusHours(startHour), START.plusHours(startHour + 8), null,
+                new HashSet<>(Arrays.asList(requiredSkills)), null);
+        shift.setId(id);
+        return shift;
+    }
+
+    private Roster createRoster(EmployeeAvailability... employeeAvailabilities) {
+        Roster roster = new Roster();
+        roster.setTenantId(TENANT_ID);
+        roster.setRosterConstraintConfiguration(new RosterConstraintConfiguration(TENANT_ID, DayOfWeek.MONDAY));
+        roster.setSkillList(Arrays.asList(nurse, doctor));
+        roster.setSpotList(Collections.singletonList(ward));
+        roster.setEmployeeList(Arrays.asList(nurseEmployee, doctorEmployee, nurseAndDoctorEmployee));
+        roster.setEmployeeAvailabilityList(Arrays.asList(employeeAvailabilities));
+        return roster;
+    }
+
+    @Test
+    public void testRequiredSkills() {
+        Roster roster = createRoster();
+        Shift nurseShift = createShift(10L, 0);
+        Shift doctorShift = createShift(11L, 24, doctor);
+        Shift otherNurseShift = createShift(12L, 48);
+        roster.setShiftList(Arrays.asList(nurseShift, doctorShift, otherNurseShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+
+        assertThat(nurseShift.getEligibleEmployeeList()).containsExactly(nurseEmployee, nurseAndDoctorEmployee);
+        // Both the skills of the spot and of the shift itself are required
+        assertThat(doctorShift.getEligibleEmployeeList()).containsExactly(nurseAndDoctorEmployee);
+        // Shifts with the same spot and required skills share their list
+        assertThat(otherNurseShift.getEligibleEmployeeList()).isSameAs(nurseShift.getEligibleEmployeeList());
+    }
+
+    @Test
+    public void testUnavailability() {
+        // Overlaps the first shift by an hour, ends exactly when the second shift starts
+        EmployeeAvailability unavailability = new EmployeeAvailability(TENANT_ID, nurseEmployee,
+                START.plusHours(7), START.plusHours(24));
+        unavailability.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        EmployeeAvailability undesired = new EmployeeAvailability(TENANT_ID, nurseAndDoctorEmployee,
+                START, START.plusHours(48));
+        undesired.setState(EmployeeAvailabilityState.UNDESIRED);
+        Roster roster = createRoster(unavailability, undesired);
+        Shift overlappingShift = createShift(10L, 0);
+        Shift adjacentShift = createShift(11L, 24);
+        roster.setShiftList(Arrays.asList(overlappingShift, adjacentShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+
+        assertThat(overlappingShift.getEligibleEmployeeList()).containsExactly(nurseAndDoctorEmployee);
+        assertThat(adjacentShift.getEligibleEmployeeList()).containsExactly(nurseEmployee, nurseAndDoctorEmployee);
+    }
+
+    @Test
+    public void testRequiredSkillWithoutHardWeight() {
+        EmployeeAvailability unavailability = new EmployeeAvailability(TENANT_ID, nurseAndDoctorEmployee,
+                START, START.plusHours(8));
+        unavailability.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        Roster roster = createRoster(unavailability);
+        roster.getRosterConstraintConfiguration().setRequiredSkill(HardMediumSoftLongScore.ofMedium(100));
+        Shift doctorShift = createShift(10L, 0, doctor);
+        roster.setShiftList(Collections.singletonList(doctorShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+
+        // Unqualified employees stay eligible, unavailable ones do not
+        assertThat(doctorShift.getEligibleEmployeeList()).containsExactly(nurseEmployee, doctorEmployee);
+    }
+
+    @Test
+    public void testUnavailableTimeSlotWithoutHardWeight() {
+        EmployeeAvailability unavailability = new EmployeeAvailability(TENANT_ID, nurseEmployee,
+                START, START.plusHours(8));
+        unavailability.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        Roster roster = createRoster(unavailability);
+        roster.getRosterConstraintConfiguration().setUnavailableTimeSlot(HardMediumSoftLongScore.ofSoft(50));
+        Shift nurseShift = createShift(10L, 0);
+        roster.setShiftList(Collections.singletonList(nurseShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+
+        // Unavailable employees stay eligible, unqualified ones do not
+        assertThat(nurseShift.getEligibleEmployeeList()).containsExactly(nurseEmployee, nurseAndDoctorEmployee);
+    }
+
+    @Test
+    public void testNeitherWithHardWeight() {
+        Roster roster = createRoster();
+        roster.getRosterConstraintConfiguration().setRequiredSkill(HardMediumSoftLongScore.ofSoft(100));
+        roster.getRosterConstraintConfiguration().setUnavailableTimeSlot(HardMediumSoftLongScore.ZERO);
+        Shift doctorShift = createShift(10L, 0, doctor);
+        roster.setShiftList(Collections.singletonList(doctorShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+
+        assertThat(doctorShift.getEligibleEmployeeList()).containsExactlyElementsOf(roster.getEmployeeList());
+    }
+
+    @Test
+    public void testNotRestricted() {
+        Roster roster = createRoster();
+        Shift doctorShift = createShift(10L, 0, doctor);
+        roster.setShiftList(Collections.singletonList(doctorShift));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, false);
+
+        assertThat(doctorShift.getEligibleEmployeeList()).containsExactlyElementsOf(roster.getEmployeeList());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
+
+public class InTimeZoneTest {
+
+    private static final Integer TENANT_ID = 0;
+    private static final ZoneId ZONE_ID = ZoneId.of("Europe/Brussels");
+    // The clocks go back from 03:00 to 02:00, so 02:30 local time happens twice
+    private static final OffsetDateTime DST_OVERLAP = OffsetDateTime.of(2021, 10, 31, 1, 30, 0, 0, ZoneOffset.UTC);
+
+    private Spot ward;
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        Skill nurse = new Skill(TENANT_ID, "Nurse");
+        nurse.setId(1L);
+        ward = new Spot(TENANT_ID, "Ward", Collections.singleton(nurse));
+        ward.setId(2L);
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        contract.setId(3L);
+        employee = new Employee(TENANT_ID, "Nurse", contract, Collections.singleton(nurse));
+        employee.setId(4L);
+    }
+
+    @Test
+    public void testShiftKeepsItsInstants() {
+        Shift shift = new Shift(TENANT_ID, ward, DST_OVERLAP, DST_OVERLAP.plusHours(8), employee);
+        shift.setId(5L);
+        shift.setPinnedByUser(true);
+        shift.setEmployee(employee);
+        Shift copy = shift.inTimeZone(ZONE_ID);
+
+        assertThat(copy).isNotSameAs(shift).isEqualTo(shift);
+        assertThat(copy.getStartDateTime().toInstant()).isEqualTo(DST_OVERLAP.toInstant());
+        assertThat(copy.getStartDateTime().getOffset()).isEqualTo(ZoneOffset.ofHours(1));
+        assertThat(copy.getEndDateTime().toInstant()).isEqualTo(DST_OVERLAP.plusHours(8).toInstant());
+        assertThat(copy.getStartEpochMinute()).isEqualTo(shift.getStartEpochMinute());
+        assertThat(copy.getEndEpochMinute()).isEqualTo(shift.getEndEpochMinute());
+        assertThat(copy.getSpot()).isSameAs(ward);
+        assertThat(copy.getRotationEmployee()).isSameAs(employee);
+        assertThat(copy.getEmployee()).isSameAs(employee);
+        assertThat(copy.isPinnedByUser()).isTrue();
+        // The entity itself is left as it is
+        assertThat(shift.getStartDateTime()).isEqualTo(DST_OVERLAP);
+    }
+
+    @Test
+    public void testShiftInTheSameOffsetKeepsItsDateTimes() {
+        OffsetDateTime start = OffsetDateTime.of(2021, 1, 4, 9, 0, 0, 0, ZoneOffset.ofHours(1));
+        Shift shift = new Shift(TENANT_ID, ward, start, start.plusHours(8));
+        Shift copy = shift.inTimeZone(ZONE_ID);
+
+        assertThat(copy.getStartDateTime()).isSameAs(shift.getStartDateTime());
+        assertThat(copy.getEndDateTime()).isSameAs(shift.getEndDateTime());
+    }
+
+    @Test
+    public void testEmployeeAvailabilityKeepsItsInstants() {
+        EmployeeAvailability employeeAvailability =
+                new EmployeeAvailability(TENANT_ID, employee, DST_OVERLAP, DST_OVERLAP.plusHours(8));
+        employeeAvailability.setId(6L);
+        employeeAvailability.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        EmployeeAvailability copy = employeeAvailability.inTimeZone(ZONE_ID);
+
+        assertThat(copy).isNotSameAs(employeeAvailability).isEqualTo(employeeAvailability);
+        assertThat(copy.getStartDateTime().toInstant()).isEqualTo(DST_OVERLAP.toInstant());
+        assertThat(copy.getStartDateTime().getOffset()).isEqualTo(ZoneOffset.ofHours(1));
+        assertThat(copy.getEndDateTime().toInstant()).isEqualTo(DST_OVERLAP.plusHours(8).toInstant());
+        assertThat(copy.getStartEpochMinute()).isEqualTo(employeeAvailability.getStartEpochMinute());
+        assertThat(copy.getEndEpochMinute()).isEqualTo(employeeAvailability.getEndEpochMinute());
+        assertThat(copy.getEmployee()).isSameAs(employee);
+        assertThat(copy.getState()).isEqualTo(EmployeeAvailabilityState.UNAVAILABLE);
+    }
+}
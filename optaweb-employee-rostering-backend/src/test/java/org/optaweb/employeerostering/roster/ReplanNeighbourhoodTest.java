@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
+import org.optaweb.employeerostering.domain.roster.ReplanChange;
+import org.optaweb.employeerostering.domain.roster.ReplanNeighbourhood;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.PinningShiftFilter;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+
+public class ReplanNeighbourhoodTest {
+
+    private static final Integer TENANT_ID = 0;
+    private static final LocalDate FIRST_DRAFT_DATE = LocalDate.of(2021, 1, 4);
+
+    private Skill nurse;
+    private Skill doctor;
+    private Employee sickNurse;
+    private Employee otherNurse;
+    private Employee doctorEmployee;
+    private Spot ward;
+    private long nextId;
+
+    @BeforeEach
+    public void setup() {
+        nextId = 1L;
+        nurse = new Skill(TENANT_ID, "Nurse");
+        nurse.setId(nextId++);
+        doctor = new Skill(TENANT_ID, "Doctor");
+        doctor.setId(nextId++);
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        contract.setId(nextId++);
+        sickNurse = new Employee(TENANT_ID, "Sick nurse", contract, Collections.singleton(nurse));
+        sickNurse.setId(nextId++);
+        otherNurse = new Employee(TENANT_ID, "Other nurse", contract, Collections.singleton(nurse));
+        otherNurse.setId(nextId++);
+        doctorEmployee = new Employee(TENANT_ID, "Doctor", contract, Collections.singleton(doctor));
+        doctorEmployee.setId(nextId++);
+        ward = new Spot(TENANT_ID, "Ward", Collections.emptySet());
+        ward.setId(nextId++);
+    }
+
+    private OffsetDateTime atDay(int day, int hour) {
+        return FIRST_DRAFT_DATE.plusDays(day).atTime(hour, 0).atOffset(ZoneOffset.UTC);
+    }
+
+    private Shift createShift(int day, Employee employee, Skill requiredSkill) {
+        Shift shift = new Shift(TENANT_ID, ward, atDay(day, 9), atDay(day, 17), null,
+                new HashSet<>(Collections.singleton(requiredSkill)), null);
+        shift.setId(nextId++);
+        shift.setEmployee(employee);
+        return shift;
+    }
+
+    private Roster createRoster(Shift... shifts) {
+        // The nurse called in sick for day 1
+        EmployeeAvailability sickness = new EmployeeAvailability(TENANT_ID, sickNurse, atDay(1, 0), atDay(2, 0));
+        sickness.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        return createRoster(Collections.singletonList(sickness), shifts);
+    }
+
+    private Roster createRoster(List<EmployeeAvailability> employeeAvailabilityList, Shift... shifts) {
+        RosterState rosterState = new RosterState(TENANT_ID, 7, FIRST_DRAFT_DATE, 7, 28, 0, 7,
+                FIRST_DRAFT_DATE.minusDays(8), ZoneOffset.UTC);
+        Roster roster = new Roster(0L, TENANT_ID,
+                new RosterConstraintConfiguration(TENANT_ID, FIRST_DRAFT_DATE.getDayOfWeek()),
+                Arrays.asList(nurse, doctor), Collections.singletonList(ward),
+                Arrays.asList(sickNurse, otherNurse, doctorEmployee), employeeAvailabilityList,
+                rosterState, Arrays.asList(shifts));
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
+        return roster;
+    }
+
+    private ReplanChange sickOnDay1() {
+        return new ReplanChange(sickNurse.getId(), FIRST_DRAFT_DATE.plusDays(1).atStartOfDay(),
+                FIRST_DRAFT_DATE.plusDays(2).atStartOfDay());
+    }
+
+    @Test
+    public void testNeighbourhood() {
+        Shift sickShift = createShift(1, sickNurse, nurse);
+        Shift nextDayNurseShift = createShift(2, otherNurse, nurse);
+        Shift sameDayDoctorShift = createShift(1, doctorEmployee, doctor);
+        Shift laterNurseShift = createShift(5, otherNurse, nurse);
+        Roster roster = createRoster(sickShift, nextDayNurseShift, sameDayDoctorShift, laterNurseShift);
+
+        int neighbourhoodShiftCount = ReplanNeighbourhood.reopenNeighbourhood(roster,
+                Collections.singletonList(sickOnDay1()), 1);
+
+        assertThat(neighbourhoodShiftCount).isEqualTo(2);
+        assertThat(roster.getReplanShiftIdSet()).containsExactlyInAnyOrder(sickShift.getId(),
+                nextDayNurseShift.getId());
+        // The sick nurse can no longer take the shift
+        assertThat(sickShift.getEmployee()).isNull();
+        assertThat(nextDayNurseShift.getEmployee()).isSameAs(otherNurse);
+
+        PinningShiftFilter pinningShiftFilter = new PinningShiftFilter();
+        assertThat(pinningShiftFilter.accept(roster, sickShift)).isFalse();
+        assertThat(pinningShiftFilter.accept(roster, nextDayNurseShift)).isFalse();
+        assertThat(pinningShiftFilter.accept(roster, sameDayDoctorShift)).isTrue();
+        assertThat(pinningShiftFilter.accept(roster, laterNurseShift)).isTrue();
+    }
+
+    @Test
+    public void testChangeWithoutStoredAvailability() {
+        Shift sickShift = createShift(1, sickNurse, nurse);
+        Shift sameDayNurseShift = createShift(1, otherNurse, nurse);
+        Shift nextDayNurseShift = createShift(2, sickNurse, nurse);
+        Roster roster = createRoster(Collections.emptyList(), sickShift, sameDayNurseShift, nextDayNurseShift);
+
+        ReplanNeighbourhood.reopenNeighbourhood(roster, Collections.singletonList(sickOnDay1()), 1);
+
+        // The change alone makes the nurse unavailable, so the solver cannot assign it during the change either
+        assertThat(sickShift.getEmployee()).isNull();
+        assertThat(sickShift.getEligibleEmployeeList()).containsExactly(otherNurse);
+        assertThat(sameDayNurseShift.getEmployee()).isSameAs(otherNurse);
+        assertThat(sameDayNurseShift.getEligibleEmployeeList()).containsExactly(otherNurse);
+        assertThat(nextDayNurseShift.getEmployee()).isSameAs(sickNurse);
+        assertThat(nextDayNurseShift.getEligibleEmployeeList()).containsExactly(sickNurse, otherNurse);
+    }
+
+    @Test
+    public void testPinnedByUserShiftsKeepTheirEmployee() {
+        Shift sickShift = createShift(1, sickNurse, nurse);
+        sickShift.setPinnedByUser(true);
+        Roster roster = createRoster(sickShift);
+
+        ReplanNeighbourhood.reopenNeighbourhood(roster, Collections.singletonList(sickOnDay1()), 0);
+
+        assertThat(sickShift.getEmployee()).isSameAs(sickNurse);
+    }
+
+    @Test
+    public void testUnknownEmployee() {
+        Roster roster = createRoster();
+        ReplanChange change = new ReplanChange(-1L, FIRST_DRAFT_DATE.atStartOfDay(),
+                FIRST_DRAFT_DATE.plusDays(1).atStartOfDay());
+
+        assertThatIllegalArgumentException().isThrownBy(() -> ReplanNeighbourhood.reopenNeighbourhood(roster,
+                Collections.singletonList(change), 1));
+        assertThatIllegalArgumentException().isThrownBy(() -> ReplanNeighbourhood.reopenNeighbourhood(roster,
+                Collections.singletonList(sickOnDay1()), -1));
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.optaplanner.core.api.score.ScoreExplanation;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterCacheStatistics;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.roster.RosterCache;
+import org.optaweb.employeerostering.service.roster.RosterScoreSession;
+
+public class RosterCacheTest {
+
+    private final AtomicInteger buildCount = new AtomicInteger();
+
+    // A roster of the tenant with as many shifts as its tenantId
+    private Roster buildRoster(Integer tenantId) {
+        buildCount.incrementAndGet();
+        List<Shift> shiftList = new ArrayList<>(tenantId);
+        for (int i = 0; i < tenantId; i++) {
+            shiftList.add(new Shift());
+        }
+        LocalDate firstDraftDate = LocalDate.of(2021, 1, 4);
+        return new Roster((long) tenantId, tenantId, new RosterConstraintConfiguration(tenantId, DayOfWeek.MONDAY),
+                Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                new RosterState(tenantId, 7, firstDraftDate, 7, 28, 0, 7, firstDraftDate.minusDays(8), ZoneOffset.UTC),
+                shiftList);
+    }
+
+    @Test
+    public void testHitsUntilInvalidated() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        Roster roster = rosterCache.getRoster(10, this::buildRoster);
+        assertThat(rosterCache.getRoster(10, this::buildRoster)).isSameAs(roster);
+        assertThat(buildCount).hasValue(1);
+
+        rosterCache.invalidate(10);
+        assertThat(rosterCache.getRoster(10, this::buildRoster)).isNotSameAs(roster);
+        assertThat(buildCount).hasValue(2);
+
+        RosterCacheStatistics statistics = rosterCache.getStatistics();
+        assertThat(statistics.getHitCount()).isEqualTo(1L);
+        assertThat(statistics.getMissCount()).isEqualTo(2L);
+        assertThat(statistics.getInvalidationCount()).isEqualTo(1L);
+        assertThat(statistics.getEntityCount()).isEqualTo(10L);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedRosterIsEvicted() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        Roster roster40 = rosterCache.getRoster(40, this::buildRoster);
+        Roster roster30 = rosterCache.getRoster(30, this::buildRoster);
+        // Uses 40 again, so 30 is the least recently used
+        rosterCache.getRoster(40, this::buildRoster);
+        rosterCache.getRoster(50, this::buildRoster);
+
+        assertThat(rosterCache.getRoster(40, this::buildRoster)).isSameAs(roster40);
+        assertThat(rosterCache.getRoster(30, this::buildRoster)).isNotSameAs(roster30);
+        assertThat(rosterCache.getStatistics().getEvictionCount()).isGreaterThanOrEqualTo(1L);
+        assertThat(rosterCache.getStatistics().getEntityCount()).isLessThanOrEqualTo(100L);
+
+        // Larger than the whole cache
+        rosterCache.getRoster(101, this::buildRoster);
+        assertThat(rosterCache.getStatistics().getEntityCount()).isLessThanOrEqualTo(100L);
+    }
+
+    @Test
+    public void testRosterBuiltBeforeAnInvalidationIsNotCached() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        rosterCache.getRoster(10, tenantId -> {
+            // Another thread changes the roster while this one builds it
+            rosterCache.invalidate(tenantId);
+            return buildRoster(tenantId);
+        });
+        rosterCache.getRoster(10, this::buildRoster);
+        assertThat(rosterCache.getStatistics().getHitCount()).isZero();
+    }
+
+    @Test
+    public void testInvalidatedAgainAfterTheTransaction() {
+        TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+        RosterCache rosterCache = new RosterCache(100L, registry);
+
+        rosterCache.invalidate(10);
+        ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronizationCaptor.capture());
+        verify(registry).putResource(any(), eq(synchronizationCaptor.getValue()));
+
+        // Another transaction caches the roster before this one commits
+        when(registry.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+        Roster roster = rosterCache.getRoster(10, this::buildRoster);
+        assertThat(rosterCache.getRoster(10, this::buildRoster)).isSameAs(roster);
+
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        assertThat(rosterCache.getRoster(10, this::buildRoster)).isNotSameAs(roster);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testScoreExplanationIsExplainedOncePerRoster() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        AtomicInteger explainCount = new AtomicInteger();
+        Function<Roster, ScoreExplanation<Roster, HardMediumSoftLongScore>> scoreExplainer = roster -> {
+            explainCount.incrementAndGet();
+            return mock(ScoreExplanation.class);
+        };
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation =
+                rosterCache.getScoreExplanation(10, this::buildRoster, scoreExplainer);
+        assertThat(rosterCache.getScoreExplanation(10, this::buildRoster, scoreExplainer)).isSameAs(scoreExplanation);
+        assertThat(explainCount).hasValue(1);
+
+        rosterCache.invalidate(10);
+        assertThat(rosterCache.getScoreExplanation(10, this::buildRoster, scoreExplainer))
+                .isNotSameAs(scoreExplanation);
+        assertThat(explainCount).hasValue(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPeekNeitherBuildsNorExplains() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        assertThat(rosterCache.peekScoreExplanation(10)).isNull();
+        rosterCache.getRoster(10, this::buildRoster);
+        assertThat(rosterCache.peekScoreExplanation(10)).isNull();
+
+        ScoreExplanation<Roster, HardMediumSoftLongScore> scoreExplanation = rosterCache.getScoreExplanation(10,
+                this::buildRoster, roster -> mock(ScoreExplanation.class));
+        assertThat(rosterCache.peekScoreExplanation(10)).isSameAs(scoreExplanation);
+        assertThat(buildCount).hasValue(1);
+    }
+
+    @Test
+    public void testLastScoreSurvivesInvalidation() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        HardMediumSoftLongScore builtScore = HardMediumSoftLongScore.of(-1L, 0L, 0L);
+        rosterCache.getRoster(10, tenantId -> {
+            Roster roster = buildRoster(tenantId);
+            roster.setScore(builtScore);
+            return roster;
+        });
+        assertThat(rosterCache.getLastScore(10)).isEqualTo(builtScore);
+
+        rosterCache.invalidate(10);
+        assertThat(rosterCache.getLastScore(10)).isEqualTo(builtScore);
+        HardMediumSoftLongScore solvedScore = HardMediumSoftLongScore.of(0L, 0L, -5L);
+        rosterCache.putLastScore(10, solvedScore);
+        assertThat(rosterCache.getLastScore(10)).isEqualTo(solvedScore);
+
+        rosterCache.invalidateAll();
+        assertThat(rosterCache.getLastScore(10)).isNull();
+    }
+
+    private RosterScoreSession buildScoreSession(Integer tenantId) {
+        buildCount.incrementAndGet();
+        return mock(RosterScoreSession.class);
+    }
+
+    private Shift createShift(long version) {
+        Shift shift = new Shift();
+        shift.setId(1L);
+        shift.setVersion(version);
+        return shift;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testScoreSessionIsKeptByShiftUpdates() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        Shift shift = createShift(1L);
+        Indictment<HardMediumSoftLongScore> indictment = mock(Indictment.class);
+
+        rosterCache.updateShift(10, shift, 0L, tenantId -> {
+            RosterScoreSession scoreSession = buildScoreSession(tenantId);
+            when(scoreSession.getIndictment(shift)).thenReturn(indictment);
+            return scoreSession;
+        });
+        assertThat(buildCount).hasValue(1);
+        assertThat(rosterCache.getStatistics().getScoreSessionCount()).isEqualTo(1);
+        RosterScoreSession[] scoreSessionHolder = new RosterScoreSession[1];
+        // The update is applied to the kept session, which is not built again
+        assertThat(rosterCache.updateShift(10, createShift(2L), 1L, tenantId -> {
+            scoreSessionHolder[0] = buildScoreSession(tenantId);
+            return scoreSessionHolder[0];
+        })).isNull();
+        assertThat(buildCount).hasValue(1);
+        assertThat(scoreSessionHolder[0]).isNull();
+
+        // Any other change drops the session
+        rosterCache.invalidate(10);
+        assertThat(rosterCache.getStatistics().getScoreSessionCount()).isZero();
+        rosterCache.updateShift(10, createShift(3L), 2L, this::buildScoreSession);
+        assertThat(buildCount).hasValue(2);
+        assertThat(rosterCache.getStatistics().getRebuiltScoreSessionCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testScoreSessionOutOfSyncIsRebuilt() {
+        RosterCache rosterCache = new RosterCache(100L, null);
+        RosterScoreSession outOfSyncScoreSession = mock(RosterScoreSession.class);
+        rosterCache.updateShift(10, createShift(1L), 0L, tenantId -> outOfSyncScoreSession);
+        Shift shift = createShift(2L);
+        when(outOfSyncScoreSession.updateShift(shift, 1L)).thenThrow(IllegalStateException.class);
+
+        rosterCache.updateShift(10, shift, 1L, this::buildScoreSession);
+        verify(outOfSyncScoreSession).close();
+        assertThat(buildCount).hasValue(1);
+        assertThat(rosterCache.getStatistics().getScoreSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testScoreSessionIsDroppedAfterARollback() {
+        TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+        RosterCache rosterCache = new RosterCache(100L, registry);
+        RosterScoreSession scoreSession = mock(RosterScoreSession.class);
+
+        rosterCache.updateShift(10, createShift(1L), 0L, tenantId -> scoreSession);
+        ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronizationCaptor.capture());
+
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(scoreSession, never()).close();
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+        verify(scoreSession).close();
+        assertThat(rosterCache.getStatistics().getScoreSessionCount()).isZero();
+    }
+}
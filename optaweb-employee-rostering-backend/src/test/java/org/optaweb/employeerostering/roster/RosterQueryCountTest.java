@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.AbstractEntityRequireTenantRestServiceTest;
+import org.optaweb.employeerostering.domain.common.AbstractPersistable;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.service.roster.RosterCache;
+import org.optaweb.employeerostering.service.roster.RosterGenerator;
+import org.optaweb.employeerostering.service.roster.RosterService;
+import org.optaweb.employeerostering.service.shift.ShiftRepository;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.RestAssured;
+
+/**
+ * Counts the statements Hibernate prepares to load rosters of different sizes, so an association that is loaded
+ * with a select per entity fails the build instead of slowing down large tenants.
+ */
+@QuarkusTest
+public class RosterQueryCountTest extends AbstractEntityRequireTenantRestServiceTest {
+
+    // The selects that do not depend on the number of entities, with some room for new entity types
+    private static final long MAXIMUM_FIXED_QUERY_COUNT = 20L;
+    // The associations of a CRUD list that are loaded in batches, at most
+    private static final long MAXIMUM_BATCHED_ASSOCIATION_COUNT = 3L;
+    // The shift inserts, the required skill inserts and the ids taken from the sequence
+    private static final long PROVISIONING_STATEMENTS_PER_BATCH = 3L;
+
+    @Inject
+    RosterGenerator rosterGenerator;
+    @Inject
+    RosterService rosterService;
+    @Inject
+    RosterCache rosterCache;
+    @Inject
+    ShiftRepository shiftRepository;
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    private Roster smallRoster;
+    private Roster largeRoster;
+    private Statistics statistics;
+    private boolean statisticsEnabled;
+
+    @BeforeEach
+    public void setup() {
+        setupRestAssured();
+        smallRoster = rosterGenerator.generateRoster(2, 7);
+        largeRoster = rosterGenerator.generateRoster(10, 28);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statisticsEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        statistics.setStatisticsEnabled(statisticsEnabled);
+        deleteTestTenant();
+    }
+
+    // Starts from an empty roster cache, so every query of the action is counted
+    private long countQueries(Supplier<?> action) {
+        rosterCache.invalidateAll();
+        statistics.clear();
+        action.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countQueries(String pathURI, Integer tenantId) {
+        return countQueries(() -> RestAssured.get(pathURI, tenantId).then().statusCode(200));
+    }
+
+    private static long getMaximumBatchedQueryCount(int entityCount) {
+        long batchCount = (entityCount + AbstractPersistable.FETCH_BATCH_SIZE - 1)
+                / AbstractPersistable.FETCH_BATCH_SIZE;
+        return MAXIMUM_FIXED_QUERY_COUNT + MAXIMUM_BATCHED_ASSOCIATION_COUNT * batchCount;
+    }
+
+    @Test
+    public void testSolverLoadDoesNotGrowWithTheRoster() {
+        long smallQueryCount = countQueries(() -> rosterService.buildRoster(smallRoster.getTenantId()));
+        long largeQueryCount = countQueries(() -> rosterService.buildRoster(largeRoster.getTenantId()));
+
+        assertThat(largeRoster.getShiftList().size()).isGreaterThan(smallRoster.getShiftList().size());
+        assertThat(largeQueryCount).isEqualTo(smallQueryCount);
+        assertThat(largeQueryCount).isLessThanOrEqualTo(MAXIMUM_FIXED_QUERY_COUNT);
+    }
+
+    @Test
+    public void testViewLoadDoesNotGrowWithTheRoster() {
+        long smallQueryCount = countQueries(() -> getFirstDraftDayView(smallRoster));
+        long largeQueryCount = countQueries(() -> getFirstDraftDayView(largeRoster));
+
+        assertThat(largeQueryCount).isEqualTo(smallQueryCount);
+        assertThat(largeQueryCount).isLessThanOrEqualTo(MAXIMUM_FIXED_QUERY_COUNT);
+    }
+
+    private Object getFirstDraftDayView(Roster roster) {
+        LocalDate firstDraftDate = roster.getRosterState().getFirstDraftDate();
+        return rosterService.getShiftRosterView(roster.getTenantId(), 0, 2, firstDraftDate.toString(),
+                firstDraftDate.plusDays(1).toString());
+    }
+
+    @Test
+    public void testCrudListsLoadAssociationsInBatches() {
+        Integer tenantId = largeRoster.getTenantId();
+        assertThat(countQueries("/rest/tenant/{tenantId}/employee/", tenantId))
+                .isLessThanOrEqualTo(getMaximumBatchedQueryCount(largeRoster.getEmployeeList().size()));
+        assertThat(countQueries("/rest/tenant/{tenantId}/spot/", tenantId))
+                .isLessThanOrEqualTo(getMaximumBatchedQueryCount(largeRoster.getSpotList().size()));
+        // The shift list also builds and explains the whole roster
+        assertThat(countQueries("/rest/tenant/{tenantId}/shift/", tenantId))
+                .isLessThanOrEqualTo(MAXIMUM_FIXED_QUERY_COUNT
+                        + getMaximumBatchedQueryCount(largeRoster.getShiftList().size()));
+        long timeBucketCount = RestAssured.get("/rest/tenant/{tenantId}/rotation/", tenantId)
+                .jsonPath().getList("$").size();
+        assertThat(countQueries("/rest/tenant/{tenantId}/rotation/", tenantId))
+                .isLessThanOrEqualTo(getMaximumBatchedQueryCount((int) timeBucketCount));
+    }
+
+    @Test
+    public void testProvisioningInsertsInBatches() {
+        Integer tenantId = largeRoster.getTenantId();
+        List<Long> timeBucketIdList = RestAssured.get("/rest/tenant/{tenantId}/rotation/", tenantId)
+                .jsonPath().getList("id", Long.class);
+        LocalDate fromDate = largeRoster.getRosterState().getFirstUnplannedDate();
+        long startShiftCount = shiftRepository.count("tenantId", tenantId);
+
+        long queryCount = countQueries(() -> {
+            rosterService.provision(tenantId, 0, fromDate, fromDate.plusDays(27), timeBucketIdList);
+            return null;
+        });
+
+        long shiftCount = shiftRepository.count("tenantId", tenantId) - startShiftCount;
+        assertThat(shiftCount).isGreaterThan(ShiftRepository.PERSIST_BATCH_SIZE);
+        long batchCount = (shiftCount + ShiftRepository.PERSIST_BATCH_SIZE - 1) / ShiftRepository.PERSIST_BATCH_SIZE;
+        assertThat(queryCount).isLessThanOrEqualTo(MAXIMUM_FIXED_QUERY_COUNT
+                + PROVISIONING_STATEMENTS_PER_BATCH * batchCount);
+    }
+
+    @Test
+    public void testPublishDoesNotLoadShifts() {
+        Integer tenantId = largeRoster.getTenantId();
+        RosterState rosterState = largeRoster.getRosterState();
+        ZoneId zoneId = rosterState.getTimeZone();
+        LocalDate publishFrom = rosterState.getFirstDraftDate();
+        LocalDate publishTo = publishFrom.plusDays(rosterState.getPublishLength());
+        countQueries(() -> rosterService.publishAndProvision(tenantId));
+
+        assertThat(statistics.getEntityStatistics(Shift.class.getName()).getLoadCount()).isZero();
+        assertThat(rosterService.getRosterState(tenantId).getFirstDraftDate()).isEqualTo(publishTo);
+        List<Shift> publishedShiftList = shiftRepository.findAllByTenantIdBetweenDates(tenantId,
+                publishFrom.atStartOfDay(zoneId).toOffsetDateTime(),
+                publishTo.atStartOfDay(zoneId).toOffsetDateTime());
+        assertThat(publishedShiftList).isNotEmpty()
+                .allSatisfy(shift -> assertThat(shift.getOriginalEmployee()).isEqualTo(shift.getEmployee()));
+    }
+}
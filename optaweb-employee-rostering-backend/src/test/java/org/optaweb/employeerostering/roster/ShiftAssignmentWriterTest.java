@@ -0,0 +1,286 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.roster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.roster.ShiftAssignmentWriter;
+
+public class ShiftAssignmentWriterTest {
+
+    private static final Integer TENANT_ID = 0;
+
+    private EntityManager entityManager;
+    private TypedQuery<Object[]> query;
+    private TypedQuery<Object[]> readShiftEmployeesQuery;
+    private Query assignQuery;
+    private Query unassignQuery;
+    private Employee employeeA;
+    private Employee employeeB;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        entityManager = mock(EntityManager.class);
+        query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(Object[].class))).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        readShiftEmployeesQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(ShiftAssignmentWriter.READ_SHIFT_EMPLOYEES_JPQL, Object[].class))
+                .thenReturn(readShiftEmployeesQuery);
+        when(readShiftEmployeesQuery.setParameter(anyString(), any())).thenReturn(readShiftEmployeesQuery);
+        assignQuery = mockUpdateQuery(ShiftAssignmentWriter.ASSIGN_SHIFT_EMPLOYEE_JPQL);
+        unassignQuery = mockUpdateQuery(ShiftAssignmentWriter.UNASSIGN_SHIFT_EMPLOYEE_JPQL);
+
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        employeeA = new Employee(TENANT_ID, "Employee A", contract, Collections.emptySet());
+        employeeA.setId(1L);
+        employeeB = new Employee(TENANT_ID, "Employee B", contract, Collections.emptySet());
+        employeeB.setId(2L);
+        when(entityManager.getReference(Employee.class, 1L)).thenReturn(employeeA);
+        when(entityManager.getReference(Employee.class, 2L)).thenReturn(employeeB);
+    }
+
+    private Query mockUpdateQuery(String jpql) {
+        Query updateQuery = mock(Query.class);
+        when(entityManager.createQuery(jpql)).thenReturn(updateQuery);
+        when(updateQuery.setParameter(anyString(), any())).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(1);
+        return updateQuery;
+    }
+
+    private Shift createShift(long id, Employee employee) {
+        return createShift(id, employee, null);
+    }
+
+    private Shift createShift(long id, Employee employee, Long version) {
+        Shift shift = new Shift();
+        shift.setId(id);
+        shift.setEmployee(employee);
+        shift.setVersion(version);
+        return shift;
+    }
+
+    private Roster createRoster(Shift... shifts) {
+        LocalDate firstDraftDate = LocalDate.of(2021, 1, 4);
+        return new Roster((long) TENANT_ID, TENANT_ID, new RosterConstraintConfiguration(TENANT_ID, DayOfWeek.MONDAY),
+                Collections.emptyList(), Collections.emptyList(), Arrays.asList(employeeA, employeeB),
+                Collections.emptyList(),
+                new RosterState(TENANT_ID, 7, firstDraftDate, 7, 28, 0, 7, firstDraftDate.minusDays(8), ZoneOffset.UTC),
+                Arrays.asList(shifts));
+    }
+
+    private void persistEmployeeIds(Long... employeeIds) {
+        List<Object[]> rowList = new ArrayList<>(employeeIds.length);
+        for (int i = 0; i < employeeIds.length; i++) {
+            rowList.add(new Object[] { (long) i, employeeIds[i], 0L });
+        }
+        when(query.getResultList()).thenReturn(rowList);
+    }
+
+    @Test
+    public void testOnlyChangedShiftsAreWritten() {
+        persistEmployeeIds(1L, null, 2L);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA), createShift(1L, employeeB),
+                createShift(2L, null), createShift(3L, employeeA)))).isEqualTo(2);
+        verify(assignQuery).setParameter("employee", employeeB);
+        verify(assignQuery).setParameter("ids", Collections.singletonList(1L));
+        verify(assignQuery).setParameter("tenantId", TENANT_ID);
+        verify(assignQuery).setParameter("version", 0L);
+        verify(assignQuery).executeUpdate();
+        verify(unassignQuery).setParameter("ids", Collections.singletonList(2L));
+        verify(unassignQuery).setParameter("version", 0L);
+        verify(unassignQuery).executeUpdate();
+        // Not persisted anymore
+        verify(assignQuery, never()).setParameter("ids", Collections.singletonList(3L));
+
+        // Compares to what it wrote, without reading again
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA), createShift(1L, employeeB),
+                createShift(2L, null)))).isZero();
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, null), createShift(1L, employeeB),
+                createShift(2L, null)))).isEqualTo(1);
+        verify(query).getResultList();
+        verify(assignQuery).executeUpdate();
+        verify(unassignQuery).setParameter("ids", Collections.singletonList(0L));
+        verify(unassignQuery, times(2)).executeUpdate();
+
+        assertThat(writer.getStatistics().getFlushCount()).isEqualTo(3L);
+        assertThat(writer.getStatistics().getWrittenShiftCount()).isEqualTo(3L);
+        assertThat(writer.getStatistics().getUnchangedShiftCount()).isEqualTo(7L);
+    }
+
+    @Test
+    public void testReadsAgainAfterForget() {
+        persistEmployeeIds(1L);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.writeShiftEmployees(createRoster(createShift(0L, employeeA)));
+        writer.forget(TENANT_ID);
+        writer.writeShiftEmployees(createRoster(createShift(0L, employeeA)));
+        verify(query, times(2)).getResultList();
+    }
+
+    @Test
+    public void testRemembersOnlyWhatWasCommitted() {
+        persistEmployeeIds(1L);
+        TransactionSynchronizationRegistry registry = mock(TransactionSynchronizationRegistry.class);
+        when(registry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, registry);
+
+        writer.writeShiftEmployees(createRoster(createShift(0L, employeeB)));
+        ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(registry).registerInterposedSynchronization(synchronizationCaptor.capture());
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        // Writes the same change again, because the database still has the old employee and version
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeB)))).isEqualTo(1);
+        verify(query).getResultList();
+        verify(assignQuery, times(2)).setParameter("employee", employeeB);
+        verify(assignQuery, times(2)).setParameter("version", 0L);
+        verify(registry, times(2)).registerInterposedSynchronization(synchronizationCaptor.capture());
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA)))).isEqualTo(1);
+        verify(assignQuery).setParameter("version", 1L);
+    }
+
+    @Test
+    public void testExpectsTheShiftsAsTheSolveLoadedThem() {
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.expectPersisted(TENANT_ID, Arrays.asList(createShift(0L, employeeA, 3L), createShift(1L, null, 5L)));
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA, 3L),
+                createShift(1L, employeeB, 5L)))).isEqualTo(1);
+        verify(query, never()).getResultList();
+        verify(assignQuery).setParameter("ids", Collections.singletonList(1L));
+        verify(assignQuery).setParameter("version", 5L);
+        verify(assignQuery).executeUpdate();
+    }
+
+    @Test
+    public void testConflictingShiftsAreNotWrittenAgain() {
+        // Users changed the shift since the solve loaded it, so its version does not match
+        when(assignQuery.executeUpdate()).thenReturn(0);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.expectPersisted(TENANT_ID, Collections.singletonList(createShift(0L, null, 0L)));
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA)))).isZero();
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeB)))).isZero();
+        verify(assignQuery).executeUpdate();
+
+        assertThat(writer.getStatistics().getWrittenShiftCount()).isZero();
+        assertThat(writer.getStatistics().getConflictingShiftCount()).isEqualTo(1L);
+
+        // The next solve starts from what the users changed
+        writer.expectPersisted(TENANT_ID, Collections.singletonList(createShift(0L, employeeB, 1L)));
+        when(assignQuery.executeUpdate()).thenReturn(1);
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA)))).isEqualTo(1);
+        verify(assignQuery).setParameter("version", 1L);
+    }
+
+    @Test
+    public void testConflictingUnassignmentsAreNotCountedAsWritten() {
+        // Users changed the shift since the solve loaded it, so its version does not match
+        when(unassignQuery.executeUpdate()).thenReturn(0);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.expectPersisted(TENANT_ID,
+                Arrays.asList(createShift(0L, employeeA, 0L), createShift(1L, employeeB, 0L)));
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, null), createShift(1L, employeeA))))
+                .isEqualTo(1);
+        verify(unassignQuery).setParameter("ids", Collections.singletonList(0L));
+        verify(assignQuery).setParameter("ids", Collections.singletonList(1L));
+        assertThat(writer.getStatistics().getWrittenShiftCount()).isEqualTo(1L);
+        assertThat(writer.getStatistics().getConflictingShiftCount()).isEqualTo(1L);
+
+        // The conflicting shift is not written again and the written one did not change since
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeB), createShift(1L, employeeA))))
+                .isZero();
+        verify(assignQuery).executeUpdate();
+    }
+
+    @Test
+    public void testShiftsWithTheSameEmployeeAndVersionShareAnUpdate() {
+        when(assignQuery.executeUpdate()).thenReturn(3);
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.expectPersisted(TENANT_ID, Arrays.asList(createShift(0L, null, 0L), createShift(1L, null, 0L),
+                createShift(2L, null, 0L), createShift(3L, null, 1L)));
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA), createShift(1L, employeeA),
+                createShift(2L, employeeA), createShift(3L, employeeA)))).isEqualTo(4);
+        verify(assignQuery).setParameter("ids", Arrays.asList(0L, 1L, 2L));
+        verify(assignQuery).setParameter("ids", Collections.singletonList(3L));
+        verify(assignQuery, times(2)).executeUpdate();
+        // Every update reported all its shifts
+        verify(readShiftEmployeesQuery, never()).getResultList();
+    }
+
+    @Test
+    public void testUpdateThatMissedShiftsReadsWhichOnes() {
+        when(assignQuery.executeUpdate()).thenReturn(2);
+        // Shift 2 was reassigned by a user, shift 1 was assigned the same employee by a user
+        when(readShiftEmployeesQuery.getResultList()).thenReturn(Arrays.asList(new Object[] { 0L, 1L, 1L },
+                new Object[] { 1L, 1L, 1L }, new Object[] { 2L, 2L, 1L }));
+        ShiftAssignmentWriter writer = new ShiftAssignmentWriter(entityManager, null);
+        writer.expectPersisted(TENANT_ID, Arrays.asList(createShift(0L, null, 0L), createShift(1L, null, 0L),
+                createShift(2L, null, 0L)));
+
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeA), createShift(1L, employeeA),
+                createShift(2L, employeeA)))).isEqualTo(2);
+        verify(readShiftEmployeesQuery).setParameter("ids", Arrays.asList(0L, 1L, 2L));
+        assertThat(writer.getStatistics().getConflictingShiftCount()).isEqualTo(1L);
+
+        // The written shifts are remembered with their next version, the conflicting one is not written again
+        assertThat(writer.writeShiftEmployees(createRoster(createShift(0L, employeeB), createShift(1L, employeeB),
+                createShift(2L, employeeB)))).isEqualTo(2);
+        verify(assignQuery).setParameter("version", 1L);
+        verify(assignQuery).setParameter("ids", Arrays.asList(0L, 1L));
+    }
+}
@@ -62,10 +62,12 @@ import org.optaweb.employeerostering.domain.contract.Contract;
 import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
 import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
 import org.optaweb.employeerostering.domain.roster.Roster;
 import org.optaweb.employeerostering.domain.roster.RosterState;
 import org.optaweb.employeerostering.domain.shift.Shift;
 import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
 import org.optaweb.employeerostering.domain.spot.Spot;
 import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
 import org.optaweb.employeerostering.domain.tenant.Tenant;
@@ -170,6 +172,8 @@ public abstract class AbstractSolverTest {
         roster.setRosterConstraintConfiguration(constraintConfiguration);
         roster.setEmployeeAvailabilityList(Collections.emptyList());
         roster.setShiftList(shiftList);
+        SkillIndex.indexRoster(roster);
+        EligibleEmployeeIndex.indexRoster(roster, true);
 
         roster = solver.solve(roster);
         assertThat(roster.getShiftList())
@@ -288,14 +292,17 @@ public abstract class AbstractSolverTest {
         roster.setRosterConstraintConfiguration(rosterConstraintConfiguration);
         roster.setEmployeeAvailabilityList(Collections.emptyList());
         roster.setShiftList(Collections.singletonList(shift));
+        SkillIndex.indexRoster(roster);
 
         final Constraints constraint = Constraints.REQUIRED_SKILL_FOR_A_SHIFT;
         constraint.verifyNumOfInstances(scoreVerifier, roster, 540);
 
         employeeA.setSkillProficiencySet(new HashSet<>(Collections.singleton(skillA)));
+        SkillIndex.indexRoster(roster);
 
         constraint.verifyNumOfInstances(scoreVerifier, roster, 540);
 
+        // Replacing the skill set without indexing again must not leave a stale skill mask behind
         employeeA.setSkillProficiencySet(new HashSet<>(Collections.singleton(skillB)));
 
         constraint.verifyNumOfInstances(scoreVerifier, roster, 540);
@@ -303,6 +310,17 @@ public abstract class AbstractSolverTest {
         employeeA.setSkillProficiencySet(new HashSet<>(Arrays.asList(skillA, skillB)));
 
         constraint.verifyNumOfInstances(scoreVerifier, roster, 0);
+
+        SkillIndex.indexRoster(roster);
+
+        constraint.verifyNumOfInstances(scoreVerifier, roster, 0);
+
+        spotA.setRequiredSkillSet(Collections.emptySet());
+        shift.setRequiredSkillSet(new HashSet<>(Collections.singleton(skillB)));
+        employeeA.setSkillProficiencySet(new HashSet<>(Collections.singleton(skillA)));
+        SkillIndex.indexRoster(roster);
+
+        constraint.verifyNumOfInstances(scoreVerifier, roster, 540);
     }
 
     private void testAvailabilityConstraint(EmployeeAvailabilityState availabilityState) {
@@ -439,6 +457,13 @@ public abstract class AbstractSolverTest {
 
         constraint.verifyNumOfInstances(scoreVerifier, roster, 60);
 
+        // Consecutive shifts are matched on the instant, even if their date times use a different offset
+        Shift secondShift = shiftList.get(1);
+        secondShift.setStartDateTime(secondShift.getStartDateTime().withOffsetSameInstant(ZoneOffset.ofHours(2)));
+        secondShift.setEndDateTime(secondShift.getEndDateTime().withOffsetSameInstant(ZoneOffset.ofHours(2)));
+
+        constraint.verifyNumOfInstances(scoreVerifier, roster, 60);
+
         // Start time is midnight, so one hour before is a different day
         shiftBuilder.withTimeBetweenShifts(Duration.ofHours(-1));
         shiftList = shiftBuilder.generateShifts(3);
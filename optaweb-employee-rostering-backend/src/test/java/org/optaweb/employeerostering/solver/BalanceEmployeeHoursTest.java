@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider.getLoadBalance;
+import static org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider.getSquaredWorkedHours;
+
+import org.junit.jupiter.api.Test;
+
+public class BalanceEmployeeHoursTest {
+
+    @Test
+    public void testLoadBalance() {
+        assertThat(getLoadBalance(0L)).isZero();
+
+        long squaredWorkedHoursSum = getSquaredWorkedHours(3 * 60) + getSquaredWorkedHours(4 * 60);
+        // sqrt(3 * 3 + 4 * 4) = 5
+        assertThat(getLoadBalance(squaredWorkedHoursSum)).isEqualTo(5000L);
+
+        // A started hour counts as a full hour
+        squaredWorkedHoursSum += getSquaredWorkedHours(1);
+        assertThat(getLoadBalance(squaredWorkedHoursSum)).isEqualTo(Math.round(Math.sqrt(26) * 1000));
+
+        squaredWorkedHoursSum -= getSquaredWorkedHours(1) + getSquaredWorkedHours(4 * 60);
+        assertThat(getLoadBalance(squaredWorkedHoursSum)).isEqualTo(3000L);
+    }
+
+    @Test
+    public void testEvenSpreadIsBalanced() {
+        long even = getSquaredWorkedHours(20 * 60) + getSquaredWorkedHours(20 * 60);
+        long uneven = getSquaredWorkedHours(40 * 60) + getSquaredWorkedHours(0);
+        assertThat(getLoadBalance(even)).isLessThan(getLoadBalance(uneven));
+    }
+
+    @Test
+    public void testInvalidMinutes() {
+        assertThatIllegalArgumentException().isThrownBy(() -> getSquaredWorkedHours(-1));
+    }
+}
@@ -16,13 +16,42 @@
 
 package org.optaweb.employeerostering.solver;
 
+import static java.time.Duration.between;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.optaplanner.core.api.score.stream.ConstraintCollectors.sumDuration;
+import static org.optaplanner.core.api.score.stream.Joiners.equal;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+import static org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration.CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM;
+
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
 import javax.inject.Inject;
 
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+import org.optaplanner.core.api.score.stream.ConstraintProvider;
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
 import org.optaplanner.core.config.solver.SolverConfig;
 import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaweb.employeerostering.domain.employee.Employee;
 import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
 import org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider;
 
 import io.quarkus.test.junit.QuarkusTest;
@@ -45,4 +74,156 @@ public class ConstraintProviderSolverTest extends AbstractSolverTest {
                                 .withBestScoreLimit(AbstractSolverTest.BEST_SCORE_TERMINATION_LIMIT)
                                 .withScoreCalculationCountLimit(10000L)));
     }
+
+    @Test
+    @Timeout(600000)
+    public void testContractMinutesConstraintsMatchPerPeriodConstraints() {
+        ScoreManager<Roster, HardMediumSoftLongScore> scoreManager = ScoreManager.create(getSolverFactory());
+        ScoreManager<Roster, HardMediumSoftLongScore> perPeriodScoreManager = ScoreManager.create(
+                SolverFactory.create(solverConfig.copyConfig()
+                        .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                                .withConstraintProviderClass(PerPeriodContractMinutesConstraintProvider.class))));
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 28);
+        List<Employee> employeeList = roster.getEmployeeList();
+        Random random = new Random(37);
+        for (int i = 0; i < 10; i++) {
+            for (Shift shift : roster.getShiftList()) {
+                // Crowd the shifts on a few employees to exceed every contract maximum
+                int index = random.nextInt(employeeList.size() / 4 + 1);
+                shift.setEmployee(index == 0 ? null : employeeList.get(index - 1));
+            }
+            Map<String, HardMediumSoftLongScore> expectedScoreMap =
+                    getContractMinutesConstraintNameToScoreMap(perPeriodScoreManager, roster);
+            assertThat(expectedScoreMap.values()).anyMatch(score -> !score.equals(HardMediumSoftLongScore.ZERO));
+            assertThat(getContractMinutesConstraintNameToScoreMap(scoreManager, roster)).isEqualTo(expectedScoreMap);
+            // One match per employee and period
+            assertThat(getContractMinutesConstraintNameToMatchCountMap(scoreManager, roster))
+                    .isEqualTo(getContractMinutesConstraintNameToMatchCountMap(perPeriodScoreManager, roster));
+        }
+    }
+
+    @Test
+    @Timeout(600000)
+    public void testUnassignedShiftsDoNotCountTowardsContractMinutes() {
+        ScoreManager<Roster, HardMediumSoftLongScore> scoreManager = ScoreManager.create(getSolverFactory());
+        ScoreManager<Roster, HardMediumSoftLongScore> perPeriodScoreManager = ScoreManager.create(
+                SolverFactory.create(solverConfig.copyConfig()
+                        .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                                .withConstraintProviderClass(PerPeriodContractMinutesConstraintProvider.class))));
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 7);
+        roster.getShiftList().forEach(shift -> shift.setEmployee(null));
+        assertThat(scoreManager.updateScore(roster)).isNotNull();
+        assertThat(getContractMinutesConstraintNameToScoreMap(scoreManager, roster).values())
+                .containsOnly(HardMediumSoftLongScore.ZERO);
+
+        // Every other shift on one employee, to exceed its contract maximums next to unassigned shifts
+        Employee employee = roster.getEmployeeList().get(0);
+        for (int i = 0; i < roster.getShiftList().size(); i += 2) {
+            roster.getShiftList().get(i).setEmployee(employee);
+        }
+        Map<String, HardMediumSoftLongScore> expectedScoreMap =
+                getContractMinutesConstraintNameToScoreMap(perPeriodScoreManager, roster);
+        assertThat(expectedScoreMap.values()).anyMatch(score -> !score.equals(HardMediumSoftLongScore.ZERO));
+        assertThat(getContractMinutesConstraintNameToScoreMap(scoreManager, roster)).isEqualTo(expectedScoreMap);
+    }
+
+    private static final List<String> CONTRACT_MINUTES_CONSTRAINT_NAME_LIST = Arrays.asList(
+            CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+            CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM);
+
+    private static Map<String, HardMediumSoftLongScore> getContractMinutesConstraintNameToScoreMap(
+            ScoreManager<Roster, HardMediumSoftLongScore> scoreManager, Roster roster) {
+        Map<String, HardMediumSoftLongScore> constraintNameToScoreMap = new TreeMap<>();
+        CONTRACT_MINUTES_CONSTRAINT_NAME_LIST.forEach(name -> constraintNameToScoreMap.put(name,
+                HardMediumSoftLongScore.ZERO));
+        for (ConstraintMatchTotal<HardMediumSoftLongScore> constraintMatchTotal : scoreManager.explainScore(roster)
+                .getConstraintMatchTotalMap().values()) {
+            if (CONTRACT_MINUTES_CONSTRAINT_NAME_LIST.contains(constraintMatchTotal.getConstraintName())) {
+                constraintNameToScoreMap.put(constraintMatchTotal.getConstraintName(), constraintMatchTotal.getScore());
+            }
+        }
+        return constraintNameToScoreMap;
+    }
+
+    private static Map<String, Integer> getContractMinutesConstraintNameToMatchCountMap(
+            ScoreManager<Roster, HardMediumSoftLongScore> scoreManager, Roster roster) {
+        Map<String, Integer> constraintNameToMatchCountMap = new TreeMap<>();
+        CONTRACT_MINUTES_CONSTRAINT_NAME_LIST.forEach(name -> constraintNameToMatchCountMap.put(name, 0));
+        for (ConstraintMatchTotal<HardMediumSoftLongScore> constraintMatchTotal : scoreManager.explainScore(roster)
+                .getConstraintMatchTotalMap().values()) {
+            if (CONTRACT_MINUTES_CONSTRAINT_NAME_LIST.contains(constraintMatchTotal.getConstraintName())) {
+                constraintNameToMatchCountMap.put(constraintMatchTotal.getConstraintName(),
+                        constraintMatchTotal.getConstraintMatchCount());
+            }
+        }
+        return constraintNameToMatchCountMap;
+    }
+
+    /**
+     * The contract minutes constraints as they were before the historic worked minutes,
+     * summing durations, with a join and a grouping per period.
+     */
+    public static final class PerPeriodContractMinutesConstraintProvider implements ConstraintProvider {
+
+        @Override
+        public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+            return new Constraint[] {
+                    constraintFactory.from(Employee.class)
+                            .filter(employee -> employee.getContract().getMaximumMinutesPerDay() != null)
+                            .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
+                            .groupBy((employee, shift) -> employee,
+                                    (employee, shift) -> shift.getStartDateTime().toLocalDate(),
+                                    sumDuration((employee, shift) -> between(shift.getStartDateTime(),
+                                            shift.getEndDateTime())))
+                            .filter((employee, day, total) -> total.toMinutes() > employee.getContract()
+                                    .getMaximumMinutesPerDay())
+                            .penalizeConfigurableLong(CONSTRAINT_DAILY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                                    (employee, day, total) -> total.toMinutes()
+                                            - employee.getContract().getMaximumMinutesPerDay()),
+                    constraintFactory.from(RosterConstraintConfiguration.class)
+                            .join(Employee.class)
+                            .filter((configuration, employee) -> employee.getContract().getMaximumMinutesPerWeek() != null)
+                            .join(Shift.class, equal((configuration, employee) -> employee, Shift::getEmployee))
+                            .groupBy((configuration, employee, shift) -> employee,
+                                    (configuration, employee, shift) -> shift.getStartDateTime()
+                                            .with(TemporalAdjusters.previousOrSame(configuration.getWeekStartDay()))
+                                            .toLocalDate(),
+                                    sumDuration((configuration, employee, shift) -> between(shift.getStartDateTime(),
+                                            shift.getEndDateTime())))
+                            .filter((employee, week, total) -> total.toMinutes() > employee.getContract()
+                                    .getMaximumMinutesPerWeek())
+                            .penalizeConfigurableLong(CONSTRAINT_WEEKLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                                    (employee, week, total) -> total.toMinutes()
+                                            - employee.getContract().getMaximumMinutesPerWeek()),
+                    constraintFactory.from(Employee.class)
+                            .filter(employee -> employee.getContract().getMaximumMinutesPerMonth() != null)
+                            .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
+                            .groupBy((employee, shift) -> employee,
+                                    (employee, shift) -> YearMonth.from(shift.getStartDateTime()),
+                                    sumDuration((employee, shift) -> between(shift.getStartDateTime(),
+                                            shift.getEndDateTime())))
+                            .filter((employee, month, total) -> total.toMinutes() > employee.getContract()
+                                    .getMaximumMinutesPerMonth())
+                            .penalizeConfigurableLong(CONSTRAINT_MONTHLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                                    (employee, month, total) -> total.toMinutes()
+                                            - employee.getContract().getMaximumMinutesPerMonth()),
+                    constraintFactory.from(Employee.class)
+                            .filter(employee -> employee.getContract().getMaximumMinutesPerYear() != null)
+                            .join(Shift.class, equal(Function.identity(), Shift::getEmployee))
+                            .groupBy((employee, shift) -> employee,
+                                    (employee, shift) -> shift.getStartDateTime().getYear(),
+                                    sumDuration((employee, shift) -> between(shift.getStartDateTime(),
+                                            shift.getEndDateTime())))
+                            .filter((employee, year, total) -> total.toMinutes() > employee.getContract()
+                                    .getMaximumMinutesPerYear())
+                            .penalizeConfigurableLong(CONSTRAINT_YEARLY_MINUTES_MUST_NOT_EXCEED_CONTRACT_MAXIMUM,
+                                    (employee, year, total) -> total.toMinutes()
+                                            - employee.getContract().getMaximumMinutesPerYear())
+            };
+        }
+    }
 }
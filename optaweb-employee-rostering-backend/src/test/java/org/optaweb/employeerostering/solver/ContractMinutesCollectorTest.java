@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.Accumulator;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.ContractMinutes;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.ExcessPeriod;
+import org.optaweb.employeerostering.service.solver.ContractMinutesCollector.Period;
+
+public class ContractMinutesCollectorTest {
+
+    private static final Integer TENANT_ID = 0;
+    // A Monday
+    private static final LocalDate MONDAY = LocalDate.of(2021, 1, 4);
+
+    private final ContractMinutesCollector collector = ContractMinutesCollector.contractMinutes();
+    private RosterConstraintConfiguration configuration;
+    private Spot spot;
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new RosterConstraintConfiguration(TENANT_ID, DayOfWeek.MONDAY);
+        spot = new Spot(TENANT_ID, "Spot", Collections.emptySet());
+        Contract contract = new Contract(TENANT_ID, "Contract", 480, 600, 700, 800);
+        employee = new Employee(TENANT_ID, "Employee", contract, Collections.emptySet());
+    }
+
+    private Shift createShift(LocalDate date, int startHour) {
+        OffsetDateTime start = date.atTime(startHour, 0).atOffset(ZoneOffset.UTC);
+        Shift shift = new Shift(TENANT_ID, spot, start, start.plusHours(5));
+        shift.setEmployee(employee);
+        return shift;
+    }
+
+    private Runnable accumulate(Accumulator accumulator, Shift shift) {
+        return collector.accumulator().apply(accumulator, configuration, shift);
+    }
+
+    @Test
+    public void testOnePassEmitsEveryPeriodType() {
+        Accumulator accumulator = collector.supplier().get();
+        accumulate(accumulator, createShift(MONDAY, 8));
+        accumulate(accumulator, createShift(MONDAY, 14));
+        Runnable undo = accumulate(accumulator, createShift(MONDAY.plusDays(1), 8));
+
+        ContractMinutes contractMinutes = collector.finisher().apply(accumulator);
+        assertThat(contractMinutes.getExcessPeriodList(Period.DAILY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(MONDAY, 600L, 120L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.WEEKLY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(MONDAY, 900L, 300L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.MONTHLY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(YearMonth.of(2021, 1), 900L, 200L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.YEARLY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(2021, 900L, 100L));
+
+        undo.run();
+        contractMinutes = collector.finisher().apply(accumulator);
+        assertThat(contractMinutes.getExcessPeriodList(Period.DAILY)).hasSize(1);
+        assertThat(contractMinutes.getExcessPeriodList(Period.WEEKLY)).isEmpty();
+        assertThat(contractMinutes.getExcessPeriodList(Period.MONTHLY)).isEmpty();
+        assertThat(contractMinutes.getExcessPeriodList(Period.YEARLY)).isEmpty();
+    }
+
+    @Test
+    public void testHistoricExcessDoesNotCount() {
+        HistoricWorkedMinutes historicWorkedMinutes = new HistoricWorkedMinutes(employee);
+        // Exceeds the daily maximum on its own, but not the others
+        historicWorkedMinutes.addShift(MONDAY, DayOfWeek.MONDAY, 600L);
+        employee.setHistoricWorkedMinutes(historicWorkedMinutes);
+
+        Accumulator accumulator = collector.supplier().get();
+        accumulate(accumulator, createShift(MONDAY, 8));
+        accumulate(accumulator, createShift(MONDAY, 14));
+        accumulate(accumulator, createShift(MONDAY.plusDays(1), 8));
+
+        ContractMinutes contractMinutes = collector.finisher().apply(accumulator);
+        assertThat(contractMinutes.getExcessPeriodList(Period.DAILY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(MONDAY, 1200L, 600L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.WEEKLY))
+                .extracting(ExcessPeriod::getPeriod, ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(MONDAY, 1500L, 900L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.MONTHLY))
+                .extracting(ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(1500L, 800L));
+        assertThat(contractMinutes.getExcessPeriodList(Period.YEARLY))
+                .extracting(ExcessPeriod::getWorkedMinutes, ExcessPeriod::getExcessMinutes)
+                .containsExactly(tuple(1500L, 700L));
+    }
+
+    @Test
+    public void testPeriodsWithoutMaximumAreNotBucketed() {
+        employee.setContract(new Contract(TENANT_ID, "Daily only", 480, null, null, null));
+        Accumulator accumulator = collector.supplier().get();
+        accumulate(accumulator, createShift(MONDAY, 8));
+        accumulate(accumulator, createShift(MONDAY, 14));
+
+        ContractMinutes contractMinutes = collector.finisher().apply(accumulator);
+        assertThat(contractMinutes.getExcessPeriodList(Period.DAILY)).hasSize(1);
+        assertThat(contractMinutes.getExcessPeriodList(Period.WEEKLY)).isEmpty();
+        assertThat(contractMinutes.getExcessPeriodList(Period.MONTHLY)).isEmpty();
+        assertThat(contractMinutes.getExcessPeriodList(Period.YEARLY)).isEmpty();
+    }
+}
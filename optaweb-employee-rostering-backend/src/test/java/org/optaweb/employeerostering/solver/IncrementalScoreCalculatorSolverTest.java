@@ -0,0 +1,272 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.DayOfWeek;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.ConstraintMatchTotal;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.HistoricWorkedMinutes;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.solver.EmployeeRosteringConstraintProvider;
+import org.optaweb.employeerostering.service.solver.EmployeeRosteringIncrementalScoreCalculator;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class IncrementalScoreCalculatorSolverTest extends AbstractSolverTest {
+
+    @Inject
+    SolverConfig solverConfig;
+
+    @Override
+    public SolverFactory<Roster> getSolverFactory() {
+        return SolverFactory.create(solverConfig.copyConfig()
+                .withScoreDirectorFactory(
+                        new ScoreDirectorFactoryConfig()
+                                .withIncrementalScoreCalculatorClass(
+                                        EmployeeRosteringIncrementalScoreCalculator.class))
+                .withTerminationConfig(
+                        new TerminationConfig()
+                                .withBestScoreLimit(AbstractSolverTest.BEST_SCORE_TERMINATION_LIMIT)
+                                .withScoreCalculationCountLimit(10000L)));
+    }
+
+    private SolverFactory<Roster> getConstraintProviderSolverFactory() {
+        return SolverFactory.create(solverConfig.copyConfig()
+                .withScoreDirectorFactory(
+                        new ScoreDirectorFactoryConfig()
+                                .withConstraintProviderClass(EmployeeRosteringConstraintProvider.class)));
+    }
+
+    @Test
+    @Timeout(600000)
+    public void testScoreMatchesConstraintProvider() {
+        ScoreManager<Roster, HardMediumSoftLongScore> incrementalScoreManager = ScoreManager.create(getSolverFactory());
+        ScoreManager<Roster, HardMediumSoftLongScore> constraintProviderScoreManager =
+                ScoreManager.create(getConstraintProviderSolverFactory());
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 14);
+        // Opt in to the fairness constraint, which is disabled by default
+        roster.getRosterConstraintConfiguration().setBalanceEmployeeHours(HardMediumSoftLongScore.ofSoft(1));
+        List<Employee> employeeList = roster.getEmployeeList();
+        Random random = new Random(37);
+        for (int i = 0; i < 10; i++) {
+            for (Shift shift : roster.getShiftList()) {
+                // Leave some shifts unassigned and crowd the others on a few employees to trigger every constraint
+                int index = random.nextInt(employeeList.size() / 4 + 1);
+                shift.setEmployee(index == 0 ? null : employeeList.get(index - 1));
+            }
+            HardMediumSoftLongScore expectedScore = constraintProviderScoreManager.updateScore(roster);
+            assertThat(incrementalScoreManager.updateScore(roster)).isEqualTo(expectedScore);
+            assertThat(getConstraintNameToScoreMap(incrementalScoreManager, roster))
+                    .isEqualTo(getConstraintNameToScoreMap(constraintProviderScoreManager, roster));
+        }
+    }
+
+    // FULL_ASSERT compares every incremental score with a score calculated from scratch by the constraint provider
+    @Test
+    @Timeout(600000)
+    public void testIncrementalScoreMatchesConstraintProviderWhileSolving() {
+        Solver<Roster> solver = SolverFactory.<Roster> create(solverConfig.copyConfig()
+                .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                .withScoreDirectorFactory(
+                        new ScoreDirectorFactoryConfig()
+                                .withIncrementalScoreCalculatorClass(EmployeeRosteringIncrementalScoreCalculator.class)
+                                .withAssertionScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                                        .withConstraintProviderClass(EmployeeRosteringConstraintProvider.class)))
+                .withTerminationConfig(new TerminationConfig().withScoreCalculationCountLimit(2000L)))
+                .buildSolver();
+
+        Roster problem = buildRosterGenerator().generateRoster(2, 7);
+        problem.getRosterConstraintConfiguration().setBalanceEmployeeHours(HardMediumSoftLongScore.ofSoft(1));
+        Roster roster = solver.solve(problem);
+        assertThat(roster.getScore()).isNotNull();
+    }
+
+    // Archiving a shift only shifts the score by the constraints that it no longer takes part in,
+    // so it does not change how a shift that can still move scores, with either score calculation
+    @Test
+    @Timeout(600000)
+    public void testArchivedShiftsDoNotChangeTheScoreOfMovableShifts() {
+        ScoreManager<Roster, HardMediumSoftLongScore> incrementalScoreManager = ScoreManager.create(getSolverFactory());
+        ScoreManager<Roster, HardMediumSoftLongScore> constraintProviderScoreManager =
+                ScoreManager.create(getConstraintProviderSolverFactory());
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 28);
+        List<Employee> employeeList = roster.getEmployeeList();
+        Random random = new Random(37);
+        for (Shift shift : roster.getShiftList()) {
+            // Crowd the shifts on a few employees to exceed every contract maximum
+            int index = random.nextInt(employeeList.size() / 4 + 1);
+            shift.setEmployee(index == 0 ? null : employeeList.get(index - 1));
+        }
+        // Like RosterService.buildRoster(), which keeps the shifts within its lookback before the movable shifts
+        OffsetDateTime archiveEndDateTime = roster.getShiftList().get(0).getStartDateTime().plusDays(14);
+        OffsetDateTime movableStartDateTime = archiveEndDateTime.plusDays(2);
+        DayOfWeek weekStartDay = roster.getRosterConstraintConfiguration().getWeekStartDay();
+        Map<Employee, HistoricWorkedMinutes> employeeToHistoricWorkedMinutesMap = new HashMap<>();
+        List<Shift> loadedShiftList = new ArrayList<>();
+        List<Shift> movableShiftList = new ArrayList<>();
+        for (Shift shift : roster.getShiftList()) {
+            if (!shift.getEndDateTime().isBefore(archiveEndDateTime)) {
+                loadedShiftList.add(shift);
+                if (!shift.getStartDateTime().isBefore(movableStartDateTime)) {
+                    movableShiftList.add(shift);
+                }
+            } else if (shift.getEmployee() != null) {
+                employeeToHistoricWorkedMinutesMap.computeIfAbsent(shift.getEmployee(), HistoricWorkedMinutes::new)
+                        .addShift(shift.getStartDateTime().toLocalDate(), weekStartDay, shift.getLengthInMinutes());
+            }
+        }
+        assertThat(loadedShiftList).hasSizeLessThan(roster.getShiftList().size());
+        assertThat(movableShiftList).isNotEmpty();
+        Roster archivedRoster = new Roster(roster.getId(), roster.getTenantId(),
+                roster.getRosterConstraintConfiguration(), roster.getSkillList(), roster.getSpotList(), employeeList,
+                roster.getEmployeeAvailabilityList(), roster.getRosterState(), loadedShiftList);
+        archivedRoster.setHistoricWorkedMinutesList(new ArrayList<>(employeeToHistoricWorkedMinutesMap.values()));
+
+        HardMediumSoftLongScore archivedScoreDifference = null;
+        for (int i = 0; i < 10; i++) {
+            for (Shift shift : movableShiftList) {
+                int index = random.nextInt(employeeList.size() / 4 + 1);
+                shift.setEmployee(index == 0 ? null : employeeList.get(index - 1));
+            }
+            employeeList.forEach(employee -> employee.setHistoricWorkedMinutes(null));
+            HardMediumSoftLongScore score = constraintProviderScoreManager.updateScore(roster);
+            employeeToHistoricWorkedMinutesMap.forEach(Employee::setHistoricWorkedMinutes);
+            HardMediumSoftLongScore archivedScore = constraintProviderScoreManager.updateScore(archivedRoster);
+            assertThat(incrementalScoreManager.updateScore(archivedRoster)).isEqualTo(archivedScore);
+            assertThat(getConstraintNameToScoreMap(incrementalScoreManager, archivedRoster))
+                    .isEqualTo(getConstraintNameToScoreMap(constraintProviderScoreManager, archivedRoster));
+            if (archivedScoreDifference == null) {
+                archivedScoreDifference = score.subtract(archivedScore);
+            } else {
+                assertThat(score.subtract(archivedScore)).isEqualTo(archivedScoreDifference);
+            }
+        }
+        employeeList.forEach(employee -> employee.setHistoricWorkedMinutes(null));
+    }
+
+    @Test
+    @Timeout(600000)
+    public void testZeroWeightConstraintsAreNotExplained() {
+        ScoreManager<Roster, HardMediumSoftLongScore> incrementalScoreManager = ScoreManager.create(getSolverFactory());
+        ScoreManager<Roster, HardMediumSoftLongScore> constraintProviderScoreManager =
+                ScoreManager.create(getConstraintProviderSolverFactory());
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 7);
+        roster.getRosterConstraintConfiguration().setUndesiredTimeSlot(HardMediumSoftLongScore.ZERO);
+        List<Employee> employeeList = roster.getEmployeeList();
+        Random random = new Random(37);
+        for (Shift shift : roster.getShiftList()) {
+            shift.setEmployee(employeeList.get(random.nextInt(employeeList.size())));
+        }
+        Map<String, HardMediumSoftLongScore> constraintNameToScoreMap =
+                getConstraintNameToScoreMap(incrementalScoreManager, roster);
+        assertThat(constraintNameToScoreMap)
+                .doesNotContainKey(RosterConstraintConfiguration.CONSTRAINT_UNDESIRED_TIME_SLOT_FOR_AN_EMPLOYEE)
+                .doesNotContainKey(RosterConstraintConfiguration.CONSTRAINT_BALANCE_EMPLOYEE_HOURS)
+                .isEqualTo(getConstraintNameToScoreMap(constraintProviderScoreManager, roster));
+    }
+
+    // The longest shift bounds the range scans of the timelines, so a longer shift added while solving must raise it
+    @Test
+    @Timeout(600000)
+    @SuppressWarnings("unchecked")
+    public void testAddedLongerShiftIsScored() {
+        ScoreManager<Roster, HardMediumSoftLongScore> constraintProviderScoreManager =
+                ScoreManager.create(getConstraintProviderSolverFactory());
+
+        Roster roster = buildRosterGenerator().generateRoster(10, 7);
+        roster.setShiftList(new ArrayList<>(roster.getShiftList()));
+        roster.getShiftList().forEach(shift -> shift.setEmployee(null));
+        Employee employee = roster.getEmployeeList().get(0);
+        Shift firstShift = roster.getShiftList().stream()
+                .min(Comparator.comparing(Shift::getStartDateTime))
+                .orElseThrow();
+        OffsetDateTime longShiftEndDateTime = firstShift.getStartDateTime().plusDays(3);
+        // Starts much later than the long shift, so only a range scan as long as the long shift finds it
+        Shift laterShift = roster.getShiftList().stream()
+                .filter(shift -> shift.getStartDateTime().isAfter(firstShift.getStartDateTime().plusDays(2))
+                        && shift.getStartDateTime().isBefore(longShiftEndDateTime))
+                .findFirst()
+                .orElseThrow();
+
+        DefaultSolverFactory<Roster> solverFactory = (DefaultSolverFactory<Roster>) getSolverFactory();
+        InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> scoreDirectorFactory =
+                (InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore>) solverFactory.getScoreDirectorFactory();
+        InnerScoreDirector<Roster, HardMediumSoftLongScore> scoreDirector =
+                scoreDirectorFactory.buildScoreDirector(false, true);
+        scoreDirector.setWorkingSolution(roster);
+        scoreDirector.calculateScore();
+
+        Shift longShift = new Shift(roster.getTenantId(), firstShift.getSpot(), firstShift.getStartDateTime(),
+                longShiftEndDateTime);
+        longShift.setId(Long.MAX_VALUE);
+        longShift.setEmployee(employee);
+        scoreDirector.beforeEntityAdded(longShift);
+        roster.getShiftList().add(longShift);
+        scoreDirector.afterEntityAdded(longShift);
+        scoreDirector.beforeVariableChanged(laterShift, "employee");
+        laterShift.setEmployee(employee);
+        scoreDirector.afterVariableChanged(laterShift, "employee");
+        scoreDirector.triggerVariableListeners();
+
+        assertThat(scoreDirector.calculateScore()).isEqualTo(constraintProviderScoreManager.updateScore(roster));
+        scoreDirector.close();
+    }
+
+    private static Map<String, HardMediumSoftLongScore> getConstraintNameToScoreMap(
+            ScoreManager<Roster, HardMediumSoftLongScore> scoreManager, Roster roster) {
+        Map<String, HardMediumSoftLongScore> constraintNameToScoreMap = new TreeMap<>();
+        for (ConstraintMatchTotal<HardMediumSoftLongScore> constraintMatchTotal : scoreManager.explainScore(roster)
+                .getConstraintMatchTotalMap().values()) {
+            if (constraintMatchTotal.getConstraintMatchCount() > 0) {
+                constraintNameToScoreMap.put(constraintMatchTotal.getConstraintName(), constraintMatchTotal.getScore());
+            }
+        }
+        return constraintNameToScoreMap;
+    }
+}
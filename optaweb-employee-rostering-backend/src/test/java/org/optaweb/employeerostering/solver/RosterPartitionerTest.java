@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.solver.RosterPartitioner;
+
+public class RosterPartitionerTest {
+
+    private static final Integer TENANT_ID = 0;
+    private static final LocalDate FIRST_DRAFT_DATE = LocalDate.of(2021, 1, 4);
+
+    private Spot ward;
+    private Spot otherWard;
+    private Spot surgery;
+    private Employee employee;
+    private RosterState rosterState;
+    private long nextId;
+
+    @BeforeEach
+    public void setup() {
+        nextId = 1L;
+        Skill nurse = new Skill(TENANT_ID, "Nurse");
+        nurse.setId(nextId++);
+        Skill doctor = new Skill(TENANT_ID, "Doctor");
+        doctor.setId(nextId++);
+        ward = new Spot(TENANT_ID, "Ward", Collections.singleton(nurse));
+        ward.setId(nextId++);
+        otherWard = new Spot(TENANT_ID, "Other ward", Collections.singleton(nurse));
+        otherWard.setId(nextId++);
+        surgery = new Spot(TENANT_ID, "Surgery", Collections.singleton(doctor));
+        surgery.setId(nextId++);
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        contract.setId(nextId++);
+        employee = new Employee(TENANT_ID, "Employee", contract, Collections.singleton(nurse));
+        employee.setId(nextId++);
+        rosterState = new RosterState(TENANT_ID, 7, FIRST_DRAFT_DATE, 7, 28, 0, 7, FIRST_DRAFT_DATE.minusDays(8),
+                ZoneOffset.UTC);
+    }
+
+    private Shift createShift(Spot spot, int day) {
+        OffsetDateTime start = FIRST_DRAFT_DATE.plusDays(day).atTime(9, 0).atOffset(ZoneOffset.UTC);
+        Shift shift = new Shift(TENANT_ID, spot, start, start.plusHours(8));
+        shift.setId(nextId++);
+        shift.setEmployee(employee);
+        return shift;
+    }
+
+    private Roster createRoster(List<Shift> shiftList) {
+        return new Roster(0L, TENANT_ID, new RosterConstraintConfiguration(TENANT_ID, FIRST_DRAFT_DATE.getDayOfWeek()),
+                Collections.emptyList(), Arrays.asList(ward, otherWard, surgery), Collections.singletonList(employee),
+                Collections.emptyList(), rosterState, shiftList);
+    }
+
+    @Test
+    public void testSpotsWithTheSameRequiredSkillsShareParts() {
+        List<Shift> shiftList = new ArrayList<>();
+        for (int day = 0; day < 14; day++) {
+            shiftList.add(createShift(ward, day));
+            shiftList.add(createShift(otherWard, day));
+            shiftList.add(createShift(surgery, day));
+        }
+        List<Roster> partList = new RosterPartitioner().splitRoster(createRoster(shiftList), 4);
+
+        // 2 spot groups times 2 weeks
+        assertThat(partList).hasSize(4);
+        for (Roster part : partList) {
+            assertThat(part.getShiftList().stream().map(shift -> shift.getSpot().getRequiredSkillSet()).distinct())
+                    .hasSize(1);
+            // Problem facts are shared, not copied
+            assertThat(part.getEmployeeList()).containsExactly(employee);
+        }
+        // Every movable shift is copied into exactly one part, with its employee
+        List<Shift> partShiftList = partList.stream().flatMap(part -> part.getShiftList().stream())
+                .collect(Collectors.toList());
+        assertThat(partShiftList).containsExactlyInAnyOrderElementsOf(shiftList);
+        assertThat(partShiftList).allSatisfy(shift -> assertThat(shift.getEmployee()).isSameAs(employee));
+        assertThat(partShiftList).noneMatch(shift -> shiftList.stream().anyMatch(original -> original == shift));
+    }
+
+    @Test
+    public void testPinnedShiftsAreLeftOut() {
+        Shift publishedShift = createShift(ward, -1);
+        Shift pinnedShift = createShift(ward, 1);
+        pinnedShift.setPinnedByUser(true);
+        Shift draftShift = createShift(ward, 2);
+        List<Roster> partList = new RosterPartitioner().splitRoster(
+                createRoster(Arrays.asList(publishedShift, pinnedShift, draftShift)), 4);
+
+        assertThat(partList).hasSize(1);
+        assertThat(partList.get(0).getShiftList()).containsExactly(draftShift);
+    }
+
+    @Test
+    public void testAllPinnedIsOnePart() {
+        Shift publishedShift = createShift(ward, -1);
+        Shift pinnedShift = createShift(surgery, 1);
+        pinnedShift.setPinnedByUser(true);
+        List<Roster> partList = new RosterPartitioner().splitRoster(
+                createRoster(Arrays.asList(publishedShift, pinnedShift)), 4);
+
+        assertThat(partList).hasSize(1);
+        assertThat(partList.get(0).getShiftList()).containsExactly(publishedShift, pinnedShift);
+        assertThat(partList.get(0).getShiftList()).noneMatch(shift -> shift == publishedShift || shift == pinnedShift);
+        assertThat(new RosterPartitioner().splitRoster(createRoster(Collections.emptyList()), 4)).hasSize(1);
+    }
+
+    @Test
+    public void testCellsAreMergedDownToThePartCount() {
+        List<Shift> shiftList = new ArrayList<>();
+        for (int day = 0; day < 28; day++) {
+            shiftList.add(createShift(ward, day));
+            shiftList.add(createShift(surgery, day));
+        }
+        RosterPartitioner partitioner = new RosterPartitioner();
+        List<Roster> partList = partitioner.splitRoster(createRoster(shiftList), 2);
+
+        // 2 spot groups times 4 weeks, merged into 1 part per spot group
+        assertThat(partList).hasSize(2);
+        assertThat(partList).allSatisfy(part -> assertThat(part.getShiftList()).hasSize(28));
+
+        partitioner.setWindowLengthInDays(1);
+        assertThat(partitioner.splitRoster(createRoster(shiftList), 56)).hasSize(56);
+        assertThatIllegalArgumentException().isThrownBy(() -> partitioner.splitRoster(createRoster(shiftList), 0));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaweb.employeerostering.domain.roster.MoveThreadSizing;
+import org.optaweb.employeerostering.service.solver.RosterPartitioner;
+import org.optaweb.employeerostering.service.solver.RosterSolverConfigFactory;
+
+public class RosterSolverConfigFactoryTest {
+
+    private final RosterSolverConfigFactory solverConfigFactory = new RosterSolverConfigFactory(new SolverConfig(), 16);
+
+    @Test
+    public void testSmallRosterIsSingleThreaded() {
+        MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(100, 50, 1);
+        assertThat(moveThreadSizing.isMultithreaded()).isFalse();
+        assertThat(moveThreadSizing.getProblemScale()).isEqualTo(5000L);
+
+        SolverConfig solverConfig = solverConfigFactory.buildSolverConfig(moveThreadSizing);
+        assertThat(solverConfig.getMoveThreadCount()).isEqualTo(SolverConfig.MOVE_THREAD_COUNT_NONE);
+    }
+
+    @Test
+    public void testLargeRosterUsesIdleProcessors() {
+        MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(5000, 200, 1);
+        // Every processor but the one of the solver thread
+        assertThat(moveThreadSizing.getMoveThreadCount()).isEqualTo(15);
+        assertThat(moveThreadSizing.getMoveThreadBufferSize())
+                .isEqualTo(RosterSolverConfigFactory.LARGE_PROBLEM_MOVE_THREAD_BUFFER_SIZE);
+
+        SolverConfig solverConfig = solverConfigFactory.buildSolverConfig(moveThreadSizing);
+        assertThat(solverConfig.getMoveThreadCount()).isEqualTo("15");
+        assertThat(solverConfig.getMoveThreadBufferSize())
+                .isEqualTo(RosterSolverConfigFactory.LARGE_PROBLEM_MOVE_THREAD_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testMoveThreadsGrowWithRosterSize() {
+        // 100_000 is enough work for 5 move threads
+        MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(1000, 100, 1);
+        assertThat(moveThreadSizing.getMoveThreadCount()).isEqualTo(5);
+        assertThat(moveThreadSizing.getMoveThreadBufferSize())
+                .isEqualTo(RosterSolverConfigFactory.DEFAULT_MOVE_THREAD_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testConcurrentSolversShareProcessors() {
+        assertThat(solverConfigFactory.sizeMoveThreads(5000, 200, 2).getMoveThreadCount()).isEqualTo(7);
+        assertThat(solverConfigFactory.sizeMoveThreads(5000, 200, 4).getMoveThreadCount()).isEqualTo(3);
+        assertThat(solverConfigFactory.sizeMoveThreads(5000, 200, 8).isMultithreaded()).isFalse();
+        assertThatIllegalArgumentException().isThrownBy(() -> solverConfigFactory.sizeMoveThreads(5000, 200, 0));
+    }
+
+    @Test
+    public void testPartitionedSearchUsesPartThreadsInsteadOfMoveThreads() {
+        MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(5000, 200, 2, true);
+        assertThat(moveThreadSizing.isMultithreaded()).isFalse();
+        assertThat(moveThreadSizing.getRunnablePartThreadLimit()).isEqualTo(8);
+
+        SolverConfig solverConfig = solverConfigFactory.buildSolverConfig(moveThreadSizing);
+        assertThat(solverConfig.getMoveThreadCount()).isEqualTo(SolverConfig.MOVE_THREAD_COUNT_NONE);
+        // The local search on the whole roster fixes the constraints between parts
+        assertThat(solverConfig.getPhaseConfigList()).hasSize(2);
+        PartitionedSearchPhaseConfig partitionedSearchPhaseConfig =
+                (PartitionedSearchPhaseConfig) solverConfig.getPhaseConfigList().get(0);
+        assertThat(partitionedSearchPhaseConfig.getSolutionPartitionerClass()).isEqualTo(RosterPartitioner.class);
+        assertThat(partitionedSearchPhaseConfig.getRunnablePartThreadLimit()).isEqualTo("8");
+        assertThat(solverConfig.getPhaseConfigList().get(1)).isInstanceOf(LocalSearchPhaseConfig.class);
+    }
+
+    @Test
+    public void testNeighbourhoodReplanTerminatesWhenUnimproved() {
+        MoveThreadSizing moveThreadSizing = solverConfigFactory.sizeMoveThreads(100, 50, 1);
+        SolverConfig solverConfig = solverConfigFactory.buildNeighbourhoodReplanSolverConfig(moveThreadSizing);
+        assertThat(solverConfig.getTerminationConfig().getUnimprovedSecondsSpentLimit())
+                .isEqualTo(RosterSolverConfigFactory.NEIGHBOURHOOD_REPLAN_UNIMPROVED_SECONDS_SPENT_LIMIT);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> solverConfigFactory.buildNeighbourhoodReplanSolverConfig(
+                solverConfigFactory.sizeMoveThreads(5000, 200, 2, true)));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaweb.employeerostering.domain.contract.Contract;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.roster.RosterState;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.skill.Skill;
+import org.optaweb.employeerostering.domain.skill.SkillIndex;
+import org.optaweb.employeerostering.domain.spot.Spot;
+import org.optaweb.employeerostering.domain.tenant.RosterConstraintConfiguration;
+import org.optaweb.employeerostering.service.solver.RotationWarmStartPhaseCommand;
+
+public class RotationWarmStartPhaseCommandTest {
+
+    private static final Integer TENANT_ID = 0;
+    private static final LocalDate FIRST_DRAFT_DATE = LocalDate.of(2021, 1, 4);
+    private static final int ROTATION_LENGTH = 7;
+
+    private Skill nurse;
+    private Spot ward;
+    private Employee nurseA;
+    private Employee nurseB;
+    private Employee cleaner;
+    private RosterState rosterState;
+    private long nextId;
+
+    @BeforeEach
+    public void setup() {
+        nextId = 1L;
+        nurse = new Skill(TENANT_ID, "Nurse");
+        nurse.setId(nextId++);
+        ward = new Spot(TENANT_ID, "Ward", Collections.singleton(nurse));
+        ward.setId(nextId++);
+        Contract contract = new Contract(TENANT_ID, "Contract");
+        contract.setId(nextId++);
+        nurseA = new Employee(TENANT_ID, "Nurse A", contract, Collections.singleton(nurse));
+        nurseA.setId(nextId++);
+        nurseB = new Employee(TENANT_ID, "Nurse B", contract, Collections.singleton(nurse));
+        nurseB.setId(nextId++);
+        cleaner = new Employee(TENANT_ID, "Cleaner", contract, Collections.emptySet());
+        cleaner.setId(nextId++);
+        rosterState = new RosterState(TENANT_ID, 7, FIRST_DRAFT_DATE, 7, 28, 0, ROTATION_LENGTH,
+                FIRST_DRAFT_DATE.minusDays(8), ZoneOffset.UTC);
+    }
+
+    private Shift createShift(int day, int startHour, Employee rotationEmployee, Employee employee) {
+        OffsetDateTime start = FIRST_DRAFT_DATE.plusDays(day).atTime(startHour, 0).atOffset(ZoneOffset.UTC);
+        Shift shift = new Shift(TENANT_ID, ward, start, start.plusHours(8), rotationEmployee);
+        shift.setId(nextId++);
+        shift.setEmployee(employee);
+        return shift;
+    }
+
+    private ScoreDirector<Roster> warmStart(Shift... shifts) {
+        return warmStart(createRoster(Collections.emptyList(), shifts));
+    }
+
+    private Roster createRoster(List<EmployeeAvailability> employeeAvailabilityList, Shift... shifts) {
+        return new Roster(0L, TENANT_ID,
+                new RosterConstraintConfiguration(TENANT_ID, FIRST_DRAFT_DATE.getDayOfWeek()),
+                Collections.singletonList(nurse), Collections.singletonList(ward),
+                Arrays.asList(nurseA, nurseB, cleaner), employeeAvailabilityList, rosterState, Arrays.asList(shifts));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScoreDirector<Roster> warmStart(Roster roster) {
+        ScoreDirector<Roster> scoreDirector = mock(ScoreDirector.class);
+        when(scoreDirector.getWorkingSolution()).thenReturn(roster);
+        new RotationWarmStartPhaseCommand().changeWorkingSolution(scoreDirector);
+        return scoreDirector;
+    }
+
+    @Test
+    public void testRotationEmployeeFirst() {
+        Shift draftShift = createShift(0, 9, nurseA, null);
+        ScoreDirector<Roster> scoreDirector = warmStart(draftShift);
+
+        assertThat(draftShift.getEmployee()).isSameAs(nurseA);
+        verify(scoreDirector).beforeVariableChanged(draftShift, "employee");
+        verify(scoreDirector).afterVariableChanged(draftShift, "employee");
+    }
+
+    @Test
+    public void testPreviousCycleEmployeeOfTheSameSeat() {
+        // The cleaner lacks the skill, so the seat falls back to who took it a rotation ago
+        Shift previousCycleShift = createShift(-ROTATION_LENGTH, 9, cleaner, nurseB);
+        Shift draftShift = createShift(0, 9, cleaner, null);
+        Shift nextCycleDraftShift = createShift(ROTATION_LENGTH, 9, cleaner, null);
+        Shift otherSeatDraftShift = createShift(1, 9, cleaner, null);
+        warmStart(previousCycleShift, nextCycleDraftShift, draftShift, otherSeatDraftShift);
+
+        assertThat(draftShift.getEmployee()).isSameAs(nurseB);
+        // Follows the assignment made to the seat earlier in the phase
+        assertThat(nextCycleDraftShift.getEmployee()).isSameAs(nurseB);
+        assertThat(otherSeatDraftShift.getEmployee()).isNull();
+        assertThat(previousCycleShift.getEmployee()).isSameAs(nurseB);
+    }
+
+    @Test
+    public void testNoAssignmentWithoutABreak() {
+        Shift pinnedShift = createShift(1, 1, null, nurseA);
+        pinnedShift.setPinnedByUser(true);
+        // Starts 8 hours after the pinned shift ends
+        Shift draftShift = createShift(1, 17, nurseA, null);
+        ScoreDirector<Roster> scoreDirector = warmStart(pinnedShift, draftShift);
+
+        assertThat(draftShift.getEmployee()).isNull();
+        verify(scoreDirector, never()).beforeVariableChanged(draftShift, "employee");
+    }
+
+    @Test
+    public void testPublishedShiftsAreNotTouched() {
+        Shift publishedShift = createShift(-1, 9, nurseA, null);
+        warmStart(publishedShift);
+
+        assertThat(publishedShift.getEmployee()).isNull();
+    }
+
+    @Test
+    public void testWithoutEligibleEmployeeRange() {
+        Shift unqualifiedShift = createShift(0, 9, cleaner, null);
+        Shift unavailableShift = createShift(1, 9, nurseA, null);
+        Shift availableShift = createShift(2, 9, nurseA, null);
+        EmployeeAvailability unavailability = new EmployeeAvailability(TENANT_ID, nurseA,
+                unavailableShift.getStartDateTime().plusHours(7), unavailableShift.getEndDateTime().plusHours(7));
+        unavailability.setState(EmployeeAvailabilityState.UNAVAILABLE);
+        Roster roster = createRoster(Collections.singletonList(unavailability),
+                unqualifiedShift, unavailableShift, availableShift);
+        SkillIndex.indexRoster(roster);
+        // Every employee is eligible for every shift
+        EligibleEmployeeIndex.indexRoster(roster, false);
+        warmStart(roster);
+
+        assertThat(unqualifiedShift.getEmployee()).isNull();
+        assertThat(unavailableShift.getEmployee()).isNull();
+        assertThat(availableShift.getEmployee()).isSameAs(nurseA);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering;
+
+import static org.optaplanner.core.api.score.stream.Joiners.equal;
+import static org.optaplanner.core.api.score.stream.Joiners.greaterThan;
+import static org.optaplanner.core.api.score.stream.Joiners.lessThan;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintFactory;
+import org.optaplanner.core.api.score.stream.ConstraintProvider;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+import org.optaweb.employeerostering.domain.employee.Employee;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailabilityState;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times the incremental score calculation of the same employee changes on one roster, with the same constraint
+ * streams score director, once on the date times of the shifts and availabilities, as the constraints used to be,
+ * and once on their precomputed epoch minutes.
+ * Only the constraints that join or subtract on time are compared, with fixed weights.
+ */
+public class EpochMinuteMicrobenchmark {
+
+    private static final int WARM_UP_ITERATION_COUNT = 10;
+    private static final int MEASURED_ITERATION_COUNT = 20;
+    private static final int MOVE_COUNT_PER_ITERATION = 10_000;
+    private static final long RANDOM_SEED = 37L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // Keeps the JIT from eliminating the score calculation as dead code
+    private long blackhole = 0L;
+
+    public void benchmark(Roster roster) {
+        logger.info("Changing the employee of {} shifts of roster ({}) with {} shifts, per iteration.",
+                MOVE_COUNT_PER_ITERATION, roster, roster.getShiftList().size());
+        List<Employee> originalEmployeeList = new ArrayList<>(roster.getShiftList().size());
+        roster.getShiftList().forEach(shift -> originalEmployeeList.add(shift.getEmployee()));
+
+        measure("Date times", DateTimeConstraintProvider.class, roster);
+        // Same changes from the same assignments
+        for (int i = 0; i < originalEmployeeList.size(); i++) {
+            roster.getShiftList().get(i).setEmployee(originalEmployeeList.get(i));
+        }
+        measure("Epoch minutes", EpochMinuteConstraintProvider.class, roster);
+        logger.info("Blackhole ({}).", blackhole);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void measure(String name, Class<? extends ConstraintProvider> constraintProviderClass, Roster roster) {
+        SolverConfig solverConfig = SolverConfig.createFromXmlResource("solverConfig.xml")
+                .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                        .withConstraintProviderClass(constraintProviderClass));
+        DefaultSolverFactory<Roster> solverFactory = (DefaultSolverFactory<Roster>) SolverFactory.<Roster> create(
+                solverConfig);
+        InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore> scoreDirectorFactory =
+                (InnerScoreDirectorFactory<Roster, HardMediumSoftLongScore>) solverFactory.getScoreDirectorFactory();
+        InnerScoreDirector<Roster, HardMediumSoftLongScore> scoreDirector =
+                scoreDirectorFactory.buildScoreDirector(false, false);
+        try {
+            scoreDirector.setWorkingSolution(roster);
+            Random random = new Random(RANDOM_SEED);
+            for (int i = 0; i < WARM_UP_ITERATION_COUNT; i++) {
+                changeEmployees(scoreDirector, roster, random);
+            }
+            long[] nanosArray = new long[MEASURED_ITERATION_COUNT];
+            for (int i = 0; i < MEASURED_ITERATION_COUNT; i++) {
+                long start = System.nanoTime();
+                changeEmployees(scoreDirector, roster, random);
+                nanosArray[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanosArray);
+            long medianNanos = nanosArray[MEASURED_ITERATION_COUNT / 2];
+            logger.info("{}: median {} us, min {} us, max {} us, median {} score calculations per second.", name,
+                    medianNanos / 1_000L, nanosArray[0] / 1_000L, nanosArray[MEASURED_ITERATION_COUNT - 1] / 1_000L,
+                    MOVE_COUNT_PER_ITERATION * 1_000_000_000L / medianNanos);
+        } finally {
+            scoreDirector.close();
+        }
+    }
+
+    private void changeEmployees(InnerScoreDirector<Roster, HardMediumSoftLongScore> scoreDirector, Roster roster,
+            Random random) {
+        List<Shift> shiftList = roster.getShiftList();
+        List<Employee> employeeList = roster.getEmployeeList();
+        for (int i = 0; i < MOVE_COUNT_PER_ITERATION; i++) {
+            Shift shift = shiftList.get(random.nextInt(shiftList.size()));
+            scoreDirector.beforeVariableChanged(shift, "employee");
+            shift.setEmployee(employeeList.get(random.nextInt(employeeList.size())));
+            scoreDirector.afterVariableChanged(shift, "employee");
+            scoreDirector.triggerVariableListeners();
+            blackhole += scoreDirector.calculateScore().getHardScore();
+        }
+    }
+
+    /**
+     * The time constraints of the EmployeeRosteringConstraintProvider before the epoch minutes,
+     * joining on OffsetDateTime and measuring with ChronoUnit.
+     */
+    public static class DateTimeConstraintProvider implements ConstraintProvider {
+
+        @Override
+        public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+            return new Constraint[] {
+                    unavailableEmployeeTimeSlot(constraintFactory),
+                    noOverlappingShifts(constraintFactory),
+                    noMoreThanTwoConsecutiveShifts(constraintFactory),
+                    breakBetweenNonConsecutiveShiftsIsAtLeastTenHours(constraintFactory)
+            };
+        }
+
+        private static long getLengthInMinutes(Shift shift) {
+            return ChronoUnit.MINUTES.between(shift.getStartDateTime(), shift.getEndDateTime());
+        }
+
+        Constraint unavailableEmployeeTimeSlot(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(EmployeeAvailability.class)
+                    .filter(employeeAvailability -> employeeAvailability
+                            .getState() == EmployeeAvailabilityState.UNAVAILABLE)
+                    .join(Shift.class,
+                            equal(EmployeeAvailability::getEmployee, Shift::getEmployee),
+                            lessThan(EmployeeAvailability::getStartDateTime, Shift::getEndDateTime),
+                            greaterThan(EmployeeAvailability::getEndDateTime, Shift::getStartDateTime))
+                    .penalizeLong("Unavailable time slot", HardMediumSoftLongScore.ONE_HARD,
+                            (employeeAvailability, shift) -> getLengthInMinutes(shift));
+        }
+
+        Constraint noOverlappingShifts(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            lessThan(Shift::getStartDateTime, Shift::getEndDateTime),
+                            greaterThan(Shift::getEndDateTime, Shift::getStartDateTime))
+                    .filter((shift, otherShift) -> !Objects.equals(shift, otherShift))
+                    .penalizeLong("No overlapping shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (shift, otherShift) -> getLengthInMinutes(otherShift));
+        }
+
+        Constraint noMoreThanTwoConsecutiveShifts(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            equal(Shift::getEndDateTime, Shift::getStartDateTime))
+                    .filter((s1, s2) -> !Objects.equals(s1, s2))
+                    .join(Shift.class,
+                            equal((s1, s2) -> s2.getEmployee(), Shift::getEmployee),
+                            equal((s1, s2) -> s2.getEndDateTime(), Shift::getStartDateTime))
+                    .penalizeLong("No more than 2 consecutive shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (s1, s2, s3) -> getLengthInMinutes(s3));
+        }
+
+        Constraint breakBetweenNonConsecutiveShiftsIsAtLeastTenHours(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            lessThan(Shift::getEndDateTime, Shift::getStartDateTime))
+                    .filter((s1, s2) -> !Objects.equals(s1, s2))
+                    .filter((s1, s2) -> s1.getEndDateTime().until(s2.getStartDateTime(), ChronoUnit.HOURS) < 10)
+                    .penalizeLong("Break between non-consecutive shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (s1, s2) -> (10 * 60)
+                                    - s1.getEndDateTime().until(s2.getStartDateTime(), ChronoUnit.MINUTES));
+        }
+    }
+
+    /**
+     * The same constraints as {@link DateTimeConstraintProvider}, on the epoch minutes,
+     * as the EmployeeRosteringConstraintProvider has them.
+     */
+    public static class EpochMinuteConstraintProvider implements ConstraintProvider {
+
+        @Override
+        public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
+            return new Constraint[] {
+                    unavailableEmployeeTimeSlot(constraintFactory),
+                    noOverlappingShifts(constraintFactory),
+                    noMoreThanTwoConsecutiveShifts(constraintFactory),
+                    breakBetweenNonConsecutiveShiftsIsAtLeastTenHours(constraintFactory)
+            };
+        }
+
+        Constraint unavailableEmployeeTimeSlot(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(EmployeeAvailability.class)
+                    .filter(employeeAvailability -> employeeAvailability
+                            .getState() == EmployeeAvailabilityState.UNAVAILABLE)
+                    .join(Shift.class,
+                            equal(EmployeeAvailability::getEmployee, Shift::getEmployee),
+                            lessThan(EmployeeAvailability::getStartEpochMinute, Shift::getEndEpochMinute),
+                            greaterThan(EmployeeAvailability::getEndEpochMinute, Shift::getStartEpochMinute))
+                    .penalizeLong("Unavailable time slot", HardMediumSoftLongScore.ONE_HARD,
+                            (employeeAvailability, shift) -> shift.getLengthInMinutes());
+        }
+
+        Constraint noOverlappingShifts(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            lessThan(Shift::getStartEpochMinute, Shift::getEndEpochMinute),
+                            greaterThan(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
+                    .filter((shift, otherShift) -> !Objects.equals(shift, otherShift))
+                    .penalizeLong("No overlapping shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (shift, otherShift) -> otherShift.getLengthInMinutes());
+        }
+
+        Constraint noMoreThanTwoConsecutiveShifts(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            equal(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
+                    .filter((s1, s2) -> !Objects.equals(s1, s2))
+                    .join(Shift.class,
+                            equal((s1, s2) -> s2.getEmployee(), Shift::getEmployee),
+                            equal((s1, s2) -> s2.getEndEpochMinute(), Shift::getStartEpochMinute))
+                    .penalizeLong("No more than 2 consecutive shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (s1, s2, s3) -> s3.getLengthInMinutes());
+        }
+
+        Constraint breakBetweenNonConsecutiveShiftsIsAtLeastTenHours(ConstraintFactory constraintFactory) {
+            return constraintFactory.from(Shift.class)
+                    .join(Shift.class,
+                            equal(Shift::getEmployee),
+                            lessThan(Shift::getEndEpochMinute, Shift::getStartEpochMinute))
+                    .filter((s1, s2) -> !Objects.equals(s1, s2))
+                    .filter((s1, s2) -> s2.getStartEpochMinute() - s1.getEndEpochMinute() < 10 * 60)
+                    .penalizeLong("Break between non-consecutive shifts", HardMediumSoftLongScore.ONE_HARD,
+                            (s1, s2) -> (10 * 60) - (s2.getStartEpochMinute() - s1.getEndEpochMinute()));
+        }
+    }
+}
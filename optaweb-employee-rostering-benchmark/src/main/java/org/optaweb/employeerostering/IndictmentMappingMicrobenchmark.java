@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaweb.employeerostering;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.score.constraint.Indictment;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.shift.view.ShiftView;
+import org.optaweb.employeerostering.service.common.IndictmentUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times mapping every shift of a roster to its shift view with its indictment: with a pass over the constraint
+ * matches of the shift per type of violation, as IndictmentUtils used to, and with a single pass,
+ * on one thread and in parallel.
+ * The indictments are explained once up front, so only the mapping is timed.
+ */
+public class IndictmentMappingMicrobenchmark {
+
+    private static final int WARM_UP_ITERATION_COUNT = 10;
+    private static final int MEASURED_ITERATION_COUNT = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ScoreManager<Roster, HardMediumSoftLongScore> scoreManager;
+    private final IndictmentUtils indictmentUtils;
+    // Keeps the JIT from eliminating the mapping as dead code
+    private long blackhole = 0L;
+
+    public IndictmentMappingMicrobenchmark(ScoreManager<Roster, HardMediumSoftLongScore> scoreManager) {
+        this.scoreManager = scoreManager;
+        this.indictmentUtils = new IndictmentUtils(scoreManager);
+    }
+
+    public void benchmark(Roster roster) {
+        ZoneId zoneId = roster.getRosterState().getTimeZone();
+        List<Shift> shiftList = roster.getShiftList();
+        Map<Object, Indictment<HardMediumSoftLongScore>> indictmentMap =
+                scoreManager.explainScore(roster).getIndictmentMap();
+        logger.info("Mapping the {} shifts of roster ({}) with {} indictments.", shiftList.size(), roster,
+                indictmentMap.size());
+
+        measure("Pass per violation type", () -> shiftList.stream()
+                .map(shift -> mapWithPassPerViolationType(zoneId, shift, indictmentMap.get(shift)))
+                .collect(Collectors.toList()));
+        measure("Single pass", () -> shiftList.stream()
+                .map(shift -> indictmentUtils.getShiftViewWithIndictment(zoneId, shift, indictmentMap.get(shift)))
+                .collect(Collectors.toList()));
+        measure("Single pass, parallel", () -> shiftList.parallelStream()
+                .map(shift -> indictmentUtils.getShiftViewWithIndictment(zoneId, shift, indictmentMap.get(shift)))
+                .collect(Collectors.toList()));
+        logger.info("Blackhole ({}).", blackhole);
+    }
+
+    private void measure(String name, Supplier<List<ShiftView>> mapping) {
+        for (int i = 0; i < WARM_UP_ITERATION_COUNT; i++) {
+            blackhole += mapping.get().size();
+        }
+        long[] nanosArray = new long[MEASURED_ITERATION_COUNT];
+        for (int i = 0; i < MEASURED_ITERATION_COUNT; i++) {
+            long start = System.nanoTime();
+            blackhole += mapping.get().size();
+            nanosArray[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanosArray);
+        logger.info("{}: median {} us, min {} us, max {} us.", name,
+                nanosArray[MEASURED_ITERATION_COUNT / 2] / 1_000L, nanosArray[0] / 1_000L,
+                nanosArray[MEASURED_ITERATION_COUNT - 1] / 1_000L);
+    }
+
+    private ShiftView mapWithPassPerViolationType(ZoneId zoneId, Shift shift,
+            Indictment<HardMediumSoftLongScore> indictment) {
+        return new ShiftView(zoneId, shift,
+                indictmentUtils.getRequiredSkillViolationList(indictment),
+                indictmentUtils.getUnavailableEmployeeViolationList(indictment),
+                indictmentUtils.getShiftEmployeeConflictList(indictment),
+                indictmentUtils.getDesiredTimeslotForEmployeeRewardList(indictment),
+                indictmentUtils.getUndesiredTimeslotForEmployeePenaltyList(indictment),
+                indictmentUtils.getRotationViolationPenaltyList(indictment),
+                indictmentUtils.getUnassignedShiftPenaltyList(indictment),
+                indictmentUtils.getContractMinutesViolationList(indictment),
+                indictmentUtils.getNoBreakViolationList(indictment),
+                indictmentUtils.getPublishedShiftReassignedPenaltyList(indictment),
+                (indictment != null) ? indictment.getScore() : HardMediumSoftLongScore.ZERO);
+    }
+}
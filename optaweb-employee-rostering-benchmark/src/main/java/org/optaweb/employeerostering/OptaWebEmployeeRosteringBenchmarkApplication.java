@@ -16,6 +16,7 @@
 
 package org.optaweb.employeerostering;
 
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,9 +32,17 @@ import javax.transaction.UserTransaction;
 
 import org.optaplanner.benchmark.api.PlannerBenchmark;
 import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.config.PlannerBenchmarkConfig;
+import org.optaplanner.benchmark.config.SolverBenchmarkConfig;
+import org.optaplanner.core.api.score.ScoreManager;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaweb.employeerostering.domain.roster.EligibleEmployeeIndex;
 import org.optaweb.employeerostering.domain.roster.Roster;
 import org.optaweb.employeerostering.service.admin.SystemPropertiesRetriever;
 import org.optaweb.employeerostering.service.roster.RosterGenerator;
+import org.optaweb.employeerostering.service.roster.RosterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,12 +53,35 @@ import io.quarkus.runtime.annotations.QuarkusMain;
 @QuarkusMain
 public class OptaWebEmployeeRosteringBenchmarkApplication implements QuarkusApplication {
 
+    public static final String DEFAULT_BENCHMARK = "default";
+    // Same spots on a growing horizon, to show the score calculation speed does not depend on the horizon length
+    public static final String LOAD_BALANCING_BENCHMARK = "loadBalancing";
+    // Every dataset with and without the eligible employee value range, to compare the time to feasible
+    public static final String ELIGIBLE_EMPLOYEE_RANGE_BENCHMARK = "eligibleEmployeeRange";
+    // One large roster solved with 1 to N move threads, to show how the score calculation speed scales
+    public static final String MOVE_THREAD_SCALING_BENCHMARK = "moveThreadScaling";
+    // One very large roster solved with and without partitioned search, to compare the best score over time
+    public static final String PARTITIONED_SEARCH_BENCHMARK = "partitionedSearch";
+    // A long draft constructed with and without the rotation warm start, to compare the time to feasible
+    public static final String ROTATION_WARM_START_BENCHMARK = "rotationWarmStart";
+    // Not a solver benchmark: times mapping the shifts of a large roster to shift views with their indictments
+    public static final String INDICTMENT_MAPPING_BENCHMARK = "indictmentMapping";
+    // Not a solver benchmark: times copying 10k and 50k shifts into the time zone of the roster, with the allocations
+    public static final String ROSTER_LOADING_BENCHMARK = "rosterLoading";
+    // Not a solver benchmark: times the same score calculation on date times and on precomputed epoch minutes
+    public static final String EPOCH_MINUTE_BENCHMARK = "epochMinute";
+    // Not a solver benchmark: provisions 1, 4 and 16 weeks of the rotation of 200 spots, in shifts per second
+    public static final String PROVISIONING_BENCHMARK = "provisioning";
+
     @PersistenceContext
     EntityManager entityManager;
 
     @Inject
     UserTransaction userTransaction;
 
+    @Inject
+    RosterService rosterService;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     public static void main(String[] args) {
@@ -58,10 +90,60 @@ public class OptaWebEmployeeRosteringBenchmarkApplication implements QuarkusAppl
 
     @Override
     public int run(String... args) {
-        List<Roster> rosterList = generateRosters();
+        String benchmark = (args.length == 0) ? DEFAULT_BENCHMARK : args[0];
+        String benchmarkConfigResource;
+        List<Roster> rosterList;
+        switch (benchmark) {
+            case DEFAULT_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringBenchmarkConfig.xml";
+                rosterList = generateRosters();
+                break;
+            case LOAD_BALANCING_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringLoadBalancingBenchmarkConfig.xml";
+                rosterList = generateLoadBalancingRosters();
+                break;
+            case ELIGIBLE_EMPLOYEE_RANGE_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringEligibleEmployeeRangeBenchmarkConfig.xml";
+                rosterList = generateEligibleEmployeeRangeRosters();
+                break;
+            case MOVE_THREAD_SCALING_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringMoveThreadScalingBenchmarkConfig.xml";
+                rosterList = generateMoveThreadScalingRosters();
+                break;
+            case PARTITIONED_SEARCH_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringPartitionedSearchBenchmarkConfig.xml";
+                rosterList = generatePartitionedSearchRosters();
+                break;
+            case ROTATION_WARM_START_BENCHMARK:
+                benchmarkConfigResource = "employeeRosteringRotationWarmStartBenchmarkConfig.xml";
+                rosterList = generateRotationWarmStartRosters();
+                break;
+            case INDICTMENT_MAPPING_BENCHMARK:
+                ScoreManager<Roster, HardMediumSoftLongScore> scoreManager =
+                        ScoreManager.create(SolverFactory.createFromXmlResource("solverConfig.xml"));
+                new IndictmentMappingMicrobenchmark(scoreManager).benchmark(generateIndictmentMappingRoster());
+                return 0;
+            case ROSTER_LOADING_BENCHMARK:
+                new RosterLoadingMicrobenchmark().benchmark(generateRosterLoadingRoster(), 10_000, 50_000);
+                return 0;
+            case EPOCH_MINUTE_BENCHMARK:
+                new EpochMinuteMicrobenchmark().benchmark(generateEpochMinuteRoster());
+                return 0;
+            case PROVISIONING_BENCHMARK:
+                new ProvisioningMicrobenchmark(rosterService, entityManager, userTransaction)
+                        .benchmark(generateProvisioningRoster(), 7, 28, 28 * 4);
+                return 0;
+            default:
+                throw new IllegalArgumentException("The benchmark (" + benchmark + ") is not supported.");
+        }
+        logger.info("Running the {} benchmark on {} rosters.", benchmark, rosterList.size());
 
-        PlannerBenchmarkFactory benchmarkFactory = PlannerBenchmarkFactory.createFromXmlResource(
-                "employeeRosteringBenchmarkConfig.xml", getClass().getClassLoader());
+        PlannerBenchmarkConfig benchmarkConfig = PlannerBenchmarkConfig.createFromXmlResource(
+                benchmarkConfigResource, getClass().getClassLoader());
+        if (benchmark.equals(MOVE_THREAD_SCALING_BENCHMARK)) {
+            addMoveThreadScalingSolverBenchmarks(benchmarkConfig);
+        }
+        PlannerBenchmarkFactory benchmarkFactory = PlannerBenchmarkFactory.create(benchmarkConfig);
         PlannerBenchmark plannerBenchmark = benchmarkFactory.buildPlannerBenchmark(rosterList);
         plannerBenchmark.benchmark();
         return 0;
@@ -83,4 +165,186 @@ public class OptaWebEmployeeRosteringBenchmarkApplication implements QuarkusAppl
             throw new IllegalStateException("Failed to generate rosters.", e);
         }
     }
+
+    private List<Roster> generateLoadBalancingRosters() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            List<Roster> rosterList = new ArrayList<>();
+            for (int lengthInDays = 28; lengthInDays <= 28 * 8; lengthInDays *= 2) {
+                Roster roster = rosterGenerator.generateRoster(20, lengthInDays);
+                // The fairness constraint is disabled by default
+                roster.getRosterConstraintConfiguration().setBalanceEmployeeHours(HardMediumSoftLongScore.ofSoft(1));
+                rosterList.add(roster);
+            }
+            userTransaction.commit();
+
+            return rosterList;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private List<Roster> generateEligibleEmployeeRangeRosters() {
+        try {
+            userTransaction.begin();
+            SystemPropertiesRetriever systemPropertiesRetriever = new SystemPropertiesRetriever();
+            ZoneId zoneId = systemPropertiesRetriever.determineZoneId();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, systemPropertiesRetriever);
+
+            List<Roster> rosterList = new ArrayList<>();
+            for (RosterGenerator.GeneratorType generatorType : new RosterGenerator.GeneratorType[] {
+                    rosterGenerator.getHospitalGeneratorType(), rosterGenerator.getGuardSecurityGeneratorType() }) {
+                for (boolean restrictToEligibleEmployees : new boolean[] { true, false }) {
+                    // Same random seed, so both rosters of a dataset only differ in their tenant
+                    rosterGenerator.resetRandom();
+                    Roster roster = rosterGenerator.generateRoster(40, 28, generatorType, zoneId);
+                    EligibleEmployeeIndex.indexRoster(roster, restrictToEligibleEmployees);
+                    logger.info("Roster ({}) is a {} dataset with {}.", roster, generatorType.tenantNamePrefix,
+                            restrictToEligibleEmployees ? "eligible employees only" : "all employees");
+                    rosterList.add(roster);
+                }
+            }
+            userTransaction.commit();
+
+            return rosterList;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private List<Roster> generateMoveThreadScalingRosters() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            List<Roster> rosterList = new ArrayList<>();
+            rosterList.add(rosterGenerator.generateRoster(80, 28));
+            userTransaction.commit();
+
+            return rosterList;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private List<Roster> generatePartitionedSearchRosters() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            List<Roster> rosterList = new ArrayList<>();
+            // Thousands of draft shifts
+            rosterList.add(rosterGenerator.generateRoster(160, (28 * 2)));
+            userTransaction.commit();
+
+            return rosterList;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private List<Roster> generateRotationWarmStartRosters() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            List<Roster> rosterList = new ArrayList<>();
+            rosterList.add(rosterGenerator.generateRoster(80, (28 * 4)));
+            userTransaction.commit();
+
+            return rosterList;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private Roster generateIndictmentMappingRoster() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            // More shifts than IndictmentUtils.PARALLEL_SHIFT_VIEW_THRESHOLD
+            Roster roster = rosterGenerator.generateRoster(160, (28 * 4));
+            userTransaction.commit();
+
+            return roster;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private Roster generateRosterLoadingRoster() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            Roster roster = rosterGenerator.generateRoster(160, (28 * 4));
+            userTransaction.commit();
+
+            return roster;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private Roster generateEpochMinuteRoster() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            Roster roster = rosterGenerator.generateRoster(80, 28);
+            userTransaction.commit();
+
+            return roster;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private Roster generateProvisioningRoster() {
+        try {
+            userTransaction.begin();
+            RosterGenerator rosterGenerator = new RosterGenerator(entityManager, new SystemPropertiesRetriever());
+
+            Roster roster = rosterGenerator.generateRoster(200, 28);
+            userTransaction.commit();
+
+            return roster;
+        } catch (SystemException | HeuristicMixedException | HeuristicRollbackException | RollbackException
+                | NotSupportedException e) {
+            throw new IllegalStateException("Failed to generate rosters.", e);
+        }
+    }
+
+    private void addMoveThreadScalingSolverBenchmarks(PlannerBenchmarkConfig benchmarkConfig) {
+        int availableProcessorCount = Runtime.getRuntime().availableProcessors();
+        List<SolverBenchmarkConfig> solverBenchmarkConfigList = new ArrayList<>();
+        solverBenchmarkConfigList.add(createMoveThreadSolverBenchmarkConfig(SolverConfig.MOVE_THREAD_COUNT_NONE));
+        // Doubling up to the number of processors, which is always included
+        for (int moveThreadCount = 1; moveThreadCount < availableProcessorCount; moveThreadCount *= 2) {
+            solverBenchmarkConfigList.add(createMoveThreadSolverBenchmarkConfig(Integer.toString(moveThreadCount)));
+        }
+        solverBenchmarkConfigList.add(createMoveThreadSolverBenchmarkConfig(
+                Integer.toString(availableProcessorCount)));
+        benchmarkConfig.setSolverBenchmarkConfigList(solverBenchmarkConfigList);
+    }
+
+    private SolverBenchmarkConfig createMoveThreadSolverBenchmarkConfig(String moveThreadCount) {
+        SolverBenchmarkConfig solverBenchmarkConfig = new SolverBenchmarkConfig();
+        solverBenchmarkConfig.setName("moveThreadCount " + moveThreadCount);
+        SolverConfig solverConfig = new SolverConfig();
+        solverConfig.setMoveThreadCount(moveThreadCount);
+        solverBenchmarkConfig.setSolverConfig(solverConfig);
+        return solverBenchmarkConfig;
+    }
 }
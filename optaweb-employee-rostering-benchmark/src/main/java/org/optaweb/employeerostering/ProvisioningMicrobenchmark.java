@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.service.roster.RosterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times provisioning the shifts of the rotation of a roster, as RosterService does when it publishes,
+ * for a growing number of days after the roster, and reports the shifts provisioned per second.
+ * Each provisioning is its own transaction, so the time includes the inserts and the commit.
+ */
+public class ProvisioningMicrobenchmark {
+
+    private static final int WARM_UP_DAY_COUNT = 7;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final RosterService rosterService;
+    private final EntityManager entityManager;
+    private final UserTransaction userTransaction;
+
+    public ProvisioningMicrobenchmark(RosterService rosterService, EntityManager entityManager,
+            UserTransaction userTransaction) {
+        this.rosterService = rosterService;
+        this.entityManager = entityManager;
+        this.userTransaction = userTransaction;
+    }
+
+    public void benchmark(Roster roster, int... dayCounts) {
+        Integer tenantId = roster.getTenantId();
+        List<Long> timeBucketIdList = inTransaction(() -> entityManager
+                .createQuery("select t.id from TimeBucket t where t.tenantId = :tenantId", Long.class)
+                .setParameter("tenantId", tenantId)
+                .getResultList());
+        LocalDate fromDate = roster.getRosterState().getFirstUnplannedDate();
+        fromDate = provision(tenantId, timeBucketIdList, fromDate, WARM_UP_DAY_COUNT, "Warm up");
+        for (int dayCount : dayCounts) {
+            fromDate = provision(tenantId, timeBucketIdList, fromDate, dayCount, "Measured");
+        }
+    }
+
+    private LocalDate provision(Integer tenantId, List<Long> timeBucketIdList, LocalDate fromDate, int dayCount,
+            String name) {
+        LocalDate toDate = fromDate.plusDays(dayCount - 1);
+        long startShiftCount = countShifts(tenantId);
+        long start = System.nanoTime();
+        rosterService.provision(tenantId, 0, fromDate, toDate, timeBucketIdList);
+        long nanos = System.nanoTime() - start;
+        long shiftCount = countShifts(tenantId) - startShiftCount;
+        logger.info("{}: provisioned {} shifts of {} time buckets over {} days in {} ms, {} shifts per second.",
+                name, shiftCount, timeBucketIdList.size(), dayCount, nanos / 1_000_000L,
+                (nanos == 0L) ? 0L : shiftCount * 1_000_000_000L / nanos);
+        return toDate.plusDays(1);
+    }
+
+    private long countShifts(Integer tenantId) {
+        return inTransaction(() -> entityManager
+                .createQuery("select count(s) from Shift s where s.tenantId = :tenantId", Long.class)
+                .setParameter("tenantId", tenantId)
+                .getSingleResult());
+    }
+
+    private <T> T inTransaction(Callable<T> query) {
+        try {
+            userTransaction.begin();
+            T result = query.call();
+            userTransaction.commit();
+            return result;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to query the shifts.", e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaweb.employeerostering;
+
+import java.lang.management.ManagementFactory;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.optaweb.employeerostering.domain.employee.EmployeeAvailability;
+import org.optaweb.employeerostering.domain.employee.view.EmployeeAvailabilityView;
+import org.optaweb.employeerostering.domain.roster.Roster;
+import org.optaweb.employeerostering.domain.shift.Shift;
+import org.optaweb.employeerostering.domain.shift.view.ShiftView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Times and measures the allocation of copying the shifts and employee availabilities of a roster into the time zone
+ * of the roster, as RosterService does when it builds a roster: through a view of each entity, as inTimeZone() used to,
+ * and with inTimeZone(), which keeps the instants and only changes the offsets.
+ * The shifts of the roster are repeated up to each shift count, so a single generated roster covers every size.
+ */
+public class RosterLoadingMicrobenchmark {
+
+    private static final int WARM_UP_ITERATION_COUNT = 10;
+    private static final int MEASURED_ITERATION_COUNT = 20;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    // Keeps the JIT from eliminating the copies as dead code
+    private long blackhole = 0L;
+
+    public void benchmark(Roster roster, int... shiftCounts) {
+        ZoneId zoneId = roster.getRosterState().getTimeZone();
+        for (int shiftCount : shiftCounts) {
+            List<Shift> shiftList = repeat(roster.getShiftList(), shiftCount);
+            logger.info("Copying {} shifts of roster ({}) into time zone ({}).", shiftList.size(), roster, zoneId);
+            measure("Shifts through views", () -> copy(shiftList, shift -> copyThroughView(zoneId, shift)));
+            measure("Shifts in time zone", () -> copy(shiftList, shift -> shift.inTimeZone(zoneId)));
+        }
+        List<EmployeeAvailability> employeeAvailabilityList = roster.getEmployeeAvailabilityList();
+        logger.info("Copying {} employee availabilities of roster ({}) into time zone ({}).",
+                employeeAvailabilityList.size(), roster, zoneId);
+        measure("Employee availabilities through views", () -> copy(employeeAvailabilityList,
+                employeeAvailability -> copyThroughView(zoneId, employeeAvailability)));
+        measure("Employee availabilities in time zone", () -> copy(employeeAvailabilityList,
+                employeeAvailability -> employeeAvailability.inTimeZone(zoneId)));
+        logger.info("Blackhole ({}).", blackhole);
+    }
+
+    private static List<Shift> repeat(List<Shift> shiftList, int shiftCount) {
+        List<Shift> repeatedShiftList = new ArrayList<>(shiftCount);
+        for (int i = 0; i < shiftCount; i++) {
+            repeatedShiftList.add(shiftList.get(i % shiftList.size()));
+        }
+        return repeatedShiftList;
+    }
+
+    private static <T> List<T> copy(List<T> list, Function<T, T> copier) {
+        return list.stream().map(copier).collect(Collectors.toList());
+    }
+
+    private void measure(String name, Supplier<List<?>> copying) {
+        for (int i = 0; i < WARM_UP_ITERATION_COUNT; i++) {
+            blackhole += copying.get().size();
+        }
+        long threadId = Thread.currentThread().getId();
+        long[] nanosArray = new long[MEASURED_ITERATION_COUNT];
+        long allocatedBytes = 0L;
+        int copyCount = 0;
+        for (int i = 0; i < MEASURED_ITERATION_COUNT; i++) {
+            long startAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            int size = copying.get().size();
+            nanosArray[i] = System.nanoTime() - start;
+            allocatedBytes += threadMXBean.getThreadAllocatedBytes(threadId) - startAllocatedBytes;
+            copyCount += size;
+            blackhole += size;
+        }
+        Arrays.sort(nanosArray);
+        logger.info("{}: median {} us, min {} us, max {} us, {} allocated bytes per copy.", name,
+                nanosArray[MEASURED_ITERATION_COUNT / 2] / 1_000L, nanosArray[0] / 1_000L,
+                nanosArray[MEASURED_ITERATION_COUNT - 1] / 1_000L,
+                (copyCount == 0) ? 0L : allocatedBytes / copyCount);
+    }
+
+    private static Shift copyThroughView(ZoneId zoneId, Shift shift) {
+        Shift out = new Shift(zoneId, new ShiftView(zoneId, shift), shift.getSpot(), shift.getRotationEmployee(),
+                shift.getRequiredSkillSet(), shift.getOriginalEmployee());
+        out.setEmployee(shift.getEmployee());
+        return out;
+    }
+
+    private static EmployeeAvailability copyThroughView(ZoneId zoneId, EmployeeAvailability employeeAvailability) {
+        return new EmployeeAvailability(zoneId, new EmployeeAvailabilityView(zoneId, employeeAvailability),
+                employeeAvailability.getEmployee());
+    }
+}
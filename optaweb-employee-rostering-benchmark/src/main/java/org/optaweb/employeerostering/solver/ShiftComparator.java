@@ -22,8 +22,8 @@ import org.optaweb.employeerostering.domain.shift.Shift;
 
 public class ShiftComparator implements Comparator<Shift> {
 
-    private static final Comparator<Shift> DATE_TIME_COMPARATOR = Comparator.comparing(Shift::getStartDateTime)
-            .thenComparing(Shift::getEndDateTime);
+    private static final Comparator<Shift> DATE_TIME_COMPARATOR = Comparator.comparingLong(Shift::getStartEpochMinute)
+            .thenComparingLong(Shift::getEndEpochMinute);
 
     @Override
     public int compare(Shift a, Shift b) {